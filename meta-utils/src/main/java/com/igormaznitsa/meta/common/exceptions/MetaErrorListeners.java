@@ -17,10 +17,12 @@
 package com.igormaznitsa.meta.common.exceptions;
 
 import com.igormaznitsa.meta.annotation.Weight;
+import com.igormaznitsa.meta.common.utils.AlertDispatcher;
 import com.igormaznitsa.meta.common.utils.Assertions;
 import java.util.List;
 import java.util.concurrent.CopyOnWriteArrayList;
 import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
 import javax.annotation.concurrent.ThreadSafe;
 
 /**
@@ -34,6 +36,8 @@ public final class MetaErrorListeners {
 
   private static final List<MetaErrorListener> ERROR_LISTENERS = new CopyOnWriteArrayList<>();
 
+  private static volatile AlertDispatcher alertDispatcher;
+
   private MetaErrorListeners() {
   }
 
@@ -77,14 +81,46 @@ public final class MetaErrorListeners {
   }
 
   /**
-   * Send notifications to all listeners.
+   * Set dispatcher to notify listeners out of the thread firing error. If there is no dispatcher then listeners are notified synchronously.
+   *
+   * @param value dispatcher to be used, null to notify listeners synchronously
+   * @see AlertDispatcher
+   * @since 1.2.2
+   */
+  public static void setAlertDispatcher(@Nullable final AlertDispatcher value) {
+    alertDispatcher = value;
+  }
+
+  /**
+   * Get the current alert dispatcher.
+   *
+   * @return the current dispatcher, can be null
+   * @since 1.2.2
+   */
+  @Nullable
+  public static AlertDispatcher getAlertDispatcher() {
+    return alertDispatcher;
+  }
+
+  /**
+   * Send notifications to all listeners. If alert dispatcher is defined then listeners are notified by its consumer thread.
    *
    * @param text  message text
    * @param error error object
+   * @see #setAlertDispatcher(AlertDispatcher)
    * @since 1.0
    */
   @Weight(Weight.Unit.VARIABLE)
   public static void fireError(@Nonnull final String text, @Nonnull final Throwable error) {
+    final AlertDispatcher dispatcher = alertDispatcher;
+    if (dispatcher == null) {
+      deliver(text, error);
+    } else if (!ERROR_LISTENERS.isEmpty()) {
+      dispatcher.dispatch(() -> deliver(text, error));
+    }
+  }
+
+  private static void deliver(@Nonnull final String text, @Nonnull final Throwable error) {
     for (final MetaErrorListener p : ERROR_LISTENERS) {
       p.onDetectedError(text, error);
     }
@@ -16,8 +16,16 @@
 
 package com.igormaznitsa.meta.common.exceptions;
 
+import com.igormaznitsa.meta.common.utils.StackProfile;
 import com.igormaznitsa.meta.common.utils.TimeGuard;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamField;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
 import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
 
 /**
  * The Error shows that some time bounds violation detected during execution.
@@ -29,8 +37,22 @@ public class TimeViolationError extends AssertionError {
 
   private static final long serialVersionUID = 9175073973098827533L;
 
-  private final long detectedTimeInMilliseconds;
-  private final TimeGuard.TimeData item;
+  /**
+   * Serialized form keeps time in milliseconds for compatibility with previous versions.
+   *
+   * @serialField detectedTimeInMilliseconds long the detected time in milliseconds
+   * @serialField detectedTimeInNanoseconds long the detected time in nanoseconds, since 1.2.2
+   * @serialField item TimeGuard.TimeData the data container
+   */
+  private static final ObjectStreamField[] serialPersistentFields = {
+      new ObjectStreamField("detectedTimeInMilliseconds", long.class),
+      new ObjectStreamField("detectedTimeInNanoseconds", long.class),
+      new ObjectStreamField("item", TimeGuard.TimeData.class)
+  };
+
+  // not final to be restored by readObject
+  private long detectedTimeInNanoseconds;
+  private TimeGuard.TimeData item;
 
   /**
    * The Constructor.
@@ -41,11 +63,40 @@ public class TimeViolationError extends AssertionError {
    */
   public TimeViolationError(final long detectedTimeInMilliseconds,
                             @Nonnull final TimeGuard.TimeData item) {
+    this(Duration.ofMillis(detectedTimeInMilliseconds), item);
+  }
+
+  /**
+   * The Constructor.
+   *
+   * @param detectedTime the detected time with full resolution
+   * @param item         the data container contains registration data for time watcher
+   * @since 1.2.2
+   */
+  public TimeViolationError(@Nonnull final Duration detectedTime,
+                            @Nonnull final TimeGuard.TimeData item) {
     super(item.getAlertMessage());
-    this.detectedTimeInMilliseconds = detectedTimeInMilliseconds;
+    this.detectedTimeInNanoseconds = detectedTime.toNanos();
     this.item = item;
   }
 
+  private void writeObject(@Nonnull final ObjectOutputStream out) throws IOException {
+    final ObjectOutputStream.PutField fields = out.putFields();
+    fields.put("detectedTimeInMilliseconds", getDetectedTimeInMilliseconds());
+    fields.put("detectedTimeInNanoseconds", this.detectedTimeInNanoseconds);
+    fields.put("item", this.item);
+    out.writeFields();
+  }
+
+  private void readObject(@Nonnull final ObjectInputStream in)
+      throws IOException, ClassNotFoundException {
+    final ObjectInputStream.GetField fields = in.readFields();
+    this.detectedTimeInNanoseconds = fields.defaulted("detectedTimeInNanoseconds") ?
+        TimeUnit.MILLISECONDS.toNanos(fields.get("detectedTimeInMilliseconds", 0L)) :
+        fields.get("detectedTimeInNanoseconds", 0L);
+    this.item = (TimeGuard.TimeData) fields.get("item", null);
+  }
+
   /**
    * Get the difference between the expected max time and the detected time.
    *
@@ -53,7 +104,19 @@ public class TimeViolationError extends AssertionError {
    * @since 1.0
    */
   public long getDetectedViolationInMilliseconds() {
-    return this.detectedTimeInMilliseconds - this.item.getMaxAllowedDelayInMilliseconds();
+    return getDetectedTimeInMilliseconds() - this.item.getMaxAllowedDelayInMilliseconds();
+  }
+
+  /**
+   * Get the difference between the expected max time and the detected time with full resolution.
+   *
+   * @return difference between max time and detected time
+   * @since 1.2.2
+   */
+  @Nonnull
+  public Duration getDetectedViolation() {
+    return Duration.ofNanos(
+        this.detectedTimeInNanoseconds - this.item.getMaxAllowedDelayInNanoseconds());
   }
 
   /**
@@ -63,7 +126,18 @@ public class TimeViolationError extends AssertionError {
    * @since 1.0
    */
   public long getDetectedTimeInMilliseconds() {
-    return this.detectedTimeInMilliseconds;
+    return TimeUnit.NANOSECONDS.toMillis(this.detectedTimeInNanoseconds);
+  }
+
+  /**
+   * Get the detected time with full resolution.
+   *
+   * @return the detected time
+   * @since 1.2.2
+   */
+  @Nonnull
+  public Duration getDetectedTime() {
+    return Duration.ofNanos(this.detectedTimeInNanoseconds);
   }
 
   /**
@@ -75,4 +149,16 @@ public class TimeViolationError extends AssertionError {
   public TimeGuard.TimeData getData() {
     return this.item;
   }
+
+  /**
+   * Get stack samples of the guarded thread collected by watchdog before the violation.
+   *
+   * @return folded stack samples, null if there were no samples
+   * @see TimeGuard.TimeData#getStackProfile()
+   * @since 1.2.2
+   */
+  @Nullable
+  public StackProfile getStackProfile() {
+    return this.item.getStackProfile();
+  }
 }
@@ -0,0 +1,185 @@
+/*
+ * Copyright 2026 Igor Maznitsa.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.igormaznitsa.meta.common.templates;
+
+import static com.igormaznitsa.meta.common.utils.Assertions.assertNotNull;
+
+import com.igormaznitsa.meta.annotation.Weight;
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiConsumer;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.ThreadSafe;
+
+/**
+ * Concurrent map with weak keys compared by identity. Reading doesn't take any lock, writes lock only bin of the key, entries of collected keys are removed through reference
+ * queue by small portions during writes.
+ *
+ * @param <K> type of keys
+ * @param <V> type of values
+ * @since 1.2.2
+ */
+@ThreadSafe
+final class ConcurrentWeakIdentityMap<K, V> {
+
+  private static final int EXPUNGE_PER_WRITE = 8;
+
+  private final ConcurrentHashMap<Object, V> map = new ConcurrentHashMap<>();
+  private final ReferenceQueue<K> cleared = new ReferenceQueue<>();
+
+  /**
+   * Get value for key.
+   *
+   * @param key key to find value
+   * @return found value or null
+   */
+  @Nullable
+  @Weight(Weight.Unit.EXTRALIGHT)
+  V get(@Nonnull final K key) {
+    return this.map.get(new Probe(key));
+  }
+
+  /**
+   * Put value for key.
+   *
+   * @param key   key, it is kept by weak reference
+   * @param value value, it is kept by strong reference
+   * @return previous value for the key or null
+   */
+  @Nullable
+  @Weight(Weight.Unit.LIGHT)
+  V put(@Nonnull final K key, @Nonnull final V value) {
+    expunge(EXPUNGE_PER_WRITE);
+    return this.map.put(new WeakKey<>(assertNotNull(key), this.cleared), assertNotNull(value));
+  }
+
+  /**
+   * Remove value for key.
+   *
+   * @param key key to be removed
+   * @return removed value or null
+   */
+  @Nullable
+  @Weight(Weight.Unit.LIGHT)
+  V remove(@Nonnull final K key) {
+    expunge(EXPUNGE_PER_WRITE);
+    return this.map.remove(new Probe(key));
+  }
+
+  /**
+   * Get number of entries, entries of collected keys are removed before counting.
+   *
+   * @return number of entries
+   */
+  int size() {
+    expunge(Integer.MAX_VALUE);
+    return this.map.size();
+  }
+
+  /**
+   * Make snapshot of values for live keys, it doesn't block writers.
+   *
+   * @return list of values
+   */
+  @Nonnull
+  @Weight(Weight.Unit.VARIABLE)
+  List<V> values() {
+    expunge(Integer.MAX_VALUE);
+    final List<V> result = new ArrayList<>(this.map.size());
+    this.map.forEach((key, value) -> {
+      if (((WeakKey<?>) key).get() != null) {
+        result.add(value);
+      }
+    });
+    return result;
+  }
+
+  /**
+   * Visit entries with live keys, it doesn't block writers and reflects some state of the map since the call start.
+   *
+   * @param consumer consumer of keys and values
+   */
+  @Weight(Weight.Unit.VARIABLE)
+  void forEach(@Nonnull final BiConsumer<? super K, ? super V> consumer) {
+    expunge(Integer.MAX_VALUE);
+    this.map.forEach((key, value) -> {
+      @SuppressWarnings("unchecked") final K live = ((WeakKey<K>) key).get();
+      if (live != null) {
+        consumer.accept(live, value);
+      }
+    });
+  }
+
+  private void expunge(final int limit) {
+    Reference<? extends K> reference;
+    for (int i = 0; i < limit && (reference = this.cleared.poll()) != null; i++) {
+      this.map.remove(reference);
+    }
+  }
+
+  private static final class WeakKey<K> extends WeakReference<K> {
+
+    private final int hash;
+
+    private WeakKey(@Nonnull final K key, @Nonnull final ReferenceQueue<K> queue) {
+      super(key, queue);
+      this.hash = System.identityHashCode(key);
+    }
+
+    @Override
+    public boolean equals(@Nullable final Object that) {
+      if (this == that) {
+        return true;
+      }
+      if (!(that instanceof WeakKey)) {
+        return false;
+      }
+      final Object key = this.get();
+      return key != null && key == ((WeakKey<?>) that).get();
+    }
+
+    @Override
+    public int hashCode() {
+      return this.hash;
+    }
+  }
+
+  private static final class Probe {
+
+    private final Object key;
+
+    private Probe(@Nonnull final Object key) {
+      this.key = key;
+    }
+
+    @Override
+    public boolean equals(@Nullable final Object that) {
+      return that instanceof WeakKey && ((WeakKey<?>) that).get() == this.key;
+    }
+
+    @Override
+    public int hashCode() {
+      return System.identityHashCode(this.key);
+    }
+  }
+}
@@ -0,0 +1,291 @@
+/*
+ * Copyright 2026 Igor Maznitsa.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.igormaznitsa.meta.common.templates;
+
+import com.igormaznitsa.meta.annotation.Constraint;
+import com.igormaznitsa.meta.annotation.Weight;
+import com.igormaznitsa.meta.common.utils.CallTrace;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.Immutable;
+import javax.annotation.concurrent.ThreadSafe;
+
+/**
+ * Census of live instances of {@link KeepCreationPointTemplate} grouped by class and creation site, entries are ranked by number of instances. Only instances with captured
+ * creation point are counted. It can be used instead of heap dump to find places producing leaked objects.
+ *
+ * @see KeepCreationPointTemplate#census()
+ * @since 1.2.2
+ */
+@Immutable
+@ThreadSafe
+public final class CreationCensus {
+
+  private final long time;
+  private final List<Entry> entries;
+  private final int instanceCount;
+  private final int siteCount;
+  private final int classCount;
+
+  CreationCensus(final long time, @Nonnull final List<Entry> entries, final int siteCount) {
+    final List<Entry> sorted = new ArrayList<>(entries);
+    sorted.sort((a, b) -> {
+      final int result = Integer.compare(b.count, a.count);
+      return result == 0 ? a.className.compareTo(b.className) : result;
+    });
+    int instances = 0;
+    final Set<String> classes = new HashSet<>();
+    for (final Entry entry : sorted) {
+      instances += entry.count;
+      classes.add(entry.className);
+    }
+    this.time = time;
+    this.entries = Collections.unmodifiableList(sorted);
+    this.instanceCount = instances;
+    this.siteCount = siteCount;
+    this.classCount = classes.size();
+  }
+
+  private static void appendString(@Nonnull final StringBuilder buffer,
+                                   @Nullable final String text) {
+    if (text == null) {
+      buffer.append("null");
+      return;
+    }
+    buffer.append('"');
+    for (int i = 0; i < text.length(); i++) {
+      final char c = text.charAt(i);
+      switch (c) {
+        case '"':
+          buffer.append("\\\"");
+          break;
+        case '\\':
+          buffer.append("\\\\");
+          break;
+        case '\n':
+          buffer.append("\\n");
+          break;
+        case '\r':
+          buffer.append("\\r");
+          break;
+        case '\t':
+          buffer.append("\\t");
+          break;
+        default:
+          if (c < 0x20) {
+            buffer.append(String.format("\\u%04x", (int) c));
+          } else {
+            buffer.append(c);
+          }
+          break;
+      }
+    }
+    buffer.append('"');
+  }
+
+  /**
+   * Get time when the census was made.
+   *
+   * @return time in milliseconds since epoch
+   * @since 1.2.2
+   */
+  public long getTime() {
+    return this.time;
+  }
+
+  /**
+   * Get entries ranked by number of instances in descending order.
+   *
+   * @return unmodifiable list of entries
+   * @since 1.2.2
+   */
+  @Nonnull
+  public List<Entry> getEntries() {
+    return this.entries;
+  }
+
+  /**
+   * Get number of counted instances.
+   *
+   * @return number of live instances with captured creation point
+   * @since 1.2.2
+   */
+  public int getInstanceCount() {
+    return this.instanceCount;
+  }
+
+  /**
+   * Get number of distinct creation sites, the same site can be used by several classes.
+   *
+   * @return number of sites
+   * @since 1.2.2
+   */
+  public int getSiteCount() {
+    return this.siteCount;
+  }
+
+  /**
+   * Get number of distinct classes.
+   *
+   * @return number of classes
+   * @since 1.2.2
+   */
+  public int getClassCount() {
+    return this.classCount;
+  }
+
+  /**
+   * Make text report.
+   *
+   * @param maxEntries max number of top entries in report
+   * @param maxFrames  max number of frames shown for every entry
+   * @return report as text
+   * @since 1.2.2
+   */
+  @Nonnull
+  @Weight(Weight.Unit.VARIABLE)
+  public String toText(@Constraint("X>=0") final int maxEntries,
+                       @Constraint("X>=0") final int maxFrames) {
+    final StringBuilder buffer = new StringBuilder(256);
+    buffer.append("Creation census: ").append(this.instanceCount).append(" instances, ")
+        .append(this.siteCount).append(" sites, ").append(this.classCount).append(" classes");
+    final int count = Math.min(Math.max(0, maxEntries), this.entries.size());
+    for (int i = 0; i < count; i++) {
+      final Entry entry = this.entries.get(i);
+      buffer.append('\n').append('#').append(i + 1).append(' ').append(entry.count).append(' ')
+          .append(entry.className);
+      for (final StackTraceElement frame : entry.callTrace.getFrames(maxFrames)) {
+        buffer.append("\n    at ").append(frame);
+      }
+    }
+    if (count < this.entries.size()) {
+      buffer.append("\n... ").append(this.entries.size() - count).append(" more");
+    }
+    return buffer.toString();
+  }
+
+  /**
+   * Make JSON report.
+   *
+   * @param maxEntries max number of top entries in report
+   * @param maxFrames  max number of frames shown for every entry
+   * @return report as JSON object
+   * @since 1.2.2
+   */
+  @Nonnull
+  @Weight(Weight.Unit.VARIABLE)
+  public String toJson(@Constraint("X>=0") final int maxEntries,
+                       @Constraint("X>=0") final int maxFrames) {
+    final StringBuilder buffer = new StringBuilder(256);
+    buffer.append("{\"time\":").append(this.time)
+        .append(",\"instances\":").append(this.instanceCount)
+        .append(",\"sites\":").append(this.siteCount)
+        .append(",\"classes\":").append(this.classCount)
+        .append(",\"entries\":[");
+    final int count = Math.min(Math.max(0, maxEntries), this.entries.size());
+    for (int i = 0; i < count; i++) {
+      final Entry entry = this.entries.get(i);
+      if (i > 0) {
+        buffer.append(',');
+      }
+      buffer.append("{\"class\":");
+      appendString(buffer, entry.className);
+      buffer.append(",\"count\":").append(entry.count)
+          .append(",\"fingerprint\":\"").append(Long.toHexString(entry.callTrace.getFingerprint()))
+          .append("\",\"frames\":[");
+      final StackTraceElement[] frames = entry.callTrace.getFrames(maxFrames);
+      for (int f = 0; f < frames.length; f++) {
+        if (f > 0) {
+          buffer.append(',');
+        }
+        appendString(buffer, frames[f].toString());
+      }
+      buffer.append("]}");
+    }
+    return buffer.append("]}").toString();
+  }
+
+  @Override
+  @Nonnull
+  public String toString() {
+    return toText(Integer.MAX_VALUE, 8);
+  }
+
+  /**
+   * Number of live instances of class created in the same place.
+   *
+   * @since 1.2.2
+   */
+  @Immutable
+  @ThreadSafe
+  public static final class Entry {
+
+    private final String className;
+    private final CallTrace callTrace;
+    private final int count;
+
+    Entry(@Nonnull final String className, @Nonnull final CallTrace callTrace, final int count) {
+      this.className = className;
+      this.callTrace = callTrace;
+      this.count = count;
+    }
+
+    /**
+     * Get name of class of instances.
+     *
+     * @return class name
+     * @since 1.2.2
+     */
+    @Nonnull
+    public String getClassName() {
+      return this.className;
+    }
+
+    /**
+     * Get call trace of one of instances.
+     *
+     * @return call trace of the creation site
+     * @since 1.2.2
+     */
+    @Nonnull
+    public CallTrace getCallTrace() {
+      return this.callTrace;
+    }
+
+    /**
+     * Get number of live instances.
+     *
+     * @return number of instances
+     * @since 1.2.2
+     */
+    public int getCount() {
+      return this.count;
+    }
+
+    @Override
+    @Nonnull
+    public String toString() {
+      return "Entry(class=" + this.className + ", count=" + this.count + ')';
+    }
+  }
+}
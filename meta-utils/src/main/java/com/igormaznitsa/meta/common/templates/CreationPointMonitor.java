@@ -0,0 +1,99 @@
+/*
+ * Copyright 2026 Igor Maznitsa.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.igormaznitsa.meta.common.templates;
+
+import com.igormaznitsa.meta.common.exceptions.UnexpectedProcessingError;
+import java.lang.management.ManagementFactory;
+import javax.annotation.concurrent.ThreadSafe;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * Monitor of instances of {@link KeepCreationPointTemplate} which provides census of live instances grouped by creation site through JMX.
+ *
+ * @see #OBJECT_NAME
+ * @see KeepCreationPointTemplate#census()
+ * @since 1.2.2
+ */
+@ThreadSafe
+public final class CreationPointMonitor implements CreationPointMonitorMBean {
+
+  /**
+   * Name of the MBean in platform MBean server.
+   *
+   * @since 1.2.2
+   */
+  public static final String OBJECT_NAME = "com.igormaznitsa.meta.common.templates:type=CreationPointMonitor";
+
+  /**
+   * Register the monitor in platform MBean server under {@link #OBJECT_NAME}, already registered monitor is replaced.
+   *
+   * @throws UnexpectedProcessingError if the monitor can't be registered
+   * @since 1.2.2
+   */
+  public void register() {
+    try {
+      final MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+      final ObjectName name = new ObjectName(OBJECT_NAME);
+      if (server.isRegistered(name)) {
+        server.unregisterMBean(name);
+      }
+      server.registerMBean(this, name);
+    } catch (JMException ex) {
+      throw new UnexpectedProcessingError("Can't register creation point monitor", ex);
+    }
+  }
+
+  /**
+   * Remove monitor registered under {@link #OBJECT_NAME} from platform MBean server.
+   *
+   * @since 1.2.2
+   */
+  public static void unregister() {
+    try {
+      final MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+      final ObjectName name = new ObjectName(OBJECT_NAME);
+      if (server.isRegistered(name)) {
+        server.unregisterMBean(name);
+      }
+    } catch (JMException ex) {
+      throw new UnexpectedProcessingError("Can't unregister creation point monitor", ex);
+    }
+  }
+
+  @Override
+  public int getTrackedInstanceCount() {
+    return KeepCreationPointTemplate.trackedInstanceCount();
+  }
+
+  @Override
+  public String getDefaultCapturePolicy() {
+    return KeepCreationPointTemplate.getDefaultCapturePolicy().toString();
+  }
+
+  @Override
+  public String censusAsText(final int maxEntries, final int maxFrames) {
+    return KeepCreationPointTemplate.census().toText(maxEntries, maxFrames);
+  }
+
+  @Override
+  public String censusAsJson(final int maxEntries, final int maxFrames) {
+    return KeepCreationPointTemplate.census().toJson(maxEntries, maxFrames);
+  }
+}
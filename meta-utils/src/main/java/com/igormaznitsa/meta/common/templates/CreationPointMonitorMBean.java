@@ -0,0 +1,58 @@
+/*
+ * Copyright 2026 Igor Maznitsa.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.igormaznitsa.meta.common.templates;
+
+/**
+ * JMX interface of {@link CreationPointMonitor}.
+ *
+ * @since 1.2.2
+ */
+public interface CreationPointMonitorMBean {
+
+  /**
+   * Get number of live instances with captured creation point.
+   *
+   * @return number of tracked instances
+   */
+  int getTrackedInstanceCount();
+
+  /**
+   * Get description of the default capture policy.
+   *
+   * @return the default policy as text
+   */
+  String getDefaultCapturePolicy();
+
+  /**
+   * Make census of live instances as text.
+   *
+   * @param maxEntries max number of top entries
+   * @param maxFrames  max number of frames per entry
+   * @return the report
+   */
+  String censusAsText(int maxEntries, int maxFrames);
+
+  /**
+   * Make census of live instances as JSON.
+   *
+   * @param maxEntries max number of top entries
+   * @param maxFrames  max number of frames per entry
+   * @return the report
+   */
+  String censusAsJson(int maxEntries, int maxFrames);
+}
@@ -0,0 +1,304 @@
+/*
+ * Copyright 2026 Igor Maznitsa.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.igormaznitsa.meta.common.templates;
+
+import static com.igormaznitsa.meta.common.utils.Assertions.assertNotNull;
+
+import com.igormaznitsa.meta.annotation.Constraint;
+import com.igormaznitsa.meta.annotation.Weight;
+import com.igormaznitsa.meta.common.utils.CallTrace;
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.Immutable;
+import javax.annotation.concurrent.ThreadSafe;
+
+/**
+ * Policy to decide which instances of {@link KeepCreationPointTemplate} keep their creation point and how many frames are captured. Policies are immutable except counters,
+ * they can be changed at runtime for every class through {@link KeepCreationPointTemplate#setCapturePolicy(Class, CreationPointPolicy)}.
+ * <pre>
+ * KeepCreationPointTemplate.setCapturePolicy(Message.class,
+ *     CreationPointPolicy.firstPerSite(10).withMaxFrames(8).withExcludedPackages("java.", "jdk."));
+ * </pre>
+ *
+ * @see CallTrace#NOT_SAMPLED
+ * @since 1.2.2
+ */
+@ThreadSafe
+public final class CreationPointPolicy {
+
+  private static final String[] NO_PACKAGES = new String[0];
+
+  private final Mode mode;
+  private final int n;
+  private final int maxFrames;
+  private final String[] excludedPackages;
+  private final ConcurrentHashMap<Site, AtomicInteger> sites;
+  private final LongAdder capturedCounter = new LongAdder();
+  private final LongAdder skippedCounter = new LongAdder();
+
+  private CreationPointPolicy(@Nonnull final Mode mode, final int n, final int maxFrames,
+                              @Nonnull final String[] excludedPackages) {
+    this.mode = mode;
+    this.n = n;
+    this.maxFrames = maxFrames;
+    this.excludedPackages = excludedPackages;
+    this.sites = mode == Mode.FIRST_PER_SITE ? new ConcurrentHashMap<>() : null;
+  }
+
+  /**
+   * Make policy capturing creation point of every instance.
+   *
+   * @return new policy
+   * @since 1.2.2
+   */
+  @Nonnull
+  public static CreationPointPolicy always() {
+    return new CreationPointPolicy(Mode.ALWAYS, 1, CallTrace.DEFAULT_MAX_FRAMES, NO_PACKAGES);
+  }
+
+  /**
+   * Make policy which doesn't capture creation points.
+   *
+   * @return new policy
+   * @since 1.2.2
+   */
+  @Nonnull
+  public static CreationPointPolicy off() {
+    return new CreationPointPolicy(Mode.OFF, 1, CallTrace.DEFAULT_MAX_FRAMES, NO_PACKAGES);
+  }
+
+  /**
+   * Make policy capturing creation point of randomly chosen one instance among N ones.
+   *
+   * @param n number of instances per one captured instance
+   * @return new policy
+   * @since 1.2.2
+   */
+  @Nonnull
+  public static CreationPointPolicy oneIn(@Constraint("X>0") final int n) {
+    if (n <= 0) {
+      throw new IllegalArgumentException("Wrong N: " + n);
+    }
+    return new CreationPointPolicy(Mode.ONE_IN, n, CallTrace.DEFAULT_MAX_FRAMES, NO_PACKAGES);
+  }
+
+  /**
+   * Make policy capturing creation points only for first K instances made by every call site. Call site is the first method calling constructor, it is detected by stack walk
+   * which is much cheaper than capture of frames.
+   *
+   * @param k number of captured instances per call site
+   * @return new policy
+   * @since 1.2.2
+   */
+  @Nonnull
+  public static CreationPointPolicy firstPerSite(@Constraint("X>0") final int k) {
+    if (k <= 0) {
+      throw new IllegalArgumentException("Wrong K: " + k);
+    }
+    return new CreationPointPolicy(Mode.FIRST_PER_SITE, k, CallTrace.DEFAULT_MAX_FRAMES,
+        NO_PACKAGES);
+  }
+
+  /**
+   * Make copy of the policy with another max number of captured frames, counters are not copied.
+   *
+   * @param maxFrames max number of frames
+   * @return new policy
+   * @since 1.2.2
+   */
+  @Nonnull
+  public CreationPointPolicy withMaxFrames(@Constraint("X>0") final int maxFrames) {
+    if (maxFrames <= 0) {
+      throw new IllegalArgumentException("Wrong max frames: " + maxFrames);
+    }
+    return new CreationPointPolicy(this.mode, this.n, maxFrames, this.excludedPackages);
+  }
+
+  /**
+   * Make copy of the policy which excludes frames of classes with name prefixes, counters are not copied.
+   *
+   * @param packagePrefixes prefixes of class names, for instance "java." or "org.junit."
+   * @return new policy
+   * @since 1.2.2
+   */
+  @Nonnull
+  public CreationPointPolicy withExcludedPackages(@Nonnull final String... packagePrefixes) {
+    for (final String prefix : assertNotNull(packagePrefixes)) {
+      assertNotNull(prefix);
+    }
+    return new CreationPointPolicy(this.mode, this.n, this.maxFrames, packagePrefixes.clone());
+  }
+
+  /**
+   * Get max number of captured frames.
+   *
+   * @return max number of frames
+   * @since 1.2.2
+   */
+  public int getMaxFrames() {
+    return this.maxFrames;
+  }
+
+  /**
+   * Get prefixes of class names for excluded frames.
+   *
+   * @return copy of prefixes
+   * @since 1.2.2
+   */
+  @Nonnull
+  public String[] getExcludedPackages() {
+    return this.excludedPackages.clone();
+  }
+
+  /**
+   * Get number of instances with captured creation point.
+   *
+   * @return number of captured creation points
+   * @since 1.2.2
+   */
+  public long getCapturedCount() {
+    return this.capturedCounter.sum();
+  }
+
+  /**
+   * Get number of instances without captured creation point.
+   *
+   * @return number of skipped instances
+   * @since 1.2.2
+   */
+  public long getSkippedCount() {
+    return this.skippedCounter.sum();
+  }
+
+  /**
+   * Decide whether creation point of new instance must be captured.
+   *
+   * @return true if must be captured, false otherwise
+   */
+  @Weight(Weight.Unit.LIGHT)
+  boolean sample() {
+    final boolean result;
+    switch (this.mode) {
+      case ALWAYS:
+        result = true;
+        break;
+      case ONE_IN:
+        result = this.n == 1 || ThreadLocalRandom.current().nextInt(this.n) == 0;
+        break;
+      case FIRST_PER_SITE:
+        result = sampleSite();
+        break;
+      default:
+        result = false;
+        break;
+    }
+    if (result) {
+      this.capturedCounter.increment();
+    } else {
+      this.skippedCounter.increment();
+    }
+    return result;
+  }
+
+  private boolean sampleSite() {
+    final AtomicInteger counter =
+        this.sites.computeIfAbsent(findCallSite(), x -> new AtomicInteger());
+    // counter is not incremented after the limit so that it can't overflow for high-rate site
+    return counter.get() < this.n && counter.incrementAndGet() <= this.n;
+  }
+
+  /**
+   * Get excluded prefixes without copying.
+   *
+   * @return prefixes of class names
+   */
+  @Nonnull
+  String[] excludedPackages() {
+    return this.excludedPackages;
+  }
+
+  @Nonnull
+  private static Site findCallSite() {
+    return StackWalker.getInstance().walk(stream -> stream
+        .dropWhile(frame -> !"<init>".equals(frame.getMethodName()))
+        .dropWhile(frame -> "<init>".equals(frame.getMethodName()))
+        .findFirst()
+        .map(frame -> new Site(frame.getClassName(), frame.getMethodName(),
+            frame.getByteCodeIndex()))
+        .orElse(Site.UNKNOWN));
+  }
+
+  @Override
+  @Nonnull
+  public String toString() {
+    return "CreationPointPolicy(" + this.mode + (this.mode == Mode.ONE_IN
+        || this.mode == Mode.FIRST_PER_SITE ? "=" + this.n : "") + ", maxFrames="
+        + this.maxFrames + ", excluded=" + Arrays.toString(this.excludedPackages) + ')';
+  }
+
+  /**
+   * Place of instance creation, it is compared by class name, method name and bytecode index without making text.
+   */
+  @Immutable
+  private static final class Site {
+
+    private static final Site UNKNOWN = new Site("", "", -1);
+
+    private final String className;
+    private final String methodName;
+    private final int byteCodeIndex;
+
+    private Site(@Nonnull final String className, @Nonnull final String methodName,
+                 final int byteCodeIndex) {
+      this.className = className;
+      this.methodName = methodName;
+      this.byteCodeIndex = byteCodeIndex;
+    }
+
+    @Override
+    public boolean equals(@Nullable final Object that) {
+      if (this == that) {
+        return true;
+      }
+      if (!(that instanceof Site)) {
+        return false;
+      }
+      final Site site = (Site) that;
+      return this.byteCodeIndex == site.byteCodeIndex && this.className.equals(site.className)
+          && this.methodName.equals(site.methodName);
+    }
+
+    @Override
+    public int hashCode() {
+      return (this.className.hashCode() * 31 + this.methodName.hashCode()) * 31
+          + this.byteCodeIndex;
+    }
+  }
+
+  private enum Mode {
+    ALWAYS,
+    OFF,
+    ONE_IN,
+    FIRST_PER_SITE
+  }
+}
@@ -0,0 +1,70 @@
+/*
+ * Copyright 2026 Igor Maznitsa.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.igormaznitsa.meta.common.templates;
+
+import com.igormaznitsa.meta.common.utils.CallTrace;
+import javax.annotation.Nonnull;
+import javax.annotation.concurrent.Immutable;
+import javax.annotation.concurrent.ThreadSafe;
+
+/**
+ * Distinct place where instances of {@link KeepCreationPointTemplate} were created, together with number of live instances created there.
+ *
+ * @see KeepCreationPointTemplate#getCreationSites()
+ * @since 1.2.2
+ */
+@Immutable
+@ThreadSafe
+public final class CreationSite {
+
+  private final CallTrace callTrace;
+  private final int liveCount;
+
+  CreationSite(@Nonnull final CallTrace callTrace, final int liveCount) {
+    this.callTrace = callTrace;
+    this.liveCount = liveCount;
+  }
+
+  /**
+   * Get call trace of one of instances created in the site.
+   *
+   * @return call trace of the site
+   * @since 1.2.2
+   */
+  @Nonnull
+  public CallTrace getCallTrace() {
+    return this.callTrace;
+  }
+
+  /**
+   * Get number of live instances created in the site.
+   *
+   * @return number of instances
+   * @since 1.2.2
+   */
+  public int getLiveCount() {
+    return this.liveCount;
+  }
+
+  @Override
+  @Nonnull
+  public String toString() {
+    return "CreationSite(liveCount=" + this.liveCount + ", fingerprint="
+        + Long.toHexString(this.callTrace.getFingerprint()) + ')';
+  }
+}
@@ -16,19 +16,29 @@
 
 package com.igormaznitsa.meta.common.templates;
 
+import static com.igormaznitsa.meta.common.utils.Assertions.assertNotNull;
+
 import com.igormaznitsa.meta.annotation.Warning;
+import com.igormaznitsa.meta.annotation.Weight;
 import com.igormaznitsa.meta.common.utils.CallTrace;
 import java.io.Serializable;
-import java.util.Collections;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
-import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
 import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
 import javax.annotation.concurrent.ThreadSafe;
 
 /**
- * Allows to keep information about point where instance of the class was created.
+ * Allows to keep information about point where instance of the class was created. Call traces of instances created in the same place share their frames, frames are encoded
+ * during creation of instance or by background compactor if it is set through {@link CallTrace#setCompactor(java.util.concurrent.Executor)}. Instances are kept in
+ * concurrent weak registry by identity, so that equals and hashCode of successors are not called. Which instances keep their creation point is defined by
+ * {@link CreationPointPolicy} set for class at runtime.
  *
  * @see CallTrace
+ * @see CreationPointPolicy
  * @since 1.0
  */
 @ThreadSafe
@@ -36,26 +46,185 @@ public abstract class KeepCreationPointTemplate implements Serializable {
 
   private static final long serialVersionUID = 2779254573622012575L;
 
-  private static final Map<KeepCreationPointTemplate, CallTrace> REGISTRY =
-      Collections.synchronizedMap(
-          new WeakHashMap<>());
+  private static final ConcurrentWeakIdentityMap<KeepCreationPointTemplate, CallTrace> REGISTRY =
+      new ConcurrentWeakIdentityMap<>();
+
+  private static final Map<Class<?>, CreationPointPolicy> POLICIES = new ConcurrentHashMap<>();
+  private static volatile CreationPointPolicy defaultPolicy = CreationPointPolicy.always();
 
   /**
    * The Constructor.
    */
   @Warning("must be called in successors, must not be called through constructor chain else you will see your constructors in stack trace!")
   public KeepCreationPointTemplate() {
-    REGISTRY.put(this, new CallTrace(true, true, CallTrace.EOL_LINUX));
+    final CreationPointPolicy policy = getCapturePolicy(this.getClass());
+    if (policy.sample()) {
+      // without compactor lazy call trace would keep raw frames until the first read
+      REGISTRY.put(this, new CallTrace(true, true, CallTrace.EOL_LINUX, policy.getMaxFrames(),
+          CallTrace.getCompactor() != null, policy.excludedPackages()));
+    }
+  }
+
+  /**
+   * Set capture policy for classes without own policy.
+   *
+   * @param policy new default policy
+   * @since 1.2.2
+   */
+  public static void setDefaultCapturePolicy(@Nonnull final CreationPointPolicy policy) {
+    defaultPolicy = assertNotNull(policy);
+  }
+
+  /**
+   * Get capture policy for classes without own policy.
+   *
+   * @return the default policy
+   * @since 1.2.2
+   */
+  @Nonnull
+  public static CreationPointPolicy getDefaultCapturePolicy() {
+    return defaultPolicy;
+  }
+
+  /**
+   * Set capture policy for class and its successors without own policy. Instances created before the call are not affected.
+   *
+   * @param type   class of instances
+   * @param policy policy for the class, null to use policy of superclass
+   * @since 1.2.2
+   */
+  public static void setCapturePolicy(@Nonnull final Class<? extends KeepCreationPointTemplate> type,
+                                      @Nullable final CreationPointPolicy policy) {
+    assertNotNull(type);
+    if (policy == null) {
+      POLICIES.remove(type);
+    } else {
+      POLICIES.put(type, policy);
+    }
+  }
+
+  /**
+   * Get capture policy used for class, it is policy of the nearest class in hierarchy or the default one.
+   *
+   * @param type class of instances
+   * @return policy for the class
+   * @since 1.2.2
+   */
+  @Nonnull
+  @Weight(Weight.Unit.LIGHT)
+  public static CreationPointPolicy getCapturePolicy(@Nonnull final Class<?> type) {
+    if (!POLICIES.isEmpty()) {
+      for (Class<?> current = type; current != null && current != KeepCreationPointTemplate.class;
+           current = current.getSuperclass()) {
+        final CreationPointPolicy policy = POLICIES.get(current);
+        if (policy != null) {
+          return policy;
+        }
+      }
+    }
+    return defaultPolicy;
   }
 
   /**
    * Get the creation point stack trace for the instance.
    *
-   * @return the creation point stack trace
+   * @return the creation point stack trace, {@link CallTrace#NOT_SAMPLED} if it was not captured
    */
   @Nonnull
   public final CallTrace getCreationPoint() {
-    return REGISTRY.get(this);
+    final CallTrace result = REGISTRY.get(this);
+    return result == null ? CallTrace.NOT_SAMPLED : result;
+  }
+
+  /**
+   * Get distinct places where live instances were created, sorted by number of instances in descending order.
+   *
+   * @return list of creation sites
+   * @since 1.2.2
+   */
+  @Nonnull
+  @Weight(Weight.Unit.VARIABLE)
+  public static List<CreationSite> getCreationSites() {
+    final List<CallTrace> traces = REGISTRY.values();
+    final Map<Long, List<SiteCounter>> counters = new HashMap<>();
+    for (final CallTrace trace : traces) {
+      findCounter(counters, trace).count++;
+    }
+    final List<CreationSite> result = new ArrayList<>();
+    for (final List<SiteCounter> list : counters.values()) {
+      for (final SiteCounter counter : list) {
+        result.add(new CreationSite(counter.trace, counter.count));
+      }
+    }
+    result.sort((a, b) -> Integer.compare(b.getLiveCount(), a.getLiveCount()));
+    return result;
+  }
+
+  /**
+   * Make census of live instances with captured creation point grouped by class and creation site. The registry is walked without locks, so that instances created during the
+   * call can be missed.
+   *
+   * @return census of live instances
+   * @see CreationPointMonitor
+   * @since 1.2.2
+   */
+  @Nonnull
+  @Weight(Weight.Unit.VARIABLE)
+  public static CreationCensus census() {
+    final Map<Class<?>, Map<Long, List<SiteCounter>>> counters = new HashMap<>();
+    final Map<Long, List<SiteCounter>> sites = new HashMap<>();
+    REGISTRY.forEach((instance, trace) -> {
+      findCounter(counters.computeIfAbsent(instance.getClass(), x -> new HashMap<>()), trace)
+          .count++;
+      findCounter(sites, trace).count++;
+    });
+    final List<CreationCensus.Entry> entries = new ArrayList<>();
+    counters.forEach((type, byFingerprint) -> {
+      for (final List<SiteCounter> list : byFingerprint.values()) {
+        for (final SiteCounter counter : list) {
+          entries.add(new CreationCensus.Entry(type.getName(), counter.trace, counter.count));
+        }
+      }
+    });
+    int siteCount = 0;
+    for (final List<SiteCounter> list : sites.values()) {
+      siteCount += list.size();
+    }
+    return new CreationCensus(System.currentTimeMillis(), entries, siteCount);
+  }
+
+  /**
+   * Get number of live instances with captured creation point.
+   *
+   * @return number of instances in registry
+   */
+  static int trackedInstanceCount() {
+    return REGISTRY.size();
+  }
+
+  @Nonnull
+  private static SiteCounter findCounter(@Nonnull final Map<Long, List<SiteCounter>> counters,
+                                         @Nonnull final CallTrace trace) {
+    final List<SiteCounter> sameFingerprint =
+        counters.computeIfAbsent(trace.getFingerprint(), x -> new ArrayList<>(1));
+    for (final SiteCounter counter : sameFingerprint) {
+      if (counter.trace.isSameSite(trace)) {
+        return counter;
+      }
+    }
+    final SiteCounter result = new SiteCounter(trace);
+    sameFingerprint.add(result);
+    return result;
+  }
+
+  private static final class SiteCounter {
+
+    private final CallTrace trace;
+    private int count;
+
+    private SiteCounter(@Nonnull final CallTrace trace) {
+      this.trace = trace;
+    }
   }
 
 }
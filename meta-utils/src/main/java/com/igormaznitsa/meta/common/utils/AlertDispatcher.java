@@ -0,0 +1,345 @@
+/*
+ * Copyright 2026 Igor Maznitsa.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.igormaznitsa.meta.common.utils;
+
+import static com.igormaznitsa.meta.common.utils.Assertions.assertNotNull;
+
+import com.igormaznitsa.meta.annotation.Constraint;
+import com.igormaznitsa.meta.annotation.Weight;
+import com.igormaznitsa.meta.common.exceptions.MetaErrorListeners;
+import com.igormaznitsa.meta.common.exceptions.UnexpectedProcessingError;
+import com.igormaznitsa.meta.common.interfaces.Disposable;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.LockSupport;
+import javax.annotation.Nonnull;
+import javax.annotation.concurrent.ThreadSafe;
+
+/**
+ * Asynchronous dispatcher of alert notifications. Events are placed into bounded lock-free multi-producer single-consumer queue and delivered by a dedicated daemon thread, so
+ * that slow listeners don't add latency to the notifying thread. Behaviour for full queue is defined by {@link OverflowPolicy}.
+ * <p>
+ * Events fired from the consumer thread are delivered synchronously, events dispatched after dispose are delivered synchronously too.
+ *
+ * @see TimeGuard#setAlertDispatcher(AlertDispatcher)
+ * @see com.igormaznitsa.meta.common.exceptions.MetaErrorListeners#setAlertDispatcher(AlertDispatcher)
+ * @since 1.2.2
+ */
+@ThreadSafe
+public final class AlertDispatcher implements Disposable {
+
+  /**
+   * Default capacity of queue.
+   *
+   * @since 1.2.2
+   */
+  public static final int DEFAULT_CAPACITY = 1024;
+
+  private static final long BLOCK_PARK_NANOSECONDS = 10_000L;
+  private static final long IDLE_PARK_NANOSECONDS = 1_000_000L;
+  private static final AtomicLong THREAD_COUNTER = new AtomicLong();
+
+  private final AtomicReferenceArray<Runnable> buffer;
+  private final AtomicLongArray sequences;
+  private final int mask;
+  private final AtomicLong tail = new AtomicLong();
+  private final AtomicLong head = new AtomicLong();
+  private final OverflowPolicy policy;
+  private final int sampleRate;
+  private final AtomicLong sampleCounter = new AtomicLong();
+  private final AtomicLong deliveredCounter = new AtomicLong();
+  private final AtomicLong droppedCounter = new AtomicLong();
+  private final AtomicLong failedCounter = new AtomicLong();
+  private final Object drainLock = new Object();
+  private final AtomicBoolean disposed = new AtomicBoolean();
+  private final Thread worker;
+  private volatile boolean sleeping;
+
+  /**
+   * Constructor with default capacity and dropping of events for full queue.
+   *
+   * @since 1.2.2
+   */
+  public AlertDispatcher() {
+    this(DEFAULT_CAPACITY, OverflowPolicy.DROP, 1);
+  }
+
+  /**
+   * Constructor. The consumer thread is started immediately.
+   *
+   * @param capacity   capacity of queue, it will be rounded up to power of two
+   * @param policy     policy for full queue
+   * @param sampleRate for {@link OverflowPolicy#SAMPLE} only every N-th event is accepted when queue is more than half full
+   * @since 1.2.2
+   */
+  public AlertDispatcher(@Constraint("X>0") final int capacity,
+                         @Nonnull final OverflowPolicy policy,
+                         @Constraint("X>0") final int sampleRate) {
+    if (capacity <= 0 || capacity > (1 << 24)) {
+      throw new IllegalArgumentException("Wrong capacity: " + capacity);
+    }
+    if (sampleRate <= 0) {
+      throw new IllegalArgumentException("Wrong sample rate: " + sampleRate);
+    }
+    final int size = Integer.highestOneBit(capacity) == capacity ? capacity :
+        Integer.highestOneBit(capacity) << 1;
+    this.buffer = new AtomicReferenceArray<>(size);
+    this.sequences = new AtomicLongArray(size);
+    for (int i = 0; i < size; i++) {
+      this.sequences.set(i, i);
+    }
+    this.mask = size - 1;
+    this.policy = assertNotNull(policy);
+    this.sampleRate = sampleRate;
+    this.worker = new Thread(this::work, "AlertDispatcher-" + THREAD_COUNTER.incrementAndGet());
+    this.worker.setDaemon(true);
+    this.worker.start();
+  }
+
+  /**
+   * Get policy for full queue.
+   *
+   * @return the overflow policy
+   * @since 1.2.2
+   */
+  @Nonnull
+  public OverflowPolicy getPolicy() {
+    return this.policy;
+  }
+
+  /**
+   * Get number of delivered events.
+   *
+   * @return number of events successfully processed by the consumer thread
+   * @since 1.2.2
+   */
+  public long getDeliveredCount() {
+    return this.deliveredCounter.get();
+  }
+
+  /**
+   * Get number of dropped events.
+   *
+   * @return number of events dropped because of overflow
+   * @since 1.2.2
+   */
+  public long getDroppedCount() {
+    return this.droppedCounter.get();
+  }
+
+  /**
+   * Get number of events which threw exception during delivery by the consumer thread, such errors are reported to {@link MetaErrorListeners}.
+   *
+   * @return number of failed events
+   * @since 1.2.2
+   */
+  public long getFailedCount() {
+    return this.failedCounter.get();
+  }
+
+  /**
+   * Get approximate number of queued events.
+   *
+   * @return number of events in queue
+   * @since 1.2.2
+   */
+  public int size() {
+    return (int) Math.max(0L, this.tail.get() - this.head.get());
+  }
+
+  /**
+   * Check that the current thread is the consumer thread of the dispatcher.
+   *
+   * @return true if called from the consumer thread, false otherwise
+   * @since 1.2.2
+   */
+  public boolean isConsumerThread() {
+    return Thread.currentThread() == this.worker;
+  }
+
+  @Override
+  public boolean isDisposed() {
+    return this.disposed.get();
+  }
+
+  /**
+   * Stop the consumer thread, already queued events are delivered before stop.
+   */
+  @Override
+  public void dispose() {
+    if (this.disposed.compareAndSet(false, true)) {
+      LockSupport.unpark(this.worker);
+      if (!isConsumerThread()) {
+        try {
+          this.worker.join();
+        } catch (InterruptedException ex) {
+          Thread.currentThread().interrupt();
+        }
+      }
+    }
+  }
+
+  /**
+   * Dispatch event. If called from the consumer thread or the dispatcher is disposed then the event is executed immediately.
+   *
+   * @param event event to be delivered
+   * @return true if the event is accepted or executed, false if it was dropped
+   * @since 1.2.2
+   */
+  @Weight(Weight.Unit.LIGHT)
+  public boolean dispatch(@Nonnull final Runnable event) {
+    assertNotNull(event);
+    if (this.disposed.get() || isConsumerThread()) {
+      event.run();
+      return true;
+    }
+    if (this.policy == OverflowPolicy.SAMPLE && size() > (this.mask >> 1)
+        && this.sampleCounter.getAndIncrement() % this.sampleRate != 0L) {
+      this.droppedCounter.incrementAndGet();
+      return false;
+    }
+    while (!offer(event)) {
+      if (this.policy != OverflowPolicy.BLOCK || this.disposed.get()) {
+        this.droppedCounter.incrementAndGet();
+        return false;
+      }
+      wakeUp();
+      LockSupport.parkNanos(this, BLOCK_PARK_NANOSECONDS);
+    }
+    if (this.sleeping) {
+      wakeUp();
+    }
+    if (this.disposed.get()) {
+      // the consumer thread could stop before the event was queued
+      drainAfterStop();
+    }
+    return true;
+  }
+
+  private void drainAfterStop() {
+    boolean interrupted = false;
+    while (this.worker.isAlive()) {
+      try {
+        this.worker.join();
+      } catch (InterruptedException ex) {
+        interrupted = true;
+      }
+    }
+    try {
+      synchronized (this.drainLock) {
+        Runnable event;
+        while ((event = poll()) != null) {
+          event.run();
+        }
+      }
+    } finally {
+      if (interrupted) {
+        Thread.currentThread().interrupt();
+      }
+    }
+  }
+
+  private void wakeUp() {
+    LockSupport.unpark(this.worker);
+  }
+
+  private boolean offer(@Nonnull final Runnable event) {
+    while (true) {
+      final long position = this.tail.get();
+      final int index = (int) position & this.mask;
+      final long difference = this.sequences.get(index) - position;
+      if (difference == 0L) {
+        if (this.tail.compareAndSet(position, position + 1L)) {
+          this.buffer.lazySet(index, event);
+          this.sequences.set(index, position + 1L);
+          return true;
+        }
+      } else if (difference < 0L) {
+        return false;
+      }
+    }
+  }
+
+  private Runnable poll() {
+    final long position = this.head.get();
+    final int index = (int) position & this.mask;
+    if (this.sequences.get(index) - (position + 1L) < 0L) {
+      return null;
+    }
+    final Runnable result = this.buffer.get(index);
+    this.buffer.lazySet(index, null);
+    this.sequences.set(index, position + this.mask + 1L);
+    this.head.lazySet(position + 1L);
+    return result;
+  }
+
+  private void work() {
+    while (true) {
+      final Runnable event = poll();
+      if (event == null) {
+        if (this.disposed.get()) {
+          if (this.tail.get() == this.head.get()) {
+            break;
+          }
+          Thread.yield();
+          continue;
+        }
+        this.sleeping = true;
+        if (this.tail.get() == this.head.get() && !this.disposed.get()) {
+          LockSupport.parkNanos(this, IDLE_PARK_NANOSECONDS);
+        }
+        this.sleeping = false;
+      } else {
+        try {
+          event.run();
+          this.deliveredCounter.incrementAndGet();
+        } catch (Throwable ex) {
+          this.failedCounter.incrementAndGet();
+          final UnexpectedProcessingError error =
+              new UnexpectedProcessingError("Error during alert delivery", ex);
+          try {
+            MetaErrorListeners.fireError(error.getMessage(), error);
+          } catch (Throwable ignored) {
+            // the consumer thread must not be stopped by listeners
+          }
+        }
+      }
+    }
+  }
+
+  /**
+   * Policy for full queue.
+   *
+   * @since 1.2.2
+   */
+  public enum OverflowPolicy {
+    /**
+     * New event is dropped.
+     */
+    DROP,
+    /**
+     * Notifying thread waits for free space.
+     */
+    BLOCK,
+    /**
+     * When queue is more than half full then only every N-th event is accepted, new event is dropped if queue is full.
+     */
+    SAMPLE
+  }
+}
@@ -16,22 +16,36 @@
 
 package com.igormaznitsa.meta.common.utils;
 
+import com.igormaznitsa.meta.annotation.Constraint;
 import com.igormaznitsa.meta.annotation.Weight;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.OptionalDataException;
 import java.io.Serializable;
 import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.regex.Pattern;
 import javax.annotation.Nonnull;
-import javax.annotation.concurrent.Immutable;
+import javax.annotation.Nullable;
 import javax.annotation.concurrent.ThreadSafe;
 
 /**
- * The Class allows to save stack trace history (it is possible to keep it in packed format) and restore it to text representation for request.
+ * The Class allows to save stack trace history and restore it to text representation for request. Frames are kept as varint indexes in process-wide table of class, method and
+ * file names, so that they can be decoded partially. Encoded frames of call traces made in the same place are shared. A lazy call trace keeps only limited number of raw
+ * stack frames, their encoding is made by the first request or by background compactor.
  *
+ * @see #setCompactor(Executor)
  * @since 1.0
  */
 @Weight(Weight.Unit.VARIABLE)
 @ThreadSafe
-@Immutable
 public class CallTrace implements Serializable {
 
   /**
@@ -46,10 +60,30 @@ public class CallTrace implements Serializable {
    * @since 1.0
    */
   public static final String EOL_WINDOWS = "\r\n";
+  /**
+   * Default max number of frames kept by lazy call trace.
+   *
+   * @since 1.2.2
+   */
+  public static final int DEFAULT_MAX_FRAMES = 64;
+  /**
+   * Marker of not captured call trace, it doesn't contain any frame.
+   *
+   * @see #isSampled()
+   * @since 1.2.2
+   */
+  public static final CallTrace NOT_SAMPLED = new CallTrace("NOT_SAMPLED");
   private static final long serialVersionUID = -3908621401136825952L;
   private static final Charset UTF8 = StandardCharsets.UTF_8;
+  private static final String[] NO_PACKAGES = new String[0];
+  private static final Queue<CallTrace> NOT_COMPACTED = new ConcurrentLinkedQueue<>();
+  private static final AtomicBoolean COMPACTION_SCHEDULED = new AtomicBoolean();
+  private static volatile Executor compactor;
   private final boolean packed;
-  private final byte[] stacktrace;
+  private volatile byte[] stacktrace;
+  private transient volatile byte[] encoded;
+  private transient long fingerprint;
+  private transient volatile StackTraceElement[] frames;
   private final String threadDescriptor;
   private final String eol;
 
@@ -67,7 +101,7 @@ public class CallTrace implements Serializable {
    * The Constructor allows to create call trace history with defined end-of-line symbol and since needed stack item position.
    *
    * @param skipConstructors flag to skip first calls from constructors in the stack.
-   * @param pack             flag shows that string data must be packed, false if it should not be packed
+   * @param pack             flag shows that string data must be packed in serialized form, false if it should not be packed
    * @param eol              string shows which end-of-line should be used
    * @see #EOL_LINUX
    * @see #EOL_WINDOWS
@@ -75,34 +109,305 @@ public class CallTrace implements Serializable {
    */
   @Weight(value = Weight.Unit.VARIABLE, comment = "Depends on the call stack depth")
   public CallTrace(final boolean skipConstructors, final boolean pack, @Nonnull final String eol) {
+    this(skipConstructors, pack, eol, Integer.MAX_VALUE, false);
+  }
+
+  /**
+   * The Constructor allows to create call trace history with limited number of frames. Lazy call trace only grabs raw frames, they are encoded by the first
+   * {@link #restoreStackTrace()} call or by background compactor.
+   *
+   * @param skipConstructors flag to skip first calls from constructors in the stack.
+   * @param pack             flag shows that string data must be packed in serialized form, false if it should not be packed
+   * @param eol              string shows which end-of-line should be used
+   * @param maxFrames        max number of kept frames
+   * @param lazy             flag to postpone encoding
+   * @see #DEFAULT_MAX_FRAMES
+   * @see #setCompactor(Executor)
+   * @since 1.2.2
+   */
+  @Weight(value = Weight.Unit.VARIABLE, comment = "Depends on the call stack depth")
+  public CallTrace(final boolean skipConstructors, final boolean pack, @Nonnull final String eol,
+                   @Constraint("X>0") final int maxFrames, final boolean lazy) {
+    this(skipConstructors, pack, eol, maxFrames, lazy, NO_PACKAGES);
+  }
+
+  /**
+   * The Constructor allows to create call trace history with limited number of frames and without frames of some packages.
+   *
+   * @param skipConstructors flag to skip first calls from constructors in the stack.
+   * @param pack             flag shows that string data must be packed in serialized form, false if it should not be packed
+   * @param eol              string shows which end-of-line should be used
+   * @param maxFrames        max number of kept frames, excluded frames are not counted
+   * @param lazy             flag to postpone encoding
+   * @param excludedPackages prefixes of class names for frames to be excluded, for instance "java." or "org.junit."
+   * @since 1.2.2
+   */
+  @Weight(value = Weight.Unit.VARIABLE, comment = "Depends on the call stack depth")
+  public CallTrace(final boolean skipConstructors, final boolean pack, @Nonnull final String eol,
+                   @Constraint("X>0") final int maxFrames, final boolean lazy,
+                   @Nonnull final String... excludedPackages) {
+    if (maxFrames <= 0) {
+      throw new IllegalArgumentException("Wrong max frames: " + maxFrames);
+    }
     this.eol = eol;
+    this.packed = pack;
     this.threadDescriptor = Thread.currentThread().toString();
+    this.frames = StackWalker.getInstance().walk(stream -> stream
+        .dropWhile(frame -> skipConstructors && "<init>".equals(frame.getMethodName()))
+        .filter(frame -> excludedPackages.length == 0
+            || !isExcluded(frame.getClassName(), excludedPackages))
+        .limit(maxFrames)
+        .map(StackWalker.StackFrame::toStackTraceElement)
+        .toArray(StackTraceElement[]::new));
+    if (lazy) {
+      final Executor currentCompactor = compactor;
+      if (currentCompactor != null) {
+        NOT_COMPACTED.add(this);
+        scheduleCompaction(currentCompactor);
+      }
+    } else {
+      compact();
+    }
+  }
 
-    final StackTraceElement[] allElements = Thread.currentThread().getStackTrace();
+  private CallTrace(@Nonnull final String threadDescriptor) {
+    this.eol = EOL_LINUX;
+    this.packed = true;
+    this.threadDescriptor = threadDescriptor;
+    share(FrameTable.encode(new StackTraceElement[0]));
+  }
 
-    int index = 1;
+  private static boolean isExcluded(@Nonnull final String className,
+                                    @Nonnull final String[] excludedPackages) {
+    for (final String prefix : excludedPackages) {
+      if (className.startsWith(prefix)) {
+        return true;
+      }
+    }
+    return false;
+  }
 
-    if (skipConstructors) {
-      for (; index < allElements.length; index++) {
-        if (!"<init>".equals(allElements[index].getMethodName())) {
-          break;
-        }
+  /**
+   * Set executor to encode lazy call traces in background. Lazy call traces made after the call are queued and compacted by batches.
+   *
+   * @param executor executor to be used, null to compact only by restore
+   * @since 1.2.2
+   */
+  public static void setCompactor(@Nullable final Executor executor) {
+    compactor = executor;
+  }
+
+  /**
+   * Get executor used to compact lazy call traces in background.
+   *
+   * @return the current executor, can be null
+   * @since 1.2.2
+   */
+  @Nullable
+  public static Executor getCompactor() {
+    return compactor;
+  }
+
+  /**
+   * Compact all queued lazy call traces in the current thread.
+   *
+   * @return number of compacted call traces
+   * @since 1.2.2
+   */
+  @Weight(Weight.Unit.VARIABLE)
+  public static int compactPending() {
+    int counter = 0;
+    CallTrace trace;
+    while ((trace = NOT_COMPACTED.poll()) != null) {
+      trace.compact();
+      counter++;
+    }
+    return counter;
+  }
+
+  private static void scheduleCompaction(@Nonnull final Executor executor) {
+    if (COMPACTION_SCHEDULED.compareAndSet(false, true)) {
+      try {
+        executor.execute(() -> {
+          do {
+            COMPACTION_SCHEDULED.set(false);
+            compactPending();
+          } while (!NOT_COMPACTED.isEmpty() && COMPACTION_SCHEDULED.compareAndSet(false, true));
+        });
+      } catch (RejectedExecutionException ex) {
+        NOT_COMPACTED.clear();
+        COMPACTION_SCHEDULED.set(false);
       }
     }
-    final StringBuilder buffer = new StringBuilder((allElements.length - index) * 32);
-    for (; index < allElements.length; index++) {
-      if (buffer.length() > 0) {
-        buffer.append(eol);
+  }
+
+  /**
+   * Check that the call trace is not the {@link #NOT_SAMPLED} marker.
+   *
+   * @return false for the marker, true otherwise
+   * @since 1.2.2
+   */
+  public boolean isSampled() {
+    return this != NOT_SAMPLED;
+  }
+
+  /**
+   * Check that frames of the call trace have been encoded.
+   *
+   * @return true if compacted, false if raw frames are kept
+   * @since 1.2.2
+   */
+  public boolean isCompacted() {
+    return this.encoded != null || this.stacktrace != null;
+  }
+
+  /**
+   * Get number of kept frames.
+   *
+   * @return number of frames in the call trace
+   * @since 1.2.2
+   */
+  public int getFrameCount() {
+    final StackTraceElement[] currentFrames = this.frames;
+    if (currentFrames != null) {
+      return currentFrames.length;
+    }
+    final byte[] data = compact();
+    if (data != null) {
+      return FrameTable.count(data);
+    }
+    final String text = legacyText();
+    return text.isEmpty() ? 0 : text.split(Pattern.quote(this.eol), -1).length;
+  }
+
+  /**
+   * Decode top frames of the call trace.
+   *
+   * @param maxFrames max number of frames to be decoded
+   * @return decoded frames, empty for call trace deserialized from stream made by old version
+   * @since 1.2.2
+   */
+  @Nonnull
+  @Weight(Weight.Unit.VARIABLE)
+  public StackTraceElement[] getFrames(@Constraint("X>=0") final int maxFrames) {
+    final StackTraceElement[] currentFrames = this.frames;
+    if (currentFrames != null) {
+      return Arrays.copyOf(currentFrames,
+          Math.max(0, Math.min(maxFrames, currentFrames.length)));
+    }
+    final byte[] data = compact();
+    return data == null ? new StackTraceElement[0] : FrameTable.decode(data, maxFrames);
+  }
+
+  @Nullable
+  private byte[] compact() {
+    byte[] result = this.encoded;
+    if (result == null && this.stacktrace == null) {
+      synchronized (this) {
+        result = this.encoded;
+        if (result == null && this.stacktrace == null) {
+          result = share(FrameTable.encode(this.frames));
+          this.frames = null;
+        }
       }
-      buffer.append(allElements[index].toString());
     }
+    return result;
+  }
 
-    this.packed = pack;
-    if (pack) {
-      this.stacktrace = IOUtils.packData(buffer.toString().getBytes(UTF8));
-    } else {
-      this.stacktrace = buffer.toString().getBytes(UTF8);
+  @Nonnull
+  private byte[] share(@Nonnull final byte[] data) {
+    final long hash = FrameTable.fingerprint(data);
+    final byte[] result = FrameTable.canonical(data, hash);
+    this.fingerprint = hash;
+    this.encoded = result;
+    return result;
+  }
+
+  /**
+   * Get fingerprint of frames, call traces made in the same place have the same fingerprint. The fingerprint is valid only inside the current JVM.
+   *
+   * @return 64 bit hash of frames
+   * @since 1.2.2
+   */
+  @Weight(Weight.Unit.VARIABLE)
+  public long getFingerprint() {
+    final byte[] data = compact();
+    return data == null ? FrameTable.fingerprint(legacyText().getBytes(UTF8)) : this.fingerprint;
+  }
+
+  /**
+   * Check that the call trace has the same frames as other one, thread descriptor is not compared.
+   *
+   * @param other other call trace
+   * @return true if frames are the same, false otherwise
+   * @since 1.2.2
+   */
+  @Weight(Weight.Unit.VARIABLE)
+  public boolean isSameSite(@Nonnull final CallTrace other) {
+    if (this == other) {
+      return true;
+    }
+    final byte[] data = compact();
+    final byte[] otherData = other.compact();
+    if (data == null || otherData == null) {
+      return data == otherData && legacyText().equals(other.legacyText());
     }
+    return data == otherData
+        || (this.fingerprint == other.fingerprint && Arrays.equals(data, otherData));
+  }
+
+  @Nonnull
+  private String legacyText() {
+    return new String(this.packed ? IOUtils.unpackData(this.stacktrace) : this.stacktrace, UTF8);
+  }
+
+  @Nonnull
+  private String renderFrames(final int maxFrames) {
+    final byte[] data = compact();
+    if (data == null) {
+      return legacyText();
+    }
+    return FrameTable.render(data, maxFrames, this.eol, new StringBuilder(256)).toString();
+  }
+
+  /**
+   * Write serial form of the call trace. The rendered text is written into the serial fields so that the stream can be read by previous versions, then frames are written as
+   * array to be encoded again by the reader. Every frame is written twice, it is the trade-off for compatibility of the serial form.
+   *
+   * @param out stream to write the object
+   * @throws IOException if any error in the stream
+   */
+  private void writeObject(@Nonnull final ObjectOutputStream out) throws IOException {
+    final byte[] text = renderFrames(Integer.MAX_VALUE).getBytes(UTF8);
+    final ObjectOutputStream.PutField fields = out.putFields();
+    fields.put("packed", this.packed);
+    fields.put("stacktrace", this.packed ? IOUtils.packData(text) : text);
+    fields.put("threadDescriptor", this.threadDescriptor);
+    fields.put("eol", this.eol);
+    out.writeFields();
+    final byte[] data = compact();
+    if (data != null) {
+      out.writeObject(FrameTable.decode(data, Integer.MAX_VALUE));
+    }
+  }
+
+  private void readObject(@Nonnull final ObjectInputStream in)
+      throws IOException, ClassNotFoundException {
+    in.defaultReadObject();
+    try {
+      share(FrameTable.encode((StackTraceElement[]) in.readObject()));
+      this.stacktrace = null;
+    } catch (OptionalDataException ex) {
+      if (!ex.eof) {
+        throw ex;
+      }
+    }
+  }
+
+  @Nonnull
+  private Object readResolve() {
+    return NOT_SAMPLED.threadDescriptor.equals(this.threadDescriptor) && getFrameCount() == 0 ?
+        NOT_SAMPLED : this;
   }
 
   /**
@@ -124,8 +429,19 @@ public class CallTrace implements Serializable {
    */
   @Nonnull
   public String restoreStackTrace() {
-    return "THREAD_ID : " + this.threadDescriptor + this.eol +
-        new String(this.packed ? IOUtils.unpackData(this.stacktrace) : this.stacktrace, UTF8);
+    return restoreStackTrace(Integer.MAX_VALUE);
+  }
+
+  /**
+   * Restore top frames of stack trace as a string, only requested frames are decoded.
+   *
+   * @param maxFrames max number of frames to be restored
+   * @return the stack trace as String
+   * @since 1.2.2
+   */
+  @Nonnull
+  public String restoreStackTrace(@Constraint("X>=0") final int maxFrames) {
+    return "THREAD_ID : " + this.threadDescriptor + this.eol + renderFrames(maxFrames);
   }
 
   @Override
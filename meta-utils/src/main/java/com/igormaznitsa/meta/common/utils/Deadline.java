@@ -0,0 +1,168 @@
+/*
+ * Copyright 2026 Igor Maznitsa.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.igormaznitsa.meta.common.utils;
+
+import static com.igormaznitsa.meta.common.utils.Assertions.assertNotNull;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import javax.annotation.Nonnull;
+import javax.annotation.concurrent.Immutable;
+import javax.annotation.concurrent.ThreadSafe;
+
+/**
+ * Point of time provided by monotonic timer till which some work must be completed. Deadline can be only narrowed, it is valid only inside the JVM which made it.
+ *
+ * @see TimeGuard#deadline()
+ * @see MetaContext#wrap(Runnable)
+ * @since 1.2.2
+ */
+@Immutable
+@ThreadSafe
+public final class Deadline {
+
+  /**
+   * Not defined deadline, it is never expired.
+   *
+   * @since 1.2.2
+   */
+  public static final Deadline NONE = new Deadline(0L, false);
+
+  private final long timeInNanoseconds;
+  private final boolean defined;
+
+  private Deadline(final long timeInNanoseconds, final boolean defined) {
+    this.timeInNanoseconds = timeInNanoseconds;
+    this.defined = defined;
+  }
+
+  /**
+   * Make deadline after duration since now.
+   *
+   * @param duration duration till deadline
+   * @return new deadline
+   * @since 1.2.2
+   */
+  @Nonnull
+  public static Deadline after(@Nonnull final Duration duration) {
+    return at(System.nanoTime() + assertNotNull(duration).toNanos());
+  }
+
+  /**
+   * Make deadline for value of monotonic timer.
+   *
+   * @param timeInNanoseconds time of deadline
+   * @return new deadline
+   * @see System#nanoTime()
+   * @since 1.2.2
+   */
+  @Nonnull
+  public static Deadline at(final long timeInNanoseconds) {
+    return new Deadline(timeInNanoseconds, true);
+  }
+
+  /**
+   * Check that the deadline is defined.
+   *
+   * @return false for {@link #NONE}, true otherwise
+   * @since 1.2.2
+   */
+  public boolean isDefined() {
+    return this.defined;
+  }
+
+  /**
+   * Get time of the deadline.
+   *
+   * @return value of monotonic timer, zero for not defined deadline
+   * @since 1.2.2
+   */
+  public long getTimeInNanoseconds() {
+    return this.timeInNanoseconds;
+  }
+
+  /**
+   * Check that the deadline has passed.
+   *
+   * @return true if passed, false otherwise
+   * @since 1.2.2
+   */
+  public boolean isExpired() {
+    return this.defined && this.timeInNanoseconds - System.nanoTime() <= 0L;
+  }
+
+  /**
+   * Get remaining time in nanoseconds.
+   *
+   * @return remaining nanoseconds, zero if expired, {@link Long#MAX_VALUE} if not defined
+   * @since 1.2.2
+   */
+  public long remainingNanos() {
+    return this.defined ? Math.max(0L, this.timeInNanoseconds - System.nanoTime()) :
+        Long.MAX_VALUE;
+  }
+
+  /**
+   * Get remaining time.
+   *
+   * @return remaining time, zero if expired, about 292 years if not defined
+   * @since 1.2.2
+   */
+  @Nonnull
+  public Duration remaining() {
+    return Duration.ofNanos(remainingNanos());
+  }
+
+  /**
+   * Get remaining time as timeout in milliseconds, it can be used for socket and connection timeouts where zero means infinity.
+   *
+   * @return remaining milliseconds but not less than 1, zero if not defined
+   * @see java.net.Socket#setSoTimeout(int)
+   * @since 1.2.2
+   */
+  public int toTimeoutMillis() {
+    if (!this.defined) {
+      return 0;
+    }
+    final long millis = TimeUnit.NANOSECONDS.toMillis(remainingNanos());
+    return (int) Math.max(1L, Math.min(Integer.MAX_VALUE, millis));
+  }
+
+  /**
+   * Get the earliest deadline.
+   *
+   * @param other other deadline
+   * @return the earliest one among the deadline and the other one
+   * @since 1.2.2
+   */
+  @Nonnull
+  public Deadline min(@Nonnull final Deadline other) {
+    if (!other.defined) {
+      return this;
+    }
+    if (!this.defined) {
+      return other;
+    }
+    return other.timeInNanoseconds - this.timeInNanoseconds < 0L ? other : this;
+  }
+
+  @Override
+  @Nonnull
+  public String toString() {
+    return this.defined ? "Deadline(remaining=" + remaining() + ')' : "Deadline(NONE)";
+  }
+}
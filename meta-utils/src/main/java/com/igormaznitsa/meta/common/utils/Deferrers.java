@@ -26,19 +26,40 @@ import com.igormaznitsa.meta.common.exceptions.UnexpectedProcessingError;
 import com.igormaznitsa.meta.common.interfaces.Disposable;
 import java.io.Closeable;
 import java.io.Serializable;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.time.Duration;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 import javax.annotation.concurrent.Immutable;
+import javax.annotation.concurrent.NotThreadSafe;
 import javax.annotation.concurrent.ThreadSafe;
 
 /**
  * Auxiliary tool to defer some actions and process them in some point in the future. It checks stack depth and executes only locally (for the stack level) defer actions. <b>It works
- * through ThreadLocal so that actions saved separately for every thread.</b>
+ * through ThreadLocal so that actions saved separately for every thread.</b> Actions are kept in {@link MetaContext} of the thread which is created lazily.
  *
  * @see ThreadLocal
+ * @see MetaContext
  * @since 1.0
  */
 @ThreadSafe
@@ -50,12 +71,143 @@ public final class Deferrers {
    * @since 1.0
    */
   @MustNotContainNull
-  private static final ThreadLocal<List<Deferred>> REGISTRY =
-      ThreadLocal.withInitial(ArrayList::new);
+  private static final MetaContext.Key<List<Deferred>> REGISTRY =
+      MetaContext.key(ArrayList::new);
+
+  /**
+   * Inside context pool of scopes opened through {@link #scope()}.
+   *
+   * @since 1.2.2
+   */
+  private static final MetaContext.Key<ScopeStack> SCOPES = MetaContext.key(ScopeStack::new);
+
+  /**
+   * Inside context counters of pending actions.
+   *
+   * @since 1.2.2
+   */
+  private static final MetaContext.Key<Backlog> BACKLOG = MetaContext.key(Backlog::create);
+
+  /**
+   * Weak references to all alive counters of pending actions, they are removed after collection of their contexts.
+   *
+   * @since 1.2.2
+   */
+  private static final Set<Reference<Backlog>> BACKLOGS = ConcurrentHashMap.newKeySet();
+
+  /**
+   * Queue of references to collected counters of pending actions.
+   *
+   * @since 1.2.2
+   */
+  private static final ReferenceQueue<Backlog> COLLECTED_BACKLOGS = new ReferenceQueue<>();
+
+  /**
+   * Flag to save call site of every registered action.
+   *
+   * @since 1.2.2
+   */
+  private static volatile boolean callSiteTracking;
+
+  /**
+   * Type of handles calling close method of an object.
+   *
+   * @since 1.2.2
+   */
+  private static final MethodType CLOSE_TYPE = MethodType.methodType(void.class, Object.class);
+
+  /**
+   * Marker of class without public close method.
+   *
+   * @since 1.2.2
+   */
+  private static final MethodHandle NO_CLOSE = MethodHandles.empty(CLOSE_TYPE);
+
+  /**
+   * Cache of handles calling public close method, resolved once per class.
+   *
+   * @since 1.2.2
+   */
+  private static final ClassValue<MethodHandle> CLOSE_HANDLES = new ClassValue<MethodHandle>() {
+    @Override
+    protected MethodHandle computeValue(@Nonnull final Class<?> type) {
+      return findCloseHandle(type);
+    }
+  };
 
   private Deferrers() {
   }
 
+  /**
+   * Find handle for public close method of class. If the class is not public then the method is looked for among its public super classes and interfaces.
+   *
+   * @param type class to be processed
+   * @return handle with type (Object)void or {@link #NO_CLOSE} if not found or not accessible
+   */
+  @Nonnull
+  private static MethodHandle findCloseHandle(@Nonnull final Class<?> type) {
+    try {
+      type.getMethod("close");
+    } catch (NoSuchMethodException ex) {
+      return NO_CLOSE;
+    }
+    final MethodHandles.Lookup lookup = MethodHandles.publicLookup();
+    final List<Class<?>> queue = new ArrayList<>();
+    queue.add(type);
+    for (int i = 0; i < queue.size(); i++) {
+      final Class<?> current = queue.get(i);
+      if (Modifier.isPublic(current.getModifiers())) {
+        try {
+          final Method method = current.getMethod("close");
+          return lookup.unreflect(method).asType(CLOSE_TYPE);
+        } catch (NoSuchMethodException | IllegalAccessException ex) {
+          // method is not declared or not accessible, try super types
+        }
+      }
+      if (current.getSuperclass() != null) {
+        queue.add(current.getSuperclass());
+      }
+      queue.addAll(Arrays.asList(current.getInterfaces()));
+    }
+    return NO_CLOSE;
+  }
+
+  /**
+   * Call public close method of object through cached method handle.
+   *
+   * @param closeable object to be closed
+   * @throws Throwable error thrown by the close method
+   * @throws NoSuchMethodException if the object doesn't have accessible public close method
+   */
+  static void invokeClose(@Nonnull final Object closeable) throws Throwable {
+    final MethodHandle handle = CLOSE_HANDLES.get(closeable.getClass());
+    if (handle == NO_CLOSE) {
+      throw new NoSuchMethodException(closeable.getClass().getName() + ".close()");
+    }
+    handle.invokeExact(closeable);
+  }
+
+  /**
+   * Open scope to keep deferred actions and execute them in reverse order during close, like defer in Go. It doesn't need any stack depth detection and registration of an action is
+   * just push into array. Scopes are pooled and their nesting is defined by open order, so that in steady state the call doesn't allocate anything.
+   * <pre>
+   * try (Deferrers.Scope scope = Deferrers.scope()) {
+   *   final InputStream in = scope.deferClose(new FileInputStream(file));
+   *   scope.defer(() -&gt; log("processed"));
+   *   ...
+   * }
+   * </pre>
+   *
+   * @return opened scope, must be closed in the same thread
+   * @see Scope#close()
+   * @since 1.2.2
+   */
+  @Nonnull
+  @Weight(Weight.Unit.LIGHT)
+  public static Scope scope() {
+    return MetaContext.get(SCOPES).push();
+  }
+
   /**
    * Defer some action.
    *
@@ -65,20 +217,147 @@ public final class Deferrers {
    */
   @Weight(Weight.Unit.NORMAL)
   public static Deferred defer(@Nonnull final Deferred deferred) {
-    REGISTRY.get().add(assertNotNull(deferred));
+    MetaContext.get(REGISTRY).add(assertNotNull(deferred));
+    if (callSiteTracking) {
+      deferred.callSite = findCallSite();
+    }
+    MetaContext.get(BACKLOG).added(deferred.callSite);
     return deferred;
   }
 
+  @Nullable
+  private static StackTraceElement findCallSite() {
+    final String name = Deferrers.class.getName();
+    final String prefix = name + '$';
+    return StackWalker.getInstance()
+        .walk(frames -> frames.filter(frame -> !frame.getClassName().equals(name)
+                && !frame.getClassName().startsWith(prefix))
+            .findFirst()
+            .map(StackWalker.StackFrame::toStackTraceElement)
+            .orElse(null));
+  }
+
+  private static void released(final int count, @Nonnull final List<Deferred> list) {
+    if (count > 0) {
+      final Backlog backlog = MetaContext.peek(BACKLOG);
+      if (backlog != null) {
+        backlog.released(count, list.isEmpty() ? null : list.get(0).callSite);
+      }
+    }
+  }
+
+  /**
+   * Enable or disable saving of call site for every registered action, call sites are shown in leak reports. Saving needs stack walk for every registration.
+   *
+   * @param value true to enable, false to disable
+   * @see Deferred#getCallSite()
+   * @see DeferrersMonitor
+   * @since 1.2.2
+   */
+  public static void setCallSiteTracking(final boolean value) {
+    callSiteTracking = value;
+  }
+
+  /**
+   * Check that call sites of registered actions are saved.
+   *
+   * @return true if enabled, false otherwise
+   * @since 1.2.2
+   */
+  public static boolean isCallSiteTracking() {
+    return callSiteTracking;
+  }
+
+  /**
+   * Get number of pending actions for the current thread, actions kept in scopes are not counted.
+   *
+   * @return number of registered but not processed actions
+   * @since 1.2.2
+   */
+  @Weight(Weight.Unit.EXTRALIGHT)
+  public static int getPendingCount() {
+    final Backlog backlog = MetaContext.peek(BACKLOG);
+    return backlog == null ? 0 : backlog.pending;
+  }
+
+  /**
+   * Get number of pending actions for all threads. It is calculated during the call from counters of alive contexts, so that actions of collected contexts are not counted.
+   *
+   * @return number of registered but not processed actions
+   * @since 1.2.2
+   */
+  @Weight(value = Weight.Unit.VARIABLE, comment = "Depends on number of alive contexts")
+  public static long getGlobalPendingCount() {
+    long result = 0L;
+    for (final Backlog backlog : backlogs()) {
+      result += backlog.pending;
+    }
+    return result;
+  }
+
+  /**
+   * Get sum of max numbers of pending actions of alive contexts since their creation or reset. It is calculated during the call and it is upper bound of max number of pending
+   * actions for all threads.
+   *
+   * @return the high-water mark
+   * @since 1.2.2
+   */
+  @Weight(value = Weight.Unit.VARIABLE, comment = "Depends on number of alive contexts")
+  public static long getGlobalHighWaterMark() {
+    long result = 0L;
+    for (final Backlog backlog : backlogs()) {
+      result += backlog.highWaterMark;
+    }
+    return result;
+  }
+
+  /**
+   * Reset high-water marks of all alive contexts to their current numbers of pending actions.
+   *
+   * @since 1.2.2
+   */
+  @Weight(value = Weight.Unit.VARIABLE, comment = "Depends on number of alive contexts")
+  public static void resetGlobalHighWaterMark() {
+    for (final Backlog backlog : backlogs()) {
+      backlog.resetHighWaterMark();
+    }
+  }
+
+  /**
+   * Get snapshot of counters of all alive contexts.
+   *
+   * @return array of counters
+   */
+  @Nonnull
+  static Backlog[] backlogs() {
+    expungeBacklogs();
+    final List<Backlog> result = new ArrayList<>(BACKLOGS.size());
+    for (final Reference<Backlog> reference : BACKLOGS) {
+      final Backlog backlog = reference.get();
+      if (backlog != null) {
+        result.add(backlog);
+      }
+    }
+    return result.toArray(new Backlog[0]);
+  }
+
+  private static void expungeBacklogs() {
+    Reference<? extends Backlog> reference;
+    while ((reference = COLLECTED_BACKLOGS.poll()) != null) {
+      BACKLOGS.remove(reference);
+    }
+  }
+
   /**
    * Defer object containing public close() method. It catches all exceptions during closing and make notifications only for global error listeners. It finds a public 'close'
-   * method of the object and call that through reflection.
+   * method of the object and call that through method handle cached for the class of the object.
    *
    * @param <T>       type of the object to be processed
    * @param closeable an object with close() method.
    * @return the same object from arguments.
    * @since 1.0
    */
-  @Warning("using reflection")
+  @Warning("using method handles")
   @Weight(Weight.Unit.NORMAL)
   public static <T> T deferredClose(@Nullable final T closeable) {
     if (closeable != null) {
@@ -88,8 +367,8 @@ public final class Deferrers {
         @Override
         public void executeDeferred() {
           try {
-            closeable.getClass().getMethod("close").invoke(closeable);
-          } catch (Exception thr) {
+            invokeClose(closeable);
+          } catch (Throwable thr) {
             MetaErrorListeners.fireError("Error during deferred closing action", thr);
           }
         }
@@ -167,15 +446,80 @@ public final class Deferrers {
   }
 
   /**
-   * Cancel all defer actions globally.
+   * Defer closing of a closeable object which doesn't depend on other deferred actions, so that it can be closed in parallel with them by
+   * {@link #processDeferredActions(Executor)}.
+   *
+   * @param <T>       type of closeable object
+   * @param closeable an object implements java.io.Closeable
+   * @return the same closeable object from arguments
+   * @since 1.2.2
+   */
+  @Weight(Weight.Unit.NORMAL)
+  public static <T extends Closeable> T deferIndependent(@Nullable final T closeable) {
+    if (closeable != null) {
+      defer(new Deferred() {
+        private static final long serialVersionUID = -5046813471298771304L;
+
+        @Override
+        public void executeDeferred() {
+          IOUtils.closeQuietly(closeable);
+        }
+
+        @Override
+        public boolean isIndependent() {
+          return true;
+        }
+      });
+    }
+    return closeable;
+  }
+
+  /**
+   * Defer disposing of an object which doesn't depend on other deferred actions, so that it can be disposed in parallel with them by
+   * {@link #processDeferredActions(Executor)}.
+   *
+   * @param disposable some disposable object to be processed.
+   * @return the same object from arguments
+   * @throws AssertionError if the disposable object is null
+   * @since 1.2.2
+   */
+  @Weight(Weight.Unit.NORMAL)
+  public static Disposable deferIndependent(@Nonnull final Disposable disposable) {
+    assertNotNull(disposable);
+    defer(new Deferred() {
+      private static final long serialVersionUID = 3312937541857426921L;
+      private final Disposable value = disposable;
+
+      @Override
+      public void executeDeferred() {
+        this.value.dispose();
+      }
+
+      @Override
+      public boolean isIndependent() {
+        return true;
+      }
+    });
+    return disposable;
+  }
+
+  /**
+   * Cancel all defer actions globally, opened scopes are closed without execution of their actions.
    *
    * @since 1.0
    */
   @Weight(Weight.Unit.NORMAL)
   public static void cancelAllDeferredActionsGlobally() {
-    final List<Deferred> list = REGISTRY.get();
-    list.clear();
-    REGISTRY.remove();
+    final List<Deferred> list = MetaContext.peek(REGISTRY);
+    if (list != null) {
+      list.clear();
+      released(Integer.MAX_VALUE, list);
+      MetaContext.remove(REGISTRY);
+    }
+    final ScopeStack scopes = MetaContext.peek(SCOPES);
+    if (scopes != null) {
+      scopes.unwind(0, false);
+    }
   }
 
   /**
@@ -187,11 +531,13 @@ public final class Deferrers {
   public static void cancelDeferredActions() {
     final int stackDepth = ThreadUtils.stackDepth();
 
-    final List<Deferred> list = REGISTRY.get();
+    final List<Deferred> list = MetaContext.get(REGISTRY);
 
+    final int size = list.size();
     list.removeIf(deferred -> deferred.getStackDepth() >= stackDepth);
+    released(size - list.size(), list);
     if (list.isEmpty()) {
-      REGISTRY.remove();
+      MetaContext.remove(REGISTRY);
     }
   }
 
@@ -204,39 +550,130 @@ public final class Deferrers {
   public static void processDeferredActions() {
     final int stackDepth = ThreadUtils.stackDepth();
 
-    final List<Deferred> list = REGISTRY.get();
+    final List<Deferred> list = MetaContext.get(REGISTRY);
     final Iterator<Deferred> iterator = list.iterator();
 
     while (iterator.hasNext()) {
       final Deferred deferred = iterator.next();
       if (deferred.getStackDepth() >= stackDepth) {
         try {
-          deferred.executeDeferred();
-        } catch (Exception ex) {
-          final UnexpectedProcessingError error =
-              new UnexpectedProcessingError("Error during deferred action processing", ex);
-          MetaErrorListeners.fireError(error.getMessage(), error);
+          execute(deferred);
         } finally {
           iterator.remove();
+          released(1, list);
         }
       }
     }
     if (list.isEmpty()) {
-      REGISTRY.remove();
+      MetaContext.remove(REGISTRY);
     }
   }
 
   /**
-   * Check that presented defer actions for the current thread.
+   * Process all defer actions for the current stack depth level, actions marked as independent are executed in parallel through executor. Other actions are executed in the
+   * current thread in registration order. Errors of actions are sent to global error listeners. If executor rejects an action then it is executed in the current thread.
+   *
+   * @param executor executor to process independent actions, a bounded one should be used
+   * @return future completed when all independent actions are completed
+   * @see #deferIndependent(Closeable)
+   * @see #deferIndependent(Disposable)
+   * @since 1.2.2
+   */
+  @Nonnull
+  @Weight(value = Weight.Unit.VARIABLE, comment = "Depends on the current call stack depth")
+  public static CompletableFuture<Void> processDeferredActions(@Nonnull final Executor executor) {
+    return processDeferredActions(ThreadUtils.stackDepth(), assertNotNull(executor));
+  }
+
+  /**
+   * Process all defer actions for the current stack depth level and wait for completion of independent ones executed in parallel through executor.
+   *
+   * @param executor executor to process independent actions, a bounded one should be used
+   * @param timeout  max time to wait for independent actions
+   * @return true if all actions have been completed, false if timeout
+   * @see #processDeferredActions(Executor)
+   * @since 1.2.2
+   */
+  @Weight(value = Weight.Unit.VARIABLE, comment = "Depends on the current call stack depth")
+  public static boolean processDeferredActions(@Nonnull final Executor executor,
+                                               @Nonnull final Duration timeout) {
+    final CompletableFuture<Void> future =
+        processDeferredActions(ThreadUtils.stackDepth(), assertNotNull(executor));
+    try {
+      future.get(assertNotNull(timeout).toNanos(), TimeUnit.NANOSECONDS);
+      return true;
+    } catch (TimeoutException ex) {
+      return false;
+    } catch (InterruptedException ex) {
+      Thread.currentThread().interrupt();
+      return false;
+    } catch (ExecutionException ex) {
+      throw new UnexpectedProcessingError("Error during deferred action processing",
+          ex.getCause());
+    }
+  }
+
+  @Nonnull
+  private static CompletableFuture<Void> processDeferredActions(final int stackDepth,
+                                                                @Nonnull final Executor executor) {
+    final List<Deferred> list = MetaContext.get(REGISTRY);
+    final Iterator<Deferred> iterator = list.iterator();
+    final List<CompletableFuture<Void>> futures = new ArrayList<>();
+
+    while (iterator.hasNext()) {
+      final Deferred deferred = iterator.next();
+      if (deferred.getStackDepth() >= stackDepth) {
+        try {
+          if (deferred.isIndependent()) {
+            try {
+              futures.add(CompletableFuture.runAsync(() -> execute(deferred), executor));
+            } catch (RejectedExecutionException ex) {
+              execute(deferred);
+            }
+          } else {
+            execute(deferred);
+          }
+        } finally {
+          iterator.remove();
+          released(1, list);
+        }
+      }
+    }
+    if (list.isEmpty()) {
+      MetaContext.remove(REGISTRY);
+    }
+    return CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0]));
+  }
+
+  private static void execute(@Nonnull final Deferred deferred) {
+    try {
+      deferred.executeDeferred();
+    } catch (Exception ex) {
+      final UnexpectedProcessingError error =
+          new UnexpectedProcessingError("Error during deferred action processing", ex);
+      MetaErrorListeners.fireError(error.getMessage(), error);
+    }
+  }
+
+  /**
+   * Check that presented defer actions for the current thread. Opened scopes are counted too.
    *
    * @return true if presented, false otherwise
    * @since 1.0
    */
-  @Weight(Weight.Unit.NORMAL)
+  @Weight(Weight.Unit.EXTRALIGHT)
   public static boolean isEmpty() {
-    final boolean result = REGISTRY.get().isEmpty();
+    final ScopeStack scopes = MetaContext.peek(SCOPES);
+    if (scopes != null && scopes.size > 0) {
+      return false;
+    }
+    final List<Deferred> list = MetaContext.peek(REGISTRY);
+    if (list == null) {
+      return true;
+    }
+    final boolean result = list.isEmpty();
     if (result) {
-      REGISTRY.remove();
+      MetaContext.remove(REGISTRY);
     }
     return result;
   }
@@ -254,6 +691,13 @@ public final class Deferrers {
 
     private final int stackDepth;
 
+    /**
+     * Call site of registration, saved only if tracking is enabled.
+     *
+     * @see Deferrers#setCallSiteTracking(boolean)
+     */
+    private transient volatile StackTraceElement callSite;
+
     /**
      * The Constructor.
      *
@@ -274,6 +718,29 @@ public final class Deferrers {
       return this.stackDepth;
     }
 
+    /**
+     * Get call site where the action was registered.
+     *
+     * @return the call site, null if tracking was disabled during registration
+     * @see Deferrers#setCallSiteTracking(boolean)
+     * @since 1.2.2
+     */
+    @Nullable
+    public StackTraceElement getCallSite() {
+      return this.callSite;
+    }
+
+    /**
+     * Check that the action doesn't depend on other deferred actions and can be executed in parallel with them.
+     *
+     * @return true if the action is independent, false by default
+     * @see Deferrers#processDeferredActions(Executor)
+     * @since 1.2.2
+     */
+    public boolean isIndependent() {
+      return false;
+    }
+
     /**
      * Execute call.
      *
@@ -282,4 +749,334 @@ public final class Deferrers {
      */
     public abstract void executeDeferred() throws Exception;
   }
+
+  /**
+   * Scope of deferred actions opened through {@link Deferrers#scope()}. Actions are executed in reverse order of registration. Scopes are pooled per thread and reused, so that a
+   * scope must not be used after close.
+   *
+   * @since 1.2.2
+   */
+  @NotThreadSafe
+  public static final class Scope implements AutoCloseable {
+
+    private static final byte KIND_RUNNABLE = 0;
+    private static final byte KIND_CLOSEABLE = 1;
+    private static final byte KIND_DISPOSABLE = 2;
+    private static final byte KIND_DEFERRED = 3;
+
+    private final ScopeStack owner;
+    private final int level;
+    private Object[] actions = new Object[8];
+    private byte[] kinds = new byte[8];
+    private int size;
+    private boolean opened;
+
+    private Scope(@Nonnull final ScopeStack owner, final int level) {
+      this.owner = owner;
+      this.level = level;
+    }
+
+    /**
+     * Defer execution of runnable.
+     *
+     * @param runnable action to be executed during close
+     * @return the same object from arguments
+     * @throws IllegalStateException if the scope is closed
+     * @since 1.2.2
+     */
+    @Nonnull
+    @Weight(Weight.Unit.EXTRALIGHT)
+    public Runnable defer(@Nonnull final Runnable runnable) {
+      push(assertNotNull(runnable), KIND_RUNNABLE);
+      return runnable;
+    }
+
+    /**
+     * Defer closing of an object, null is ignored.
+     *
+     * @param closeable object to be closed during close of the scope, can be null
+     * @param <T>       type of object
+     * @return the same object from arguments
+     * @throws IllegalStateException if the scope is closed
+     * @since 1.2.2
+     */
+    @Nullable
+    @Weight(Weight.Unit.EXTRALIGHT)
+    public <T extends AutoCloseable> T deferClose(@Nullable final T closeable) {
+      if (closeable != null) {
+        push(closeable, KIND_CLOSEABLE);
+      }
+      return closeable;
+    }
+
+    /**
+     * Defer disposing of an object.
+     *
+     * @param disposable object to be disposed during close of the scope
+     * @return the same object from arguments
+     * @throws IllegalStateException if the scope is closed
+     * @since 1.2.2
+     */
+    @Nonnull
+    @Weight(Weight.Unit.EXTRALIGHT)
+    public Disposable defer(@Nonnull final Disposable disposable) {
+      push(assertNotNull(disposable), KIND_DISPOSABLE);
+      return disposable;
+    }
+
+    /**
+     * Defer action, its stack depth is ignored.
+     *
+     * @param deferred action to be executed during close
+     * @return the same object from arguments
+     * @throws IllegalStateException if the scope is closed
+     * @since 1.2.2
+     */
+    @Nonnull
+    @Weight(Weight.Unit.EXTRALIGHT)
+    public Deferred defer(@Nonnull final Deferred deferred) {
+      push(assertNotNull(deferred), KIND_DEFERRED);
+      return deferred;
+    }
+
+    /**
+     * Get number of deferred actions.
+     *
+     * @return number of actions in the scope
+     * @since 1.2.2
+     */
+    public int size() {
+      return this.size;
+    }
+
+    /**
+     * Get nesting level of the scope among opened scopes of the thread, the first opened one has zero level.
+     *
+     * @return the nesting level
+     * @since 1.2.2
+     */
+    public int getLevel() {
+      return this.level;
+    }
+
+    /**
+     * Check that the scope is opened.
+     *
+     * @return true if the scope is opened, false if it has been closed or cancelled
+     * @since 1.2.2
+     */
+    public boolean isOpened() {
+      return this.opened;
+    }
+
+    /**
+     * Close the scope and all scopes nested into it without execution of deferred actions.
+     *
+     * @throws IllegalStateException if called from thread without context of the scope
+     * @since 1.2.2
+     */
+    @Weight(Weight.Unit.LIGHT)
+    public void cancel() {
+      if (this.opened) {
+        this.owner.assertOwner();
+        this.owner.unwind(this.level, false);
+      }
+    }
+
+    /**
+     * Close the scope and execute its deferred actions in reverse order. All nested not closed scopes are closed before. All actions are executed even if some of them throw
+     * exception, the first exception is thrown and next ones are attached to it as suppressed. Close of already closed scope is ignored.
+     *
+     * @throws IllegalStateException     if called from thread without context of the scope
+     * @throws UnexpectedProcessingError if an action threw checked exception, it is the cause
+     * @throws RuntimeException          thrown by an action
+     * @since 1.2.2
+     */
+    @Override
+    @Weight(Weight.Unit.VARIABLE)
+    public void close() {
+      if (this.opened) {
+        this.owner.assertOwner();
+        this.owner.unwind(this.level, true);
+      }
+    }
+
+    private void push(@Nonnull final Object action, final byte kind) {
+      if (!this.opened) {
+        throw new IllegalStateException("Scope is closed");
+      }
+      if (this.size == this.actions.length) {
+        this.actions = Arrays.copyOf(this.actions, this.size << 1);
+        this.kinds = Arrays.copyOf(this.kinds, this.size << 1);
+      }
+      this.actions[this.size] = action;
+      this.kinds[this.size++] = kind;
+    }
+
+    @Nullable
+    private Throwable execute(@Nullable final Throwable detected) {
+      Throwable result = detected;
+      while (this.size > 0) {
+        final int index = --this.size;
+        final Object action = this.actions[index];
+        this.actions[index] = null;
+        try {
+          switch (this.kinds[index]) {
+            case KIND_RUNNABLE:
+              ((Runnable) action).run();
+              break;
+            case KIND_CLOSEABLE:
+              ((AutoCloseable) action).close();
+              break;
+            case KIND_DISPOSABLE:
+              ((Disposable) action).dispose();
+              break;
+            default:
+              ((Deferred) action).executeDeferred();
+              break;
+          }
+        } catch (Throwable ex) {
+          if (result == null) {
+            result = ex;
+          } else if (result != ex) {
+            result.addSuppressed(ex);
+          }
+        }
+      }
+      return result;
+    }
+
+    private void clear() {
+      Arrays.fill(this.actions, 0, this.size, null);
+      this.size = 0;
+    }
+  }
+
+  /**
+   * Per-context stack of pooled scopes.
+   *
+   * @since 1.2.2
+   */
+  private static final class ScopeStack {
+
+    private Scope[] scopes = new Scope[4];
+    private int size;
+
+    @Nonnull
+    Scope push() {
+      if (this.size == this.scopes.length) {
+        this.scopes = Arrays.copyOf(this.scopes, this.size << 1);
+      }
+      Scope scope = this.scopes[this.size];
+      if (scope == null) {
+        scope = new Scope(this, this.size);
+        this.scopes[this.size] = scope;
+      }
+      scope.opened = true;
+      this.size++;
+      return scope;
+    }
+
+    void unwind(final int level, final boolean execute) {
+      Throwable detected = null;
+      while (this.size > level) {
+        final Scope scope = this.scopes[--this.size];
+        scope.opened = false;
+        if (execute) {
+          detected = scope.execute(detected);
+        } else {
+          scope.clear();
+        }
+      }
+      if (detected instanceof RuntimeException) {
+        throw (RuntimeException) detected;
+      }
+      if (detected instanceof Error) {
+        throw (Error) detected;
+      }
+      if (detected != null) {
+        throw new UnexpectedProcessingError("Error during deferred action processing", detected);
+      }
+    }
+
+    void assertOwner() {
+      if (MetaContext.peek(SCOPES) != this) {
+        throw new IllegalStateException("Scope must be closed by thread with its context");
+      }
+    }
+  }
+
+  /**
+   * Counters of pending actions for a context. Counters are changed only by thread of the context and read by monitors, the high-water mark can be reset by monitors. The call
+   * site of the oldest pending action is kept to show where actions have been leaked.
+   *
+   * @since 1.2.2
+   */
+  static final class Backlog {
+
+    private static final AtomicIntegerFieldUpdater<Backlog> HIGH_WATER_MARK =
+        AtomicIntegerFieldUpdater.newUpdater(Backlog.class, "highWaterMark");
+
+    private final String threadName;
+    private final long threadId;
+    private volatile int pending;
+    private volatile int highWaterMark;
+    private volatile StackTraceElement oldestCallSite;
+
+    private Backlog(@Nonnull final Thread thread) {
+      this.threadName = thread.getName();
+      this.threadId = thread.getId();
+    }
+
+    @Nonnull
+    static Backlog create() {
+      final Backlog result = new Backlog(Thread.currentThread());
+      expungeBacklogs();
+      BACKLOGS.add(new WeakReference<>(result, COLLECTED_BACKLOGS));
+      return result;
+    }
+
+    void added(@Nullable final StackTraceElement callSite) {
+      final int value = this.pending + 1;
+      this.pending = value;
+      if (value > this.highWaterMark) {
+        // not contended, but reset from monitor must not hide the new mark
+        HIGH_WATER_MARK.accumulateAndGet(this, value, Math::max);
+      }
+      if (value == 1) {
+        this.oldestCallSite = callSite;
+      }
+    }
+
+    void released(final int count, @Nullable final StackTraceElement oldestCallSite) {
+      this.pending = Math.max(0, this.pending - count);
+      this.oldestCallSite = oldestCallSite;
+    }
+
+    void resetHighWaterMark() {
+      HIGH_WATER_MARK.set(this, this.pending);
+    }
+
+    @Nonnull
+    String getThreadName() {
+      return this.threadName;
+    }
+
+    long getThreadId() {
+      return this.threadId;
+    }
+
+    int getPending() {
+      return this.pending;
+    }
+
+    int getHighWaterMark() {
+      return this.highWaterMark;
+    }
+
+    @Nullable
+    StackTraceElement getOldestCallSite() {
+      return this.oldestCallSite;
+    }
+  }
 }
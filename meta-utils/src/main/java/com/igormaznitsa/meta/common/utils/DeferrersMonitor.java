@@ -0,0 +1,280 @@
+/*
+ * Copyright 2026 Igor Maznitsa.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.igormaznitsa.meta.common.utils;
+
+import com.igormaznitsa.meta.annotation.Constraint;
+import com.igormaznitsa.meta.annotation.Weight;
+import com.igormaznitsa.meta.common.exceptions.UnexpectedProcessingError;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.Immutable;
+import javax.annotation.concurrent.ThreadSafe;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * Monitor of deferred actions registered through {@link Deferrers} but not processed. Such actions stay in context of a pooled thread forever, so that the monitor provides
+ * gauges of pending actions and a detector which reports threads whose backlog keeps growing between scans. Reports contain call site of the oldest pending action if
+ * {@link Deferrers#setCallSiteTracking(boolean)} is enabled. The monitor can be registered as JMX MBean.
+ *
+ * @see #OBJECT_NAME
+ * @since 1.2.2
+ */
+@ThreadSafe
+public final class DeferrersMonitor implements DeferrersMonitorMBean {
+
+  /**
+   * Name of the MBean in platform MBean server.
+   *
+   * @since 1.2.2
+   */
+  public static final String OBJECT_NAME = "com.igormaznitsa.meta.common.utils:type=DeferrersMonitor";
+
+  private final int growthScans;
+  private final Map<Deferrers.Backlog, int[]> scanStates = new WeakHashMap<>();
+
+  /**
+   * Constructor, a thread is reported after three scans with growing backlog.
+   *
+   * @since 1.2.2
+   */
+  public DeferrersMonitor() {
+    this(3);
+  }
+
+  /**
+   * Constructor.
+   *
+   * @param growthScans number of sequential scans with growing backlog to report thread
+   * @since 1.2.2
+   */
+  public DeferrersMonitor(@Constraint("X>0") final int growthScans) {
+    if (growthScans <= 0) {
+      throw new IllegalArgumentException("Wrong number of scans: " + growthScans);
+    }
+    this.growthScans = growthScans;
+  }
+
+  /**
+   * Register the monitor in platform MBean server under {@link #OBJECT_NAME}, already registered monitor is replaced.
+   *
+   * @throws UnexpectedProcessingError if the monitor can't be registered
+   * @since 1.2.2
+   */
+  public void register() {
+    try {
+      final MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+      final ObjectName name = new ObjectName(OBJECT_NAME);
+      if (server.isRegistered(name)) {
+        server.unregisterMBean(name);
+      }
+      server.registerMBean(this, name);
+    } catch (JMException ex) {
+      throw new UnexpectedProcessingError("Can't register deferrers monitor", ex);
+    }
+  }
+
+  /**
+   * Remove monitor registered under {@link #OBJECT_NAME} from platform MBean server.
+   *
+   * @since 1.2.2
+   */
+  public static void unregister() {
+    try {
+      final MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+      final ObjectName name = new ObjectName(OBJECT_NAME);
+      if (server.isRegistered(name)) {
+        server.unregisterMBean(name);
+      }
+    } catch (JMException ex) {
+      throw new UnexpectedProcessingError("Can't unregister deferrers monitor", ex);
+    }
+  }
+
+  @Override
+  public long getPendingCount() {
+    return Deferrers.getGlobalPendingCount();
+  }
+
+  @Override
+  public long getHighWaterMark() {
+    return Deferrers.getGlobalHighWaterMark();
+  }
+
+  @Override
+  public int getTrackedThreadCount() {
+    return Deferrers.backlogs().length;
+  }
+
+  @Override
+  public int getGrowthScans() {
+    return this.growthScans;
+  }
+
+  @Override
+  public boolean isCallSiteTracking() {
+    return Deferrers.isCallSiteTracking();
+  }
+
+  @Override
+  public void setCallSiteTracking(final boolean value) {
+    Deferrers.setCallSiteTracking(value);
+  }
+
+  @Override
+  public void resetHighWaterMark() {
+    Deferrers.resetGlobalHighWaterMark();
+  }
+
+  @Override
+  @Nonnull
+  public String[] detectLeaks() {
+    final List<Suspect> suspects = scan();
+    final String[] result = new String[suspects.size()];
+    for (int i = 0; i < result.length; i++) {
+      result[i] = suspects.get(i).toString();
+    }
+    return result;
+  }
+
+  /**
+   * Scan backlogs of all threads. A thread is suspected if its number of pending actions has grown during defined number of sequential scans, decrease of the number resets
+   * the counter. The method should be called periodically, for instance between tasks of a thread pool.
+   *
+   * @return list of suspected threads, can be empty
+   * @since 1.2.2
+   */
+  @Nonnull
+  @Weight(Weight.Unit.VARIABLE)
+  public synchronized List<Suspect> scan() {
+    final List<Suspect> result = new ArrayList<>();
+    for (final Deferrers.Backlog backlog : Deferrers.backlogs()) {
+      final int pending = backlog.getPending();
+      final int[] state = this.scanStates.computeIfAbsent(backlog, x -> new int[2]);
+      if (pending == 0 || pending < state[0]) {
+        state[1] = 0;
+      } else if (pending > state[0]) {
+        state[1]++;
+      }
+      state[0] = pending;
+      if (state[1] >= this.growthScans) {
+        result.add(new Suspect(backlog.getThreadName(), backlog.getThreadId(), pending,
+            backlog.getHighWaterMark(), state[1], backlog.getOldestCallSite()));
+      }
+    }
+    return Collections.unmodifiableList(result);
+  }
+
+  /**
+   * Thread suspected in leak of deferred actions.
+   *
+   * @since 1.2.2
+   */
+  @Immutable
+  public static final class Suspect {
+
+    private final String threadName;
+    private final long threadId;
+    private final int pending;
+    private final int highWaterMark;
+    private final int growthScans;
+    private final StackTraceElement callSite;
+
+    private Suspect(@Nonnull final String threadName, final long threadId, final int pending,
+                    final int highWaterMark, final int growthScans,
+                    @Nullable final StackTraceElement callSite) {
+      this.threadName = threadName;
+      this.threadId = threadId;
+      this.pending = pending;
+      this.highWaterMark = highWaterMark;
+      this.growthScans = growthScans;
+      this.callSite = callSite;
+    }
+
+    /**
+     * Get name of thread which registered the first action.
+     *
+     * @return the thread name
+     */
+    @Nonnull
+    public String getThreadName() {
+      return this.threadName;
+    }
+
+    /**
+     * Get id of thread which registered the first action.
+     *
+     * @return the thread id
+     */
+    public long getThreadId() {
+      return this.threadId;
+    }
+
+    /**
+     * Get number of pending actions detected during scan.
+     *
+     * @return number of pending actions
+     */
+    public int getPending() {
+      return this.pending;
+    }
+
+    /**
+     * Get max number of pending actions of the thread.
+     *
+     * @return the high-water mark
+     */
+    public int getHighWaterMark() {
+      return this.highWaterMark;
+    }
+
+    /**
+     * Get number of sequential scans with growing backlog.
+     *
+     * @return number of scans
+     */
+    public int getGrowthScans() {
+      return this.growthScans;
+    }
+
+    /**
+     * Get call site of the oldest pending action.
+     *
+     * @return the call site, null if call site tracking is disabled
+     */
+    @Nullable
+    public StackTraceElement getCallSite() {
+      return this.callSite;
+    }
+
+    @Override
+    @Nonnull
+    public String toString() {
+      return "Thread '" + this.threadName + "' (id=" + this.threadId + "): pending="
+          + this.pending + ", highWaterMark=" + this.highWaterMark + ", grows for "
+          + this.growthScans + " scans, oldest pending registered at "
+          + (this.callSite == null ? "<unknown>" : this.callSite.toString());
+    }
+  }
+}
@@ -0,0 +1,79 @@
+/*
+ * Copyright 2026 Igor Maznitsa.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.igormaznitsa.meta.common.utils;
+
+/**
+ * JMX interface of {@link DeferrersMonitor}.
+ *
+ * @since 1.2.2
+ */
+public interface DeferrersMonitorMBean {
+
+  /**
+   * Get number of pending deferred actions for all threads.
+   *
+   * @return number of registered but not processed actions
+   */
+  long getPendingCount();
+
+  /**
+   * Get sum of max numbers of pending deferred actions of alive threads, it is upper bound of max number of pending actions for all threads.
+   *
+   * @return the high-water mark
+   */
+  long getHighWaterMark();
+
+  /**
+   * Get number of alive threads which have registered deferred actions.
+   *
+   * @return number of tracked threads
+   */
+  int getTrackedThreadCount();
+
+  /**
+   * Get number of sequential scans with growing backlog to report thread.
+   *
+   * @return number of scans
+   */
+  int getGrowthScans();
+
+  /**
+   * Check that call sites of registered actions are saved.
+   *
+   * @return true if enabled
+   */
+  boolean isCallSiteTracking();
+
+  /**
+   * Enable or disable saving of call sites of registered actions.
+   *
+   * @param value true to enable
+   */
+  void setCallSiteTracking(boolean value);
+
+  /**
+   * Reset high-water marks of alive threads to their current numbers of pending actions.
+   */
+  void resetHighWaterMark();
+
+  /**
+   * Scan backlogs of all threads and make report about threads which backlog keeps growing.
+   *
+   * @return lines of report, one line per suspected thread
+   */
+  String[] detectLeaks();
+}
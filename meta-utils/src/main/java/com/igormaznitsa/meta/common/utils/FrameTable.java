@@ -0,0 +1,477 @@
+/*
+ * Copyright 2026 Igor Maznitsa.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.igormaznitsa.meta.common.utils;
+
+import com.igormaznitsa.meta.annotation.Weight;
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.Immutable;
+import javax.annotation.concurrent.ThreadSafe;
+
+/**
+ * Process-wide table of class, method and file names met in stack frames and codec of frames into compact binary form. Every frame is encoded as varint indexes in the table
+ * and zigzag varint line number, so that encoded frames are valid only inside the JVM which made them. The table is never cleaned because it contains names from loaded code.
+ * Identical encoded traces are canonicalized through weak table keyed by fingerprint, so that traces made in the same place share the same array.
+ *
+ * @see CallTrace
+ * @since 1.2.2
+ */
+@ThreadSafe
+final class FrameTable {
+
+  private static final Table<String> NAMES = new Table<>();
+  private static final Table<Origin> ORIGINS = new Table<>();
+  private static final ConcurrentHashMap<Source, Integer> ORIGIN_INDEXES =
+      new ConcurrentHashMap<>();
+  private static final ConcurrentHashMap<Object, Canonical> TRACES = new ConcurrentHashMap<>();
+  private static final ReferenceQueue<byte[]> CLEARED = new ReferenceQueue<>();
+
+  private FrameTable() {
+  }
+
+  /**
+   * Get number of interned names.
+   *
+   * @return number of names in the table
+   */
+  static int size() {
+    return NAMES.size();
+  }
+
+  /**
+   * Encode frames.
+   *
+   * @param frames frames to be encoded
+   * @return encoded frames, the first varint is number of frames
+   */
+  @Nonnull
+  @Weight(Weight.Unit.VARIABLE)
+  static byte[] encode(@Nonnull final StackTraceElement[] frames) {
+    final Writer writer = new Writer(frames.length * 6 + 5);
+    writer.write(frames.length);
+    for (final StackTraceElement frame : frames) {
+      writer.write(originIndex(frame));
+      writer.write(NAMES.intern(frame.getClassName()));
+      writer.write(NAMES.intern(frame.getMethodName()));
+      final String fileName = frame.getFileName();
+      writer.write(fileName == null ? 0 : NAMES.intern(fileName) + 1);
+      final int line = frame.getLineNumber();
+      writer.write((line << 1) ^ (line >> 31));
+    }
+    return writer.toByteArray();
+  }
+
+  /**
+   * Make 64 bit FNV-1a hash of encoded frames.
+   *
+   * @param data encoded frames
+   * @return fingerprint of the frames
+   */
+  static long fingerprint(@Nonnull final byte[] data) {
+    long result = 0xCBF29CE484222325L;
+    for (final byte value : data) {
+      result = (result ^ (value & 0xFF)) * 0x100000001B3L;
+    }
+    return result;
+  }
+
+  /**
+   * Get canonical instance of encoded frames, the first registered array is returned for equal arrays while it is reachable.
+   *
+   * @param data        encoded frames
+   * @param fingerprint fingerprint of the frames
+   * @return canonical array with the same content
+   * @see #fingerprint(byte[])
+   */
+  @Nonnull
+  @Weight(Weight.Unit.LIGHT)
+  static byte[] canonical(@Nonnull final byte[] data, final long fingerprint) {
+    expunge();
+    final Probe probe = new Probe(data, fingerprint);
+    while (true) {
+      final Canonical existing = TRACES.get(probe);
+      if (existing == null) {
+        final Canonical created = new Canonical(data, fingerprint);
+        if (TRACES.putIfAbsent(created, created) == null) {
+          return data;
+        }
+      } else {
+        final byte[] result = existing.get();
+        if (result != null) {
+          return result;
+        }
+        TRACES.remove(existing, existing);
+      }
+    }
+  }
+
+  /**
+   * Get number of distinct reachable traces in the canonical table.
+   *
+   * @return number of distinct traces
+   */
+  static int canonicalSize() {
+    expunge();
+    return TRACES.size();
+  }
+
+  private static void expunge() {
+    Reference<? extends byte[]> cleared;
+    while ((cleared = CLEARED.poll()) != null) {
+      TRACES.remove(cleared, cleared);
+    }
+  }
+
+  /**
+   * Get number of frames in encoded data.
+   *
+   * @param data encoded frames
+   * @return number of frames
+   */
+  static int count(@Nonnull final byte[] data) {
+    return new Reader(data).read();
+  }
+
+  /**
+   * Decode top frames. Names of built-in class loaders dropped by text representation of original frames are not restored, so that decoded frames have the same text.
+   *
+   * @param data      encoded frames
+   * @param maxFrames max number of decoded frames
+   * @return decoded frames
+   */
+  @Nonnull
+  @Weight(Weight.Unit.VARIABLE)
+  static StackTraceElement[] decode(@Nonnull final byte[] data, final int maxFrames) {
+    final Reader reader = new Reader(data);
+    final StackTraceElement[] result =
+        new StackTraceElement[Math.max(0, Math.min(maxFrames, reader.read()))];
+    for (int i = 0; i < result.length; i++) {
+      final Origin origin = ORIGINS.get(reader.read());
+      final String className = NAMES.get(reader.read());
+      final String methodName = NAMES.get(reader.read());
+      final int file = reader.read();
+      final int line = reader.readSigned();
+      result[i] = new StackTraceElement(origin.classLoaderName, origin.moduleName,
+          origin.moduleVersion, className, methodName, file == 0 ? null : NAMES.get(file - 1),
+          line);
+    }
+    return result;
+  }
+
+  /**
+   * Render top frames as text, every frame is the same as {@link StackTraceElement#toString()} of the original frame.
+   *
+   * @param data      encoded frames
+   * @param maxFrames max number of rendered frames
+   * @param eol       separator of frames
+   * @param buffer    buffer to render frames
+   * @return the buffer
+   */
+  @Nonnull
+  @Weight(Weight.Unit.VARIABLE)
+  static StringBuilder render(@Nonnull final byte[] data, final int maxFrames,
+                              @Nonnull final String eol, @Nonnull final StringBuilder buffer) {
+    final Reader reader = new Reader(data);
+    final int count = Math.min(maxFrames, reader.read());
+    for (int i = 0; i < count; i++) {
+      if (i > 0) {
+        buffer.append(eol);
+      }
+      buffer.append(ORIGINS.get(reader.read()).prefix)
+          .append(NAMES.get(reader.read()))
+          .append('.')
+          .append(NAMES.get(reader.read()))
+          .append('(');
+      final int file = reader.read();
+      final int line = reader.readSigned();
+      if (line == -2) {
+        buffer.append("Native Method");
+      } else if (file == 0) {
+        buffer.append("Unknown Source");
+      } else {
+        buffer.append(NAMES.get(file - 1));
+        if (line >= 0) {
+          buffer.append(':').append(line);
+        }
+      }
+      buffer.append(')');
+    }
+    return buffer;
+  }
+
+  private static int originIndex(@Nonnull final StackTraceElement frame) {
+    final Source source = new Source(frame.getClassLoaderName(), frame.getModuleName(),
+        frame.getModuleVersion());
+    final Integer index = ORIGIN_INDEXES.get(source);
+    if (index != null) {
+      return index;
+    }
+    // text of frame is made only once for every distinct loader and module
+    final int result = ORIGINS.intern(Origin.of(frame));
+    ORIGIN_INDEXES.putIfAbsent(source, result);
+    return result;
+  }
+
+  /**
+   * Class loader and module names of frame as they are provided by {@link StackTraceElement}, key to find already interned origin without making text of frame.
+   */
+  @Immutable
+  private static final class Source {
+
+    private final String classLoaderName;
+    private final String moduleName;
+    private final String moduleVersion;
+
+    private Source(@Nullable final String classLoaderName, @Nullable final String moduleName,
+                   @Nullable final String moduleVersion) {
+      this.classLoaderName = classLoaderName;
+      this.moduleName = moduleName;
+      this.moduleVersion = moduleVersion;
+    }
+
+    @Override
+    public boolean equals(@Nullable final Object that) {
+      if (this == that) {
+        return true;
+      }
+      if (!(that instanceof Source)) {
+        return false;
+      }
+      final Source other = (Source) that;
+      return Objects.equals(this.classLoaderName, other.classLoaderName)
+          && Objects.equals(this.moduleName, other.moduleName)
+          && Objects.equals(this.moduleVersion, other.moduleVersion);
+    }
+
+    @Override
+    public int hashCode() {
+      return (Objects.hashCode(this.classLoaderName) * 31 + Objects.hashCode(this.moduleName))
+          * 31 + Objects.hashCode(this.moduleVersion);
+    }
+  }
+
+  /**
+   * Class loader and module of frame together with their text representation, the representation can't be restored from fields because names of built-in class loaders are
+   * dropped by {@link StackTraceElement#toString()}.
+   */
+  @Immutable
+  private static final class Origin {
+
+    private final String classLoaderName;
+    private final String moduleName;
+    private final String moduleVersion;
+    private final String prefix;
+
+    private Origin(@Nullable final String classLoaderName, @Nullable final String moduleName,
+                   @Nullable final String moduleVersion, @Nonnull final String prefix) {
+      this.classLoaderName = classLoaderName;
+      this.moduleName = moduleName;
+      this.moduleVersion = moduleVersion;
+      this.prefix = prefix;
+    }
+
+    @Nonnull
+    private static Origin of(@Nonnull final StackTraceElement frame) {
+      final String text = frame.toString();
+      final int index =
+          text.indexOf(frame.getClassName() + '.' + frame.getMethodName() + '(');
+      final String prefix = index <= 0 ? "" : text.substring(0, index);
+      final String classLoaderName = frame.getClassLoaderName();
+      return new Origin(
+          classLoaderName != null && prefix.startsWith(classLoaderName + '/') ? classLoaderName :
+              null, frame.getModuleName(), frame.getModuleVersion(), prefix);
+    }
+
+    @Override
+    public boolean equals(@Nullable final Object that) {
+      if (this == that) {
+        return true;
+      }
+      if (!(that instanceof Origin)) {
+        return false;
+      }
+      final Origin other = (Origin) that;
+      return this.prefix.equals(other.prefix)
+          && Objects.equals(this.classLoaderName, other.classLoaderName)
+          && Objects.equals(this.moduleName, other.moduleName)
+          && Objects.equals(this.moduleVersion, other.moduleVersion);
+    }
+
+    @Override
+    public int hashCode() {
+      return this.prefix.hashCode() * 31 + Objects.hashCode(this.classLoaderName);
+    }
+  }
+
+  /**
+   * Weak reference to canonical encoded frames, it is key and value of the canonical table.
+   */
+  private static final class Canonical extends WeakReference<byte[]> {
+
+    private final long fingerprint;
+
+    private Canonical(@Nonnull final byte[] data, final long fingerprint) {
+      super(data, CLEARED);
+      this.fingerprint = fingerprint;
+    }
+
+    @Override
+    public boolean equals(@Nullable final Object that) {
+      if (this == that) {
+        return true;
+      }
+      if (!(that instanceof Canonical) || ((Canonical) that).fingerprint != this.fingerprint) {
+        return false;
+      }
+      final byte[] data = this.get();
+      return data != null && Arrays.equals(data, ((Canonical) that).get());
+    }
+
+    @Override
+    public int hashCode() {
+      return Long.hashCode(this.fingerprint);
+    }
+  }
+
+  /**
+   * Key to search canonical encoded frames.
+   */
+  private static final class Probe {
+
+    private final byte[] data;
+    private final long fingerprint;
+
+    private Probe(@Nonnull final byte[] data, final long fingerprint) {
+      this.data = data;
+      this.fingerprint = fingerprint;
+    }
+
+    @Override
+    public boolean equals(@Nullable final Object that) {
+      return that instanceof Canonical && ((Canonical) that).fingerprint == this.fingerprint
+          && Arrays.equals(this.data, ((Canonical) that).get());
+    }
+
+    @Override
+    public int hashCode() {
+      return Long.hashCode(this.fingerprint);
+    }
+  }
+
+  /**
+   * Append-only interning table, reading of values doesn't take lock.
+   *
+   * @param <T> type of values
+   */
+  @ThreadSafe
+  private static final class Table<T> {
+
+    private final ConcurrentHashMap<T, Integer> indexes = new ConcurrentHashMap<>();
+    private volatile Object[] values = new Object[256];
+    private int size;
+
+    int intern(@Nonnull final T value) {
+      final Integer index = this.indexes.get(value);
+      return index == null ? add(value) : index;
+    }
+
+    private synchronized int add(@Nonnull final T value) {
+      Integer index = this.indexes.get(value);
+      if (index == null) {
+        Object[] current = this.values;
+        if (this.size == current.length) {
+          current = Arrays.copyOf(current, this.size << 1);
+        }
+        current[this.size] = value;
+        this.values = current;
+        index = this.size++;
+        this.indexes.put(value, index);
+      }
+      return index;
+    }
+
+    @Nonnull
+    @SuppressWarnings("unchecked")
+    T get(final int index) {
+      return (T) this.values[index];
+    }
+
+    synchronized int size() {
+      return this.size;
+    }
+  }
+
+  private static final class Writer {
+
+    private byte[] buffer;
+    private int position;
+
+    private Writer(final int capacity) {
+      this.buffer = new byte[capacity];
+    }
+
+    private void write(int value) {
+      if (this.position + 5 > this.buffer.length) {
+        this.buffer = Arrays.copyOf(this.buffer, this.buffer.length << 1);
+      }
+      while ((value & ~0x7F) != 0) {
+        this.buffer[this.position++] = (byte) ((value & 0x7F) | 0x80);
+        value >>>= 7;
+      }
+      this.buffer[this.position++] = (byte) value;
+    }
+
+    @Nonnull
+    private byte[] toByteArray() {
+      return Arrays.copyOf(this.buffer, this.position);
+    }
+  }
+
+  private static final class Reader {
+
+    private final byte[] data;
+    private int position;
+
+    private Reader(@Nonnull final byte[] data) {
+      this.data = data;
+    }
+
+    private int read() {
+      int result = 0;
+      int shift = 0;
+      byte value;
+      do {
+        value = this.data[this.position++];
+        result |= (value & 0x7F) << shift;
+        shift += 7;
+      } while (value < 0);
+      return result;
+    }
+
+    private int readSigned() {
+      final int value = read();
+      return (value >>> 1) ^ -(value & 1);
+    }
+  }
+}
@@ -0,0 +1,256 @@
+/*
+ * Copyright 2026 Igor Maznitsa.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.igormaznitsa.meta.common.utils;
+
+import com.igormaznitsa.meta.annotation.Constraint;
+import com.igormaznitsa.meta.annotation.Weight;
+import java.io.Serializable;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import javax.annotation.Nonnull;
+import javax.annotation.concurrent.Immutable;
+import javax.annotation.concurrent.ThreadSafe;
+
+/**
+ * Lock-free histogram of latencies in nanoseconds with log-linear buckets. Every power of two interval is split into 16 linear sub-buckets, so that relative error of a value is
+ * not more than 1/16. Values since 2^45 nanoseconds (about 9.7 hours) are counted in the last bucket. Recording doesn't allocate anything.
+ *
+ * @see TimePointRecorder
+ * @since 1.2.2
+ */
+@ThreadSafe
+@Weight(Weight.Unit.LIGHT)
+public final class LatencyHistogram {
+
+  private static final int SUB_BUCKET_BITS = 4;
+  private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+  private static final int MAX_EXPONENT = 44;
+  private static final long MAX_TRACKABLE_VALUE = (1L << (MAX_EXPONENT + 1)) - 1L;
+  private static final int BUCKETS = (MAX_EXPONENT - SUB_BUCKET_BITS + 2) * SUB_BUCKETS;
+
+  private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+  private final AtomicLong max = new AtomicLong();
+
+  /**
+   * Get bucket index for value.
+   *
+   * @param value value in nanoseconds
+   * @return index of bucket
+   */
+  static int bucketIndex(final long value) {
+    final long normalized = Math.min(Math.max(0L, value), MAX_TRACKABLE_VALUE);
+    if (normalized < SUB_BUCKETS) {
+      return (int) normalized;
+    }
+    final int exponent = 63 - Long.numberOfLeadingZeros(normalized);
+    final int subBucket = (int) (normalized >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+    return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + subBucket;
+  }
+
+  /**
+   * Get the highest value which can be placed into bucket.
+   *
+   * @param index index of bucket
+   * @return the highest value for the bucket
+   */
+  static long bucketUpperBound(final int index) {
+    if (index < SUB_BUCKETS) {
+      return index;
+    }
+    final int shift = index / SUB_BUCKETS - 1;
+    final long lower = ((long) (SUB_BUCKETS + index % SUB_BUCKETS)) << shift;
+    return lower + (1L << shift) - 1L;
+  }
+
+  /**
+   * Record value.
+   *
+   * @param valueInNanoseconds value in nanoseconds, negative one is recorded as zero
+   * @since 1.2.2
+   */
+  @Weight(Weight.Unit.EXTRALIGHT)
+  public void record(final long valueInNanoseconds) {
+    this.counts.incrementAndGet(bucketIndex(valueInNanoseconds));
+    long currentMax = this.max.get();
+    while (valueInNanoseconds > currentMax) {
+      if (this.max.compareAndSet(currentMax, valueInNanoseconds)) {
+        break;
+      }
+      currentMax = this.max.get();
+    }
+  }
+
+  /**
+   * Reset all counters. Values recorded concurrently can be lost.
+   *
+   * @since 1.2.2
+   */
+  public void reset() {
+    for (int i = 0; i < BUCKETS; i++) {
+      this.counts.set(i, 0L);
+    }
+    this.max.set(0L);
+  }
+
+  /**
+   * Make immutable snapshot of the current state.
+   *
+   * @return snapshot of the histogram
+   * @since 1.2.2
+   */
+  @Nonnull
+  @Weight(Weight.Unit.NORMAL)
+  public Snapshot snapshot() {
+    final long[] values = new long[BUCKETS];
+    long total = 0L;
+    for (int i = 0; i < BUCKETS; i++) {
+      values[i] = this.counts.get(i);
+      total += values[i];
+    }
+    return new Snapshot(values, total, this.max.get());
+  }
+
+  /**
+   * Immutable snapshot of histogram, snapshots can be merged.
+   *
+   * @since 1.2.2
+   */
+  @Immutable
+  @ThreadSafe
+  public static final class Snapshot implements Serializable {
+
+    /**
+     * Empty snapshot.
+     *
+     * @since 1.2.2
+     */
+    public static final Snapshot EMPTY = new Snapshot(new long[BUCKETS], 0L, 0L);
+
+    private static final long serialVersionUID = 6032865307127739126L;
+
+    private final long[] counts;
+    private final long count;
+    private final long max;
+
+    private Snapshot(@Nonnull final long[] counts, final long count, final long max) {
+      this.counts = counts;
+      this.count = count;
+      this.max = max;
+    }
+
+    /**
+     * Merge the snapshot with another one.
+     *
+     * @param other snapshot to be merged
+     * @return new snapshot contains values of both snapshots
+     * @since 1.2.2
+     */
+    @Nonnull
+    public Snapshot merge(@Nonnull final Snapshot other) {
+      final long[] merged = Arrays.copyOf(this.counts, BUCKETS);
+      for (int i = 0; i < BUCKETS; i++) {
+        merged[i] += other.counts[i];
+      }
+      return new Snapshot(merged, this.count + other.count, Math.max(this.max, other.max));
+    }
+
+    /**
+     * Get number of recorded values.
+     *
+     * @return number of values
+     * @since 1.2.2
+     */
+    public long getCount() {
+      return this.count;
+    }
+
+    /**
+     * Get max recorded value.
+     *
+     * @return max value in nanoseconds, zero if there is no values
+     * @since 1.2.2
+     */
+    public long getMax() {
+      return this.max;
+    }
+
+    /**
+     * Get value for percentile. Returned value is the highest value of the found bucket but not more than max recorded value.
+     *
+     * @param percentile percentile in range 0..100
+     * @return value in nanoseconds, zero if there is no values
+     * @since 1.2.2
+     */
+    public long getValueAtPercentile(@Constraint("X>=0 && X<=100") final double percentile) {
+      if (this.count == 0L) {
+        return 0L;
+      }
+      final double normalized = Math.min(100.0d, Math.max(0.0d, percentile));
+      final long target = Math.max(1L, (long) Math.ceil(normalized / 100.0d * this.count));
+      long accumulated = 0L;
+      for (int i = 0; i < BUCKETS; i++) {
+        accumulated += this.counts[i];
+        if (accumulated >= target) {
+          return Math.min(bucketUpperBound(i), this.max);
+        }
+      }
+      return this.max;
+    }
+
+    /**
+     * Get median.
+     *
+     * @return value of 50th percentile
+     * @since 1.2.2
+     */
+    @Nonnull
+    public Duration getP50() {
+      return Duration.ofNanos(getValueAtPercentile(50.0d));
+    }
+
+    /**
+     * Get 99th percentile.
+     *
+     * @return value of 99th percentile
+     * @since 1.2.2
+     */
+    @Nonnull
+    public Duration getP99() {
+      return Duration.ofNanos(getValueAtPercentile(99.0d));
+    }
+
+    /**
+     * Get 99.9th percentile.
+     *
+     * @return value of 99.9th percentile
+     * @since 1.2.2
+     */
+    @Nonnull
+    public Duration getP999() {
+      return Duration.ofNanos(getValueAtPercentile(99.9d));
+    }
+
+    @Override
+    @Nonnull
+    public String toString() {
+      return "count=" + this.count + ", p50=" + getP50() + ", p99=" + getP99() + ", p999="
+          + getP999() + ", max=" + Duration.ofNanos(this.max);
+    }
+  }
+}
@@ -0,0 +1,468 @@
+/*
+ * Copyright 2026 Igor Maznitsa.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.igormaznitsa.meta.common.utils;
+
+import static com.igormaznitsa.meta.common.utils.Assertions.assertNotNull;
+
+import com.igormaznitsa.meta.annotation.Weight;
+import java.util.Arrays;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.Immutable;
+import javax.annotation.concurrent.NotThreadSafe;
+import javax.annotation.concurrent.ThreadSafe;
+
+/**
+ * Carrier of per-thread state of {@link TimeGuard} and {@link Deferrers}. By default a context is bound to thread through ThreadLocal and it is created lazily by the first call
+ * which needs to store something, so that read-only calls like {@link TimeGuard#isEmpty()} don't allocate anything for a short-lived thread. A task wrapped by {@link #wrap(Runnable)}
+ * is executed with own child context which inherits only the effective deadline of the submitting thread, so that guards, scopes and deferred actions of the task and the submitting
+ * thread are independent.
+ * <pre>
+ * CompletableFuture.supplyAsync(MetaContext.wrapSupplier(() -&gt; {
+ *   try (TimeGuard.Scope scope = TimeGuard.open("load", 100L)) {
+ *     return load();
+ *   }
+ * }), executor);
+ * </pre>
+ * <b>A context is not thread safe, it can be attached to several threads in turn but not in the same time.</b> Registered state can be moved to another thread only explicitly
+ * through {@link #detach()} and {@link #attach()}, stack depth based guards and deferred actions keep stack depth of the thread where they were registered, so that only scopes
+ * should be opened and closed in different threads.
+ *
+ * @see #capture()
+ * @see #detach()
+ * @see #wrap(Runnable)
+ * @since 1.2.2
+ */
+@NotThreadSafe
+public final class MetaContext {
+
+  private static final ThreadLocal<MetaContext> CURRENT = new ThreadLocal<>();
+  private static final AtomicInteger KEY_COUNTER = new AtomicInteger();
+  private static volatile Key<?>[] inheritedKeys = new Key<?>[0];
+
+  private Object[] values = new Object[4];
+
+  /**
+   * Make new empty context, it can be attached to a thread through {@link #attach()}.
+   *
+   * @since 1.2.2
+   */
+  public MetaContext() {
+  }
+
+  /**
+   * Make key for a value kept in contexts.
+   *
+   * @param factory factory of initial value, called lazily
+   * @param <T>     type of value
+   * @return new key
+   */
+  @Nonnull
+  static <T> Key<T> key(@Nonnull final Supplier<T> factory) {
+    return new Key<>(KEY_COUNTER.getAndIncrement(), assertNotNull(factory), null, null);
+  }
+
+  /**
+   * Make key for a value which is inherited by child contexts made through {@link #capture()}.
+   *
+   * @param factory  factory of initial value, called lazily
+   * @param snapshot makes immutable snapshot of the value for the current thread, it can return null if there is nothing to inherit
+   * @param child    makes value for child context from snapshot
+   * @param <T>      type of value
+   * @param <S>      type of snapshot
+   * @return new key
+   */
+  @Nonnull
+  @SuppressWarnings("unchecked")
+  static synchronized <T, S> Key<T> key(@Nonnull final Supplier<T> factory,
+                                        @Nonnull final Supplier<S> snapshot,
+                                        @Nonnull final Function<S, T> child) {
+    final Key<T> result = new Key<>(KEY_COUNTER.getAndIncrement(), assertNotNull(factory),
+        assertNotNull(snapshot), (Function<Object, T>) assertNotNull(child));
+    final Key<?>[] keys = Arrays.copyOf(inheritedKeys, inheritedKeys.length + 1);
+    keys[keys.length - 1] = result;
+    inheritedKeys = keys;
+    return result;
+  }
+
+  /**
+   * Get value for the current thread, both the context and the value are created if needed.
+   *
+   * @param key key of value
+   * @param <T> type of value
+   * @return value for the key
+   */
+  @Nonnull
+  @Weight(Weight.Unit.EXTRALIGHT)
+  static <T> T get(@Nonnull final Key<T> key) {
+    return current().value(key);
+  }
+
+  /**
+   * Get value for the current thread without creation.
+   *
+   * @param key key of value
+   * @param <T> type of value
+   * @return value for the key or null if it has not been created yet
+   */
+  @Nullable
+  @Weight(Weight.Unit.EXTRALIGHT)
+  static <T> T peek(@Nonnull final Key<T> key) {
+    final MetaContext context = CURRENT.get();
+    return context == null ? null : context.peekValue(key);
+  }
+
+  /**
+   * Get context of the current thread without creation.
+   *
+   * @return context of the current thread or null
+   */
+  @Nullable
+  static MetaContext peekCurrent() {
+    return CURRENT.get();
+  }
+
+  /**
+   * Remove value for the current thread, it will be created again by the next {@link #get(Key)}.
+   *
+   * @param key key of value
+   */
+  static void remove(@Nonnull final Key<?> key) {
+    final MetaContext context = CURRENT.get();
+    if (context != null && key.index < context.values.length) {
+      context.values[key.index] = null;
+    }
+  }
+
+  /**
+   * Get context of the current thread, it is created and bound to the thread if there is no context.
+   *
+   * @return context of the current thread
+   * @since 1.2.2
+   */
+  @Nonnull
+  @Weight(Weight.Unit.EXTRALIGHT)
+  public static MetaContext current() {
+    MetaContext result = CURRENT.get();
+    if (result == null) {
+      result = new MetaContext();
+      CURRENT.set(result);
+    }
+    return result;
+  }
+
+  /**
+   * Make child context of the current thread to be attached to another thread. The child context inherits only the effective deadline of the current thread, registered guards,
+   * scopes and deferred actions are not shared. The call doesn't create context for the current thread.
+   *
+   * @return new child context
+   * @see TimeGuard#deadline()
+   * @since 1.2.2
+   */
+  @Nonnull
+  @Weight(value = Weight.Unit.VARIABLE, comment = "Depends on number of registered guards")
+  public static MetaContext capture() {
+    return snapshot().makeContext();
+  }
+
+  /**
+   * Unbind context from the current thread to move it to another thread through {@link #attach()} or {@link #bind(Runnable)}. The current thread gets new context lazily, so that
+   * the moved context is not shared.
+   *
+   * @return context of the current thread with registered guards, scopes and deferred actions, new empty context if the thread doesn't have context
+   * @since 1.2.2
+   */
+  @Nonnull
+  @Weight(Weight.Unit.EXTRALIGHT)
+  public static MetaContext detach() {
+    final MetaContext result = CURRENT.get();
+    CURRENT.remove();
+    return result == null ? new MetaContext() : result;
+  }
+
+  /**
+   * Restore context of the current thread, usually with value returned by {@link #attach()}.
+   *
+   * @param context context to be bound to the current thread, if null then the thread will not have any context
+   * @since 1.2.2
+   */
+  @Weight(Weight.Unit.EXTRALIGHT)
+  public static void restore(@Nullable final MetaContext context) {
+    if (context == null) {
+      CURRENT.remove();
+    } else {
+      CURRENT.set(context);
+    }
+  }
+
+  /**
+   * Wrap runnable to be executed with child context of the current thread, every execution gets own child context.
+   *
+   * @param runnable runnable to be wrapped
+   * @return runnable which attaches child context during execution
+   * @see #capture()
+   * @since 1.2.2
+   */
+  @Nonnull
+  @Weight(value = Weight.Unit.VARIABLE, comment = "Depends on number of registered guards")
+  public static Runnable wrap(@Nonnull final Runnable runnable) {
+    assertNotNull(runnable);
+    final Snapshot snapshot = snapshot();
+    return () -> {
+      final MetaContext previous = snapshot.makeContext().attach();
+      try {
+        runnable.run();
+      } finally {
+        restore(previous);
+      }
+    };
+  }
+
+  /**
+   * Wrap callable to be executed with child context of the current thread, every execution gets own child context.
+   *
+   * @param callable callable to be wrapped
+   * @param <T>      type of result
+   * @return callable which attaches child context during execution
+   * @see #capture()
+   * @since 1.2.2
+   */
+  @Nonnull
+  @Weight(value = Weight.Unit.VARIABLE, comment = "Depends on number of registered guards")
+  public static <T> Callable<T> wrap(@Nonnull final Callable<T> callable) {
+    assertNotNull(callable);
+    final Snapshot snapshot = snapshot();
+    return () -> {
+      final MetaContext previous = snapshot.makeContext().attach();
+      try {
+        return callable.call();
+      } finally {
+        restore(previous);
+      }
+    };
+  }
+
+  /**
+   * Wrap executor to execute every task with child context of the submitting thread.
+   *
+   * @param executor executor to be wrapped
+   * @return executor which wraps every task by {@link #wrap(Runnable)}
+   * @since 1.2.2
+   */
+  @Nonnull
+  @Weight(Weight.Unit.LIGHT)
+  public static Executor wrap(@Nonnull final Executor executor) {
+    assertNotNull(executor);
+    return command -> executor.execute(wrap(command));
+  }
+
+  /**
+   * Wrap supplier to be executed with child context of the current thread, it can be used for {@link java.util.concurrent.CompletableFuture#supplyAsync(Supplier)}.
+   *
+   * @param supplier supplier to be wrapped
+   * @param <T>      type of result
+   * @return supplier which attaches child context during execution
+   * @see #capture()
+   * @since 1.2.2
+   */
+  @Nonnull
+  @Weight(value = Weight.Unit.VARIABLE, comment = "Depends on number of registered guards")
+  public static <T> Supplier<T> wrapSupplier(@Nonnull final Supplier<T> supplier) {
+    assertNotNull(supplier);
+    final Snapshot snapshot = snapshot();
+    return () -> {
+      final MetaContext previous = snapshot.makeContext().attach();
+      try {
+        return supplier.get();
+      } finally {
+        restore(previous);
+      }
+    };
+  }
+
+  /**
+   * Wrap function to be executed with child context of the current thread, it can be used for stages of {@link java.util.concurrent.CompletableFuture}.
+   *
+   * @param function function to be wrapped
+   * @param <T>      type of argument
+   * @param <R>      type of result
+   * @return function which attaches child context during execution
+   * @see #capture()
+   * @since 1.2.2
+   */
+  @Nonnull
+  @Weight(value = Weight.Unit.VARIABLE, comment = "Depends on number of registered guards")
+  public static <T, R> Function<T, R> wrapFunction(@Nonnull final Function<T, R> function) {
+    assertNotNull(function);
+    final Snapshot snapshot = snapshot();
+    return value -> {
+      final MetaContext previous = snapshot.makeContext().attach();
+      try {
+        return function.apply(value);
+      } finally {
+        restore(previous);
+      }
+    };
+  }
+
+  /**
+   * Bind the context to the current thread. The context must not be bound to another thread in the same time.
+   *
+   * @return context which was bound to the current thread before, can be null
+   * @see #restore(MetaContext)
+   * @since 1.2.2
+   */
+  @Nullable
+  @Weight(Weight.Unit.EXTRALIGHT)
+  public MetaContext attach() {
+    final MetaContext previous = CURRENT.get();
+    CURRENT.set(this);
+    return previous;
+  }
+
+  /**
+   * Make runnable which executes wrapped one with the context attached to the executing thread.
+   *
+   * @param runnable runnable to be wrapped
+   * @return wrapping runnable
+   * @since 1.2.2
+   */
+  @Nonnull
+  @Weight(Weight.Unit.LIGHT)
+  public Runnable bind(@Nonnull final Runnable runnable) {
+    assertNotNull(runnable);
+    return () -> {
+      final MetaContext previous = this.attach();
+      try {
+        runnable.run();
+      } finally {
+        restore(previous);
+      }
+    };
+  }
+
+  /**
+   * Check that the context doesn't contain any value.
+   *
+   * @return true if the context is empty, false otherwise
+   * @since 1.2.2
+   */
+  public boolean isEmpty() {
+    for (final Object value : this.values) {
+      if (value != null) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  @Nonnull
+  private static Snapshot snapshot() {
+    final Key<?>[] keys = inheritedKeys;
+    Object[] values = null;
+    for (int i = 0; i < keys.length; i++) {
+      final Object value = keys[i].snapshot.get();
+      if (value != null) {
+        if (values == null) {
+          values = new Object[keys.length];
+        }
+        values[i] = value;
+      }
+    }
+    return values == null ? Snapshot.EMPTY : new Snapshot(keys, values);
+  }
+
+  @Nonnull
+  private <T> T value(@Nonnull final Key<T> key) {
+    if (key.index >= this.values.length) {
+      this.values = Arrays.copyOf(this.values, Math.max(key.index + 1, this.values.length << 1));
+    }
+    @SuppressWarnings("unchecked")
+    T result = (T) this.values[key.index];
+    if (result == null) {
+      result = key.factory.get();
+      this.values[key.index] = result;
+    }
+    return result;
+  }
+
+  @Nullable
+  @SuppressWarnings("unchecked")
+  private <T> T peekValue(@Nonnull final Key<T> key) {
+    return key.index < this.values.length ? (T) this.values[key.index] : null;
+  }
+
+  /**
+   * Key of a value kept in contexts.
+   *
+   * @param <T> type of value
+   */
+  @ThreadSafe
+  static final class Key<T> {
+
+    private final int index;
+    private final Supplier<T> factory;
+    private final Supplier<?> snapshot;
+    private final Function<Object, T> child;
+
+    private Key(final int index, @Nonnull final Supplier<T> factory,
+                @Nullable final Supplier<?> snapshot, @Nullable final Function<Object, T> child) {
+      this.index = index;
+      this.factory = factory;
+      this.snapshot = snapshot;
+      this.child = child;
+    }
+  }
+
+  /**
+   * Immutable snapshot of inherited values of a context.
+   */
+  @Immutable
+  private static final class Snapshot {
+
+    private static final Snapshot EMPTY = new Snapshot(new Key<?>[0], new Object[0]);
+
+    private final Key<?>[] keys;
+    private final Object[] values;
+
+    private Snapshot(@Nonnull final Key<?>[] keys, @Nonnull final Object[] values) {
+      this.keys = keys;
+      this.values = values;
+    }
+
+    @Nonnull
+    MetaContext makeContext() {
+      final MetaContext result = new MetaContext();
+      for (int i = 0; i < this.keys.length; i++) {
+        final Object value = this.values[i];
+        if (value != null) {
+          final Key<?> key = this.keys[i];
+          if (key.index >= result.values.length) {
+            result.values = Arrays.copyOf(result.values, key.index + 1);
+          }
+          result.values[key.index] = key.child.apply(value);
+        }
+      }
+      return result;
+    }
+  }
+}
@@ -0,0 +1,41 @@
+/*
+ * Copyright 2026 Igor Maznitsa.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.igormaznitsa.meta.common.utils;
+
+import com.igormaznitsa.meta.annotation.Weight;
+import javax.annotation.concurrent.ThreadSafe;
+
+/**
+ * Provider of the call stack depth for the current thread. Absolute values depend on implementation, only values made by the same provider in the same thread can be compared.
+ *
+ * @see ThreadUtils#setStackDepthProvider(StackDepthProvider)
+ * @see StackWalkerDepthProvider
+ * @since 1.2.2
+ */
+@ThreadSafe
+@FunctionalInterface
+@Weight(Weight.Unit.VARIABLE)
+public interface StackDepthProvider {
+
+  /**
+   * Get the call stack depth for the caller.
+   *
+   * @return the caller method stack depth
+   * @since 1.2.2
+   */
+  int stackDepth();
+}
@@ -0,0 +1,237 @@
+/*
+ * Copyright 2026 Igor Maznitsa.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.igormaznitsa.meta.common.utils;
+
+import com.igormaznitsa.meta.annotation.MustNotContainNull;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.Immutable;
+import javax.annotation.concurrent.NotThreadSafe;
+import javax.annotation.concurrent.ThreadSafe;
+
+/**
+ * Immutable tree of folded stack samples, every node is a frame and its count is number of samples passed through the frame. The tree can be exported in collapsed format used by
+ * flame graph tools.
+ *
+ * @see StallSampler
+ * @since 1.2.2
+ */
+@Immutable
+@ThreadSafe
+public final class StackProfile implements Serializable {
+
+  private static final long serialVersionUID = -1290455213908717245L;
+
+  private final Node root;
+
+  private StackProfile(@Nonnull final Node root) {
+    this.root = root;
+  }
+
+  /**
+   * Get number of folded samples.
+   *
+   * @return number of samples
+   * @since 1.2.2
+   */
+  public int getSampleCount() {
+    return this.root.count;
+  }
+
+  /**
+   * Get root of the tree, the root doesn't represent any frame and its children are the outermost frames.
+   *
+   * @return root node
+   * @since 1.2.2
+   */
+  @Nonnull
+  public Node getRoot() {
+    return this.root;
+  }
+
+  /**
+   * Make text in collapsed format, every line contains frames from the outermost one separated by semicolon and number of samples stopped on the last frame.
+   *
+   * @return folded stacks as text
+   * @since 1.2.2
+   */
+  @Nonnull
+  public String toFolded() {
+    final StringBuilder result = new StringBuilder();
+    for (final Node child : this.root.children) {
+      fold(child, new StringBuilder(), result);
+    }
+    return result.toString();
+  }
+
+  private static void fold(@Nonnull final Node node, @Nonnull final StringBuilder path,
+                           @Nonnull final StringBuilder result) {
+    final int length = path.length();
+    if (length > 0) {
+      path.append(';');
+    }
+    path.append(node.frame);
+    if (node.getSelfCount() > 0) {
+      result.append(path).append(' ').append(node.getSelfCount()).append('\n');
+    }
+    for (final Node child : node.children) {
+      fold(child, path, result);
+    }
+    path.setLength(length);
+  }
+
+  @Override
+  @Nonnull
+  public String toString() {
+    return toFolded();
+  }
+
+  /**
+   * Node of stack profile tree.
+   *
+   * @since 1.2.2
+   */
+  @Immutable
+  @ThreadSafe
+  public static final class Node implements Serializable {
+
+    private static final long serialVersionUID = 3385217601844137709L;
+
+    private final String frame;
+    private final int count;
+    private final List<Node> children;
+
+    private Node(@Nullable final String frame, final int count,
+                 @Nonnull @MustNotContainNull final List<Node> children) {
+      this.frame = frame;
+      this.count = count;
+      this.children = children;
+    }
+
+    /**
+     * Get frame as class name and method name separated by dot.
+     *
+     * @return frame, null for root
+     * @since 1.2.2
+     */
+    @Nullable
+    public String getFrame() {
+      return this.frame;
+    }
+
+    /**
+     * Get number of samples passed through the frame.
+     *
+     * @return number of samples
+     * @since 1.2.2
+     */
+    public int getCount() {
+      return this.count;
+    }
+
+    /**
+     * Get number of samples stopped on the frame.
+     *
+     * @return number of samples where the frame was the innermost one
+     * @since 1.2.2
+     */
+    public int getSelfCount() {
+      int result = this.count;
+      for (final Node child : this.children) {
+        result -= child.count;
+      }
+      return result;
+    }
+
+    /**
+     * Get child frames in order of their first appearance.
+     *
+     * @return unmodifiable list of children
+     * @since 1.2.2
+     */
+    @Nonnull
+    @MustNotContainNull
+    public List<Node> getChildren() {
+      return this.children;
+    }
+  }
+
+  /**
+   * Mutable accumulator of samples, it must be used by one thread.
+   */
+  @NotThreadSafe
+  static final class Builder {
+
+    private final MutableNode root = new MutableNode(null);
+
+    /**
+     * Fold stack trace into the tree.
+     *
+     * @param stack stack trace where the first element is the innermost frame
+     */
+    void add(@Nonnull @MustNotContainNull final StackTraceElement[] stack) {
+      MutableNode current = this.root;
+      current.count++;
+      for (int i = stack.length - 1; i >= 0; i--) {
+        final String frame = stack[i].getClassName() + '.' + stack[i].getMethodName();
+        current = current.children.computeIfAbsent(frame, MutableNode::new);
+        current.count++;
+      }
+    }
+
+    boolean isEmpty() {
+      return this.root.count == 0;
+    }
+
+    @Nonnull
+    StackProfile build() {
+      return new StackProfile(this.root.toNode());
+    }
+  }
+
+  private static final class MutableNode {
+
+    private final String frame;
+    private final Map<String, MutableNode> children = new LinkedHashMap<>();
+    private int count;
+
+    private MutableNode(@Nullable final String frame) {
+      this.frame = frame;
+    }
+
+    @Nonnull
+    private Node toNode() {
+      final List<Node> nodes;
+      if (this.children.isEmpty()) {
+        nodes = Collections.emptyList();
+      } else {
+        final List<Node> list = new ArrayList<>(this.children.size());
+        for (final MutableNode child : this.children.values()) {
+          list.add(child.toNode());
+        }
+        nodes = Collections.unmodifiableList(list);
+      }
+      return new Node(this.frame, this.count, nodes);
+    }
+  }
+}
@@ -0,0 +1,90 @@
+/*
+ * Copyright 2026 Igor Maznitsa.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.igormaznitsa.meta.common.utils;
+
+import com.igormaznitsa.meta.annotation.Weight;
+import java.util.function.Function;
+import java.util.stream.Stream;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.ThreadSafe;
+
+/**
+ * Stack depth provider based on {@link StackWalker}. It counts frames lazily and doesn't make any {@link StackTraceElement}, so that it is much cheaper than {@link Thread#getStackTrace()} for deep stacks.
+ *
+ * @see ThreadUtils#setStackDepthProvider(StackDepthProvider)
+ * @since 1.2.2
+ */
+@ThreadSafe
+@Weight(Weight.Unit.VARIABLE)
+public final class StackWalkerDepthProvider implements StackDepthProvider {
+
+  private static final Function<Stream<StackWalker.StackFrame>, Integer> FRAME_COUNTER =
+      frames -> (int) frames.count();
+
+  private static final Function<Stream<StackWalker.StackFrame>, Class<?>> CALLER_CLASS_FINDER =
+      frames -> frames.skip(2L).findFirst().map(StackWalker.StackFrame::getDeclaringClass)
+          .orElse(null);
+
+  private final StackWalker walker;
+  private final boolean retainCallerClass;
+
+  /**
+   * The Constructor.
+   *
+   * @param retainCallerClass true if class references must be retained in frames, it makes possible to use {@link #getCallerClass()} but a bit slower.
+   * @since 1.2.2
+   */
+  public StackWalkerDepthProvider(final boolean retainCallerClass) {
+    this.retainCallerClass = retainCallerClass;
+    this.walker = retainCallerClass
+        ? StackWalker.getInstance(StackWalker.Option.RETAIN_CLASS_REFERENCE) :
+        StackWalker.getInstance();
+  }
+
+  /**
+   * Check that the provider retains class references for frames.
+   *
+   * @return true if class references are retained, false otherwise
+   * @since 1.2.2
+   */
+  public boolean isRetainCallerClass() {
+    return this.retainCallerClass;
+  }
+
+  @Override
+  @Weight(value = Weight.Unit.VARIABLE, comment = "Depends on the current call stack depth")
+  public int stackDepth() {
+    return this.walker.walk(FRAME_COUNTER);
+  }
+
+  /**
+   * Get class of the caller for the method which has called the method.
+   *
+   * @return the caller class, can be null if there is no such frame
+   * @throws UnsupportedOperationException if the provider doesn't retain class references
+   * @see #isRetainCallerClass()
+   * @since 1.2.2
+   */
+  @Nullable
+  @Weight(Weight.Unit.LIGHT)
+  public Class<?> getCallerClass() {
+    if (!this.retainCallerClass) {
+      throw new UnsupportedOperationException("Provider doesn't retain class references");
+    }
+    return this.walker.walk(CALLER_CLASS_FINDER);
+  }
+}
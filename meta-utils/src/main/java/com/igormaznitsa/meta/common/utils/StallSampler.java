@@ -0,0 +1,171 @@
+/*
+ * Copyright 2026 Igor Maznitsa.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.igormaznitsa.meta.common.utils;
+
+import static com.igormaznitsa.meta.common.utils.Assertions.assertNotNull;
+
+import com.igormaznitsa.meta.annotation.Constraint;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.annotation.Nonnull;
+import javax.annotation.concurrent.ThreadSafe;
+
+/**
+ * Settings of stack sampling for guards watched by {@link TimeGuardWatchdog}. When a guard passes the defined fraction of its budget, the watchdog thread periodically captures
+ * stack of the guarded thread and folds samples into {@link StackProfile} provided through {@link TimeGuard.TimeData#getStackProfile()}. The guarded thread doesn't make anything
+ * for sampling.
+ * <p>
+ * Number of samples is limited globally for all guards through the sampler instance, extra samples are just skipped.
+ * <pre>
+ * TimeGuard.setWatchdog(new TimeGuardWatchdog(TimeGuardWatchdog.DEFAULT_TICK,
+ *     TimeGuardWatchdog.DEFAULT_WHEEL_SIZE, new StallSampler(0.5d, Duration.ofMillis(10), 32, 200)));
+ * </pre>
+ *
+ * @see TimeGuardWatchdog#TimeGuardWatchdog(Duration, int, StallSampler)
+ * @since 1.2.2
+ */
+@ThreadSafe
+public final class StallSampler {
+
+  private final double budgetFraction;
+  private final long intervalInNanoseconds;
+  private final int maxSamplesPerGuard;
+  private final long permitIntervalInNanoseconds;
+  private final long burstInNanoseconds;
+  private final AtomicLong nextPermitTime = new AtomicLong(System.nanoTime());
+  private final AtomicLong sampleCounter = new AtomicLong();
+  private final AtomicLong skippedCounter = new AtomicLong();
+
+  /**
+   * Constructor.
+   *
+   * @param budgetFraction      fraction of guard budget after which sampling starts, in range 0..1
+   * @param interval            interval between samples of a guard, real interval is rounded to watchdog tick
+   * @param maxSamplesPerGuard  max number of samples for a guard
+   * @param maxSamplesPerSecond max number of samples per second for all guards
+   * @since 1.2.2
+   */
+  public StallSampler(@Constraint("X>=0 && X<=1") final double budgetFraction,
+                      @Nonnull final Duration interval,
+                      @Constraint("X>0") final int maxSamplesPerGuard,
+                      @Constraint("X>0") final int maxSamplesPerSecond) {
+    if (!(budgetFraction >= 0.0d && budgetFraction <= 1.0d)) {
+      throw new IllegalArgumentException("Budget fraction must be in 0..1: " + budgetFraction);
+    }
+    if (maxSamplesPerGuard <= 0) {
+      throw new IllegalArgumentException("Wrong max samples per guard: " + maxSamplesPerGuard);
+    }
+    if (maxSamplesPerSecond <= 0) {
+      throw new IllegalArgumentException("Wrong max samples per second: " + maxSamplesPerSecond);
+    }
+    this.budgetFraction = budgetFraction;
+    this.intervalInNanoseconds = Math.max(1L, assertNotNull(interval).toNanos());
+    this.maxSamplesPerGuard = maxSamplesPerGuard;
+    this.permitIntervalInNanoseconds = TimeUnit.SECONDS.toNanos(1L) / maxSamplesPerSecond;
+    this.burstInNanoseconds = TimeUnit.SECONDS.toNanos(1L) - this.permitIntervalInNanoseconds;
+  }
+
+  /**
+   * Get fraction of budget after which sampling starts.
+   *
+   * @return fraction in range 0..1
+   * @since 1.2.2
+   */
+  public double getBudgetFraction() {
+    return this.budgetFraction;
+  }
+
+  /**
+   * Get interval between samples of a guard.
+   *
+   * @return interval between samples
+   * @since 1.2.2
+   */
+  @Nonnull
+  public Duration getInterval() {
+    return Duration.ofNanos(this.intervalInNanoseconds);
+  }
+
+  /**
+   * Get max number of samples for a guard.
+   *
+   * @return max number of samples
+   * @since 1.2.2
+   */
+  public int getMaxSamplesPerGuard() {
+    return this.maxSamplesPerGuard;
+  }
+
+  /**
+   * Get number of captured samples.
+   *
+   * @return number of samples
+   * @since 1.2.2
+   */
+  public long getSampleCount() {
+    return this.sampleCounter.get();
+  }
+
+  /**
+   * Get number of samples skipped because of global rate limit.
+   *
+   * @return number of skipped samples
+   * @since 1.2.2
+   */
+  public long getSkippedCount() {
+    return this.skippedCounter.get();
+  }
+
+  long getIntervalInNanoseconds() {
+    return this.intervalInNanoseconds;
+  }
+
+  /**
+   * Calculate time when sampling of a guard should be started.
+   *
+   * @param startTimeInNanoseconds       start time of guard
+   * @param maxAllowedDelayInNanoseconds budget of guard
+   * @return time of the first sample
+   */
+  long firstSampleTime(final long startTimeInNanoseconds,
+                       final long maxAllowedDelayInNanoseconds) {
+    return startTimeInNanoseconds + (long) (maxAllowedDelayInNanoseconds * this.budgetFraction);
+  }
+
+  /**
+   * Try to get permit for sample, it works as generic cell rate algorithm allowing burst during one second.
+   *
+   * @param time current time in nanoseconds
+   * @return true if sample allowed, false otherwise
+   */
+  boolean tryAcquire(final long time) {
+    while (true) {
+      final long permitTime = this.nextPermitTime.get();
+      if (permitTime - time > this.burstInNanoseconds) {
+        this.skippedCounter.incrementAndGet();
+        return false;
+      }
+      final long next = (permitTime - time < 0L ? time : permitTime)
+          + this.permitIntervalInNanoseconds;
+      if (this.nextPermitTime.compareAndSet(permitTime, next)) {
+        this.sampleCounter.incrementAndGet();
+        return true;
+      }
+    }
+  }
+}
@@ -0,0 +1,104 @@
+/*
+ * Copyright 2026 Igor Maznitsa.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.igormaznitsa.meta.common.utils;
+
+import com.igormaznitsa.meta.annotation.Weight;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import javax.annotation.concurrent.ThreadSafe;
+
+/**
+ * Auxiliary methods to read resources consumed by the current thread. Allocated bytes are read through {@code com.sun.management.ThreadMXBean} which is loaded lazily, so that
+ * the class works on platforms without the extension.
+ *
+ * @since 1.2.2
+ */
+@ThreadSafe
+final class ThreadResources {
+
+  private static final ThreadMXBean THREAD_BEAN = ManagementFactory.getThreadMXBean();
+  private static final boolean CPU_TIME_SUPPORTED = detectCpuTime();
+
+  private ThreadResources() {
+  }
+
+  private static boolean detectCpuTime() {
+    try {
+      return THREAD_BEAN.isCurrentThreadCpuTimeSupported() && THREAD_BEAN.isThreadCpuTimeEnabled();
+    } catch (UnsupportedOperationException ex) {
+      return false;
+    }
+  }
+
+  /**
+   * Check that CPU time of the current thread can be measured.
+   *
+   * @return true if CPU time is supported and enabled, false otherwise
+   */
+  static boolean isCpuTimeSupported() {
+    return CPU_TIME_SUPPORTED;
+  }
+
+  /**
+   * Check that bytes allocated by the current thread can be measured.
+   *
+   * @return true if allocated bytes are supported and enabled, false otherwise
+   */
+  static boolean isAllocatedBytesSupported() {
+    return AllocationMeter.SUPPORTED;
+  }
+
+  /**
+   * Get CPU time of the current thread.
+   *
+   * @return CPU time in nanoseconds, -1 if not supported
+   */
+  @Weight(Weight.Unit.LIGHT)
+  static long cpuTime() {
+    return CPU_TIME_SUPPORTED ? THREAD_BEAN.getCurrentThreadCpuTime() : -1L;
+  }
+
+  /**
+   * Get number of bytes allocated by the current thread during its life.
+   *
+   * @return allocated bytes, -1 if not supported
+   */
+  @Weight(Weight.Unit.LIGHT)
+  static long allocatedBytes() {
+    return AllocationMeter.SUPPORTED ? AllocationMeter.allocatedBytes() : -1L;
+  }
+
+  private static final class AllocationMeter {
+
+    private static final boolean SUPPORTED = detect();
+
+    private static boolean detect() {
+      try {
+        return THREAD_BEAN instanceof com.sun.management.ThreadMXBean
+            && ((com.sun.management.ThreadMXBean) THREAD_BEAN).isThreadAllocatedMemorySupported()
+            && ((com.sun.management.ThreadMXBean) THREAD_BEAN).isThreadAllocatedMemoryEnabled();
+      } catch (LinkageError | UnsupportedOperationException ex) {
+        return false;
+      }
+    }
+
+    private static long allocatedBytes() {
+      return ((com.sun.management.ThreadMXBean) THREAD_BEAN)
+          .getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+  }
+}
@@ -17,7 +17,10 @@
 package com.igormaznitsa.meta.common.utils;
 
 import com.igormaznitsa.meta.annotation.Weight;
+import java.util.function.Function;
+import java.util.stream.Stream;
 import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
 import javax.annotation.concurrent.ThreadSafe;
 
 /**
@@ -28,9 +31,58 @@ import javax.annotation.concurrent.ThreadSafe;
 @ThreadSafe
 public final class ThreadUtils {
 
+  /**
+   * Stack depth provider based on {@link StackWalker}, it is the default one.
+   *
+   * @since 1.2.2
+   */
+  public static final StackDepthProvider STACK_WALKER_DEPTH_PROVIDER =
+      new StackWalkerDepthProvider(false);
+
+  /**
+   * Stack depth provider based on {@link Thread#getStackTrace()}, it makes full stack trace for every call.
+   *
+   * @since 1.2.2
+   */
+  public static final StackDepthProvider STACK_TRACE_DEPTH_PROVIDER =
+      () -> Thread.currentThread().getStackTrace().length - 1;
+
+  private static final StackWalker STACK_WALKER = StackWalker.getInstance();
+
+  private static final Function<Stream<StackWalker.StackFrame>, StackTraceElement>
+      CALLER_ELEMENT_FINDER =
+      frames -> frames.skip(1L).findFirst().map(StackWalker.StackFrame::toStackTraceElement)
+          .orElseThrow(IllegalStateException::new);
+
+  private static volatile StackDepthProvider stackDepthProvider = STACK_WALKER_DEPTH_PROVIDER;
+
   private ThreadUtils() {
   }
 
+  /**
+   * Get the current stack depth provider used by {@link #stackDepth()}.
+   *
+   * @return the current stack depth provider
+   * @since 1.2.2
+   */
+  @Nonnull
+  public static StackDepthProvider getStackDepthProvider() {
+    return stackDepthProvider;
+  }
+
+  /**
+   * Set stack depth provider to be used by {@link #stackDepth()} and all services depending on stack depth like {@link TimeGuard} and {@link Deferrers}.
+   * <b>Depths made by different providers are not comparable so that it should be changed only when there are no registered guards and deferred actions.</b>
+   *
+   * @param provider new provider, if null then default one will be used
+   * @see #STACK_WALKER_DEPTH_PROVIDER
+   * @see #STACK_TRACE_DEPTH_PROVIDER
+   * @since 1.2.2
+   */
+  public static void setStackDepthProvider(@Nullable final StackDepthProvider provider) {
+    stackDepthProvider = GetUtils.ensureNonNull(provider, STACK_WALKER_DEPTH_PROVIDER);
+  }
+
   /**
    * Just suspend the current thread for defined interval in milliseconds.
    *
@@ -59,18 +111,18 @@ public final class ThreadUtils {
   @Weight(Weight.Unit.VARIABLE)
   @Nonnull
   public static StackTraceElement stackElement() {
-    final StackTraceElement[] allElements = Thread.currentThread().getStackTrace();
-    return allElements[2];
+    return STACK_WALKER.walk(CALLER_ELEMENT_FINDER);
   }
 
   /**
    * Get the stack call depth for the caller.
    *
    * @return the caller method stack depth.
+   * @see #setStackDepthProvider(StackDepthProvider)
    * @since 1.0
    */
   @Weight(Weight.Unit.VARIABLE)
   public static int stackDepth() {
-    return Thread.currentThread().getStackTrace().length - 1;
+    return stackDepthProvider.stackDepth();
   }
 }
@@ -20,28 +20,38 @@ import static com.igormaznitsa.meta.common.utils.Assertions.assertNotNull;
 
 import com.igormaznitsa.meta.annotation.Constraint;
 import com.igormaznitsa.meta.annotation.DisableSelfInvocation;
-import com.igormaznitsa.meta.annotation.MustNotContainNull;
 import com.igormaznitsa.meta.annotation.Weight;
 import com.igormaznitsa.meta.common.exceptions.MetaErrorListeners;
 import com.igormaznitsa.meta.common.exceptions.TimeViolationError;
 import com.igormaznitsa.meta.common.exceptions.UnexpectedProcessingError;
 import com.igormaznitsa.meta.common.interfaces.CheckedRunnable;
 import com.igormaznitsa.meta.common.interfaces.CheckedSupplier;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamField;
 import java.io.Serializable;
 import java.time.Duration;
 import java.util.ArrayList;
-import java.util.Iterator;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import java.util.function.BiConsumer;
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 import javax.annotation.concurrent.Immutable;
+import javax.annotation.concurrent.NotThreadSafe;
 import javax.annotation.concurrent.ThreadSafe;
 
 /**
  * Allows to detect violations of execution time for code blocks or just measure time for them. It works separately for every Thread through ThreadLocal and check stack depth to be
- * informed about current operation level.
+ * informed about current operation level. Registered guards are kept in per-thread arrays which are reused, so that guarding doesn't allocate objects until notification. Scopes opened through {@link #open(String, long, TimeAlertListener)} don't need stack depth and can be used with try-with-resources.
+ * All time is measured by monotonic {@link System#nanoTime()}, millisecond values are provided for compatibility.
  *
  * @since 1.0
  */
@@ -61,17 +71,204 @@ public final class TimeGuard {
     }
   };
   /**
-   * Inside thread local storage of registered processors.
+   * Inside context storage of registered processors.
    *
+   * @see MetaContext
    * @since 1.0
    */
-  @MustNotContainNull
-  private static final ThreadLocal<List<TimeData>> REGISTRY =
-      ThreadLocal.withInitial(ArrayList::new);
+  private static final MetaContext.Key<TimeGuardRegistry> REGISTRY =
+      MetaContext.key(TimeGuardRegistry::new);
+
+  /**
+   * Inside context pool of scopes opened through {@link #open(String, long, TimeAlertListener)}.
+   *
+   * @see MetaContext
+   * @since 1.2.2
+   */
+  private static final MetaContext.Key<ScopeStack> SCOPES =
+      MetaContext.key(ScopeStack::new, TimeGuard::inheritedDeadline, ScopeStack::new);
+
+  /**
+   * Optional background watchdog to report violations without check.
+   *
+   * @since 1.2.2
+   */
+  private static volatile TimeGuardWatchdog watchdog;
+
+  /**
+   * Optional policy to guard only part of calls.
+   *
+   * @since 1.2.2
+   */
+  private static volatile TimeGuardSamplingPolicy samplingPolicy;
+
+  /**
+   * Optional exporter of finished guards as spans.
+   *
+   * @since 1.2.2
+   */
+  private static volatile TimeGuardSpanExporter spanExporter;
+
+  /**
+   * Optional dispatcher to deliver notifications asynchronously.
+   *
+   * @since 1.2.2
+   */
+  private static volatile AlertDispatcher alertDispatcher;
 
   private TimeGuard() {
   }
 
+  /**
+   * Set dispatcher to deliver notifications of time alert listeners out of the notifying thread. If there is no dispatcher then listeners are notified synchronously.
+   *
+   * @param value dispatcher to be used, null to notify listeners synchronously
+   * @see AlertDispatcher
+   * @since 1.2.2
+   */
+  public static void setAlertDispatcher(@Nullable final AlertDispatcher value) {
+    alertDispatcher = value;
+  }
+
+  /**
+   * Get the current alert dispatcher.
+   *
+   * @return the current dispatcher, can be null
+   * @since 1.2.2
+   */
+  @Nullable
+  public static AlertDispatcher getAlertDispatcher() {
+    return alertDispatcher;
+  }
+
+  /**
+   * Set exporter to record finished guards, time points and scopes as spans. Only guards added after the call are exported, cancelled guards are not exported.
+   *
+   * @param value exporter to be used, null to stop export
+   * @see TimeGuardSpanExporter
+   * @since 1.2.2
+   */
+  public static void setSpanExporter(@Nullable final TimeGuardSpanExporter value) {
+    spanExporter = value;
+  }
+
+  /**
+   * Get the current span exporter.
+   *
+   * @return the current exporter, can be null
+   * @since 1.2.2
+   */
+  @Nullable
+  public static TimeGuardSpanExporter getSpanExporter() {
+    return spanExporter;
+  }
+
+  private static void startSpan(@Nonnull final TimeGuardRegistry registry, final int slot) {
+    final TimeGuardSpanExporter exporter = spanExporter;
+    if (exporter != null) {
+      registry.startSpan(slot, exporter.nextSpanId());
+    }
+  }
+
+  private static void exportSpan(@Nonnull final TimeGuardRegistry registry, final int slot,
+                                 final long time, final boolean violated) {
+    final TimeGuardSpanExporter exporter = spanExporter;
+    if (exporter != null && registry.spanId(slot) != 0L) {
+      exporter.record(registry.isTimePoint(slot) ? TimeGuardSpanExporter.KIND_POINT :
+              TimeGuardSpanExporter.KIND_GUARD, registry.message(slot), registry.spanId(slot),
+          registry.parentSpanId(slot), registry.depth(slot), registry.startTime(slot), time,
+          violated);
+    }
+  }
+
+  /**
+   * Set policy to guard only part of calls. Not sampled calls of {@link #addGuard(String, long)}, {@link #addPoint(String, TimeAlertListener)} and {@link #open(String, long)} don't
+   * walk stack and don't register anything, checks for a thread without registered guards return immediately. {@link #checkPoint(String)} doesn't throw exception for not found
+   * point while a policy is set.
+   *
+   * @param value policy to be used, null to guard every call
+   * @see TimeGuardSamplingPolicy
+   * @since 1.2.2
+   */
+  public static void setSamplingPolicy(@Nullable final TimeGuardSamplingPolicy value) {
+    samplingPolicy = value;
+  }
+
+  /**
+   * Get the current sampling policy.
+   *
+   * @return the current sampling policy, can be null
+   * @since 1.2.2
+   */
+  @Nullable
+  public static TimeGuardSamplingPolicy getSamplingPolicy() {
+    return samplingPolicy;
+  }
+
+  /**
+   * Set background watchdog to report time violations as soon as deadline passed, even if the guarded block has not been completed yet.
+   * Only guards and scopes added after the call are watched.
+   *
+   * @param value watchdog to be used, null to stop watching
+   * @see TimeGuardWatchdog
+   * @since 1.2.2
+   */
+  public static void setWatchdog(@Nullable final TimeGuardWatchdog value) {
+    watchdog = value;
+  }
+
+  /**
+   * Get the current background watchdog.
+   *
+   * @return the current watchdog, can be null
+   * @since 1.2.2
+   */
+  @Nullable
+  public static TimeGuardWatchdog getWatchdog() {
+    return watchdog;
+  }
+
+  private static void register(@Nullable final TimeGuardSamplingPolicy policy, final long time,
+                               final int stackDepth, @Nullable final String alertMessage,
+                               final long maxAllowedDelayInNanoseconds,
+                               @Nullable final TimeAlertListener timeAlertListener) {
+    final TimeAlertListener listener =
+        GetUtils.ensureNonNull(timeAlertListener, NULL_TIME_ALERT_LISTENER);
+    final TimeGuardWatchdog currentWatchdog = watchdog;
+    final TimeGuardRegistry registry = MetaContext.get(REGISTRY);
+    startSpan(registry,
+        registry.add(stackDepth, alertMessage, maxAllowedDelayInNanoseconds, listener,
+            currentWatchdog == null ? null :
+                currentWatchdog.watch(alertMessage, maxAllowedDelayInNanoseconds, listener,
+                    stackDepth, time), time));
+    if (policy != null) {
+      policy.recordOverhead(time, System.nanoTime());
+    }
+  }
+
+  private static void register(@Nullable final TimeGuardSamplingPolicy policy,
+                               final long overheadStart, final int stackDepth,
+                               @Nullable final String alertMessage, @Nonnull final Budget budget,
+                               @Nullable final TimeAlertListener timeAlertListener) {
+    final TimeAlertListener listener =
+        GetUtils.ensureNonNull(timeAlertListener, NULL_TIME_ALERT_LISTENER);
+    final TimeGuardWatchdog currentWatchdog = watchdog;
+    final long maxDelay =
+        budget.wallTimeInNanoseconds < 0L ? Long.MAX_VALUE : budget.wallTimeInNanoseconds;
+    final long cpuStart = budget.cpuTimeInNanoseconds < 0L ? -1L : ThreadResources.cpuTime();
+    final long allocationStart =
+        budget.allocatedBytes < 0L ? -1L : ThreadResources.allocatedBytes();
+    final long time = System.nanoTime();
+    final TimeGuardRegistry registry = MetaContext.get(REGISTRY);
+    startSpan(registry, registry.add(stackDepth, alertMessage, maxDelay, listener,
+        currentWatchdog == null || budget.wallTimeInNanoseconds < 0L ? null :
+            currentWatchdog.watch(alertMessage, maxDelay, listener, stackDepth, time), time,
+        budget.cpuTimeInNanoseconds, cpuStart, budget.allocatedBytes, allocationStart));
+    if (policy != null) {
+      policy.recordOverhead(overheadStart, System.nanoTime());
+    }
+  }
+
   /**
    * Add a time watcher. As target of notification meta error listeners will be used.
    *
@@ -86,9 +283,95 @@ public final class TimeGuard {
   @DisableSelfInvocation
   public static void addGuard(@Nullable final String alertMessage,
                               @Constraint("X>0") final long maxAllowedDelayInMilliseconds) {
-    final List<TimeData> list = REGISTRY.get();
-    list.add(
-        new TimeData(ThreadUtils.stackDepth(), alertMessage, maxAllowedDelayInMilliseconds, null));
+    final TimeGuardSamplingPolicy policy = samplingPolicy;
+    if (policy == null || policy.sample()) {
+      register(policy, System.nanoTime(), ThreadUtils.stackDepth(), alertMessage,
+          TimeUnit.MILLISECONDS.toNanos(maxAllowedDelayInMilliseconds), null);
+    }
+  }
+
+  /**
+   * Add a time watcher with nanosecond precision. As target of notification meta error listeners will be used.
+   *
+   * @param alertMessage    message for time violation
+   * @param maxAllowedDelay max allowed delay for executing block
+   * @see #check()
+   * @see #cancelAll()
+   * @see MetaErrorListeners
+   * @since 1.2.2
+   */
+  @Weight(value = Weight.Unit.VARIABLE, comment = "Depends on the current call stack depth")
+  @DisableSelfInvocation
+  public static void addGuard(@Nullable final String alertMessage,
+                              @Nonnull final Duration maxAllowedDelay) {
+    final TimeGuardSamplingPolicy policy = samplingPolicy;
+    if (policy == null || policy.sample()) {
+      register(policy, System.nanoTime(), ThreadUtils.stackDepth(), alertMessage,
+          assertNotNull(maxAllowedDelay).toNanos(), null);
+    }
+  }
+
+  /**
+   * Add a time watcher with nanosecond precision and provide processor of time violation.
+   *
+   * @param alertMessage      message for time violation
+   * @param maxAllowedDelay   max allowed delay for executing block
+   * @param timeAlertListener alert listener to be notified, if it is null then the global one will get notification
+   * @see #check()
+   * @see #cancelAll()
+   * @since 1.2.2
+   */
+  @Weight(value = Weight.Unit.VARIABLE, comment = "Depends on the current call stack depth")
+  @DisableSelfInvocation
+  public static void addGuard(@Nullable final String alertMessage,
+                              @Nonnull final Duration maxAllowedDelay,
+                              @Nullable final TimeAlertListener timeAlertListener) {
+    final TimeGuardSamplingPolicy policy = samplingPolicy;
+    if (policy == null || policy.sample()) {
+      register(policy, System.nanoTime(), ThreadUtils.stackDepth(), alertMessage,
+          assertNotNull(maxAllowedDelay).toNanos(), timeAlertListener);
+    }
+  }
+
+  /**
+   * Add a guard with separate budgets for wall time, CPU time of the thread and bytes allocated by the thread. As target of notification meta error listeners will be used.
+   *
+   * @param alertMessage message for violation
+   * @param budget       budget of the guarded block
+   * @see #check()
+   * @see Budget
+   * @since 1.2.2
+   */
+  @Weight(value = Weight.Unit.VARIABLE, comment = "Depends on the current call stack depth")
+  @DisableSelfInvocation
+  public static void addGuard(@Nullable final String alertMessage, @Nonnull final Budget budget) {
+    final TimeGuardSamplingPolicy policy = samplingPolicy;
+    if (policy == null || policy.sample()) {
+      register(policy, System.nanoTime(), ThreadUtils.stackDepth(), alertMessage,
+          assertNotNull(budget), null);
+    }
+  }
+
+  /**
+   * Add a guard with separate budgets for wall time, CPU time of the thread and bytes allocated by the thread. Listener gets consumed CPU time and allocated bytes through
+   * {@link TimeData#getDetectedCpuTime()} and {@link TimeData#getDetectedAllocatedBytes()}. Resources which are not supported by the JVM are not checked.
+   *
+   * @param alertMessage      message for violation
+   * @param budget            budget of the guarded block
+   * @param timeAlertListener alert listener to be notified, if it is null then the global one will get notification
+   * @see #check()
+   * @see Budget
+   * @since 1.2.2
+   */
+  @Weight(value = Weight.Unit.VARIABLE, comment = "Depends on the current call stack depth")
+  @DisableSelfInvocation
+  public static void addGuard(@Nullable final String alertMessage, @Nonnull final Budget budget,
+                              @Nullable final TimeAlertListener timeAlertListener) {
+    final TimeGuardSamplingPolicy policy = samplingPolicy;
+    if (policy == null || policy.sample()) {
+      register(policy, System.nanoTime(), ThreadUtils.stackDepth(), alertMessage,
+          assertNotNull(budget), timeAlertListener);
+    }
   }
 
   /**
@@ -103,46 +386,59 @@ public final class TimeGuard {
   @DisableSelfInvocation
   public static void addPoint(@Nonnull final String timePointName,
                               @Nonnull final TimeAlertListener listener) {
-    final List<TimeData> list = REGISTRY.get();
-    list.add(new TimeData(ThreadUtils.stackDepth(), timePointName, -1L, assertNotNull(listener)));
+    final TimeGuardSamplingPolicy policy = samplingPolicy;
+    if (policy == null || policy.sample()) {
+      final long time = System.nanoTime();
+      final TimeGuardRegistry registry = MetaContext.get(REGISTRY);
+      startSpan(registry,
+          registry.add(ThreadUtils.stackDepth(), timePointName, -1L, assertNotNull(listener),
+              null, time));
+      if (policy != null) {
+        policy.recordOverhead(time, System.nanoTime());
+      }
+    }
   }
 
   /**
-   * Check named time point(s). Listener registered for the point will be notified and the point will be removed.
+   * Check named time point(s). Listener registered for the point will be notified and the point will be removed. Points are found through per-thread index by name.
    *
    * @param timePointName the name of time point
    * @since 1.0
    */
   @Weight(value = Weight.Unit.VARIABLE, comment = "Depends on the current call stack depth")
   public static void checkPoint(@Nonnull final String timePointName) {
-    final long time = System.currentTimeMillis();
+    final long time = System.nanoTime();
+    final TimeGuardRegistry registry = MetaContext.peek(REGISTRY);
+    if ((registry == null || registry.isEmpty()) && samplingPolicy != null) {
+      return;
+    }
     final int stackDepth = ThreadUtils.stackDepth();
 
-    final List<TimeData> list = REGISTRY.get();
-    final Iterator<TimeData> iterator = list.iterator();
-
     boolean detected = false;
 
-    while (iterator.hasNext()) {
-      final TimeData timeWatchItem = iterator.next();
-
-      if (timeWatchItem.isTimePoint() && timeWatchItem.getDetectedStackDepth() >= stackDepth &&
-          timePointName.equals(timeWatchItem.getAlertMessage())) {
+    int slot = registry == null ? TimeGuardRegistry.NONE : registry.firstPointNamed(timePointName);
+    while (slot != TimeGuardRegistry.NONE) {
+      int nextSlot = registry.nextPointNamed(slot);
+      if (registry.depth(slot) >= stackDepth) {
         detected = true;
-        final long detectedDelay = time - timeWatchItem.getCreationTimeInMilliseconds();
-        try {
-          timeWatchItem.getAlertListener().onTimeAlert(detectedDelay, timeWatchItem);
-        } catch (Exception ex) {
-          final UnexpectedProcessingError error =
-              new UnexpectedProcessingError("Error during time point processing", ex);
-          MetaErrorListeners.fireError(error.getMessage(), error);
-        } finally {
-          iterator.remove();
-        }
+        final long serial = registry.serial(slot);
+        final long nextSerial =
+            nextSlot == TimeGuardRegistry.NONE ? 0L : registry.serial(nextSlot);
+        final long detectedDelay = time - registry.startTime(slot);
+        final TimeData timeWatchItem = registry.toTimeData(slot, time);
+        exportSpan(registry, slot, time, false);
+        notifyTimePoint(detectedDelay, timeWatchItem);
+        nextSlot = removeNotified(registry, slot, serial, nextSlot, nextSerial, true);
       }
+      slot = nextSlot;
     }
-    if (!detected) {
-      throw new IllegalStateException("Can't find time point [" + timePointName + ']');
+    final TimeGuardSamplingPolicy policy = samplingPolicy;
+    if (policy == null) {
+      if (!detected) {
+        throw new IllegalStateException("Can't find time point [" + timePointName + ']');
+      }
+    } else {
+      policy.recordOverhead(time, System.nanoTime());
     }
   }
 
@@ -153,28 +449,53 @@ public final class TimeGuard {
    */
   @Weight(value = Weight.Unit.VARIABLE, comment = "Depends on the current call stack depth")
   public static void checkPoints() {
-    final long time = System.currentTimeMillis();
+    final long time = System.nanoTime();
+    final TimeGuardRegistry registry = MetaContext.peek(REGISTRY);
+    if (registry == null || registry.isEmpty()) {
+      return;
+    }
     final int stackDepth = ThreadUtils.stackDepth();
 
-    final List<TimeData> list = REGISTRY.get();
-    final Iterator<TimeData> iterator = list.iterator();
-
-    while (iterator.hasNext()) {
-      final TimeData timeWatchItem = iterator.next();
-
-      if (timeWatchItem.isTimePoint() && timeWatchItem.getDetectedStackDepth() >= stackDepth) {
-        final long detectedDelay = time - timeWatchItem.getCreationTimeInMilliseconds();
-        try {
-          timeWatchItem.getAlertListener().onTimeAlert(detectedDelay, timeWatchItem);
-        } catch (Exception ex) {
-          final UnexpectedProcessingError error =
-              new UnexpectedProcessingError("Error during time point processing", ex);
-          MetaErrorListeners.fireError(error.getMessage(), error);
-        } finally {
-          iterator.remove();
-        }
+    int slot = registry.firstPoint();
+    while (slot != TimeGuardRegistry.NONE) {
+      int nextSlot = registry.nextPoint(slot);
+      if (registry.depth(slot) >= stackDepth) {
+        final long serial = registry.serial(slot);
+        final long nextSerial =
+            nextSlot == TimeGuardRegistry.NONE ? 0L : registry.serial(nextSlot);
+        final long detectedDelay = time - registry.startTime(slot);
+        final TimeData timeWatchItem = registry.toTimeData(slot, time);
+        exportSpan(registry, slot, time, false);
+        notifyTimePoint(detectedDelay, timeWatchItem);
+        nextSlot = removeNotified(registry, slot, serial, nextSlot, nextSerial, false);
       }
+      slot = nextSlot;
+    }
+    recordOverhead(time);
+  }
+
+  /**
+   * Remove time point after notification of its listener. The listener can change the registry, so that the point is removed only if its slot still keeps it and the next point
+   * is taken from the registry state after notification.
+   *
+   * @param registry   registry of the current thread
+   * @param slot       slot of notified point
+   * @param serial     serial of notified point
+   * @param nextSlot   slot of the next point before notification
+   * @param nextSerial serial of the next point before notification
+   * @param named      true if points are iterated by name, false if all points are iterated
+   * @return slot of the next point to be processed
+   */
+  private static int removeNotified(@Nonnull final TimeGuardRegistry registry, final int slot,
+                                    final long serial, final int nextSlot,
+                                    final long nextSerial, final boolean named) {
+    if (registry.serial(slot) == serial) {
+      final int next = named ? registry.nextPointNamed(slot) : registry.nextPoint(slot);
+      registry.remove(slot);
+      return next;
     }
+    return nextSlot != TimeGuardRegistry.NONE && registry.serial(nextSlot) == nextSerial ?
+        nextSlot : TimeGuardRegistry.NONE;
   }
 
   /**
@@ -193,20 +514,42 @@ public final class TimeGuard {
       @Nonnull BiConsumer<Long, Exception> notificator
   ) {
     Objects.requireNonNull(notificator);
+    return checkPrecisely(maxTime, supplier,
+        (delay, error) -> notificator.accept(delay == null ? null : delay.toMillis(), error));
+  }
+
+  /**
+   * Allows to get notification for executing supplier if it spent time bigger than expected. Time is measured by monotonic nanosecond timer and provided to notificator with full resolution.
+   *
+   * @param maxTime     max allowed time for supplier
+   * @param supplier    supplier, must not be null
+   * @param notificator notificator to get notification if spent too big time, detected delay is null if there was error but time was not exceeded
+   * @param <T>         type of returned result
+   * @return result of supplier
+   * @see System#nanoTime()
+   * @since 1.2.2
+   */
+  public static <T> T checkPrecisely(
+      @Nonnull final Duration maxTime,
+      @Nonnull CheckedSupplier<T> supplier,
+      @Nonnull BiConsumer<Duration, Exception> notificator
+  ) {
+    Objects.requireNonNull(maxTime);
     Objects.requireNonNull(supplier);
     Objects.requireNonNull(notificator);
-    final long time = System.currentTimeMillis();
+    final long maxTimeInNanoseconds = maxTime.toNanos();
+    final long time = System.nanoTime();
     try {
       final T result = supplier.get();
-      final long detectedDelay = System.currentTimeMillis() - time;
-      if (detectedDelay > maxTime.toMillis()) {
-        notificator.accept(detectedDelay, null);
+      final long detectedDelay = System.nanoTime() - time;
+      if (detectedDelay > maxTimeInNanoseconds) {
+        notificator.accept(Duration.ofNanos(detectedDelay), null);
       }
       return result;
     } catch (Exception ex) {
-      final long detectedDelay = System.currentTimeMillis() - time;
-      if (detectedDelay > maxTime.toMillis()) {
-        notificator.accept(detectedDelay, ex);
+      final long detectedDelay = System.nanoTime() - time;
+      if (detectedDelay > maxTimeInNanoseconds) {
+        notificator.accept(Duration.ofNanos(detectedDelay), ex);
       } else {
         notificator.accept(null, ex);
       }
@@ -217,6 +560,25 @@ public final class TimeGuard {
     }
   }
 
+  /**
+   * Allows to get notification for executing runnable if it spent time bigger than expected. Time is measured by monotonic nanosecond timer and provided to notificator with full resolution.
+   *
+   * @param maxTime     max allowed time for runnable
+   * @param runnable    runnable to be executed
+   * @param notificator notificator to get notification if spent too big time
+   * @since 1.2.2
+   */
+  public static void checkPrecisely(
+      @Nonnull final Duration maxTime,
+      @Nonnull CheckedRunnable runnable,
+      @Nonnull BiConsumer<Duration, Exception> notificator
+  ) {
+    checkPrecisely(maxTime, () -> {
+      runnable.run();
+      return null;
+    }, notificator);
+  }
+
   /**
    * Allows to get notification for executing runnable if it spent time bigger than expected.
    *
@@ -236,6 +598,95 @@ public final class TimeGuard {
     }, notificator);
   }
 
+  /**
+   * Allows to get notification if completion stage provided by supplier is completed later than expected. Time is measured from call of supplier till completion of the stage.
+   *
+   * @param maxTime     max allowed time for the stage
+   * @param supplier    supplier of completion stage, must not be null
+   * @param notificator notificator to get notification if spent too big time, detected delay is null if there was error but time was not exceeded
+   * @param <T>         type of stage result
+   * @return future completed by result of the stage
+   * @see #checkAsync(Duration, CheckedSupplier, BiConsumer, boolean)
+   * @since 1.2.2
+   */
+  @Nonnull
+  public static <T> CompletableFuture<T> checkAsync(
+      @Nonnull final Duration maxTime,
+      @Nonnull final CheckedSupplier<? extends CompletionStage<T>> supplier,
+      @Nonnull final BiConsumer<Duration, Throwable> notificator
+  ) {
+    return checkAsync(maxTime, supplier, notificator, false);
+  }
+
+  /**
+   * Allows to get notification if completion stage provided by supplier is completed later than expected. Time is measured from call of supplier till completion of the stage.
+   * If cancellation is requested then returned future is completed by {@link TimeoutException} when time is over and the stage is cancelled, timeout is processed by shared
+   * delay scheduler of {@link CompletableFuture} so that no thread is parked per stage.
+   *
+   * @param maxTime           max allowed time for the stage
+   * @param supplier          supplier of completion stage, must not be null
+   * @param notificator       notificator to get notification if spent too big time, detected delay is null if there was error but time was not exceeded
+   * @param cancelOnTimeout   true if the stage must be cancelled when time is over, false otherwise
+   * @param <T>               type of stage result
+   * @return future completed by result of the stage
+   * @see CompletableFuture#orTimeout(long, TimeUnit)
+   * @since 1.2.2
+   */
+  @Nonnull
+  public static <T> CompletableFuture<T> checkAsync(
+      @Nonnull final Duration maxTime,
+      @Nonnull final CheckedSupplier<? extends CompletionStage<T>> supplier,
+      @Nonnull final BiConsumer<Duration, Throwable> notificator,
+      final boolean cancelOnTimeout
+  ) {
+    Objects.requireNonNull(maxTime);
+    Objects.requireNonNull(supplier);
+    Objects.requireNonNull(notificator);
+    final long maxTimeInNanoseconds = maxTime.toNanos();
+    final long time = System.nanoTime();
+
+    final CompletionStage<T> stage;
+    try {
+      stage = Objects.requireNonNull(supplier.get(), "Supplier must not return null");
+    } catch (Exception ex) {
+      final long detectedDelay = System.nanoTime() - time;
+      notifyAsync(notificator,
+          detectedDelay > maxTimeInNanoseconds ? Duration.ofNanos(detectedDelay) : null, ex);
+      return CompletableFuture.failedFuture(ex);
+    }
+
+    final CompletableFuture<T> result = new CompletableFuture<>();
+    result.whenComplete((value, error) -> {
+      final long detectedDelay = System.nanoTime() - time;
+      final Throwable cause =
+          error instanceof CompletionException && error.getCause() != null ? error.getCause() :
+              error;
+      if (cancelOnTimeout && cause instanceof TimeoutException) {
+        try {
+          stage.toCompletableFuture().cancel(true);
+        } catch (UnsupportedOperationException ex) {
+          // the stage can't be cancelled
+        }
+      }
+      if (detectedDelay > maxTimeInNanoseconds) {
+        notifyAsync(notificator, Duration.ofNanos(detectedDelay), cause);
+      } else if (cause != null) {
+        notifyAsync(notificator, null, cause);
+      }
+    });
+    if (cancelOnTimeout) {
+      result.orTimeout(maxTimeInNanoseconds, TimeUnit.NANOSECONDS);
+    }
+    stage.whenComplete((value, error) -> {
+      if (error == null) {
+        result.complete(value);
+      } else {
+        result.completeExceptionally(error);
+      }
+    });
+    return result;
+  }
+
   /**
    * Add a time watcher and provide processor of time violation.
    *
@@ -252,22 +703,89 @@ public final class TimeGuard {
                               @Constraint("X>0") final long maxAllowedDelayInMilliseconds,
                               @Nullable final TimeAlertListener timeAlertListener
   ) {
-    final List<TimeData> list = REGISTRY.get();
-    list.add(new TimeData(ThreadUtils.stackDepth(), alertMessage, maxAllowedDelayInMilliseconds,
-        timeAlertListener));
+    final TimeGuardSamplingPolicy policy = samplingPolicy;
+    if (policy == null || policy.sample()) {
+      register(policy, System.nanoTime(), ThreadUtils.stackDepth(), alertMessage,
+          TimeUnit.MILLISECONDS.toNanos(maxAllowedDelayInMilliseconds), timeAlertListener);
+    }
+  }
+
+  /**
+   * Get the effective deadline of the current thread. It is the earliest one among deadlines of registered guards with wall time limit, opened scopes and the deadline inherited
+   * by task wrapped through {@link MetaContext#wrap(Runnable)}. Nested guards and scopes inherit the deadline and can only narrow it, so that the value can be used to set socket or lock timeouts. Guards and scopes skipped by sampling policy don't narrow the deadline.
+   * <pre>
+   * socket.setSoTimeout(TimeGuard.deadline().toTimeoutMillis());
+   * </pre>
+   *
+   * @return the effective deadline, {@link Deadline#NONE} if not defined
+   * @since 1.2.2
+   */
+  @Nonnull
+  @Weight(value = Weight.Unit.VARIABLE, comment = "Depends on number of registered guards")
+  public static Deadline deadline() {
+    final long time = System.nanoTime();
+    final long remaining = remainingNanos(time);
+    return remaining == Long.MAX_VALUE ? Deadline.NONE : Deadline.at(time + remaining);
+  }
+
+  /**
+   * Get remaining time till the effective deadline of the current thread.
+   *
+   * @return remaining time, zero if the deadline has passed, about 292 years if there is no deadline
+   * @see #deadline()
+   * @since 1.2.2
+   */
+  @Nonnull
+  @Weight(value = Weight.Unit.VARIABLE, comment = "Depends on number of registered guards")
+  public static Duration remaining() {
+    return Duration.ofNanos(Math.max(0L, remainingNanos(System.nanoTime())));
+  }
+
+  /**
+   * Check that the effective deadline of the current thread has passed.
+   *
+   * @return true if the deadline has passed, false otherwise or if there is no deadline
+   * @see #deadline()
+   * @since 1.2.2
+   */
+  @Weight(value = Weight.Unit.VARIABLE, comment = "Depends on number of registered guards")
+  public static boolean isExpired() {
+    return remainingNanos(System.nanoTime()) <= 0L;
+  }
+
+  @Nullable
+  private static Deadline inheritedDeadline() {
+    final Deadline result = deadline();
+    return result.isDefined() ? result : null;
+  }
+
+  private static long remainingNanos(final long time) {
+    final ScopeStack scopes = MetaContext.peek(SCOPES);
+    final TimeGuardRegistry registry = MetaContext.peek(REGISTRY);
+    return Math.min(scopes == null ? Long.MAX_VALUE : scopes.remainingNanos(time),
+        registry == null ? Long.MAX_VALUE : registry.remainingNanos(time));
   }
 
   /**
-   * Cancel all time watchers and time points globally for the current thread.
+   * Cancel all time watchers, time points and opened scopes globally for the current thread.
    *
    * @see #cancel()
    * @since 1.0
    */
   @Weight(Weight.Unit.NORMAL)
   public static void cancelAll() {
-    final List<TimeData> list = REGISTRY.get();
-    list.clear();
-    REGISTRY.remove();
+    final TimeGuardRegistry registry = MetaContext.peek(REGISTRY);
+    if (registry != null) {
+      for (int slot = registry.first(); slot != TimeGuardRegistry.NONE;
+           slot = registry.next(slot)) {
+        registry.cancelWatching(slot);
+      }
+      registry.clear();
+    }
+    final ScopeStack scopes = MetaContext.peek(SCOPES);
+    if (scopes != null) {
+      scopes.unwind(0, 0L, false);
+    }
   }
 
   /**
@@ -278,13 +796,20 @@ public final class TimeGuard {
    */
   @Weight(value = Weight.Unit.VARIABLE, comment = "Depends on the current call stack depth")
   public static void cancel() {
+    final TimeGuardRegistry registry = MetaContext.peek(REGISTRY);
+    if (registry == null || registry.isEmpty()) {
+      return;
+    }
     final int stackDepth = ThreadUtils.stackDepth();
 
-    final List<TimeData> list = REGISTRY.get();
-
-    list.removeIf(timeWatchItem -> timeWatchItem.getDetectedStackDepth() >= stackDepth);
-    if (list.isEmpty()) {
-      REGISTRY.remove();
+    int slot = registry.first();
+    while (slot != TimeGuardRegistry.NONE) {
+      final int nextSlot = registry.next(slot);
+      if (registry.depth(slot) >= stackDepth) {
+        registry.cancelWatching(slot);
+        registry.remove(slot);
+      }
+      slot = nextSlot;
     }
   }
 
@@ -297,131 +822,387 @@ public final class TimeGuard {
    */
   @Weight(value = Weight.Unit.VARIABLE, comment = "Depends on the current call stack depth")
   public static void check() {
-    final long time = System.currentTimeMillis();
-
+    final long time = System.nanoTime();
+    final TimeGuardRegistry registry = MetaContext.peek(REGISTRY);
+    if (registry == null || registry.isEmpty()) {
+      return;
+    }
     final int stackDepth = ThreadUtils.stackDepth();
 
-    final List<TimeData> list = REGISTRY.get();
-    final Iterator<TimeData> iterator = list.iterator();
+    final boolean measuring = registry.isMeasuringResources();
+    final long cpuTime = measuring ? ThreadResources.cpuTime() : -1L;
+    final long allocatedBytes = measuring ? ThreadResources.allocatedBytes() : -1L;
 
-    while (iterator.hasNext()) {
-      final TimeData timeWatchItem = iterator.next();
-      if (timeWatchItem.getDetectedStackDepth() >= stackDepth) {
-        final boolean timePoint = timeWatchItem.isTimePoint();
-        try {
-          final long detectedDelay = time - timeWatchItem.getCreationTimeInMilliseconds();
-          if (timePoint) {
-            try {
-              timeWatchItem.getAlertListener().onTimeAlert(detectedDelay, timeWatchItem);
-            } catch (Exception ex) {
-              final UnexpectedProcessingError error =
-                  new UnexpectedProcessingError("Error during time point processing", ex);
-              MetaErrorListeners.fireError(error.getMessage(), error);
-            }
-          } else if (detectedDelay > timeWatchItem.getMaxAllowedDelayInMilliseconds()) {
-            final TimeAlertListener processor = timeWatchItem.getAlertListener();
-            if (processor == NULL_TIME_ALERT_LISTENER) {
-              MetaErrorListeners.fireError(
-                  "Detected time violation without defined time alert listener",
-                  new TimeViolationError(detectedDelay, timeWatchItem));
-            } else {
-              try {
-                processor.onTimeAlert(detectedDelay, timeWatchItem);
-              } catch (Exception ex) {
-                final UnexpectedProcessingError error =
-                    new UnexpectedProcessingError("Error during time alert processing", ex);
-                MetaErrorListeners.fireError(error.getMessage(), error);
-              }
-            }
+    // listeners can change the registry, so they are notified after the walk
+    List<Alert> alerts = null;
+    int slot = registry.first();
+    while (slot != TimeGuardRegistry.NONE) {
+      final int nextSlot = registry.next(slot);
+      if (registry.depth(slot) >= stackDepth) {
+        final long detectedDelay = time - registry.startTime(slot);
+        if (registry.isTimePoint(slot)) {
+          final TimeData timeWatchItem = registry.toTimeData(slot, time);
+          exportSpan(registry, slot, time, false);
+          registry.remove(slot);
+          alerts = Alert.add(alerts, detectedDelay, timeWatchItem, true);
+        } else {
+          final boolean notReported = registry.cancelWatching(slot);
+          if (notReported && (detectedDelay > registry.maxDelay(slot)
+              || registry.isResourceBudgetExceeded(slot, cpuTime, allocatedBytes))) {
+            final TimeData timeWatchItem =
+                registry.toTimeData(slot, time, cpuTime, allocatedBytes);
+            exportSpan(registry, slot, time, true);
+            registry.remove(slot);
+            alerts = Alert.add(alerts, detectedDelay, timeWatchItem, false);
+          } else {
+            exportSpan(registry, slot, time, !notReported);
+            registry.remove(slot);
           }
-        } finally {
-          iterator.remove();
         }
       }
+      slot = nextSlot;
     }
-    if (list.isEmpty()) {
-      REGISTRY.remove();
+    if (alerts != null) {
+      for (final Alert alert : alerts) {
+        if (alert.timePoint) {
+          notifyTimePoint(alert.detectedDelay, alert.timeData);
+        } else {
+          notifyTimeViolation(alert.detectedDelay, alert.timeData);
+        }
+      }
     }
+    recordOverhead(time);
   }
 
   /**
-   * Check that the thread local for the current thread contains time points or watchers.
+   * Open a time guard scope to be closed by try-with-resources. As target of notification meta error listeners will be used.
    *
-   * @return true if the thread local storage is empty, false otherwise
+   * @param alertMessage                  message for time violation
+   * @param maxAllowedDelayInMilliseconds max allowed delay in milliseconds for executing block
+   * @return opened scope, must be closed in the same thread
+   * @see #open(String, long, TimeAlertListener)
+   * @since 1.2.2
    */
-  @Weight(value = Weight.Unit.NORMAL, comment = "May create list in thread local storage")
-  public static boolean isEmpty() {
-    final boolean result = REGISTRY.get().isEmpty();
-    if (result) {
-      REGISTRY.remove();
-    }
-    return result;
+  @Nonnull
+  @Weight(Weight.Unit.LIGHT)
+  public static Scope open(@Nullable final String alertMessage,
+                           @Constraint("X>0") final long maxAllowedDelayInMilliseconds) {
+    return open(alertMessage, maxAllowedDelayInMilliseconds, null);
   }
 
   /**
-   * Interface for any object to be informed about time alerts.
+   * Open a time guard scope to be closed by try-with-resources. The scope keeps its start time and checks its time budget during close, it doesn't need any stack depth detection.
+   * Scopes are pooled per thread and their nesting is defined by open order, so that in steady state the call doesn't allocate anything.
+   * <pre>
+   * try (TimeGuard.Scope scope = TimeGuard.open("rpc call", 100L, listener)) {
+   *   ...
+   * }
+   * </pre>
    *
-   * @since 1.0
+   * @param alertMessage                  message for time violation
+   * @param maxAllowedDelayInMilliseconds max allowed delay in milliseconds for executing block
+   * @param timeAlertListener             alert listener to be notified, if it is null then the global one will get notification
+   * @return opened scope, must be closed in the same thread
+   * @see Scope#close()
+   * @since 1.2.2
    */
-  @ThreadSafe
-  @Weight(Weight.Unit.EXTRALIGHT)
-  public interface TimeAlertListener extends Serializable {
-
-    /**
-     * Process time.
-     *
-     * @param detectedTimeDelayInMilliseconds detected time delay in milliseconds
-     * @param timeData                        data container contains initial parameters.
-     * @since 1.0
-     */
-    void onTimeAlert(long detectedTimeDelayInMilliseconds, @Nonnull TimeData timeData);
+  @Nonnull
+  @Weight(Weight.Unit.LIGHT)
+  public static Scope open(@Nullable final String alertMessage,
+                           @Constraint("X>0") final long maxAllowedDelayInMilliseconds,
+                           @Nullable final TimeAlertListener timeAlertListener) {
+    return openScope(alertMessage, TimeUnit.MILLISECONDS.toNanos(maxAllowedDelayInMilliseconds),
+        timeAlertListener);
   }
 
   /**
-   * Data container for time watching action.
+   * Open a time guard scope with nanosecond precision to be closed by try-with-resources. As target of notification meta error listeners will be used.
    *
-   * @since 1.0
+   * @param alertMessage    message for time violation
+   * @param maxAllowedDelay max allowed delay for executing block
+   * @return opened scope, must be closed in the same thread
+   * @see #open(String, Duration, TimeAlertListener)
+   * @since 1.2.2
    */
-  @ThreadSafe
-  @Immutable
-  public static final class TimeData implements Serializable {
+  @Nonnull
+  @Weight(Weight.Unit.LIGHT)
+  public static Scope open(@Nullable final String alertMessage,
+                           @Nonnull final Duration maxAllowedDelay) {
+    return open(alertMessage, maxAllowedDelay, null);
+  }
 
-    private static final long serialVersionUID = -2417415112571257128L;
+  /**
+   * Open a time guard scope with nanosecond precision to be closed by try-with-resources.
+   *
+   * @param alertMessage      message for time violation
+   * @param maxAllowedDelay   max allowed delay for executing block
+   * @param timeAlertListener alert listener to be notified, if it is null then the global one will get notification
+   * @return opened scope, must be closed in the same thread
+   * @see #open(String, long, TimeAlertListener)
+   * @since 1.2.2
+   */
+  @Nonnull
+  @Weight(Weight.Unit.LIGHT)
+  public static Scope open(@Nullable final String alertMessage,
+                           @Nonnull final Duration maxAllowedDelay,
+                           @Nullable final TimeAlertListener timeAlertListener) {
+    return openScope(alertMessage, maxAllowedDelay.toNanos(), timeAlertListener);
+  }
 
-    /**
-     * Contains detected stack depth for creation.
+  @Nonnull
+  private static Scope openScope(@Nullable final String alertMessage,
+                                 final long maxAllowedDelayInNanoseconds,
+                                 @Nullable final TimeAlertListener timeAlertListener) {
+    final TimeGuardSamplingPolicy policy = samplingPolicy;
+    if (policy != null && !policy.sample()) {
+      return Scope.NOT_SAMPLED;
+    }
+    final long time = System.nanoTime();
+    final Scope result = MetaContext.get(SCOPES).push(alertMessage, maxAllowedDelayInNanoseconds,
+        GetUtils.ensureNonNull(timeAlertListener, NULL_TIME_ALERT_LISTENER), time);
+    if (policy != null) {
+      policy.recordOverhead(time, System.nanoTime());
+    }
+    return result;
+  }
+
+  /**
+   * Record time spent by processing of sampled guards, it includes making of time data and synchronous notification.
+   *
+   * @param startTime start time of processing in nanoseconds
+   */
+  private static void recordOverhead(final long startTime) {
+    final TimeGuardSamplingPolicy policy = samplingPolicy;
+    if (policy != null) {
+      policy.recordOverhead(startTime, System.nanoTime());
+    }
+  }
+
+  private static void notifyTimePoint(final long detectedDelayInNanoseconds,
+                                      @Nonnull final TimeData timeData) {
+    final AlertDispatcher dispatcher = alertDispatcher;
+    if (dispatcher == null) {
+      deliverTimePoint(detectedDelayInNanoseconds, timeData);
+    } else {
+      dispatcher.dispatch(() -> deliverTimePoint(detectedDelayInNanoseconds, timeData));
+    }
+  }
+
+  static void notifyTimeViolation(final long detectedDelayInNanoseconds,
+                                  @Nonnull final TimeData timeData) {
+    final AlertDispatcher dispatcher = alertDispatcher;
+    if (dispatcher == null) {
+      deliverTimeViolation(detectedDelayInNanoseconds, timeData);
+    } else {
+      dispatcher.dispatch(() -> deliverTimeViolation(detectedDelayInNanoseconds, timeData));
+    }
+  }
+
+  private static void notifyAsync(@Nonnull final BiConsumer<Duration, Throwable> notificator,
+                                  @Nullable final Duration detectedDelay,
+                                  @Nullable final Throwable cause) {
+    try {
+      notificator.accept(detectedDelay, cause);
+    } catch (Exception ex) {
+      // nobody observes the completion stage of the notificator so that its errors must be reported
+      final UnexpectedProcessingError error =
+          new UnexpectedProcessingError("Error during async time alert processing", ex);
+      MetaErrorListeners.fireError(error.getMessage(), error);
+    }
+  }
+
+  private static void deliverTimePoint(final long detectedDelayInNanoseconds,
+                                       @Nonnull final TimeData timeData) {
+    try {
+      timeData.getAlertListener()
+          .onTimeAlert(Duration.ofNanos(detectedDelayInNanoseconds), timeData);
+    } catch (Exception ex) {
+      final UnexpectedProcessingError error =
+          new UnexpectedProcessingError("Error during time point processing", ex);
+      MetaErrorListeners.fireError(error.getMessage(), error);
+    }
+  }
+
+  private static void deliverTimeViolation(final long detectedDelayInNanoseconds,
+                                           @Nonnull final TimeData timeData) {
+    final TimeAlertListener processor = timeData.getAlertListener();
+    final Duration detectedDelay = Duration.ofNanos(detectedDelayInNanoseconds);
+    if (processor == NULL_TIME_ALERT_LISTENER) {
+      MetaErrorListeners.fireError(
+          "Detected time violation without defined time alert listener",
+          new TimeViolationError(detectedDelay, timeData));
+    } else {
+      try {
+        processor.onTimeAlert(detectedDelay, timeData);
+      } catch (Exception ex) {
+        final UnexpectedProcessingError error =
+            new UnexpectedProcessingError("Error during time alert processing", ex);
+        MetaErrorListeners.fireError(error.getMessage(), error);
+      }
+    }
+  }
+
+  /**
+   * Check that the context of the current thread contains time points, watchers or opened scopes. The call doesn't create context.
+   *
+   * @return true if the context is empty, false otherwise
+   * @see MetaContext
+   */
+  @Weight(Weight.Unit.EXTRALIGHT)
+  public static boolean isEmpty() {
+    final TimeGuardRegistry registry = MetaContext.peek(REGISTRY);
+    final ScopeStack scopes = MetaContext.peek(SCOPES);
+    return (registry == null || registry.isEmpty()) && (scopes == null || scopes.isEmpty());
+  }
+
+  /**
+   * Interface for any object to be informed about time alerts.
+   *
+   * @since 1.0
+   */
+  @ThreadSafe
+  @Weight(Weight.Unit.EXTRALIGHT)
+  public interface TimeAlertListener extends Serializable {
+
+    /**
+     * Process time.
      *
+     * @param detectedTimeDelayInMilliseconds detected time delay in milliseconds
+     * @param timeData                        data container contains initial parameters.
      * @since 1.0
      */
-    private final int stackDepth;
+    void onTimeAlert(long detectedTimeDelayInMilliseconds, @Nonnull TimeData timeData);
+
+    /**
+     * Process time with full resolution. TimeGuard always calls the method, by default it calls {@link #onTimeAlert(long, TimeData)} with the delay truncated to milliseconds.
+     *
+     * @param detectedTimeDelay detected time delay
+     * @param timeData          data container contains initial parameters.
+     * @since 1.2.2
+     */
+    default void onTimeAlert(@Nonnull Duration detectedTimeDelay, @Nonnull TimeData timeData) {
+      onTimeAlert(detectedTimeDelay.toMillis(), timeData);
+    }
+  }
+
+  /**
+   * Data container for time watching action.
+   *
+   * @since 1.0
+   */
+  @ThreadSafe
+  @Immutable
+  public static final class TimeData implements Serializable {
+
+    private static final long serialVersionUID = -2417415112571257128L;
 
     /**
-     * Max allowed time delay in milliseconds.
+     * Serialized form keeps max allowed delay in milliseconds for compatibility with previous versions, fields are not final to be restored by readObject.
+     *
+     * @serialField stackDepth int detected stack depth
+     * @serialField maxAllowedDelayInMilliseconds long max allowed delay in milliseconds, negative for time points
+     * @serialField creationTimeInMilliseconds long wall-clock creation time
+     * @serialField alertMessage String alert message or time point ID
+     * @serialField alertListener TimeAlertListener alert listener
+     * @serialField maxAllowedDelayInNanoseconds long max allowed delay in nanoseconds, since 1.2.2
+     * @serialField creationTimeInNanoseconds long creation time by monotonic timer, since 1.2.2
+     * @serialField maxAllowedCpuTimeInNanoseconds long max allowed CPU time, since 1.2.2
+     * @serialField detectedCpuTimeInNanoseconds long detected CPU time, since 1.2.2
+     * @serialField maxAllowedAllocatedBytes long max allowed allocated bytes, since 1.2.2
+     * @serialField detectedAllocatedBytes long detected allocated bytes, since 1.2.2
+     * @serialField stackProfile StackProfile stack samples, since 1.2.2
+     */
+    private static final ObjectStreamField[] serialPersistentFields = {
+        new ObjectStreamField("stackDepth", int.class),
+        new ObjectStreamField("maxAllowedDelayInMilliseconds", long.class),
+        new ObjectStreamField("creationTimeInMilliseconds", long.class),
+        new ObjectStreamField("alertMessage", String.class),
+        new ObjectStreamField("alertListener", TimeAlertListener.class),
+        new ObjectStreamField("maxAllowedDelayInNanoseconds", long.class),
+        new ObjectStreamField("creationTimeInNanoseconds", long.class),
+        new ObjectStreamField("maxAllowedCpuTimeInNanoseconds", long.class),
+        new ObjectStreamField("detectedCpuTimeInNanoseconds", long.class),
+        new ObjectStreamField("maxAllowedAllocatedBytes", long.class),
+        new ObjectStreamField("detectedAllocatedBytes", long.class),
+        new ObjectStreamField("stackProfile", StackProfile.class)
+    };
+
+    /**
+     * Contains detected stack depth for creation.
      *
      * @since 1.0
      */
-    private final long maxAllowedDelayInMilliseconds;
+    private int stackDepth;
 
     /**
-     * The Creation time of the data container in milliseconds.
+     * Max allowed time delay in nanoseconds, negative for time points.
+     *
+     * @since 1.2.2
+     */
+    private long maxAllowedDelayInNanoseconds;
+
+    /**
+     * The Creation wall-clock time of the data container in milliseconds.
      *
      * @since 1.0
      */
-    private final long creationTimeInMilliseconds;
+    private long creationTimeInMilliseconds;
+
+    /**
+     * The Creation time of the data container provided by monotonic nanosecond timer.
+     *
+     * @since 1.2.2
+     */
+    private long creationTimeInNanoseconds;
 
     /**
      * The Alert message to be provided into log or somewhere else, for time points it is ID.
      *
      * @since 1.0
      */
-    private final String alertMessage;
+    private String alertMessage;
 
     /**
      * Some provided processor to be called for alert.
      *
      * @since 1.0
      */
-    private final TimeAlertListener alertListener;
+    private TimeAlertListener alertListener;
+
+    /**
+     * Max allowed CPU time in nanoseconds, negative if not checked.
+     *
+     * @since 1.2.2
+     */
+    private long maxAllowedCpuTimeInNanoseconds;
+
+    /**
+     * Detected CPU time in nanoseconds, negative if not measured.
+     *
+     * @since 1.2.2
+     */
+    private long detectedCpuTimeInNanoseconds;
+
+    /**
+     * Max allowed allocated bytes, negative if not checked.
+     *
+     * @since 1.2.2
+     */
+    private long maxAllowedAllocatedBytes;
+
+    /**
+     * Detected allocated bytes, negative if not measured.
+     *
+     * @since 1.2.2
+     */
+    private long detectedAllocatedBytes;
+
+    /**
+     * Stack samples of guarded thread collected by watchdog, can be null.
+     *
+     * @since 1.2.2
+     */
+    private StackProfile stackProfile;
 
     /**
      * The Constructor
@@ -436,13 +1217,110 @@ public final class TimeGuard {
     public TimeData(@Constraint("X>1") final int stackDepth, @Nonnull final String alertMessage,
                     final long maxAllowedDelayInMilliseconds,
                     @Nullable final TimeAlertListener violationListener) {
+      this(stackDepth, alertMessage, maxAllowedDelayInMilliseconds < 0L ? -1L :
+              TimeUnit.MILLISECONDS.toNanos(maxAllowedDelayInMilliseconds), violationListener,
+          System.currentTimeMillis(), System.nanoTime());
+    }
+
+    /**
+     * The Constructor
+     *
+     * @param stackDepth        stack depth
+     * @param alertMessage      alert message for time violation
+     * @param maxAllowedDelay   max allowed time gap, null for time point
+     * @param violationListener listener for the violation alert
+     * @since 1.2.2
+     */
+    @Weight(Weight.Unit.LIGHT)
+    public TimeData(@Constraint("X>1") final int stackDepth, @Nullable final String alertMessage,
+                    @Nullable final Duration maxAllowedDelay,
+                    @Nullable final TimeAlertListener violationListener) {
+      this(stackDepth, alertMessage, maxAllowedDelay == null ? -1L : maxAllowedDelay.toNanos(),
+          violationListener, System.currentTimeMillis(), System.nanoTime());
+    }
+
+    TimeData(final int stackDepth, @Nullable final String alertMessage,
+             final long maxAllowedDelayInNanoseconds,
+             @Nullable final TimeAlertListener violationListener,
+             final long creationTimeInMilliseconds,
+             final long creationTimeInNanoseconds) {
+      this(stackDepth, alertMessage, maxAllowedDelayInNanoseconds, violationListener,
+          creationTimeInMilliseconds, creationTimeInNanoseconds, null);
+    }
+
+    TimeData(final int stackDepth, @Nullable final String alertMessage,
+             final long maxAllowedDelayInNanoseconds,
+             @Nullable final TimeAlertListener violationListener,
+             final long creationTimeInMilliseconds,
+             final long creationTimeInNanoseconds,
+             @Nullable final StackProfile stackProfile) {
+      this(stackDepth, alertMessage, maxAllowedDelayInNanoseconds, violationListener,
+          creationTimeInMilliseconds, creationTimeInNanoseconds, -1L, -1L, -1L, -1L,
+          stackProfile);
+    }
+
+    TimeData(final int stackDepth, @Nullable final String alertMessage,
+             final long maxAllowedDelayInNanoseconds,
+             @Nullable final TimeAlertListener violationListener,
+             final long creationTimeInMilliseconds,
+             final long creationTimeInNanoseconds,
+             final long maxAllowedCpuTimeInNanoseconds,
+             final long detectedCpuTimeInNanoseconds,
+             final long maxAllowedAllocatedBytes,
+             final long detectedAllocatedBytes,
+             @Nullable final StackProfile stackProfile) {
+      this.stackProfile = stackProfile;
+      this.maxAllowedCpuTimeInNanoseconds = maxAllowedCpuTimeInNanoseconds;
+      this.detectedCpuTimeInNanoseconds = detectedCpuTimeInNanoseconds;
+      this.maxAllowedAllocatedBytes = maxAllowedAllocatedBytes;
+      this.detectedAllocatedBytes = detectedAllocatedBytes;
       this.stackDepth = stackDepth;
-      this.maxAllowedDelayInMilliseconds = maxAllowedDelayInMilliseconds;
-      this.creationTimeInMilliseconds = System.currentTimeMillis();
+      this.maxAllowedDelayInNanoseconds = maxAllowedDelayInNanoseconds;
+      this.creationTimeInMilliseconds = creationTimeInMilliseconds;
+      this.creationTimeInNanoseconds = creationTimeInNanoseconds;
       this.alertMessage = alertMessage;
       this.alertListener = GetUtils.ensureNonNull(violationListener, NULL_TIME_ALERT_LISTENER);
     }
 
+    private void writeObject(@Nonnull final ObjectOutputStream out) throws IOException {
+      final ObjectOutputStream.PutField fields = out.putFields();
+      fields.put("stackDepth", this.stackDepth);
+      fields.put("maxAllowedDelayInMilliseconds", getMaxAllowedDelayInMilliseconds());
+      fields.put("creationTimeInMilliseconds", this.creationTimeInMilliseconds);
+      fields.put("alertMessage", this.alertMessage);
+      fields.put("alertListener", this.alertListener);
+      fields.put("maxAllowedDelayInNanoseconds", this.maxAllowedDelayInNanoseconds);
+      fields.put("creationTimeInNanoseconds", this.creationTimeInNanoseconds);
+      fields.put("maxAllowedCpuTimeInNanoseconds", this.maxAllowedCpuTimeInNanoseconds);
+      fields.put("detectedCpuTimeInNanoseconds", this.detectedCpuTimeInNanoseconds);
+      fields.put("maxAllowedAllocatedBytes", this.maxAllowedAllocatedBytes);
+      fields.put("detectedAllocatedBytes", this.detectedAllocatedBytes);
+      fields.put("stackProfile", this.stackProfile);
+      out.writeFields();
+    }
+
+    private void readObject(@Nonnull final ObjectInputStream in)
+        throws IOException, ClassNotFoundException {
+      final ObjectInputStream.GetField fields = in.readFields();
+      this.stackDepth = fields.get("stackDepth", 0);
+      if (fields.defaulted("maxAllowedDelayInNanoseconds")) {
+        final long millis = fields.get("maxAllowedDelayInMilliseconds", -1L);
+        this.maxAllowedDelayInNanoseconds = millis < 0L ? -1L : TimeUnit.MILLISECONDS.toNanos(millis);
+      } else {
+        this.maxAllowedDelayInNanoseconds = fields.get("maxAllowedDelayInNanoseconds", -1L);
+      }
+      this.creationTimeInMilliseconds = fields.get("creationTimeInMilliseconds", 0L);
+      this.creationTimeInNanoseconds = fields.get("creationTimeInNanoseconds", 0L);
+      this.alertMessage = (String) fields.get("alertMessage", null);
+      this.alertListener = GetUtils.ensureNonNull((TimeAlertListener) fields.get("alertListener", null),
+          NULL_TIME_ALERT_LISTENER);
+      this.maxAllowedCpuTimeInNanoseconds = fields.get("maxAllowedCpuTimeInNanoseconds", -1L);
+      this.detectedCpuTimeInNanoseconds = fields.get("detectedCpuTimeInNanoseconds", -1L);
+      this.maxAllowedAllocatedBytes = fields.get("maxAllowedAllocatedBytes", -1L);
+      this.detectedAllocatedBytes = fields.get("detectedAllocatedBytes", -1L);
+      this.stackProfile = (StackProfile) fields.get("stackProfile", null);
+    }
+
     /**
      * Get alert listener if provided
      *
@@ -476,7 +1354,7 @@ public final class TimeGuard {
     }
 
     /**
-     * Get the creation time of the container.
+     * Get the creation wall-clock time of the container.
      *
      * @return the creation time in milliseconds
      * @since 1.0
@@ -485,14 +1363,47 @@ public final class TimeGuard {
       return this.creationTimeInMilliseconds;
     }
 
+    /**
+     * Get the creation time of the container provided by monotonic timer, it can be compared only with other values of {@link System#nanoTime()}.
+     *
+     * @return the creation time in nanoseconds
+     * @since 1.2.2
+     */
+    public long getCreationTimeInNanoseconds() {
+      return this.creationTimeInNanoseconds;
+    }
+
     /**
      * Get defined max allowed time delay in milliseconds.
      *
-     * @return the max allowed time delay in milliseconds
+     * @return the max allowed time delay in milliseconds, negative for time point
      * @since 1.0
      */
     public long getMaxAllowedDelayInMilliseconds() {
-      return this.maxAllowedDelayInMilliseconds;
+      return this.maxAllowedDelayInNanoseconds < 0L ? -1L :
+          TimeUnit.NANOSECONDS.toMillis(this.maxAllowedDelayInNanoseconds);
+    }
+
+    /**
+     * Get defined max allowed time delay in nanoseconds.
+     *
+     * @return the max allowed time delay in nanoseconds, negative for time point
+     * @since 1.2.2
+     */
+    public long getMaxAllowedDelayInNanoseconds() {
+      return this.maxAllowedDelayInNanoseconds;
+    }
+
+    /**
+     * Get defined max allowed time delay.
+     *
+     * @return the max allowed time delay, null for time point
+     * @since 1.2.2
+     */
+    @Nullable
+    public Duration getMaxAllowedDelay() {
+      return this.maxAllowedDelayInNanoseconds < 0L ? null :
+          Duration.ofNanos(this.maxAllowedDelayInNanoseconds);
     }
 
     /**
@@ -501,7 +1412,503 @@ public final class TimeGuard {
      * @return true if the object represents a time point created for statistics.
      */
     public boolean isTimePoint() {
-      return this.maxAllowedDelayInMilliseconds < 0L;
+      return this.maxAllowedDelayInNanoseconds < 0L;
+    }
+
+    /**
+     * Get defined max allowed CPU time of the thread.
+     *
+     * @return the max allowed CPU time, null if it is not checked
+     * @since 1.2.2
+     */
+    @Nullable
+    public Duration getMaxAllowedCpuTime() {
+      return this.maxAllowedCpuTimeInNanoseconds < 0L ? null :
+          Duration.ofNanos(this.maxAllowedCpuTimeInNanoseconds);
+    }
+
+    /**
+     * Get CPU time of the thread detected during check.
+     *
+     * @return the detected CPU time, null if it was not measured
+     * @since 1.2.2
+     */
+    @Nullable
+    public Duration getDetectedCpuTime() {
+      return this.detectedCpuTimeInNanoseconds < 0L ? null :
+          Duration.ofNanos(this.detectedCpuTimeInNanoseconds);
+    }
+
+    /**
+     * Get defined max allowed number of bytes allocated by the thread.
+     *
+     * @return the max allowed bytes, negative if it is not checked
+     * @since 1.2.2
+     */
+    public long getMaxAllowedAllocatedBytes() {
+      return this.maxAllowedAllocatedBytes;
+    }
+
+    /**
+     * Get number of bytes allocated by the thread detected during check.
+     *
+     * @return the detected allocated bytes, negative if it was not measured
+     * @since 1.2.2
+     */
+    public long getDetectedAllocatedBytes() {
+      return this.detectedAllocatedBytes;
+    }
+
+    /**
+     * Get stack samples of the guarded thread collected before notification.
+     *
+     * @return folded stack samples, null if sampling was not enabled or there were no samples
+     * @see StallSampler
+     * @since 1.2.2
+     */
+    @Nullable
+    public StackProfile getStackProfile() {
+      return this.stackProfile;
+    }
+  }
+
+  /**
+   * Budget of a guarded block. Wall time, CPU time of the thread and bytes allocated by the thread have separate limits, a limit which is not defined is not checked.
+   * <pre>
+   * TimeGuard.addGuard("hot path", TimeGuard.Budget.ofWallTime(Duration.ofMillis(50))
+   *     .withCpuTime(Duration.ofMillis(20))
+   *     .withAllocatedBytes(1024 * 1024), listener);
+   * </pre>
+   *
+   * @see TimeGuard#addGuard(String, Budget, TimeAlertListener)
+   * @since 1.2.2
+   */
+  @Immutable
+  @ThreadSafe
+  public static final class Budget implements Serializable {
+
+    private static final long serialVersionUID = 4129517338460211843L;
+
+    private final long wallTimeInNanoseconds;
+    private final long cpuTimeInNanoseconds;
+    private final long allocatedBytes;
+
+    private Budget(final long wallTimeInNanoseconds, final long cpuTimeInNanoseconds,
+                   final long allocatedBytes) {
+      this.wallTimeInNanoseconds = wallTimeInNanoseconds;
+      this.cpuTimeInNanoseconds = cpuTimeInNanoseconds;
+      this.allocatedBytes = allocatedBytes;
+    }
+
+    /**
+     * Make budget limiting wall time.
+     *
+     * @param wallTime max allowed wall time
+     * @return new budget
+     * @since 1.2.2
+     */
+    @Nonnull
+    public static Budget ofWallTime(@Nonnull final Duration wallTime) {
+      return new Budget(assertNotNull(wallTime).toNanos(), -1L, -1L);
+    }
+
+    /**
+     * Make budget limiting CPU time of the thread.
+     *
+     * @param cpuTime max allowed CPU time
+     * @return new budget
+     * @since 1.2.2
+     */
+    @Nonnull
+    public static Budget ofCpuTime(@Nonnull final Duration cpuTime) {
+      return new Budget(-1L, assertNotNull(cpuTime).toNanos(), -1L);
+    }
+
+    /**
+     * Make budget limiting bytes allocated by the thread.
+     *
+     * @param allocatedBytes max allowed allocated bytes
+     * @return new budget
+     * @since 1.2.2
+     */
+    @Nonnull
+    public static Budget ofAllocatedBytes(@Constraint("X>=0") final long allocatedBytes) {
+      Assertions.assertTrue("Allocated bytes must not be negative", allocatedBytes >= 0L);
+      return new Budget(-1L, -1L, allocatedBytes);
+    }
+
+    /**
+     * Make copy of the budget with wall time limit.
+     *
+     * @param wallTime max allowed wall time
+     * @return new budget
+     * @since 1.2.2
+     */
+    @Nonnull
+    public Budget withWallTime(@Nonnull final Duration wallTime) {
+      return new Budget(assertNotNull(wallTime).toNanos(), this.cpuTimeInNanoseconds,
+          this.allocatedBytes);
+    }
+
+    /**
+     * Make copy of the budget with CPU time limit.
+     *
+     * @param cpuTime max allowed CPU time
+     * @return new budget
+     * @since 1.2.2
+     */
+    @Nonnull
+    public Budget withCpuTime(@Nonnull final Duration cpuTime) {
+      return new Budget(this.wallTimeInNanoseconds, assertNotNull(cpuTime).toNanos(),
+          this.allocatedBytes);
+    }
+
+    /**
+     * Make copy of the budget with allocated bytes limit.
+     *
+     * @param allocatedBytes max allowed allocated bytes
+     * @return new budget
+     * @since 1.2.2
+     */
+    @Nonnull
+    public Budget withAllocatedBytes(@Constraint("X>=0") final long allocatedBytes) {
+      Assertions.assertTrue("Allocated bytes must not be negative", allocatedBytes >= 0L);
+      return new Budget(this.wallTimeInNanoseconds, this.cpuTimeInNanoseconds, allocatedBytes);
+    }
+
+    /**
+     * Get max allowed wall time.
+     *
+     * @return wall time limit, null if not defined
+     * @since 1.2.2
+     */
+    @Nullable
+    public Duration getWallTime() {
+      return this.wallTimeInNanoseconds < 0L ? null : Duration.ofNanos(this.wallTimeInNanoseconds);
+    }
+
+    /**
+     * Get max allowed CPU time of the thread.
+     *
+     * @return CPU time limit, null if not defined
+     * @since 1.2.2
+     */
+    @Nullable
+    public Duration getCpuTime() {
+      return this.cpuTimeInNanoseconds < 0L ? null : Duration.ofNanos(this.cpuTimeInNanoseconds);
+    }
+
+    /**
+     * Get max allowed bytes allocated by the thread.
+     *
+     * @return allocated bytes limit, negative if not defined
+     * @since 1.2.2
+     */
+    public long getAllocatedBytes() {
+      return this.allocatedBytes;
+    }
+
+    /**
+     * Check that CPU time of thread can be measured by the JVM.
+     *
+     * @return true if CPU time limit can be checked, false otherwise
+     * @since 1.2.2
+     */
+    public static boolean isCpuTimeSupported() {
+      return ThreadResources.isCpuTimeSupported();
+    }
+
+    /**
+     * Check that bytes allocated by thread can be measured by the JVM.
+     *
+     * @return true if allocated bytes limit can be checked, false otherwise
+     * @since 1.2.2
+     */
+    public static boolean isAllocatedBytesSupported() {
+      return ThreadResources.isAllocatedBytesSupported();
+    }
+  }
+
+  /**
+   * Handle of a time guard opened through {@link TimeGuard#open(String, long, TimeAlertListener)}. Handles are pooled per thread and reused, so that a handle must not be used after close.
+   *
+   * @since 1.2.2
+   */
+  @NotThreadSafe
+  public static final class Scope implements AutoCloseable {
+
+    /**
+     * Shared scope returned for not sampled calls, it is never opened.
+     */
+    private static final Scope NOT_SAMPLED = new Scope(null, -1);
+
+    private final ScopeStack owner;
+    private final int level;
+    private String alertMessage;
+    private long maxAllowedDelayInNanoseconds;
+    private TimeAlertListener alertListener;
+    private long startTimeInNanoseconds;
+    private TimeGuardWatchdog.Ticket ticket;
+    private boolean opened;
+    private long spanId;
+    private long parentSpanId;
+    private long deadlineInNanoseconds;
+
+    private Scope(@Nullable final ScopeStack owner, final int level) {
+      this.owner = owner;
+      this.level = level;
+    }
+
+    /**
+     * Get the alert message of the scope.
+     *
+     * @return defined alert message
+     * @since 1.2.2
+     */
+    @Nullable
+    public String getAlertMessage() {
+      return this.alertMessage;
+    }
+
+    /**
+     * Get defined max allowed time delay in milliseconds.
+     *
+     * @return the max allowed time delay in milliseconds
+     * @since 1.2.2
+     */
+    public long getMaxAllowedDelayInMilliseconds() {
+      return TimeUnit.NANOSECONDS.toMillis(this.maxAllowedDelayInNanoseconds);
+    }
+
+    /**
+     * Get defined max allowed time delay.
+     *
+     * @return the max allowed time delay
+     * @since 1.2.2
+     */
+    @Nonnull
+    public Duration getMaxAllowedDelay() {
+      return Duration.ofNanos(this.maxAllowedDelayInNanoseconds);
+    }
+
+    /**
+     * Get deadline of the scope, it is inherited from the outer scope if that is earlier than the own one.
+     *
+     * @return the deadline of the scope
+     * @since 1.2.2
+     */
+    @Nonnull
+    public Deadline getDeadline() {
+      return this.owner == null ? Deadline.NONE : Deadline.at(this.deadlineInNanoseconds);
+    }
+
+    /**
+     * Check that the scope has been opened as sampled one.
+     *
+     * @return false if the call was skipped by sampling policy, true otherwise
+     * @see TimeGuard#setSamplingPolicy(TimeGuardSamplingPolicy)
+     * @since 1.2.2
+     */
+    public boolean isSampled() {
+      return this.owner != null;
+    }
+
+    /**
+     * Get nesting level of the scope among opened scopes of the thread, the first opened one has zero level.
+     *
+     * @return the nesting level, -1 for not sampled scope
+     * @since 1.2.2
+     */
+    public int getLevel() {
+      return this.level;
+    }
+
+    /**
+     * Check that the scope is opened.
+     *
+     * @return true if the scope is opened, false if it has been closed or cancelled
+     * @since 1.2.2
+     */
+    public boolean isOpened() {
+      return this.opened;
+    }
+
+    /**
+     * Get the start time of the scope provided by monotonic timer.
+     *
+     * @return the start time in nanoseconds
+     * @see System#nanoTime()
+     * @since 1.2.2
+     */
+    public long getStartTimeInNanoseconds() {
+      return this.startTimeInNanoseconds;
+    }
+
+    /**
+     * Close the scope and all scopes nested into it without any time check.
+     *
+     * @throws IllegalStateException if called from thread without context of the scope
+     * @since 1.2.2
+     */
+    @Weight(Weight.Unit.LIGHT)
+    public void cancel() {
+      if (this.opened) {
+        this.owner.assertOwner();
+        this.owner.unwind(this.level, 0L, false);
+      }
+    }
+
+    /**
+     * Close the scope and check its time budget. All nested not closed scopes are closed and checked before. Close of already closed scope is ignored.
+     *
+     * @throws IllegalStateException if called from thread without context of the scope
+     * @since 1.2.2
+     */
+    @Override
+    @Weight(Weight.Unit.LIGHT)
+    public void close() {
+      if (this.opened) {
+        final long time = System.nanoTime();
+        this.owner.assertOwner();
+        this.owner.unwind(this.level, time, true);
+        recordOverhead(time);
+      }
+    }
+
+    private void check(final long time, @Nullable final StackProfile stackProfile) {
+      final long detectedDelay = time - this.startTimeInNanoseconds;
+      if (detectedDelay > this.maxAllowedDelayInNanoseconds) {
+        notifyTimeViolation(detectedDelay,
+            new TimeData(this.level, this.alertMessage, this.maxAllowedDelayInNanoseconds,
+                this.alertListener,
+                System.currentTimeMillis() - TimeUnit.NANOSECONDS.toMillis(detectedDelay),
+                this.startTimeInNanoseconds, stackProfile));
+      }
+    }
+  }
+
+  /**
+   * Per-context stack of pooled scopes.
+   *
+   * @since 1.2.2
+   */
+  /**
+   * Notification collected during check of registry, to be sent after the check.
+   */
+  private static final class Alert {
+
+    private final long detectedDelay;
+    private final TimeData timeData;
+    private final boolean timePoint;
+
+    private Alert(final long detectedDelay, @Nonnull final TimeData timeData,
+                  final boolean timePoint) {
+      this.detectedDelay = detectedDelay;
+      this.timeData = timeData;
+      this.timePoint = timePoint;
+    }
+
+    @Nonnull
+    static List<Alert> add(@Nullable final List<Alert> alerts, final long detectedDelay,
+                           @Nonnull final TimeData timeData, final boolean timePoint) {
+      final List<Alert> result = alerts == null ? new ArrayList<>(2) : alerts;
+      result.add(new Alert(detectedDelay, timeData, timePoint));
+      return result;
+    }
+  }
+
+  private static final class ScopeStack {
+
+    private Scope[] scopes = new Scope[8];
+    private int size;
+    private final Deadline inheritedDeadline;
+
+    ScopeStack() {
+      this(Deadline.NONE);
+    }
+
+    ScopeStack(@Nonnull final Deadline inheritedDeadline) {
+      this.inheritedDeadline = inheritedDeadline;
+    }
+
+    long remainingNanos(final long time) {
+      long result = this.inheritedDeadline.isDefined() ?
+          this.inheritedDeadline.getTimeInNanoseconds() - time : Long.MAX_VALUE;
+      if (this.size > 0) {
+        result = Math.min(result, this.scopes[this.size - 1].deadlineInNanoseconds - time);
+      }
+      return result;
+    }
+
+    @Nonnull
+    Scope push(@Nullable final String alertMessage, final long maxAllowedDelayInNanoseconds,
+               @Nonnull final TimeAlertListener alertListener, final long time) {
+      if (this.size == this.scopes.length) {
+        this.scopes = Arrays.copyOf(this.scopes, this.size << 1);
+      }
+      Scope scope = this.scopes[this.size];
+      if (scope == null) {
+        scope = new Scope(this, this.size);
+        this.scopes[this.size] = scope;
+      }
+      scope.alertMessage = alertMessage;
+      scope.maxAllowedDelayInNanoseconds = maxAllowedDelayInNanoseconds;
+      scope.alertListener = alertListener;
+      scope.startTimeInNanoseconds = time;
+      long deadline = time + Math.min(maxAllowedDelayInNanoseconds, Long.MAX_VALUE >> 1);
+      if (this.size > 0 && this.scopes[this.size - 1].deadlineInNanoseconds - deadline < 0L) {
+        deadline = this.scopes[this.size - 1].deadlineInNanoseconds;
+      }
+      scope.deadlineInNanoseconds = deadline;
+      final TimeGuardWatchdog currentWatchdog = watchdog;
+      scope.ticket = currentWatchdog == null ? null :
+          currentWatchdog.watch(alertMessage, maxAllowedDelayInNanoseconds, alertListener,
+              this.size, time);
+      final TimeGuardSpanExporter exporter = spanExporter;
+      if (exporter == null) {
+        scope.spanId = 0L;
+      } else {
+        scope.spanId = exporter.nextSpanId();
+        scope.parentSpanId = this.size == 0 ? 0L : this.scopes[this.size - 1].spanId;
+      }
+      scope.opened = true;
+      this.size++;
+      return scope;
+    }
+
+    void unwind(final int level, final long time, final boolean check) {
+      while (this.size > level) {
+        final Scope scope = this.scopes[--this.size];
+        scope.opened = false;
+        final TimeGuardWatchdog.Ticket ticket = scope.ticket;
+        final boolean notReported = ticket == null || ticket.cancel();
+        scope.ticket = null;
+        try {
+          final TimeGuardSpanExporter exporter = spanExporter;
+          if (check && exporter != null && scope.spanId != 0L) {
+            exporter.record(TimeGuardSpanExporter.KIND_SCOPE, scope.alertMessage, scope.spanId,
+                scope.parentSpanId, scope.level, scope.startTimeInNanoseconds, time,
+                !notReported
+                    || time - scope.startTimeInNanoseconds > scope.maxAllowedDelayInNanoseconds);
+          }
+          if (check && notReported) {
+            scope.check(time, ticket == null ? null : ticket.profile);
+          }
+        } finally {
+          scope.alertMessage = null;
+          scope.alertListener = null;
+        }
+      }
+    }
+
+    void assertOwner() {
+      if (MetaContext.peek(SCOPES) != this) {
+        throw new IllegalStateException("Scope must be closed by thread with its context");
+      }
+    }
+
+    boolean isEmpty() {
+      return this.size == 0;
     }
   }
 }
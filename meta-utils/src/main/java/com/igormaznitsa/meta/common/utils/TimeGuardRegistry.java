@@ -0,0 +1,560 @@
+/*
+ * Copyright 2026 Igor Maznitsa.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.igormaznitsa.meta.common.utils;
+
+import com.igormaznitsa.meta.annotation.Weight;
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.NotThreadSafe;
+
+/**
+ * Per-thread registry of time guards and time points. Data are kept in parallel arrays of slots, free slots are reused and registration order is kept by linked indexes, so
+ * that registration and removal don't allocate anything while capacity is enough. Capacity is never decreased.
+ * <p>
+ * Time points are also linked into their own list and into chains of points with the same name, chains are indexed by name in open-addressing hash table with linear probing,
+ * so that search of named point doesn't depend on number of registered guards.
+ *
+ * @since 1.2.2
+ */
+@NotThreadSafe
+final class TimeGuardRegistry {
+
+  static final int NONE = -1;
+
+  private static final int INITIAL_CAPACITY = 16;
+  private static final int INITIAL_TABLE_SIZE = 32;
+
+  private int[] depths = new int[INITIAL_CAPACITY];
+  private long[] startTimes = new long[INITIAL_CAPACITY];
+  private long[] maxDelays = new long[INITIAL_CAPACITY];
+  private long[] maxCpuTimes = new long[INITIAL_CAPACITY];
+  private long[] cpuStarts = new long[INITIAL_CAPACITY];
+  private long[] maxAllocations = new long[INITIAL_CAPACITY];
+  private long[] allocationStarts = new long[INITIAL_CAPACITY];
+  private String[] messages = new String[INITIAL_CAPACITY];
+  private TimeGuard.TimeAlertListener[] listeners =
+      new TimeGuard.TimeAlertListener[INITIAL_CAPACITY];
+  private TimeGuardWatchdog.Ticket[] tickets = new TimeGuardWatchdog.Ticket[INITIAL_CAPACITY];
+  private int[] nextSlots = new int[INITIAL_CAPACITY];
+  private int[] previousSlots = new int[INITIAL_CAPACITY];
+  private long[] spanIds = new long[INITIAL_CAPACITY];
+  private long[] parentSpanIds = new long[INITIAL_CAPACITY];
+  private long[] serials = new long[INITIAL_CAPACITY];
+  private int[] nextPoints = new int[INITIAL_CAPACITY];
+  private int[] previousPoints = new int[INITIAL_CAPACITY];
+  private int[] nextNamed = new int[INITIAL_CAPACITY];
+  private int[] previousNamed = new int[INITIAL_CAPACITY];
+
+  private String[] tableNames = new String[INITIAL_TABLE_SIZE];
+  private int[] tableHeads = filled(INITIAL_TABLE_SIZE);
+  private int[] tableTails = new int[INITIAL_TABLE_SIZE];
+  private int tableUsed;
+
+  private int head = NONE;
+  private int tail = NONE;
+  private int pointHead = NONE;
+  private int pointTail = NONE;
+  private int freeHead = NONE;
+  private int allocated;
+  private int size;
+  private int measuringResources;
+  private long serialCounter;
+
+  @Nonnull
+  private static int[] filled(final int length) {
+    final int[] result = new int[length];
+    Arrays.fill(result, NONE);
+    return result;
+  }
+
+  private static int hash(@Nullable final String name) {
+    final int hash = name == null ? 0 : name.hashCode();
+    return hash ^ (hash >>> 16);
+  }
+
+  /**
+   * Add new record to the end of the registry.
+   *
+   * @param depth                  stack depth
+   * @param message                alert message or name of time point
+   * @param maxDelayInNanoseconds  max allowed delay, negative for time point
+   * @param listener               alert listener
+   * @param ticket                 watchdog ticket, can be null
+   * @param startTimeInNanoseconds start time
+   * @return slot index of the record
+   */
+  @Weight(Weight.Unit.EXTRALIGHT)
+  int add(final int depth, @Nullable final String message, final long maxDelayInNanoseconds,
+          @Nonnull final TimeGuard.TimeAlertListener listener,
+          @Nullable final TimeGuardWatchdog.Ticket ticket, final long startTimeInNanoseconds) {
+    return add(depth, message, maxDelayInNanoseconds, listener, ticket, startTimeInNanoseconds,
+        -1L, -1L, -1L, -1L);
+  }
+
+  /**
+   * Add new record with resource budgets to the end of the registry.
+   *
+   * @param depth                  stack depth
+   * @param message                alert message or name of time point
+   * @param maxDelayInNanoseconds  max allowed delay, negative for time point
+   * @param listener               alert listener
+   * @param ticket                 watchdog ticket, can be null
+   * @param startTimeInNanoseconds start time
+   * @param maxCpuTime             max allowed CPU time in nanoseconds, negative if not checked
+   * @param cpuStart               CPU time of thread at start, negative if not measured
+   * @param maxAllocation          max allowed allocated bytes, negative if not checked
+   * @param allocationStart        allocated bytes of thread at start, negative if not measured
+   * @return slot index of the record
+   */
+  @Weight(Weight.Unit.EXTRALIGHT)
+  int add(final int depth, @Nullable final String message, final long maxDelayInNanoseconds,
+          @Nonnull final TimeGuard.TimeAlertListener listener,
+          @Nullable final TimeGuardWatchdog.Ticket ticket, final long startTimeInNanoseconds,
+          final long maxCpuTime, final long cpuStart,
+          final long maxAllocation, final long allocationStart) {
+    final int slot;
+    if (this.freeHead != NONE) {
+      slot = this.freeHead;
+      this.freeHead = this.nextSlots[slot];
+    } else {
+      if (this.allocated == this.depths.length) {
+        grow();
+      }
+      slot = this.allocated++;
+    }
+    this.depths[slot] = depth;
+    this.startTimes[slot] = startTimeInNanoseconds;
+    this.maxDelays[slot] = maxDelayInNanoseconds;
+    this.maxCpuTimes[slot] = maxCpuTime;
+    this.cpuStarts[slot] = cpuStart;
+    this.maxAllocations[slot] = maxAllocation;
+    this.allocationStarts[slot] = allocationStart;
+    if (cpuStart >= 0L || allocationStart >= 0L) {
+      this.measuringResources++;
+    }
+    this.messages[slot] = message;
+    this.listeners[slot] = listener;
+    this.tickets[slot] = ticket;
+    this.spanIds[slot] = 0L;
+    this.serials[slot] = ++this.serialCounter;
+
+    this.nextSlots[slot] = NONE;
+    this.previousSlots[slot] = this.tail;
+    if (this.tail == NONE) {
+      this.head = slot;
+    } else {
+      this.nextSlots[this.tail] = slot;
+    }
+    this.tail = slot;
+
+    if (maxDelayInNanoseconds < 0L) {
+      linkPoint(slot, message);
+    }
+
+    this.size++;
+    return slot;
+  }
+
+  /**
+   * Remove record, its slot will be reused.
+   *
+   * @param slot slot index of record
+   */
+  @Weight(Weight.Unit.EXTRALIGHT)
+  void remove(final int slot) {
+    final int previous = this.previousSlots[slot];
+    final int next = this.nextSlots[slot];
+    if (previous == NONE) {
+      this.head = next;
+    } else {
+      this.nextSlots[previous] = next;
+    }
+    if (next == NONE) {
+      this.tail = previous;
+    } else {
+      this.previousSlots[next] = previous;
+    }
+    if (this.maxDelays[slot] < 0L) {
+      unlinkPoint(slot);
+    }
+    if (this.cpuStarts[slot] >= 0L || this.allocationStarts[slot] >= 0L) {
+      this.measuringResources--;
+    }
+    this.messages[slot] = null;
+    this.listeners[slot] = null;
+    this.tickets[slot] = null;
+    this.serials[slot] = 0L;
+    this.nextSlots[slot] = this.freeHead;
+    this.freeHead = slot;
+    this.size--;
+  }
+
+  /**
+   * Remove all records, capacity is kept.
+   */
+  void clear() {
+    Arrays.fill(this.messages, 0, this.allocated, null);
+    Arrays.fill(this.listeners, 0, this.allocated, null);
+    Arrays.fill(this.tickets, 0, this.allocated, null);
+    Arrays.fill(this.serials, 0, this.allocated, 0L);
+    if (this.tableUsed > 0) {
+      Arrays.fill(this.tableNames, null);
+      Arrays.fill(this.tableHeads, NONE);
+      this.tableUsed = 0;
+    }
+    this.head = NONE;
+    this.tail = NONE;
+    this.pointHead = NONE;
+    this.pointTail = NONE;
+    this.freeHead = NONE;
+    this.allocated = 0;
+    this.size = 0;
+    this.measuringResources = 0;
+  }
+
+  int first() {
+    return this.head;
+  }
+
+  int next(final int slot) {
+    return this.nextSlots[slot];
+  }
+
+  int firstPoint() {
+    return this.pointHead;
+  }
+
+  int nextPoint(final int slot) {
+    return this.nextPoints[slot];
+  }
+
+  /**
+   * Find the first registered time point with name.
+   *
+   * @param name name of time point
+   * @return slot index of the first point with the name or NONE
+   */
+  @Weight(Weight.Unit.EXTRALIGHT)
+  int firstPointNamed(@Nullable final String name) {
+    return this.tableHeads[findIndex(name)];
+  }
+
+  int nextPointNamed(final int slot) {
+    return this.nextNamed[slot];
+  }
+
+  /**
+   * Check that there are records measuring CPU time or allocated bytes.
+   *
+   * @return true if there is such record, false otherwise
+   */
+  boolean isMeasuringResources() {
+    return this.measuringResources > 0;
+  }
+
+  /**
+   * Find time remaining till the earliest deadline among registered guards with wall time limit.
+   *
+   * @param time current time in nanoseconds
+   * @return remaining nanoseconds, can be negative if a deadline has passed, {@link Long#MAX_VALUE} if there is no deadline
+   */
+  long remainingNanos(final long time) {
+    long result = Long.MAX_VALUE;
+    for (int slot = this.head; slot != NONE; slot = this.nextSlots[slot]) {
+      final long maxDelay = this.maxDelays[slot];
+      if (maxDelay >= 0L && maxDelay != Long.MAX_VALUE) {
+        result = Math.min(result, maxDelay - (time - this.startTimes[slot]));
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Set span id of record and find its parent, the parent is the nearest previous record with smaller stack depth.
+   *
+   * @param slot   slot index of record
+   * @param spanId span id
+   */
+  void startSpan(final int slot, final long spanId) {
+    final int depth = this.depths[slot];
+    long parent = 0L;
+    for (int previous = this.previousSlots[slot]; previous != NONE;
+         previous = this.previousSlots[previous]) {
+      if (this.depths[previous] < depth) {
+        parent = this.spanIds[previous];
+        break;
+      }
+    }
+    this.spanIds[slot] = spanId;
+    this.parentSpanIds[slot] = parent;
+  }
+
+  /**
+   * Get serial number of record, it allows to check that slot still keeps the same record after callback which could change the registry.
+   *
+   * @param slot slot index of record
+   * @return serial number unique for the registry, zero for free slot
+   */
+  long serial(final int slot) {
+    return this.serials[slot];
+  }
+
+  long spanId(final int slot) {
+    return this.spanIds[slot];
+  }
+
+  long parentSpanId(final int slot) {
+    return this.parentSpanIds[slot];
+  }
+
+  boolean isEmpty() {
+    return this.size == 0;
+  }
+
+  int size() {
+    return this.size;
+  }
+
+  int capacity() {
+    return this.depths.length;
+  }
+
+  int depth(final int slot) {
+    return this.depths[slot];
+  }
+
+  long startTime(final int slot) {
+    return this.startTimes[slot];
+  }
+
+  long maxDelay(final int slot) {
+    return this.maxDelays[slot];
+  }
+
+  boolean isTimePoint(final int slot) {
+    return this.maxDelays[slot] < 0L;
+  }
+
+  @Nullable
+  String message(final int slot) {
+    return this.messages[slot];
+  }
+
+  @Nullable
+  TimeGuardWatchdog.Ticket ticket(final int slot) {
+    return this.tickets[slot];
+  }
+
+  /**
+   * Cancel watchdog ticket of record.
+   *
+   * @param slot slot index of record
+   * @return true if the record has not been reported by watchdog, false otherwise
+   */
+  boolean cancelWatching(final int slot) {
+    final TimeGuardWatchdog.Ticket ticket = this.tickets[slot];
+    return ticket == null || ticket.cancel();
+  }
+
+  /**
+   * Check that resource budget of record is exceeded.
+   *
+   * @param slot           slot index of record
+   * @param cpuTime        current CPU time of thread, negative if not measured
+   * @param allocatedBytes current allocated bytes of thread, negative if not measured
+   * @return true if CPU time or allocated bytes are over budget, false otherwise
+   */
+  boolean isResourceBudgetExceeded(final int slot, final long cpuTime,
+                                   final long allocatedBytes) {
+    final long cpuStart = this.cpuStarts[slot];
+    final long allocationStart = this.allocationStarts[slot];
+    return (cpuStart >= 0L && cpuTime >= 0L && cpuTime - cpuStart > this.maxCpuTimes[slot])
+        || (allocationStart >= 0L && allocatedBytes >= 0L
+        && allocatedBytes - allocationStart > this.maxAllocations[slot]);
+  }
+
+  /**
+   * Make time data container for record, it is called only for notification.
+   *
+   * @param slot slot index of record
+   * @param time current time in nanoseconds
+   * @return new time data
+   */
+  @Nonnull
+  TimeGuard.TimeData toTimeData(final int slot, final long time) {
+    return toTimeData(slot, time, -1L, -1L);
+  }
+
+  /**
+   * Make time data container for record with consumed resources, it is called only for notification.
+   *
+   * @param slot           slot index of record
+   * @param time           current time in nanoseconds
+   * @param cpuTime        current CPU time of thread, negative if not measured
+   * @param allocatedBytes current allocated bytes of thread, negative if not measured
+   * @return new time data
+   */
+  @Nonnull
+  TimeGuard.TimeData toTimeData(final int slot, final long time, final long cpuTime,
+                                final long allocatedBytes) {
+    final long startTime = this.startTimes[slot];
+    final long cpuStart = this.cpuStarts[slot];
+    final long allocationStart = this.allocationStarts[slot];
+    final TimeGuardWatchdog.Ticket ticket = this.tickets[slot];
+    return new TimeGuard.TimeData(this.depths[slot], this.messages[slot], this.maxDelays[slot],
+        this.listeners[slot],
+        System.currentTimeMillis() - TimeUnit.NANOSECONDS.toMillis(time - startTime), startTime,
+        this.maxCpuTimes[slot],
+        cpuStart < 0L || cpuTime < 0L ? -1L : cpuTime - cpuStart,
+        this.maxAllocations[slot],
+        allocationStart < 0L || allocatedBytes < 0L ? -1L : allocatedBytes - allocationStart,
+        ticket == null ? null : ticket.profile);
+  }
+
+  private int findIndex(@Nullable final String name) {
+    final int mask = this.tableNames.length - 1;
+    int index = hash(name) & mask;
+    while (this.tableHeads[index] != NONE && !Objects.equals(this.tableNames[index], name)) {
+      index = (index + 1) & mask;
+    }
+    return index;
+  }
+
+  private void linkPoint(final int slot, @Nullable final String name) {
+    this.nextPoints[slot] = NONE;
+    this.previousPoints[slot] = this.pointTail;
+    if (this.pointTail == NONE) {
+      this.pointHead = slot;
+    } else {
+      this.nextPoints[this.pointTail] = slot;
+    }
+    this.pointTail = slot;
+
+    int index = findIndex(name);
+    this.nextNamed[slot] = NONE;
+    if (this.tableHeads[index] == NONE) {
+      if ((this.tableUsed + 1) << 1 > this.tableNames.length) {
+        rehash(this.tableNames.length << 1);
+        index = findIndex(name);
+      }
+      this.tableNames[index] = name;
+      this.tableHeads[index] = slot;
+      this.tableUsed++;
+      this.previousNamed[slot] = NONE;
+    } else {
+      final int last = this.tableTails[index];
+      this.nextNamed[last] = slot;
+      this.previousNamed[slot] = last;
+    }
+    this.tableTails[index] = slot;
+  }
+
+  private void unlinkPoint(final int slot) {
+    final int previous = this.previousPoints[slot];
+    final int next = this.nextPoints[slot];
+    if (previous == NONE) {
+      this.pointHead = next;
+    } else {
+      this.nextPoints[previous] = next;
+    }
+    if (next == NONE) {
+      this.pointTail = previous;
+    } else {
+      this.previousPoints[next] = previous;
+    }
+
+    final int previousNamed = this.previousNamed[slot];
+    final int nextNamed = this.nextNamed[slot];
+    if (previousNamed != NONE && nextNamed != NONE) {
+      this.nextNamed[previousNamed] = nextNamed;
+      this.previousNamed[nextNamed] = previousNamed;
+    } else {
+      final int index = findIndex(this.messages[slot]);
+      if (previousNamed == NONE && nextNamed == NONE) {
+        deleteIndex(index);
+      } else if (previousNamed == NONE) {
+        this.tableHeads[index] = nextNamed;
+        this.previousNamed[nextNamed] = NONE;
+      } else {
+        this.tableTails[index] = previousNamed;
+        this.nextNamed[previousNamed] = NONE;
+      }
+    }
+  }
+
+  private void deleteIndex(final int index) {
+    final int mask = this.tableNames.length - 1;
+    int hole = index;
+    int current = (index + 1) & mask;
+    while (this.tableHeads[current] != NONE) {
+      final int home = hash(this.tableNames[current]) & mask;
+      if (((current - home) & mask) >= ((current - hole) & mask)) {
+        this.tableNames[hole] = this.tableNames[current];
+        this.tableHeads[hole] = this.tableHeads[current];
+        this.tableTails[hole] = this.tableTails[current];
+        hole = current;
+      }
+      current = (current + 1) & mask;
+    }
+    this.tableNames[hole] = null;
+    this.tableHeads[hole] = NONE;
+    this.tableUsed--;
+  }
+
+  private void rehash(final int newSize) {
+    final String[] oldNames = this.tableNames;
+    final int[] oldHeads = this.tableHeads;
+    final int[] oldTails = this.tableTails;
+    this.tableNames = new String[newSize];
+    this.tableHeads = filled(newSize);
+    this.tableTails = new int[newSize];
+    for (int i = 0; i < oldHeads.length; i++) {
+      if (oldHeads[i] != NONE) {
+        final int index = findIndex(oldNames[i]);
+        this.tableNames[index] = oldNames[i];
+        this.tableHeads[index] = oldHeads[i];
+        this.tableTails[index] = oldTails[i];
+      }
+    }
+  }
+
+  private void grow() {
+    final int newCapacity = this.depths.length << 1;
+    this.depths = Arrays.copyOf(this.depths, newCapacity);
+    this.startTimes = Arrays.copyOf(this.startTimes, newCapacity);
+    this.maxDelays = Arrays.copyOf(this.maxDelays, newCapacity);
+    this.maxCpuTimes = Arrays.copyOf(this.maxCpuTimes, newCapacity);
+    this.cpuStarts = Arrays.copyOf(this.cpuStarts, newCapacity);
+    this.maxAllocations = Arrays.copyOf(this.maxAllocations, newCapacity);
+    this.allocationStarts = Arrays.copyOf(this.allocationStarts, newCapacity);
+    this.messages = Arrays.copyOf(this.messages, newCapacity);
+    this.listeners = Arrays.copyOf(this.listeners, newCapacity);
+    this.tickets = Arrays.copyOf(this.tickets, newCapacity);
+    this.nextSlots = Arrays.copyOf(this.nextSlots, newCapacity);
+    this.previousSlots = Arrays.copyOf(this.previousSlots, newCapacity);
+    this.spanIds = Arrays.copyOf(this.spanIds, newCapacity);
+    this.parentSpanIds = Arrays.copyOf(this.parentSpanIds, newCapacity);
+    this.serials = Arrays.copyOf(this.serials, newCapacity);
+    this.nextPoints = Arrays.copyOf(this.nextPoints, newCapacity);
+    this.previousPoints = Arrays.copyOf(this.previousPoints, newCapacity);
+    this.nextNamed = Arrays.copyOf(this.nextNamed, newCapacity);
+    this.previousNamed = Arrays.copyOf(this.previousNamed, newCapacity);
+  }
+}
@@ -0,0 +1,238 @@
+/*
+ * Copyright 2026 Igor Maznitsa.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.igormaznitsa.meta.common.utils;
+
+import static com.igormaznitsa.meta.common.utils.Assertions.assertNotNull;
+
+import com.igormaznitsa.meta.annotation.Constraint;
+import com.igormaznitsa.meta.annotation.Weight;
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import javax.annotation.Nonnull;
+import javax.annotation.concurrent.Immutable;
+import javax.annotation.concurrent.ThreadSafe;
+
+/**
+ * Policy to decide which calls of {@link TimeGuard} are guarded, so that guards can be left in production code and pay for them only on a fraction of calls. Not sampled calls don't
+ * walk stack, don't register anything and don't allocate.
+ *
+ * @see TimeGuard#setSamplingPolicy(TimeGuardSamplingPolicy)
+ * @since 1.2.2
+ */
+@ThreadSafe
+public abstract class TimeGuardSamplingPolicy {
+
+  private final LongAdder sampledCounter = new LongAdder();
+  private final LongAdder skippedCounter = new LongAdder();
+
+  TimeGuardSamplingPolicy() {
+  }
+
+  /**
+   * Make policy sampling randomly one call among N ones.
+   *
+   * @param n number of calls per one sampled call, 1 means every call
+   * @return new policy
+   * @since 1.2.2
+   */
+  @Nonnull
+  public static TimeGuardSamplingPolicy oneIn(@Constraint("X>0") final int n) {
+    if (n <= 0) {
+      throw new IllegalArgumentException("Wrong N: " + n);
+    }
+    return new Fixed(n);
+  }
+
+  /**
+   * Make policy which adapts sample rate to keep time spent by sampled calls within budget. Rate is recalculated every second.
+   *
+   * @param overheadFraction allowed fraction of wall time of one processor spent to guarding, for instance 0.01 means 10 milliseconds per second
+   * @return new policy
+   * @since 1.2.2
+   */
+  @Nonnull
+  public static TimeGuardSamplingPolicy adaptive(@Constraint("X>0") final double overheadFraction) {
+    return adaptive(overheadFraction, Duration.ofSeconds(1L), 0.0001d);
+  }
+
+  /**
+   * Make policy which adapts sample rate to keep time spent by sampled calls within budget.
+   *
+   * @param overheadFraction allowed fraction of wall time of one processor spent to guarding
+   * @param window           interval to recalculate sample rate
+   * @param minRate          min sample rate, it allows to measure cost of guarding when the rate is low
+   * @return new policy
+   * @since 1.2.2
+   */
+  @Nonnull
+  public static TimeGuardSamplingPolicy adaptive(@Constraint("X>0") final double overheadFraction,
+                                                 @Nonnull final Duration window,
+                                                 @Constraint("X>0&&X<=1") final double minRate) {
+    if (!(overheadFraction > 0.0d)) {
+      throw new IllegalArgumentException("Wrong overhead fraction: " + overheadFraction);
+    }
+    if (!(minRate > 0.0d && minRate <= 1.0d)) {
+      throw new IllegalArgumentException("Wrong min rate: " + minRate);
+    }
+    if (assertNotNull(window).isNegative() || window.isZero()) {
+      throw new IllegalArgumentException("Wrong window: " + window);
+    }
+    return new Adaptive(overheadFraction, window.toNanos(), minRate);
+  }
+
+  /**
+   * Decide whether the current call must be guarded.
+   *
+   * @return true if the call must be guarded, false otherwise
+   * @since 1.2.2
+   */
+  @Weight(Weight.Unit.EXTRALIGHT)
+  public final boolean sample() {
+    if (decide()) {
+      this.sampledCounter.increment();
+      return true;
+    } else {
+      this.skippedCounter.increment();
+      return false;
+    }
+  }
+
+  /**
+   * Get number of sampled calls.
+   *
+   * @return number of guarded calls
+   * @since 1.2.2
+   */
+  public long getSampledCount() {
+    return this.sampledCounter.sum();
+  }
+
+  /**
+   * Get number of skipped calls.
+   *
+   * @return number of not guarded calls
+   * @since 1.2.2
+   */
+  public long getSkippedCount() {
+    return this.skippedCounter.sum();
+  }
+
+  /**
+   * Get the current sample rate.
+   *
+   * @return rate of sampled calls, 1.0 means every call
+   * @since 1.2.2
+   */
+  public abstract double getSampleRate();
+
+  abstract boolean decide();
+
+  /**
+   * Record time spent by a sampled call.
+   *
+   * @param startTime start time of the call in nanoseconds
+   * @param endTime   end time of the call in nanoseconds
+   */
+  void recordOverhead(final long startTime, final long endTime) {
+  }
+
+  private static final class Fixed extends TimeGuardSamplingPolicy {
+
+    private final int n;
+
+    private Fixed(final int n) {
+      this.n = n;
+    }
+
+    @Override
+    boolean decide() {
+      return this.n == 1 || ThreadLocalRandom.current().nextInt(this.n) == 0;
+    }
+
+    @Override
+    public double getSampleRate() {
+      return 1.0d / this.n;
+    }
+  }
+
+  private static final class Adaptive extends TimeGuardSamplingPolicy {
+
+    private final double overheadFraction;
+    private final long windowInNanoseconds;
+    private final double minRate;
+    private final LongAdder overheadCounter = new LongAdder();
+    private final AtomicReference<Window> window =
+        new AtomicReference<>(new Window(System.nanoTime(), 0L, 0L));
+    private volatile double rate = 1.0d;
+
+    private Adaptive(final double overheadFraction, final long windowInNanoseconds,
+                     final double minRate) {
+      this.overheadFraction = overheadFraction;
+      this.windowInNanoseconds = windowInNanoseconds;
+      this.minRate = minRate;
+    }
+
+    @Override
+    boolean decide() {
+      final double currentRate = this.rate;
+      return currentRate >= 1.0d || ThreadLocalRandom.current().nextDouble() < currentRate;
+    }
+
+    @Override
+    public double getSampleRate() {
+      return this.rate;
+    }
+
+    @Override
+    void recordOverhead(final long startTime, final long endTime) {
+      this.overheadCounter.add(endTime - startTime);
+      final Window current = this.window.get();
+      final long elapsed = endTime - current.start;
+      if (elapsed < this.windowInNanoseconds) {
+        return;
+      }
+      // counters of the finished window are published together with its start through the CAS
+      final Window next = new Window(endTime, getSampledCount(), getSkippedCount());
+      if (this.window.compareAndSet(current, next)) {
+        final long sampledInWindow = next.sampled - current.sampled;
+        final long callsInWindow = sampledInWindow + next.skipped - current.skipped;
+        final long overhead = this.overheadCounter.sumThenReset();
+        if (sampledInWindow > 0L && overhead > 0L) {
+          final double costPerCall = (double) overhead / sampledInWindow;
+          final double allowedCalls = this.overheadFraction * elapsed / costPerCall;
+          this.rate = Math.max(this.minRate, Math.min(1.0d, allowedCalls / callsInWindow));
+        }
+      }
+    }
+
+    @Immutable
+    private static final class Window {
+
+      private final long start;
+      private final long sampled;
+      private final long skipped;
+
+      private Window(final long start, final long sampled, final long skipped) {
+        this.start = start;
+        this.sampled = sampled;
+        this.skipped = skipped;
+      }
+    }
+  }
+}
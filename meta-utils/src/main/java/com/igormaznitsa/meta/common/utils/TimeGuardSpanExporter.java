@@ -0,0 +1,525 @@
+/*
+ * Copyright 2026 Igor Maznitsa.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.igormaznitsa.meta.common.utils;
+
+import static com.igormaznitsa.meta.common.utils.Assertions.assertNotNull;
+
+import com.igormaznitsa.meta.annotation.Constraint;
+import com.igormaznitsa.meta.annotation.Weight;
+import com.igormaznitsa.meta.common.exceptions.MetaErrorListeners;
+import com.igormaznitsa.meta.common.exceptions.UnexpectedProcessingError;
+import com.igormaznitsa.meta.common.interfaces.Disposable;
+import java.io.IOException;
+import java.io.Writer;
+import java.lang.ref.WeakReference;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.ThreadSafe;
+
+/**
+ * Exporter of {@link TimeGuard} guards, time points and scopes as spans with parent links. Every thread writes finished spans into its own preallocated ring buffer without locks,
+ * a daemon thread drains buffers periodically into rolling files on local disk. If a ring buffer is full then new spans are dropped.
+ * <p>
+ * Files can be written in Chrome Trace Event format (array of complete events, can be opened by trace viewers) or in JSON lines format (one span object per line). Times are
+ * provided by monotonic timer, Chrome trace timestamps are microseconds since start of the exporter.
+ *
+ * @see TimeGuard#setSpanExporter(TimeGuardSpanExporter)
+ * @since 1.2.2
+ */
+@ThreadSafe
+public final class TimeGuardSpanExporter implements Disposable {
+
+  /**
+   * Default capacity of per-thread ring buffer.
+   *
+   * @since 1.2.2
+   */
+  public static final int DEFAULT_RING_CAPACITY = 1024;
+
+  /**
+   * Default max size of one file in bytes.
+   *
+   * @since 1.2.2
+   */
+  public static final long DEFAULT_MAX_FILE_SIZE = 64L * 1024L * 1024L;
+
+  /**
+   * Default number of kept files.
+   *
+   * @since 1.2.2
+   */
+  public static final int DEFAULT_MAX_FILES = 4;
+
+  /**
+   * Default interval between drains of ring buffers.
+   *
+   * @since 1.2.2
+   */
+  public static final Duration DEFAULT_FLUSH_INTERVAL = Duration.ofMillis(100L);
+
+  static final int KIND_GUARD = 0;
+  static final int KIND_POINT = 1;
+  static final int KIND_SCOPE = 2;
+
+  private static final String[] KIND_NAMES = {"guard", "point", "scope"};
+  private static final AtomicLong THREAD_COUNTER = new AtomicLong();
+
+  private final Path folder;
+  private final String baseName;
+  private final Format format;
+  private final int ringCapacity;
+  private final long maxFileSize;
+  private final int maxFiles;
+  private final long flushIntervalInNanoseconds;
+  private final long startTimeInNanoseconds = System.nanoTime();
+  private final List<SpanRing> rings = new CopyOnWriteArrayList<>();
+  private final ThreadLocal<SpanRing> localRing = ThreadLocal.withInitial(this::makeRing);
+  private final AtomicBoolean disposed = new AtomicBoolean();
+  private final AtomicLong exportedCounter = new AtomicLong();
+  private final AtomicLong droppedCounter = new AtomicLong();
+  private final StringBuilder buffer = new StringBuilder(256);
+  private final Thread worker;
+
+  private Writer writer;
+  private long fileSize;
+  private int fileIndex;
+
+  /**
+   * Constructor with default settings.
+   *
+   * @param folder   folder for files, it will be created if not exists
+   * @param baseName base name of files
+   * @param format   format of files
+   * @throws IOException if the folder can't be created
+   * @since 1.2.2
+   */
+  public TimeGuardSpanExporter(@Nonnull final Path folder, @Nonnull final String baseName,
+                               @Nonnull final Format format) throws IOException {
+    this(folder, baseName, format, DEFAULT_RING_CAPACITY, DEFAULT_MAX_FILE_SIZE,
+        DEFAULT_MAX_FILES, DEFAULT_FLUSH_INTERVAL);
+  }
+
+  /**
+   * Constructor. The worker thread is started immediately. Files are named as base name with index and extension of format, only defined number of the last files is kept.
+   *
+   * @param folder        folder for files, it will be created if not exists
+   * @param baseName      base name of files
+   * @param format        format of files
+   * @param ringCapacity  capacity of per-thread ring buffer, it will be rounded up to power of two
+   * @param maxFileSize   max size of file in bytes, next file is started when it is reached
+   * @param maxFiles      max number of kept files
+   * @param flushInterval interval between drains of ring buffers
+   * @throws IOException if the folder can't be created
+   * @since 1.2.2
+   */
+  public TimeGuardSpanExporter(@Nonnull final Path folder, @Nonnull final String baseName,
+                               @Nonnull final Format format,
+                               @Constraint("X>0") final int ringCapacity,
+                               @Constraint("X>0") final long maxFileSize,
+                               @Constraint("X>0") final int maxFiles,
+                               @Nonnull final Duration flushInterval) throws IOException {
+    if (ringCapacity <= 0 || ringCapacity > (1 << 24)) {
+      throw new IllegalArgumentException("Wrong ring capacity: " + ringCapacity);
+    }
+    if (maxFileSize <= 0L || maxFiles <= 0) {
+      throw new IllegalArgumentException("File size and number of files must be positive");
+    }
+    this.folder = Files.createDirectories(assertNotNull(folder));
+    this.baseName = assertNotNull(baseName);
+    this.format = assertNotNull(format);
+    this.ringCapacity = Integer.highestOneBit(ringCapacity) == ringCapacity ? ringCapacity :
+        Integer.highestOneBit(ringCapacity) << 1;
+    this.maxFileSize = maxFileSize;
+    this.maxFiles = maxFiles;
+    this.flushIntervalInNanoseconds = Math.max(1L, assertNotNull(flushInterval).toNanos());
+    this.worker =
+        new Thread(this::work, "TimeGuardSpanExporter-" + THREAD_COUNTER.incrementAndGet());
+    this.worker.setDaemon(true);
+    this.worker.start();
+  }
+
+  /**
+   * Get number of written spans.
+   *
+   * @return number of spans written into files
+   * @since 1.2.2
+   */
+  public long getExportedCount() {
+    return this.exportedCounter.get();
+  }
+
+  /**
+   * Get number of spans dropped because of full ring buffers.
+   *
+   * @return number of dropped spans
+   * @since 1.2.2
+   */
+  public long getDroppedCount() {
+    return this.droppedCounter.get();
+  }
+
+  /**
+   * Get path of file for index.
+   *
+   * @param index index of file
+   * @return path to the file
+   * @since 1.2.2
+   */
+  @Nonnull
+  public Path getFile(@Constraint("X>=0") final int index) {
+    return this.folder.resolve(this.baseName + '-' + index + this.format.extension);
+  }
+
+  @Override
+  public boolean isDisposed() {
+    return this.disposed.get();
+  }
+
+  /**
+   * Stop the worker thread, drain all ring buffers and close the current file.
+   */
+  @Override
+  public void dispose() {
+    if (this.disposed.compareAndSet(false, true)) {
+      LockSupport.unpark(this.worker);
+      try {
+        this.worker.join();
+      } catch (InterruptedException ex) {
+        Thread.currentThread().interrupt();
+      }
+    }
+  }
+
+  /**
+   * Get new span id for the current thread.
+   *
+   * @return span id, not zero
+   */
+  @Weight(Weight.Unit.EXTRALIGHT)
+  long nextSpanId() {
+    return this.localRing.get().nextSpanId();
+  }
+
+  /**
+   * Record finished span into ring buffer of the current thread.
+   *
+   * @param kind      kind of span
+   * @param name      name of span
+   * @param spanId    id of span
+   * @param parentId  id of parent span, zero if no parent
+   * @param depth     stack depth or scope level
+   * @param startTime start time in nanoseconds
+   * @param endTime   end time in nanoseconds
+   * @param violated  true if time budget was violated
+   */
+  @Weight(Weight.Unit.EXTRALIGHT)
+  void record(final int kind, @Nullable final String name, final long spanId,
+              final long parentId, final int depth, final long startTime, final long endTime,
+              final boolean violated) {
+    if (!this.localRing.get()
+        .offer(kind, name, spanId, parentId, depth, startTime, endTime, violated)) {
+      this.droppedCounter.incrementAndGet();
+    }
+  }
+
+  @Nonnull
+  private SpanRing makeRing() {
+    final SpanRing result = new SpanRing(Thread.currentThread(), this.ringCapacity);
+    this.rings.add(result);
+    return result;
+  }
+
+  private void work() {
+    try {
+      while (!this.disposed.get()) {
+        LockSupport.parkNanos(this, this.flushIntervalInNanoseconds);
+        drainAll();
+      }
+      drainAll();
+    } finally {
+      closeFile();
+    }
+  }
+
+  private void drainAll() {
+    try {
+      for (final SpanRing ring : this.rings) {
+        ring.drain(this);
+        if (ring.thread.get() == null && ring.isEmpty()) {
+          this.rings.remove(ring);
+        }
+      }
+      if (this.writer != null) {
+        this.writer.flush();
+      }
+    } catch (Throwable ex) {
+      if (this.writer != null) {
+        // the file keeps already exported spans so that export must be continued in the next one
+        closeFile();
+        this.fileIndex++;
+      }
+      final UnexpectedProcessingError error =
+          new UnexpectedProcessingError("Error during span export", ex);
+      try {
+        MetaErrorListeners.fireError(error.getMessage(), error);
+      } catch (Throwable ignored) {
+        // the worker thread must not be stopped by listeners
+      }
+    }
+  }
+
+  private void write(@Nonnull final SpanRing ring, final int kind, @Nullable final String name,
+                     final long spanId, final long parentId, final int depth,
+                     final long startTime, final long endTime, final boolean violated)
+      throws IOException {
+    final StringBuilder line = this.buffer;
+    line.setLength(0);
+    if (this.format == Format.CHROME_TRACE) {
+      line.append("{\"name\":");
+      appendString(line, name);
+      line.append(",\"cat\":\"").append(KIND_NAMES[kind]).append("\",\"ph\":\"X\",\"ts\":");
+      appendMicros(line, startTime - this.startTimeInNanoseconds);
+      line.append(",\"dur\":");
+      appendMicros(line, endTime - startTime);
+      line.append(",\"pid\":1,\"tid\":").append(ring.threadId);
+      line.append(",\"args\":{\"id\":").append(spanId)
+          .append(",\"parent\":").append(parentId)
+          .append(",\"depth\":").append(depth)
+          .append(",\"violated\":").append(violated).append("}}");
+    } else {
+      line.append("{\"id\":").append(spanId)
+          .append(",\"parent\":").append(parentId)
+          .append(",\"kind\":\"").append(KIND_NAMES[kind]).append('"')
+          .append(",\"name\":");
+      appendString(line, name);
+      line.append(",\"thread\":").append(ring.threadId)
+          .append(",\"threadName\":");
+      appendString(line, ring.threadName);
+      line.append(",\"depth\":").append(depth)
+          .append(",\"start\":").append(startTime)
+          .append(",\"end\":").append(endTime)
+          .append(",\"violated\":").append(violated).append("}\n");
+    }
+    ensureFile();
+    if (this.format == Format.CHROME_TRACE && this.fileSize > 0L) {
+      this.writer.append(",\n");
+      this.fileSize += 2L;
+    }
+    this.writer.append(line);
+    this.fileSize += line.length();
+    this.exportedCounter.incrementAndGet();
+  }
+
+  private void ensureFile() throws IOException {
+    if (this.writer != null && this.fileSize >= this.maxFileSize) {
+      closeFile();
+      this.fileIndex++;
+    }
+    if (this.writer == null) {
+      if (this.fileIndex >= this.maxFiles) {
+        Files.deleteIfExists(getFile(this.fileIndex - this.maxFiles));
+      }
+      this.writer = Files.newBufferedWriter(getFile(this.fileIndex), StandardCharsets.UTF_8);
+      this.fileSize = 0L;
+      if (this.format == Format.CHROME_TRACE) {
+        this.writer.write("[\n");
+      }
+    }
+  }
+
+  private void closeFile() {
+    final Writer current = this.writer;
+    this.writer = null;
+    if (current != null) {
+      try {
+        if (this.format == Format.CHROME_TRACE) {
+          current.write("\n]\n");
+        }
+      } catch (IOException ex) {
+        // ignore, file will be closed
+      } finally {
+        IOUtils.closeQuietly(current);
+      }
+    }
+  }
+
+  private static void appendMicros(@Nonnull final StringBuilder buffer, final long nanoseconds) {
+    buffer.append(nanoseconds / 1000L).append('.');
+    final long fraction = Math.abs(nanoseconds % 1000L);
+    if (fraction < 100L) {
+      buffer.append('0');
+    }
+    if (fraction < 10L) {
+      buffer.append('0');
+    }
+    buffer.append(fraction);
+  }
+
+  private static void appendString(@Nonnull final StringBuilder buffer,
+                                   @Nullable final String text) {
+    if (text == null) {
+      buffer.append("null");
+      return;
+    }
+    buffer.append('"');
+    for (int i = 0; i < text.length(); i++) {
+      final char c = text.charAt(i);
+      switch (c) {
+        case '"':
+          buffer.append("\\\"");
+          break;
+        case '\\':
+          buffer.append("\\\\");
+          break;
+        case '\n':
+          buffer.append("\\n");
+          break;
+        case '\r':
+          buffer.append("\\r");
+          break;
+        case '\t':
+          buffer.append("\\t");
+          break;
+        default:
+          if (c < 0x20) {
+            buffer.append(String.format("\\u%04x", (int) c));
+          } else {
+            buffer.append(c);
+          }
+          break;
+      }
+    }
+    buffer.append('"');
+  }
+
+  /**
+   * Format of exported files.
+   *
+   * @since 1.2.2
+   */
+  public enum Format {
+    /**
+     * JSON array of Chrome Trace Event complete events.
+     */
+    CHROME_TRACE(".json"),
+    /**
+     * One JSON object per line.
+     */
+    JSON_LINES(".jsonl");
+
+    private final String extension;
+
+    Format(@Nonnull final String extension) {
+      this.extension = extension;
+    }
+  }
+
+  /**
+   * Single producer single consumer ring buffer of spans, the producer is the owner thread and the consumer is the exporter thread.
+   */
+  private static final class SpanRing {
+
+    private final WeakReference<Thread> thread;
+    private final long threadId;
+    private final String threadName;
+    private final int mask;
+    private final int[] kinds;
+    private final String[] names;
+    private final long[] spanIds;
+    private final long[] parentIds;
+    private final int[] depths;
+    private final long[] startTimes;
+    private final long[] endTimes;
+    private final boolean[] violations;
+    private final AtomicLong head = new AtomicLong();
+    private final AtomicLong tail = new AtomicLong();
+    private long spanSequence;
+
+    private SpanRing(@Nonnull final Thread thread, final int capacity) {
+      this.thread = new WeakReference<>(thread);
+      this.threadId = thread.getId();
+      this.threadName = thread.getName();
+      this.mask = capacity - 1;
+      this.kinds = new int[capacity];
+      this.names = new String[capacity];
+      this.spanIds = new long[capacity];
+      this.parentIds = new long[capacity];
+      this.depths = new int[capacity];
+      this.startTimes = new long[capacity];
+      this.endTimes = new long[capacity];
+      this.violations = new boolean[capacity];
+    }
+
+    private long nextSpanId() {
+      return (this.threadId << 32) | (++this.spanSequence & 0xFFFFFFFFL);
+    }
+
+    private boolean isEmpty() {
+      return this.head.get() == this.tail.get();
+    }
+
+    private boolean offer(final int kind, @Nullable final String name, final long spanId,
+                          final long parentId, final int depth, final long startTime,
+                          final long endTime, final boolean violated) {
+      final long currentTail = this.tail.get();
+      if (currentTail - this.head.get() > this.mask) {
+        return false;
+      }
+      final int index = (int) currentTail & this.mask;
+      this.kinds[index] = kind;
+      this.names[index] = name;
+      this.spanIds[index] = spanId;
+      this.parentIds[index] = parentId;
+      this.depths[index] = depth;
+      this.startTimes[index] = startTime;
+      this.endTimes[index] = endTime;
+      this.violations[index] = violated;
+      this.tail.lazySet(currentTail + 1L);
+      return true;
+    }
+
+    private void drain(@Nonnull final TimeGuardSpanExporter exporter) throws IOException {
+      long currentHead = this.head.get();
+      final long currentTail = this.tail.get();
+      while (currentHead != currentTail) {
+        final int index = (int) currentHead & this.mask;
+        final String name = this.names[index];
+        this.names[index] = null;
+        final int kind = this.kinds[index];
+        final long spanId = this.spanIds[index];
+        final long parentId = this.parentIds[index];
+        final int depth = this.depths[index];
+        final long startTime = this.startTimes[index];
+        final long endTime = this.endTimes[index];
+        final boolean violated = this.violations[index];
+        // the slot is released before writing so that failed span is not repeated endlessly
+        currentHead++;
+        this.head.lazySet(currentHead);
+        exporter.write(this, kind, name, spanId, parentId, depth, startTime, endTime, violated);
+      }
+    }
+  }
+}
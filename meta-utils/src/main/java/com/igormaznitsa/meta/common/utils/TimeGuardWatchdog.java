@@ -0,0 +1,388 @@
+/*
+ * Copyright 2026 Igor Maznitsa.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.igormaznitsa.meta.common.utils;
+
+import static com.igormaznitsa.meta.common.utils.Assertions.assertNotNull;
+
+import com.igormaznitsa.meta.annotation.Constraint;
+import com.igormaznitsa.meta.annotation.Weight;
+import com.igormaznitsa.meta.common.exceptions.MetaErrorListeners;
+import com.igormaznitsa.meta.common.exceptions.UnexpectedProcessingError;
+import com.igormaznitsa.meta.common.interfaces.Disposable;
+import java.time.Duration;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.ThreadSafe;
+
+/**
+ * Background watchdog for {@link TimeGuard}. Active guards are placed into a hashed timer wheel processed by a daemon thread, so that time violation is reported as soon as
+ * deadline passed even if the guarded block is still working or hangs. Registration and cancellation don't take any lock and are O(1).
+ * <p>
+ * Guard reported by the watchdog is not reported again during check. If {@link StallSampler} is provided then the watchdog also samples stack of guarded threads which are
+ * close to their deadlines.
+ *
+ * @see TimeGuard#setWatchdog(TimeGuardWatchdog)
+ * @since 1.2.2
+ */
+@ThreadSafe
+public final class TimeGuardWatchdog implements Disposable {
+
+  /**
+   * Default duration of one wheel tick.
+   *
+   * @since 1.2.2
+   */
+  public static final Duration DEFAULT_TICK = Duration.ofMillis(10L);
+
+  /**
+   * Default number of wheel buckets.
+   *
+   * @since 1.2.2
+   */
+  public static final int DEFAULT_WHEEL_SIZE = 512;
+
+  private static final AtomicLong THREAD_COUNTER = new AtomicLong();
+
+  private final long tickInNanoseconds;
+  private final Ticket[] wheel;
+  private final int mask;
+  private final long startTimeInNanoseconds;
+  private final Queue<Ticket> incoming = new ConcurrentLinkedQueue<>();
+  private final AtomicBoolean disposed = new AtomicBoolean();
+  private final AtomicLong firedCounter = new AtomicLong();
+  private final StallSampler sampler;
+  private final Thread worker;
+  private Ticket rescheduled;
+
+  /**
+   * Constructor of watchdog with default tick and wheel size.
+   *
+   * @see #DEFAULT_TICK
+   * @see #DEFAULT_WHEEL_SIZE
+   * @since 1.2.2
+   */
+  public TimeGuardWatchdog() {
+    this(DEFAULT_TICK, DEFAULT_WHEEL_SIZE);
+  }
+
+  /**
+   * Constructor. The worker thread is started immediately.
+   *
+   * @param tick      duration of one wheel tick, it defines precision of the watchdog
+   * @param wheelSize number of buckets in the wheel, it will be rounded up to power of two
+   * @since 1.2.2
+   */
+  public TimeGuardWatchdog(@Nonnull final Duration tick,
+                           @Constraint("X>0") final int wheelSize) {
+    this(tick, wheelSize, null);
+  }
+
+  /**
+   * Constructor. The worker thread is started immediately.
+   *
+   * @param tick      duration of one wheel tick, it defines precision of the watchdog
+   * @param wheelSize number of buckets in the wheel, it will be rounded up to power of two
+   * @param sampler   stack sampler for guards close to deadline, can be null
+   * @since 1.2.2
+   */
+  public TimeGuardWatchdog(@Nonnull final Duration tick,
+                           @Constraint("X>0") final int wheelSize,
+                           @Nullable final StallSampler sampler) {
+    this.sampler = sampler;
+    this.tickInNanoseconds = Math.max(1L, assertNotNull(tick).toNanos());
+    if (wheelSize <= 0 || wheelSize > (1 << 30)) {
+      throw new IllegalArgumentException("Wrong wheel size: " + wheelSize);
+    }
+    final int size = Integer.highestOneBit(wheelSize) == wheelSize ? wheelSize :
+        Integer.highestOneBit(wheelSize) << 1;
+    this.wheel = new Ticket[size];
+    this.mask = size - 1;
+    this.startTimeInNanoseconds = System.nanoTime();
+    this.worker = new Thread(this::work, "TimeGuardWatchdog-" + THREAD_COUNTER.incrementAndGet());
+    this.worker.setDaemon(true);
+    this.worker.start();
+  }
+
+  /**
+   * Get number of guards reported by the watchdog.
+   *
+   * @return number of reported guards
+   * @since 1.2.2
+   */
+  public long getFiredCount() {
+    return this.firedCounter.get();
+  }
+
+  /**
+   * Get stack sampler of the watchdog.
+   *
+   * @return the sampler, can be null
+   * @since 1.2.2
+   */
+  @Nullable
+  public StallSampler getStallSampler() {
+    return this.sampler;
+  }
+
+  @Override
+  public boolean isDisposed() {
+    return this.disposed.get();
+  }
+
+  /**
+   * Stop the worker thread. All not reported guards are ignored.
+   */
+  @Override
+  public void dispose() {
+    if (this.disposed.compareAndSet(false, true)) {
+      LockSupport.unpark(this.worker);
+    }
+  }
+
+  /**
+   * Start watching for a guard.
+   *
+   * @param alertMessage                 alert message of the guard
+   * @param maxAllowedDelayInNanoseconds max allowed delay in nanoseconds
+   * @param alertListener                listener to be notified
+   * @param stackDepth                   stack depth or level of the guard
+   * @param startTimeInNanoseconds       start time of the guard
+   * @return ticket to cancel watching, null if the watchdog is disposed
+   */
+  @Nullable
+  @Weight(Weight.Unit.LIGHT)
+  Ticket watch(@Nullable final String alertMessage, final long maxAllowedDelayInNanoseconds,
+               @Nonnull final TimeGuard.TimeAlertListener alertListener, final int stackDepth,
+               final long startTimeInNanoseconds) {
+    if (this.disposed.get()) {
+      return null;
+    }
+    final Ticket result =
+        new Ticket(alertMessage, maxAllowedDelayInNanoseconds, alertListener, stackDepth,
+            startTimeInNanoseconds);
+    final StallSampler currentSampler = this.sampler;
+    if (currentSampler != null) {
+      final long firstSample = currentSampler.firstSampleTime(startTimeInNanoseconds,
+          Math.min(maxAllowedDelayInNanoseconds, Long.MAX_VALUE >> 1));
+      if (firstSample - result.deadlineInNanoseconds < 0L) {
+        result.thread = Thread.currentThread();
+        result.wakeTimeInNanoseconds = firstSample;
+      }
+    }
+    this.incoming.offer(result);
+    return result;
+  }
+
+  private void work() {
+    long tick = 0L;
+    while (!this.disposed.get()) {
+      final long tickDeadline = this.startTimeInNanoseconds + (tick + 1L) * this.tickInNanoseconds;
+      long sleep;
+      while ((sleep = tickDeadline - System.nanoTime()) > 0L && !this.disposed.get()) {
+        LockSupport.parkNanos(this, sleep);
+      }
+      if (this.disposed.get()) {
+        break;
+      }
+      transferIncoming(tick);
+      expireBucket((int) (tick & this.mask), System.nanoTime());
+      tick++;
+      transferRescheduled(tick);
+    }
+    this.incoming.clear();
+  }
+
+  private void transferIncoming(final long currentTick) {
+    Ticket ticket;
+    while ((ticket = this.incoming.poll()) != null) {
+      if (ticket.state == Ticket.STATE_PENDING) {
+        schedule(ticket, currentTick);
+      }
+    }
+  }
+
+  private void transferRescheduled(final long currentTick) {
+    Ticket ticket = this.rescheduled;
+    this.rescheduled = null;
+    while (ticket != null) {
+      final Ticket next = ticket.next;
+      schedule(ticket, currentTick);
+      ticket = next;
+    }
+  }
+
+  private void schedule(@Nonnull final Ticket ticket, final long currentTick) {
+    final long calculated =
+        (ticket.wakeTimeInNanoseconds - this.startTimeInNanoseconds) / this.tickInNanoseconds;
+    ticket.remainingRounds = Math.max(0L, (calculated - currentTick) / this.wheel.length);
+    final int index = (int) (Math.max(calculated, currentTick) & this.mask);
+    ticket.next = this.wheel[index];
+    this.wheel[index] = ticket;
+  }
+
+  private void expireBucket(final int index, final long time) {
+    Ticket previous = null;
+    Ticket ticket = this.wheel[index];
+    while (ticket != null) {
+      final Ticket next = ticket.next;
+      boolean remove = false;
+      boolean reschedule = false;
+      if (ticket.state != Ticket.STATE_PENDING) {
+        remove = true;
+      } else if (ticket.remainingRounds <= 0L) {
+        if (ticket.deadlineInNanoseconds - time <= 0L) {
+          remove = true;
+          if (ticket.fire()) {
+            this.firedCounter.incrementAndGet();
+            notifyViolation(ticket, time - ticket.startTimeInNanoseconds);
+          }
+        } else if (ticket.wakeTimeInNanoseconds - time <= 0L) {
+          remove = true;
+          reschedule = true;
+          sample(ticket, time);
+        }
+      } else {
+        ticket.remainingRounds--;
+      }
+      if (remove) {
+        ticket.next = null;
+        if (previous == null) {
+          this.wheel[index] = next;
+        } else {
+          previous.next = next;
+        }
+        if (reschedule) {
+          ticket.next = this.rescheduled;
+          this.rescheduled = ticket;
+        }
+      } else {
+        previous = ticket;
+      }
+      ticket = next;
+    }
+  }
+
+  private void sample(@Nonnull final Ticket ticket, final long time) {
+    final StallSampler currentSampler = this.sampler;
+    if (currentSampler.tryAcquire(time)) {
+      try {
+        final StackTraceElement[] stack = ticket.thread.getStackTrace();
+        if (ticket.state == Ticket.STATE_PENDING && stack.length > 0) {
+          if (ticket.samples == null) {
+            ticket.samples = new StackProfile.Builder();
+          }
+          ticket.samples.add(stack);
+          ticket.profile = ticket.samples.build();
+        }
+      } catch (SecurityException ex) {
+        ticket.sampleCounter = currentSampler.getMaxSamplesPerGuard();
+      }
+    }
+    if (++ticket.sampleCounter >= currentSampler.getMaxSamplesPerGuard()) {
+      ticket.wakeTimeInNanoseconds = ticket.deadlineInNanoseconds;
+      ticket.thread = null;
+    } else {
+      final long nextWake = time + currentSampler.getIntervalInNanoseconds();
+      ticket.wakeTimeInNanoseconds =
+          nextWake - ticket.deadlineInNanoseconds < 0L ? nextWake : ticket.deadlineInNanoseconds;
+    }
+  }
+
+  private static void notifyViolation(@Nonnull final Ticket ticket,
+                                      final long detectedDelayInNanoseconds) {
+    ticket.thread = null;
+    try {
+      TimeGuard.notifyTimeViolation(detectedDelayInNanoseconds,
+          new TimeGuard.TimeData(ticket.stackDepth, ticket.alertMessage,
+              ticket.maxAllowedDelayInNanoseconds, ticket.alertListener,
+              System.currentTimeMillis() -
+                  TimeUnit.NANOSECONDS.toMillis(detectedDelayInNanoseconds),
+              ticket.startTimeInNanoseconds, ticket.profile));
+    } catch (Throwable ex) {
+      final UnexpectedProcessingError error =
+          new UnexpectedProcessingError("Error during watchdog time alert processing", ex);
+      try {
+        MetaErrorListeners.fireError(error.getMessage(), error);
+      } catch (Throwable ignored) {
+        // the worker thread must not be stopped by listeners
+      }
+    }
+  }
+
+  /**
+   * Watching ticket for a guard, it is processed by the watchdog thread.
+   */
+  static final class Ticket {
+
+    static final int STATE_PENDING = 0;
+    static final int STATE_CANCELLED = 1;
+    static final int STATE_FIRED = 2;
+
+    private static final AtomicIntegerFieldUpdater<Ticket> STATE =
+        AtomicIntegerFieldUpdater.newUpdater(Ticket.class, "state");
+
+    final String alertMessage;
+    final long maxAllowedDelayInNanoseconds;
+    final TimeGuard.TimeAlertListener alertListener;
+    final int stackDepth;
+    final long startTimeInNanoseconds;
+    final long deadlineInNanoseconds;
+
+    volatile int state;
+    volatile StackProfile profile;
+    Ticket next;
+    long remainingRounds;
+    long wakeTimeInNanoseconds;
+    Thread thread;
+    StackProfile.Builder samples;
+    int sampleCounter;
+
+    private Ticket(@Nullable final String alertMessage, final long maxAllowedDelayInNanoseconds,
+                   @Nonnull final TimeGuard.TimeAlertListener alertListener, final int stackDepth,
+                   final long startTimeInNanoseconds) {
+      this.alertMessage = alertMessage;
+      this.maxAllowedDelayInNanoseconds = maxAllowedDelayInNanoseconds;
+      this.alertListener = alertListener;
+      this.stackDepth = stackDepth;
+      this.startTimeInNanoseconds = startTimeInNanoseconds;
+      // saturated delay must not overflow deadline
+      this.deadlineInNanoseconds =
+          startTimeInNanoseconds + Math.min(maxAllowedDelayInNanoseconds, Long.MAX_VALUE >> 1) + 1L;
+      this.wakeTimeInNanoseconds = this.deadlineInNanoseconds;
+    }
+
+    /**
+     * Cancel watching.
+     *
+     * @return true if cancelled, false if the ticket has been already fired or cancelled
+     */
+    boolean cancel() {
+      return STATE.compareAndSet(this, STATE_PENDING, STATE_CANCELLED);
+    }
+
+    private boolean fire() {
+      return STATE.compareAndSet(this, STATE_PENDING, STATE_FIRED);
+    }
+  }
+}
@@ -0,0 +1,180 @@
+/*
+ * Copyright 2026 Igor Maznitsa.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.igormaznitsa.meta.common.utils;
+
+import com.igormaznitsa.meta.annotation.Weight;
+import java.time.Duration;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.ThreadSafe;
+
+/**
+ * Time alert listener aggregating detected delays into latency histograms keyed by alert message of time data (name of time point). Threads record into fixed number of
+ * striped histograms chosen by thread ID, so that memory doesn't depend on number of recording threads, stripes are merged into snapshot for request. After warm-up recording
+ * doesn't allocate anything.
+ * <pre>
+ * TimePointRecorder recorder = new TimePointRecorder();
+ * TimeGuard.addPoint("db.query", recorder);
+ * ...
+ * TimeGuard.checkPoint("db.query");
+ * recorder.snapshot("db.query").getP99();
+ * </pre>
+ * Deserialized recorder is empty.
+ *
+ * @see LatencyHistogram
+ * @see TimeGuard#addPoint(String, TimeGuard.TimeAlertListener)
+ * @since 1.2.2
+ */
+@ThreadSafe
+@Weight(Weight.Unit.LIGHT)
+public final class TimePointRecorder implements TimeGuard.TimeAlertListener {
+
+  private static final long serialVersionUID = -3190841709276117532L;
+  private static final int STRIPES =
+      Math.min(16, Integer.highestOneBit(Runtime.getRuntime().availableProcessors() * 2 - 1) << 1);
+
+  private final transient ConcurrentMap<String, Series> series = new ConcurrentHashMap<>();
+
+  @Override
+  public void onTimeAlert(final long detectedTimeDelayInMilliseconds,
+                          @Nonnull final TimeGuard.TimeData timeData) {
+    record(timeData.getAlertMessage(),
+        TimeUnit.MILLISECONDS.toNanos(detectedTimeDelayInMilliseconds));
+  }
+
+  @Override
+  public void onTimeAlert(@Nonnull final Duration detectedTimeDelay,
+                          @Nonnull final TimeGuard.TimeData timeData) {
+    record(timeData.getAlertMessage(), detectedTimeDelay.toNanos());
+  }
+
+  /**
+   * Record value for name directly.
+   *
+   * @param name               name of series, null is recorded as empty string
+   * @param valueInNanoseconds value in nanoseconds
+   * @since 1.2.2
+   */
+  @Weight(Weight.Unit.EXTRALIGHT)
+  public void record(@Nullable final String name, final long valueInNanoseconds) {
+    final String key = name == null ? "" : name;
+    Series found = this.series.get(key);
+    if (found == null) {
+      found = this.series.computeIfAbsent(key, k -> new Series());
+    }
+    found.stripe().record(valueInNanoseconds);
+  }
+
+  /**
+   * Get names of all recorded series.
+   *
+   * @return set of names
+   * @since 1.2.2
+   */
+  @Nonnull
+  public Set<String> getNames() {
+    return this.series.keySet();
+  }
+
+  /**
+   * Make merged snapshot for name.
+   *
+   * @param name name of series
+   * @return merged snapshot of all threads, empty one if there is no such series
+   * @since 1.2.2
+   */
+  @Nonnull
+  @Weight(Weight.Unit.NORMAL)
+  public LatencyHistogram.Snapshot snapshot(@Nullable final String name) {
+    final Series found = this.series.get(name == null ? "" : name);
+    return found == null ? LatencyHistogram.Snapshot.EMPTY : found.snapshot();
+  }
+
+  /**
+   * Make merged snapshots for all series.
+   *
+   * @return map of snapshots sorted by name
+   * @since 1.2.2
+   */
+  @Nonnull
+  @Weight(Weight.Unit.NORMAL)
+  public Map<String, LatencyHistogram.Snapshot> snapshots() {
+    final Map<String, LatencyHistogram.Snapshot> result = new TreeMap<>();
+    this.series.forEach((name, found) -> result.put(name, found.snapshot()));
+    return result;
+  }
+
+  /**
+   * Reset recorded values of all series.
+   *
+   * @since 1.2.2
+   */
+  public void reset() {
+    this.series.values().forEach(Series::reset);
+  }
+
+  private Object readResolve() {
+    return new TimePointRecorder();
+  }
+
+  private static final class Series {
+
+    private final AtomicReferenceArray<LatencyHistogram> stripes =
+        new AtomicReferenceArray<>(STRIPES);
+
+    @Nonnull
+    private LatencyHistogram stripe() {
+      final int index =
+          (int) ((Thread.currentThread().getId() * 0x9E3779B97F4A7C15L) >>> 32) & (STRIPES - 1);
+      LatencyHistogram result = this.stripes.get(index);
+      if (result == null) {
+        final LatencyHistogram created = new LatencyHistogram();
+        result = this.stripes.compareAndSet(index, null, created) ? created :
+            this.stripes.get(index);
+      }
+      return result;
+    }
+
+    private void reset() {
+      for (int i = 0; i < STRIPES; i++) {
+        final LatencyHistogram histogram = this.stripes.get(i);
+        if (histogram != null) {
+          histogram.reset();
+        }
+      }
+    }
+
+    @Nonnull
+    private LatencyHistogram.Snapshot snapshot() {
+      LatencyHistogram.Snapshot result = LatencyHistogram.Snapshot.EMPTY;
+      for (int i = 0; i < STRIPES; i++) {
+        final LatencyHistogram histogram = this.stripes.get(i);
+        if (histogram != null) {
+          result = result.merge(histogram.snapshot());
+        }
+      }
+      return result;
+    }
+  }
+}
@@ -16,6 +16,12 @@
 package com.igormaznitsa.meta.common.exceptions;
 
 import com.igormaznitsa.meta.common.utils.TimeGuard;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.time.Duration;
+import java.util.Base64;
 import org.junit.Test;
 import static org.junit.Assert.*;
 
@@ -30,5 +36,68 @@ public class TimeViolationErrorTest {
     assertEquals(1234L, error.getDetectedTimeInMilliseconds());
     assertEquals(1234L-6789L, error.getDetectedViolationInMilliseconds());
   }
+
+  @Test
+  public void testConstructorAndGetters_Duration () {
+    final TimeGuard.TimeData data = new TimeGuard.TimeData(334,"msg", Duration.ofNanos(1000L), null);
+    final TimeViolationError error = new TimeViolationError(Duration.ofNanos(1500L), data);
+    assertEquals(Duration.ofNanos(1500L), error.getDetectedTime());
+    assertEquals(Duration.ofNanos(500L), error.getDetectedViolation());
+    assertEquals(0L, error.getDetectedTimeInMilliseconds());
+  }
   
+  // TimeViolationError(175L, new TimeData(5, "alert", 150L, null)) serialized by version 1.2.1
+  private static final String SERIALIZED_1_2_1 = "rO0ABXNyADpjb20uaWdvcm1hem5pdHNhLm1ldGEuY29tbW9uLmV4Y2VwdGlvbnMuVGltZVZpb2xhdGlvbkVycm9yf1RpKrp8zw0C"
+      + "AAJKABpkZXRlY3RlZFRpbWVJbk1pbGxpc2Vjb25kc0wABGl0ZW10ADdMY29tL2lnb3JtYXpuaXRzYS9tZXRhL2NvbW1vbi91dGls"
+      + "cy9UaW1lR3VhcmQkVGltZURhdGE7eHIAGGphdmEubGFuZy5Bc3NlcnRpb25FcnJvcrptLqv9QT3mAgAAeHIAD2phdmEubGFuZy5F"
+      + "cnJvckUdNlaLgg5WAgAAeHIAE2phdmEubGFuZy5UaHJvd2FibGXVxjUnOXe4ywMABEwABWNhdXNldAAVTGphdmEvbGFuZy9UaHJv"
+      + "d2FibGU7TAANZGV0YWlsTWVzc2FnZXQAEkxqYXZhL2xhbmcvU3RyaW5nO1sACnN0YWNrVHJhY2V0AB5bTGphdmEvbGFuZy9TdGFj"
+      + "a1RyYWNlRWxlbWVudDtMABRzdXBwcmVzc2VkRXhjZXB0aW9uc3QAEExqYXZhL3V0aWwvTGlzdDt4cHEAfgAJdAAFYWxlcnR1cgAe"
+      + "W0xqYXZhLmxhbmcuU3RhY2tUcmFjZUVsZW1lbnQ7AkYqPDz9IjkCAAB4cAAAAAFzcgAbamF2YS5sYW5nLlN0YWNrVHJhY2VFbGVt"
+      + "ZW50YQnFmiY23YUCAAhCAAZmb3JtYXRJAApsaW5lTnVtYmVyTAAPY2xhc3NMb2FkZXJOYW1lcQB+AAZMAA5kZWNsYXJpbmdDbGFz"
+      + "c3EAfgAGTAAIZmlsZU5hbWVxAH4ABkwACm1ldGhvZE5hbWVxAH4ABkwACm1vZHVsZU5hbWVxAH4ABkwADW1vZHVsZVZlcnNpb25x"
+      + "AH4ABnhwAQAAAAh0AANhcHB0AANHZW50AAhHZW4uamF2YXQABG1haW5wcHNyAB9qYXZhLnV0aWwuQ29sbGVjdGlvbnMkRW1wdHlM"
+      + "aXN0ergXtDynnt4CAAB4cHgAAAAAAAAAr3NyADVjb20uaWdvcm1hem5pdHNhLm1ldGEuY29tbW9uLnV0aWxzLlRpbWVHdWFyZCRU"
+      + "aW1lRGF0Yd5zncNch37YAgAFSgAaY3JlYXRpb25UaW1lSW5NaWxsaXNlY29uZHNKAB1tYXhBbGxvd2VkRGVsYXlJbk1pbGxpc2Vj"
+      + "b25kc0kACnN0YWNrRGVwdGhMAA1hbGVydExpc3RlbmVydABATGNvbS9pZ29ybWF6bml0c2EvbWV0YS9jb21tb24vdXRpbHMvVGlt"
+      + "ZUd1YXJkJFRpbWVBbGVydExpc3RlbmVyO0wADGFsZXJ0TWVzc2FnZXEAfgAGeHAAAAGhSMG9XQAAAAAAAACWAAAABXNyAC5jb20u"
+      + "aWdvcm1hem5pdHNhLm1ldGEuY29tbW9uLnV0aWxzLlRpbWVHdWFyZCQx4DQU8mXe/DQCAAB4cHEAfgAK";
+
+  private static Object deserialize(final byte[] data) throws Exception {
+    try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(data))) {
+      return in.readObject();
+    }
+  }
+
+  @Test
+  public void testDeserializeFromPreviousVersion() throws Exception {
+    final TimeViolationError error =
+        (TimeViolationError) deserialize(Base64.getDecoder().decode(SERIALIZED_1_2_1));
+    assertEquals(175L, error.getDetectedTimeInMilliseconds());
+    assertEquals(Duration.ofMillis(175L), error.getDetectedTime());
+    assertEquals(150L, error.getData().getMaxAllowedDelayInMilliseconds());
+    assertEquals(Duration.ofMillis(150L).toNanos(), error.getData().getMaxAllowedDelayInNanoseconds());
+    assertEquals(25L, error.getDetectedViolationInMilliseconds());
+    assertEquals("alert", error.getData().getAlertMessage());
+    assertEquals(5, error.getData().getDetectedStackDepth());
+    assertFalse(error.getData().isTimePoint());
+    assertNull(error.getData().getMaxAllowedCpuTime());
+    assertEquals(-1L, error.getData().getDetectedAllocatedBytes());
+    assertNotNull(error.getData().getAlertListener());
+  }
+
+  @Test
+  public void testSerializationRoundTrip() throws Exception {
+    final TimeGuard.TimeData data = new TimeGuard.TimeData(7, "round", Duration.ofNanos(1_500_000L), null);
+    final ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+    try (ObjectOutputStream out = new ObjectOutputStream(buffer)) {
+      out.writeObject(new TimeViolationError(Duration.ofNanos(2_250_000L), data));
+    }
+    final TimeViolationError error = (TimeViolationError) deserialize(buffer.toByteArray());
+    assertEquals(Duration.ofNanos(2_250_000L), error.getDetectedTime());
+    assertEquals(1_500_000L, error.getData().getMaxAllowedDelayInNanoseconds());
+    assertEquals(data.getCreationTimeInNanoseconds(), error.getData().getCreationTimeInNanoseconds());
+    assertEquals("round", error.getData().getAlertMessage());
+  }
+
 }
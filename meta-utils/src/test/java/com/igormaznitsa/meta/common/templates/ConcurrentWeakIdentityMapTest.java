@@ -0,0 +1,118 @@
+/*
+ * Copyright 2026 Igor Maznitsa.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.igormaznitsa.meta.common.templates;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.Test;
+
+public class ConcurrentWeakIdentityMapTest {
+
+  private static final class EqualKey {
+
+    @Override
+    public boolean equals(final Object that) {
+      return that instanceof EqualKey;
+    }
+
+    @Override
+    public int hashCode() {
+      return 1;
+    }
+  }
+
+  @Test
+  public void testIdentityKeys() {
+    final ConcurrentWeakIdentityMap<Object, String> map = new ConcurrentWeakIdentityMap<>();
+    final EqualKey first = new EqualKey();
+    final EqualKey second = new EqualKey();
+    map.put(first, "first");
+    map.put(second, "second");
+    assertEquals(2, map.size());
+    assertEquals("first", map.get(first));
+    assertEquals("second", map.get(second));
+    assertNull(map.get(new EqualKey()));
+    assertEquals("first", map.put(first, "third"));
+    assertEquals("third", map.remove(first));
+    assertNull(map.get(first));
+    assertEquals(1, map.size());
+  }
+
+  @Test
+  public void testCollectedKeysAreRemoved() throws Exception {
+    final ConcurrentWeakIdentityMap<Object, String> map = new ConcurrentWeakIdentityMap<>();
+    final Object kept = new Object();
+    map.put(kept, "kept");
+    for (int i = 0; i < 1000; i++) {
+      map.put(new Object(), "lost");
+    }
+    for (int i = 0; i < 100 && map.size() > 1; i++) {
+      System.gc();
+      Thread.sleep(10L);
+    }
+    assertEquals(1, map.size());
+    assertEquals(1, map.values().size());
+    assertSame("kept", map.get(kept));
+  }
+
+  @Test
+  public void testConcurrentAccess() throws Exception {
+    final ConcurrentWeakIdentityMap<Object, Integer> map = new ConcurrentWeakIdentityMap<>();
+    final int threads = 8;
+    final int perThread = 5000;
+    final CountDownLatch start = new CountDownLatch(1);
+    final AtomicInteger errors = new AtomicInteger();
+    final List<Object> keys = new ArrayList<>();
+    final List<Thread> workers = new ArrayList<>();
+    for (int t = 0; t < threads; t++) {
+      final List<Object> own = new ArrayList<>();
+      for (int i = 0; i < perThread; i++) {
+        own.add(new Object());
+      }
+      keys.addAll(own);
+      final Thread worker = new Thread(() -> {
+        try {
+          start.await();
+          for (int i = 0; i < own.size(); i++) {
+            map.put(own.get(i), i);
+            if (map.get(own.get(i)) != i) {
+              errors.incrementAndGet();
+            }
+          }
+        } catch (InterruptedException ex) {
+          errors.incrementAndGet();
+        }
+      });
+      worker.start();
+      workers.add(worker);
+    }
+    start.countDown();
+    for (final Thread worker : workers) {
+      worker.join();
+    }
+    assertEquals(0, errors.get());
+    assertEquals(threads * perThread, map.size());
+    assertEquals(keys.size(), map.values().size());
+  }
+}
@@ -0,0 +1,132 @@
+/*
+ * Copyright 2026 Igor Maznitsa.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.igormaznitsa.meta.common.templates;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import org.junit.After;
+import org.junit.Test;
+
+public class CreationCensusTest {
+
+  private static final class Alpha extends KeepCreationPointTemplate {
+
+    private static final long serialVersionUID = 3815740276519087310L;
+
+  }
+
+  private static final class Beta extends KeepCreationPointTemplate {
+
+    private static final long serialVersionUID = -6722209419185027633L;
+
+  }
+
+  private static final class Gamma extends KeepCreationPointTemplate {
+
+    private static final long serialVersionUID = 5294061839170382465L;
+
+  }
+
+  private final List<Object> kept = new ArrayList<>();
+
+  @After
+  public void after() {
+    CreationPointMonitor.unregister();
+    this.kept.clear();
+  }
+
+  private static CreationCensus.Entry find(final CreationCensus census, final Class<?> type) {
+    CreationCensus.Entry result = null;
+    for (final CreationCensus.Entry entry : census.getEntries()) {
+      if (entry.getClassName().equals(type.getName())) {
+        assertNull("Only one site is expected", result);
+        result = entry;
+      }
+    }
+    return result;
+  }
+
+  @Test
+  public void testCensusGroupsByClassAndSite() {
+    for (int i = 0; i < 25; i++) {
+      this.kept.add(new Alpha());
+    }
+    for (int i = 0; i < 7; i++) {
+      this.kept.add(new Beta());
+    }
+    final CreationCensus census = KeepCreationPointTemplate.census();
+    final CreationCensus.Entry alpha = find(census, Alpha.class);
+    final CreationCensus.Entry beta = find(census, Beta.class);
+    assertNotNull(alpha);
+    assertNotNull(beta);
+    assertEquals(25, alpha.getCount());
+    assertEquals(7, beta.getCount());
+    assertTrue(census.getEntries().indexOf(alpha) < census.getEntries().indexOf(beta));
+    assertTrue(census.getInstanceCount() >= 32);
+    assertTrue(census.getClassCount() >= 2);
+    assertTrue(census.getSiteCount() >= 2);
+    assertEquals("testCensusGroupsByClassAndSite", alpha.getCallTrace().getFrames(1)[0].getMethodName());
+
+    final String text = census.toText(Integer.MAX_VALUE, 1);
+    assertTrue(text.startsWith("Creation census: "));
+    assertTrue(text.contains(" 25 " + Alpha.class.getName() + "\n    at "));
+
+    final String json = census.toJson(1, 2);
+    assertTrue(json.startsWith("{\"time\":"));
+    assertTrue(json.endsWith("]}]}"));
+    assertTrue(json.contains("\"entries\":[{\"class\":\""));
+  }
+
+  @Test
+  public void testNegativeMaxEntries() {
+    this.kept.add(new Gamma());
+    final CreationCensus census = KeepCreationPointTemplate.census();
+    final int size = census.getEntries().size();
+    assertTrue(census.toText(-1, 1).endsWith("\n... " + size + " more"));
+    assertTrue(census.toJson(-1, 1).endsWith(",\"entries\":[]}"));
+  }
+
+  @Test
+  public void testMonitor() throws Exception {
+    for (int i = 0; i < 5; i++) {
+      this.kept.add(new Alpha());
+    }
+    new CreationPointMonitor().register();
+    final MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+    final ObjectName name = new ObjectName(CreationPointMonitor.OBJECT_NAME);
+    assertTrue(server.isRegistered(name));
+    assertTrue((Integer) server.getAttribute(name, "TrackedInstanceCount") >= 5);
+    final String text = (String) server.invoke(name, "censusAsText", new Object[] {10, 2},
+        new String[] {int.class.getName(), int.class.getName()});
+    assertTrue(text.contains(Alpha.class.getName()));
+    final String json = (String) server.invoke(name, "censusAsJson", new Object[] {10, 2},
+        new String[] {int.class.getName(), int.class.getName()});
+    assertTrue(json.contains(Alpha.class.getName()));
+    CreationPointMonitor.unregister();
+    assertFalse(server.isRegistered(name));
+  }
+}
@@ -15,6 +15,9 @@
  */
 package com.igormaznitsa.meta.common.templates;
 
+import com.igormaznitsa.meta.common.utils.CallTrace;
+import java.util.ArrayList;
+import java.util.List;
 import org.junit.Test;
 import static org.junit.Assert.*;
 
@@ -30,7 +33,7 @@ public class KeepCreationPointTemplateTest {
   public void testCreateInstance() {
     final KCPTest t = new KCPTest();
     final String [] parsed = t.getCreationPoint().toString().split("\n");
-    assertTrue(parsed[1].contains("KeepCreationPointTemplateTest") && parsed[1].contains("testCreateInstance") && parsed[1].contains(":31"));
+    assertTrue(parsed[1].contains("KeepCreationPointTemplateTest") && parsed[1].contains("testCreateInstance") && parsed[1].contains(":34"));
   }
 
   private static KCPTest _make() {
@@ -41,7 +44,141 @@ public class KeepCreationPointTemplateTest {
   public void testCreateInstance_2() {
     final KCPTest t = _make();
     final String[] parsed = t.getCreationPoint().toString().split("\n");
-    assertTrue(parsed[1].contains("KeepCreationPointTemplateTest") && parsed[1].contains("_make") && parsed[1].contains(":37"));
+    assertTrue(parsed[1].contains("KeepCreationPointTemplateTest") && parsed[1].contains("_make") && parsed[1].contains(":40"));
+  }
+
+  private static final class SiteTest extends KeepCreationPointTemplate {
+
+    private static final long serialVersionUID = -1873466201239875611L;
+
+  }
+
+  private static SiteTest _makeSite() {
+    return new SiteTest();
+  }
+
+  @Test
+  public void testCreationSites() {
+    final List<SiteTest> first = new ArrayList<>();
+    final List<SiteTest> second = new ArrayList<>();
+    for (int i = 0; i < 30; i++) {
+      first.add(_makeSite());
+    }
+    for (int i = 0; i < 10; i++) {
+      second.add(new SiteTest());
+    }
+    assertTrue(first.get(0).getCreationPoint().isSameSite(first.get(29).getCreationPoint()));
+    assertFalse(first.get(0).getCreationPoint().isSameSite(second.get(0).getCreationPoint()));
+
+    CreationSite firstSite = null;
+    CreationSite secondSite = null;
+    for (final CreationSite site : KeepCreationPointTemplate.getCreationSites()) {
+      if (site.getCallTrace().isSameSite(first.get(0).getCreationPoint())) {
+        firstSite = site;
+      } else if (site.getCallTrace().isSameSite(second.get(0).getCreationPoint())) {
+        secondSite = site;
+      }
+    }
+    assertNotNull(firstSite);
+    assertNotNull(secondSite);
+    assertEquals(30, firstSite.getLiveCount());
+    assertEquals(10, secondSite.getLiveCount());
+  }
+
+  @Test
+  public void testInstancesOfSameSiteShareEncodedFrames() {
+    assertNull(CallTrace.getCompactor());
+    final List<SiteTest> created = new ArrayList<>();
+    for (int i = 0; i < 2; i++) {
+      created.add(new SiteTest());
+    }
+    final CallTrace first = created.get(0).getCreationPoint();
+    final CallTrace second = created.get(1).getCreationPoint();
+    assertTrue(first.isCompacted());
+    assertTrue(second.isCompacted());
+    assertTrue(first.isSameSite(second));
+    assertEquals(first.getFingerprint(), second.getFingerprint());
+  }
+
+  private static class PolicyTest extends KeepCreationPointTemplate {
+
+    private static final long serialVersionUID = 6152308741126640931L;
+
+  }
+
+  private static final class PolicyTestChild extends PolicyTest {
+
+    private static final long serialVersionUID = -2209867461359372285L;
+
+  }
+
+  @Test
+  public void testPolicyOff() {
+    KeepCreationPointTemplate.setCapturePolicy(PolicyTest.class, CreationPointPolicy.off());
+    try {
+      final PolicyTest test = new PolicyTestChild();
+      assertSame(CallTrace.NOT_SAMPLED, test.getCreationPoint());
+      assertFalse(test.getCreationPoint().isSampled());
+      assertTrue(new KCPTest().getCreationPoint().isSampled());
+    } finally {
+      KeepCreationPointTemplate.setCapturePolicy(PolicyTest.class, null);
+    }
+    assertSame(KeepCreationPointTemplate.getDefaultCapturePolicy(), KeepCreationPointTemplate.getCapturePolicy(PolicyTestChild.class));
+  }
+
+  @Test
+  public void testPolicyFirstPerSite() {
+    final CreationPointPolicy policy = CreationPointPolicy.firstPerSite(3);
+    KeepCreationPointTemplate.setCapturePolicy(PolicyTest.class, policy);
+    try {
+      final List<PolicyTest> created = new ArrayList<>();
+      for (int i = 0; i < 10; i++) {
+        created.add(new PolicyTest());
+      }
+      final PolicyTest other = new PolicyTest();
+      for (int i = 0; i < created.size(); i++) {
+        assertEquals(i < 3, created.get(i).getCreationPoint().isSampled());
+      }
+      assertTrue(other.getCreationPoint().isSampled());
+      assertEquals(4L, policy.getCapturedCount());
+      assertEquals(7L, policy.getSkippedCount());
+    } finally {
+      KeepCreationPointTemplate.setCapturePolicy(PolicyTest.class, null);
+    }
+  }
+
+  @Test
+  public void testPolicyOneIn() {
+    final CreationPointPolicy policy = CreationPointPolicy.oneIn(4);
+    KeepCreationPointTemplate.setCapturePolicy(PolicyTest.class, policy);
+    try {
+      int sampled = 0;
+      for (int i = 0; i < 4000; i++) {
+        if (new PolicyTest().getCreationPoint().isSampled()) {
+          sampled++;
+        }
+      }
+      assertTrue(sampled > 500 && sampled < 1500);
+      assertEquals(sampled, policy.getCapturedCount());
+      assertEquals(4000L - sampled, policy.getSkippedCount());
+    } finally {
+      KeepCreationPointTemplate.setCapturePolicy(PolicyTest.class, null);
+    }
+  }
+
+  @Test
+  public void testPolicyFrameLimitAndFilter() {
+    KeepCreationPointTemplate.setCapturePolicy(PolicyTest.class,
+        CreationPointPolicy.always().withMaxFrames(3).withExcludedPackages("com.igormaznitsa."));
+    try {
+      final CallTrace trace = new PolicyTest().getCreationPoint();
+      assertEquals(3, trace.getFrameCount());
+      for (final StackTraceElement element : trace.getFrames(Integer.MAX_VALUE)) {
+        assertFalse(element.getClassName().startsWith("com.igormaznitsa."));
+      }
+    } finally {
+      KeepCreationPointTemplate.setCapturePolicy(PolicyTest.class, null);
+    }
   }
 
 }
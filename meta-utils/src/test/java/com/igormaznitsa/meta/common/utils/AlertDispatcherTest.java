@@ -0,0 +1,189 @@
+/*
+ * Copyright 2026 Igor Maznitsa.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.igormaznitsa.meta.common.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertTrue;
+
+import com.igormaznitsa.meta.common.exceptions.MetaErrorListeners;
+import com.igormaznitsa.meta.common.exceptions.TimeViolationError;
+import com.igormaznitsa.meta.common.exceptions.UnexpectedProcessingError;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class AlertDispatcherTest {
+
+  @Before
+  public void before() {
+    MetaErrorListeners.clear();
+    TimeGuard.cancelAll();
+  }
+
+  @After
+  public void after() {
+    TimeGuard.setAlertDispatcher(null);
+    MetaErrorListeners.setAlertDispatcher(null);
+    MetaErrorListeners.clear();
+    TimeGuard.cancelAll();
+  }
+
+  @Test
+  public void testDeliveryFromManyProducers() throws Exception {
+    final AlertDispatcher dispatcher =
+        new AlertDispatcher(64, AlertDispatcher.OverflowPolicy.BLOCK, 1);
+    final AtomicInteger counter = new AtomicInteger();
+    final Thread[] producers = new Thread[4];
+    for (int i = 0; i < producers.length; i++) {
+      producers[i] = new Thread(() -> {
+        for (int j = 0; j < 10_000; j++) {
+          assertTrue(dispatcher.dispatch(counter::incrementAndGet));
+        }
+      });
+      producers[i].start();
+    }
+    for (final Thread producer : producers) {
+      producer.join();
+    }
+    dispatcher.dispose();
+    assertEquals(40_000, counter.get());
+    assertEquals(40_000L, dispatcher.getDeliveredCount());
+    assertEquals(0L, dispatcher.getDroppedCount());
+  }
+
+  @Test
+  public void testDropAndSample() throws Exception {
+    for (final AlertDispatcher.OverflowPolicy policy : new AlertDispatcher.OverflowPolicy[] {
+        AlertDispatcher.OverflowPolicy.DROP, AlertDispatcher.OverflowPolicy.SAMPLE}) {
+      final AlertDispatcher dispatcher = new AlertDispatcher(8, policy, 4);
+      final CountDownLatch blocker = new CountDownLatch(1);
+      final CountDownLatch started = new CountDownLatch(1);
+      dispatcher.dispatch(() -> {
+        started.countDown();
+        try {
+          blocker.await();
+        } catch (InterruptedException ex) {
+          Thread.currentThread().interrupt();
+        }
+      });
+      assertTrue(started.await(5L, TimeUnit.SECONDS));
+      int accepted = 0;
+      for (int i = 0; i < 10; i++) {
+        if (dispatcher.dispatch(() -> {
+        })) {
+          accepted++;
+        }
+      }
+      blocker.countDown();
+      dispatcher.dispose();
+      assertEquals(10L - accepted, dispatcher.getDroppedCount());
+      assertEquals(policy == AlertDispatcher.OverflowPolicy.DROP ? 8 : 6, accepted);
+      assertEquals(accepted + 1L, dispatcher.getDeliveredCount());
+    }
+  }
+
+  @Test
+  public void testTimeGuardAndErrorListenersOffThread() throws Exception {
+    final AlertDispatcher dispatcher = new AlertDispatcher();
+    TimeGuard.setAlertDispatcher(dispatcher);
+    MetaErrorListeners.setAlertDispatcher(dispatcher);
+    final CountDownLatch latch = new CountDownLatch(2);
+    final AtomicReference<Thread> listenerThread = new AtomicReference<>();
+    final AtomicReference<Thread> errorThread = new AtomicReference<>();
+    MetaErrorListeners.addErrorListener((text, error) -> {
+      assertTrue(error instanceof TimeViolationError);
+      errorThread.set(Thread.currentThread());
+      latch.countDown();
+    });
+    TimeGuard.addGuard("listener", 1L, (delay, data) -> {
+      listenerThread.set(Thread.currentThread());
+      latch.countDown();
+    });
+    TimeGuard.addGuard("global", 1L);
+    ThreadUtils.silentSleep(5L);
+    TimeGuard.check();
+    assertTrue(latch.await(5L, TimeUnit.SECONDS));
+    assertNotSame(Thread.currentThread(), listenerThread.get());
+    assertNotSame(Thread.currentThread(), errorThread.get());
+    dispatcher.dispose();
+    assertTrue(dispatcher.isDisposed());
+
+    final AtomicInteger counter = new AtomicInteger();
+    assertTrue(dispatcher.dispatch(counter::incrementAndGet));
+    assertEquals(1, counter.get());
+    assertFalse(dispatcher.isConsumerThread());
+  }
+
+  @Test
+  public void testFailedEventIsReported() throws Exception {
+    final AlertDispatcher dispatcher = new AlertDispatcher();
+    final CountDownLatch latch = new CountDownLatch(1);
+    final AtomicReference<Throwable> reported = new AtomicReference<>();
+    MetaErrorListeners.addErrorListener((text, error) -> {
+      reported.set(error);
+      latch.countDown();
+    });
+    assertTrue(dispatcher.dispatch(() -> {
+      throw new StackOverflowError("event");
+    }));
+    assertTrue(latch.await(5L, TimeUnit.SECONDS));
+    dispatcher.dispose();
+    assertTrue(reported.get() instanceof UnexpectedProcessingError);
+    assertTrue(reported.get().getCause() instanceof StackOverflowError);
+    assertEquals(1L, dispatcher.getFailedCount());
+    assertEquals(0L, dispatcher.getDeliveredCount());
+  }
+
+  @Test
+  public void testAcceptedEventsAreExecutedDuringDispose() throws Exception {
+    for (int round = 0; round < 200; round++) {
+      final AlertDispatcher dispatcher =
+          new AlertDispatcher(1024, AlertDispatcher.OverflowPolicy.DROP, 1);
+      final AtomicInteger accepted = new AtomicInteger();
+      final AtomicInteger executed = new AtomicInteger();
+      final CountDownLatch start = new CountDownLatch(1);
+      final Thread[] producers = new Thread[2];
+      for (int i = 0; i < producers.length; i++) {
+        producers[i] = new Thread(() -> {
+          try {
+            start.await();
+          } catch (InterruptedException ex) {
+            return;
+          }
+          for (int j = 0; j < 100; j++) {
+            if (dispatcher.dispatch(executed::incrementAndGet)) {
+              accepted.incrementAndGet();
+            }
+          }
+        });
+        producers[i].start();
+      }
+      start.countDown();
+      dispatcher.dispose();
+      for (final Thread producer : producers) {
+        producer.join();
+      }
+      assertEquals(accepted.get(), executed.get());
+    }
+  }
+}
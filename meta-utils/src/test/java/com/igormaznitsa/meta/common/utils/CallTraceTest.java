@@ -15,6 +15,12 @@
  */
 package com.igormaznitsa.meta.common.utils;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.ArrayList;
+import java.util.List;
 import org.junit.Test;
 import static org.junit.Assert.*;
 
@@ -25,7 +31,7 @@ public class CallTraceTest {
     final CallTrace callTrace = new CallTrace();
     final String[] lines = callTrace.toString().split("\n");
     assertTrue(lines[0].contains("THREAD_ID : "));
-    assertTrue(lines[1].contains("testConstructorEmpty") && lines[1].contains("CallTraceTest") && lines[1].contains(":25"));
+    assertTrue(lines[1].contains("testConstructorEmpty") && lines[1].contains("CallTraceTest") && lines[1].contains(":31"));
   }
 
   @Test
@@ -39,7 +45,156 @@ public class CallTraceTest {
     final CallTrace callTrace = new CallTrace(true,false,"\n");
     final String[] lines = callTrace.toString().split("\n");
     assertTrue(lines[0].contains("THREAD_ID : "));
-    assertTrue(lines[1].contains("testConstructor") && lines[1].contains("CallTraceTest") && lines[1].contains(":39"));
+    assertTrue(lines[1].contains("testConstructor") && lines[1].contains("CallTraceTest") && lines[1].contains(":45"));
+  }
+
+  @Test
+  public void testLazyFrameLimit() {
+    final CallTrace callTrace = new CallTrace(true, true, "\n", 2, true);
+    assertFalse(callTrace.isCompacted());
+    assertEquals(2, callTrace.getFrameCount());
+    final String[] lines = callTrace.restoreStackTrace().split("\n");
+    assertTrue(callTrace.isCompacted());
+    assertEquals(3, lines.length);
+    assertTrue(lines[1].contains("testLazyFrameLimit"));
+    assertEquals(2, callTrace.getFrameCount());
+  }
+
+  @Test
+  public void testLazyAndEagerProvideSameText() {
+    final CallTrace lazy = new CallTrace(true, false, "\n", Integer.MAX_VALUE, true);
+    final CallTrace eager = new CallTrace(true, false, "\n");
+    final String[] lazyLines = lazy.restoreStackTrace().split("\n");
+    final String[] eagerLines = eager.restoreStackTrace().split("\n");
+    assertEquals(eagerLines.length, lazyLines.length);
+    for (int i = 2; i < lazyLines.length; i++) {
+      assertEquals(eagerLines[i], lazyLines[i]);
+    }
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testWrongMaxFrames() {
+    new CallTrace(true, true, "\n", 0, true);
+  }
+
+  @Test
+  public void testCompactor() {
+    final List<Runnable> tasks = new ArrayList<>();
+    CallTrace.setCompactor(tasks::add);
+    try {
+      final CallTrace first = new CallTrace(true, true, "\n", 8, true);
+      final CallTrace second = new CallTrace(true, true, "\n", 8, true);
+      assertEquals(1, tasks.size());
+      assertFalse(first.isCompacted());
+      tasks.get(0).run();
+      assertTrue(first.isCompacted());
+      assertTrue(second.isCompacted());
+      assertTrue(first.restoreStackTrace().contains("testCompactor"));
+      assertEquals(0, CallTrace.compactPending());
+    } finally {
+      CallTrace.setCompactor(null);
+    }
+  }
+
+  @Test
+  public void testSerializationOfLazyTrace() throws Exception {
+    final CallTrace callTrace = new CallTrace(true, true, "\n", 4, true);
+    final ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+    try (ObjectOutputStream out = new ObjectOutputStream(buffer)) {
+      out.writeObject(callTrace);
+    }
+    try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(buffer.toByteArray()))) {
+      final CallTrace restored = (CallTrace) in.readObject();
+      assertTrue(restored.isCompacted());
+      assertEquals(callTrace.restoreStackTrace(), restored.restoreStackTrace());
+    }
+  }
+
+  private static CallTrace makeTrace(final boolean lazy) {
+    return new CallTrace(true, false, "\n", Integer.MAX_VALUE, lazy);
+  }
+
+  @Test
+  public void testEncodedFramesAreSameAsRaw() {
+    final CallTrace[] traces = new CallTrace[2];
+    for (int i = 0; i < traces.length; i++) {
+      traces[i] = makeTrace(i == 0);
+    }
+    final StackTraceElement[] raw = traces[0].getFrames(Integer.MAX_VALUE);
+    assertFalse(traces[0].isCompacted());
+    assertTrue(traces[1].isCompacted());
+    final StackTraceElement[] decoded = traces[1].getFrames(Integer.MAX_VALUE);
+    assertEquals(raw.length, decoded.length);
+    for (int i = 0; i < raw.length; i++) {
+      assertEquals(raw[i].toString(), decoded[i].toString());
+      assertEquals(raw[i].getClassName(), decoded[i].getClassName());
+      assertEquals(raw[i].getMethodName(), decoded[i].getMethodName());
+      assertEquals(raw[i].getLineNumber(), decoded[i].getLineNumber());
+    }
+
+    final StringBuilder expected = new StringBuilder("THREAD_ID : ").append(traces[1].getThreadDescriptor());
+    for (final StackTraceElement element : raw) {
+      expected.append('\n').append(element);
+    }
+    assertEquals(expected.toString(), traces[1].restoreStackTrace());
+    assertEquals(traces[1].restoreStackTrace(), traces[0].restoreStackTrace());
+  }
+
+  @Test
+  public void testPartialDecoding() {
+    final CallTrace callTrace = new CallTrace(true, true, "\n");
+    final StackTraceElement[] all = callTrace.getFrames(Integer.MAX_VALUE);
+    assertEquals(all.length, callTrace.getFrameCount());
+    final StackTraceElement[] top = callTrace.getFrames(2);
+    assertEquals(2, top.length);
+    assertEquals(all[0], top[0]);
+    assertEquals(all[1], top[1]);
+    assertEquals("testPartialDecoding", top[0].getMethodName());
+    assertEquals(0, callTrace.getFrames(0).length);
+
+    final String[] lines = callTrace.restoreStackTrace(1).split("\n");
+    assertEquals(2, lines.length);
+    assertEquals(all[0].toString(), lines[1]);
+  }
+
+  @Test
+  public void testTracesOfSamePlaceShareFrames() {
+    final CallTrace[] traces = new CallTrace[100];
+    final int canonical = FrameTable.canonicalSize();
+    for (int i = 0; i < traces.length; i++) {
+      traces[i] = makeTrace(false);
+    }
+    assertTrue(FrameTable.canonicalSize() <= canonical + 1);
+    final CallTrace other = traces[traces.length - 1];
+    for (final CallTrace trace : traces) {
+      assertTrue(trace.isSameSite(other));
+      assertEquals(other.getFingerprint(), trace.getFingerprint());
+    }
+    assertFalse(new CallTrace().isSameSite(other));
+  }
+
+  @Test
+  public void testNotSampledMarker() throws Exception {
+    assertFalse(CallTrace.NOT_SAMPLED.isSampled());
+    assertTrue(new CallTrace().isSampled());
+    assertEquals(0, CallTrace.NOT_SAMPLED.getFrameCount());
+    final ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+    try (ObjectOutputStream out = new ObjectOutputStream(buffer)) {
+      out.writeObject(CallTrace.NOT_SAMPLED);
+    }
+    try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(buffer.toByteArray()))) {
+      assertSame(CallTrace.NOT_SAMPLED, in.readObject());
+    }
+  }
+
+  @Test
+  public void testExcludedPackages() {
+    final CallTrace callTrace = new CallTrace(true, true, "\n", 2, false, "org.junit.", "com.igormaznitsa.");
+    assertEquals(2, callTrace.getFrameCount());
+    for (final StackTraceElement element : callTrace.getFrames(2)) {
+      assertFalse(element.getClassName().startsWith("org.junit."));
+      assertFalse(element.getClassName().startsWith("com.igormaznitsa."));
+    }
   }
 
 }
@@ -0,0 +1,185 @@
+/*
+ * Copyright 2026 Igor Maznitsa.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.igormaznitsa.meta.common.utils;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.management.ManagementFactory;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class DeferrersMonitorTest {
+
+  @Before
+  public void before() {
+    Deferrers.cancelAllDeferredActionsGlobally();
+  }
+
+  @After
+  public void after() {
+    Deferrers.setCallSiteTracking(false);
+    Deferrers.cancelAllDeferredActionsGlobally();
+    DeferrersMonitor.unregister();
+  }
+
+  private static void leakyTask() {
+    Deferrers.defer((Runnable) () -> {
+    });
+  }
+
+  private static void goodTask() {
+    Deferrers.defer((Runnable) () -> {
+    });
+    Deferrers.processDeferredActions();
+  }
+
+  private static void nestedGoodTask(final int level) {
+    if (level == 0) {
+      goodTask();
+    } else {
+      nestedGoodTask(level - 1);
+    }
+  }
+
+  @Test
+  public void testPendingCounters() {
+    final long globalPending = Deferrers.getGlobalPendingCount();
+    Deferrers.defer((Runnable) () -> {
+    });
+    Deferrers.defer((Runnable) () -> {
+    });
+    assertEquals(2, Deferrers.getPendingCount());
+    assertEquals(globalPending + 2L, Deferrers.getGlobalPendingCount());
+    assertTrue(Deferrers.getGlobalHighWaterMark() >= globalPending + 2L);
+    Deferrers.cancelDeferredActions();
+    assertEquals(0, Deferrers.getPendingCount());
+    assertEquals(globalPending, Deferrers.getGlobalPendingCount());
+  }
+
+  @Test
+  public void testPendingOfCollectedContextIsNotCounted() throws Exception {
+    final long globalPending = Deferrers.getGlobalPendingCount();
+    final Thread thread = new Thread(() -> {
+      for (int i = 0; i < 3; i++) {
+        Deferrers.defer((Runnable) () -> {
+        });
+      }
+    });
+    thread.start();
+    thread.join();
+    assertTrue(Deferrers.getGlobalPendingCount() >= globalPending + 3L);
+    for (int i = 0; i < 100 && Deferrers.getGlobalPendingCount() > globalPending; i++) {
+      System.gc();
+      Thread.sleep(10L);
+    }
+    assertTrue(Deferrers.getGlobalPendingCount() <= globalPending);
+  }
+
+  @Test
+  public void testResetHighWaterMark() {
+    Deferrers.defer((Runnable) () -> {
+    });
+    Deferrers.defer((Runnable) () -> {
+    });
+    Deferrers.cancelDeferredActions();
+    final long highWaterMark = Deferrers.getGlobalHighWaterMark();
+    assertTrue(highWaterMark >= 2L);
+    Deferrers.resetGlobalHighWaterMark();
+    assertTrue(Deferrers.getGlobalHighWaterMark() <= highWaterMark - 2L);
+  }
+
+  @Test
+  public void testDetectGrowingBacklog() throws Exception {
+    Deferrers.setCallSiteTracking(true);
+    final DeferrersMonitor monitor = new DeferrersMonitor(2);
+    final ExecutorService leaky = Executors.newSingleThreadExecutor(r -> new Thread(r, "leaky"));
+    final ExecutorService good = Executors.newSingleThreadExecutor(r -> new Thread(r, "good"));
+    try {
+      for (int i = 0; i < 3; i++) {
+        leaky.submit(DeferrersMonitorTest::leakyTask).get();
+        good.submit(DeferrersMonitorTest::goodTask).get();
+        monitor.scan();
+      }
+      final List<DeferrersMonitor.Suspect> suspects = monitor.scan();
+      assertEquals(1, suspects.size());
+      final DeferrersMonitor.Suspect suspect = suspects.get(0);
+      assertEquals("leaky", suspect.getThreadName());
+      assertEquals(3, suspect.getPending());
+      assertEquals(3, suspect.getHighWaterMark());
+      assertEquals(DeferrersMonitorTest.class.getName(), suspect.getCallSite().getClassName());
+      assertEquals("leakyTask", suspect.getCallSite().getMethodName());
+      assertTrue(suspect.toString().contains("leakyTask"));
+
+      leaky.submit(Deferrers::cancelAllDeferredActionsGlobally).get();
+      assertTrue(monitor.scan().isEmpty());
+    } finally {
+      leaky.shutdownNow();
+      good.shutdownNow();
+      leaky.awaitTermination(5L, TimeUnit.SECONDS);
+      good.awaitTermination(5L, TimeUnit.SECONDS);
+    }
+  }
+
+  @Test
+  public void testReportOldestPendingCallSite() throws Exception {
+    Deferrers.setCallSiteTracking(true);
+    final DeferrersMonitor monitor = new DeferrersMonitor(2);
+    final ExecutorService leaky = Executors.newSingleThreadExecutor(r -> new Thread(r, "leaky"));
+    try {
+      for (int i = 0; i < 3; i++) {
+        leaky.submit(() -> {
+          leakyTask();
+          nestedGoodTask(2);
+        }).get();
+        monitor.scan();
+      }
+      final List<DeferrersMonitor.Suspect> suspects = monitor.scan();
+      assertEquals(1, suspects.size());
+      assertEquals(3, suspects.get(0).getPending());
+      assertEquals("leakyTask", suspects.get(0).getCallSite().getMethodName());
+
+      leaky.submit(Deferrers::cancelAllDeferredActionsGlobally).get();
+      assertTrue(monitor.scan().isEmpty());
+    } finally {
+      leaky.shutdownNow();
+      leaky.awaitTermination(5L, TimeUnit.SECONDS);
+    }
+  }
+
+  @Test
+  public void testMBean() throws Exception {
+    new DeferrersMonitor().register();
+    final MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+    final ObjectName name = new ObjectName(DeferrersMonitor.OBJECT_NAME);
+    assertTrue(server.isRegistered(name));
+    Deferrers.defer((Runnable) () -> {
+    });
+    assertTrue((Long) server.getAttribute(name, "PendingCount") >= 1L);
+    assertEquals(3, server.getAttribute(name, "GrowthScans"));
+    assertArrayEquals(new String[0],
+        (String[]) server.invoke(name, "detectLeaks", new Object[0], new String[0]));
+  }
+}
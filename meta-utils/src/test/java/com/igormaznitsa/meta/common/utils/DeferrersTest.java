@@ -16,6 +16,17 @@
 package com.igormaznitsa.meta.common.utils;
 
 import com.igormaznitsa.meta.common.exceptions.MetaErrorListeners;
+import com.igormaznitsa.meta.common.exceptions.UnexpectedProcessingError;
+import com.igormaznitsa.meta.common.interfaces.Disposable;
+import java.io.Closeable;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.atomic.AtomicInteger;
@@ -138,4 +149,207 @@ public class DeferrersTest {
     assertEquals(someNumber, value.get());
   }
   
+  @Test
+  public void testScope_LifoOrder() {
+    final List<Integer> order = new ArrayList<Integer>();
+    final AtomicInteger value = new AtomicInteger(4);
+    try (Deferrers.Scope scope = Deferrers.scope()) {
+      scope.defer(() -> order.add(1));
+      scope.defer(new TestDeferrer(value, order, 2));
+      assertNull(scope.deferClose((AutoCloseable) null));
+      scope.defer(() -> order.add(3));
+      scope.defer(new Disposable() {
+        @Override
+        public boolean isDisposed() {
+          return false;
+        }
+
+        @Override
+        public void dispose() {
+          order.add(4);
+        }
+      });
+      assertEquals(4, scope.size());
+      assertFalse(Deferrers.isEmpty());
+    }
+    assertArrayEquals(new int[]{4, 3, 2, 1}, toArray(order));
+    assertTrue(Deferrers.isEmpty());
+  }
+
+  @Test
+  public void testScope_NestedAndPooled() {
+    final List<Integer> order = new ArrayList<Integer>();
+    final Deferrers.Scope outer = Deferrers.scope();
+    outer.defer(() -> order.add(1));
+    final Deferrers.Scope inner = Deferrers.scope();
+    assertEquals(1, inner.getLevel());
+    inner.defer(() -> order.add(2));
+    outer.close();
+    assertFalse(inner.isOpened());
+    assertArrayEquals(new int[]{2, 1}, toArray(order));
+    assertThrows(IllegalStateException.class, () -> inner.defer(() -> order.add(3)));
+
+    final Deferrers.Scope reused = Deferrers.scope();
+    assertSame(outer, reused);
+    reused.defer(() -> order.add(3));
+    reused.cancel();
+    assertEquals(2, order.size());
+  }
+
+  @Test
+  public void testScope_SuppressedExceptions() {
+    final List<Integer> order = new ArrayList<Integer>();
+    final Deferrers.Scope scope = Deferrers.scope();
+    scope.defer(() -> order.add(1));
+    scope.defer(() -> {
+      throw new IllegalArgumentException("second");
+    });
+    scope.deferClose(() -> {
+      throw new IOException("third");
+    });
+    final UnexpectedProcessingError error = assertThrows(UnexpectedProcessingError.class,
+        scope::close);
+    assertTrue(error.getCause() instanceof IOException);
+    assertEquals(1, error.getCause().getSuppressed().length);
+    assertEquals("second", error.getCause().getSuppressed()[0].getMessage());
+    assertArrayEquals(new int[]{1}, toArray(order));
+    assertFalse(scope.isOpened());
+  }
+
+  @Test
+  public void testScope_CloseFromOtherThread() throws Exception {
+    final Deferrers.Scope scope = Deferrers.scope();
+    final AtomicInteger counter = new AtomicInteger();
+    scope.defer(counter::incrementAndGet);
+    final Thread thread = new Thread(() -> {
+      try {
+        scope.close();
+      } catch (IllegalStateException ex) {
+        counter.addAndGet(10);
+      }
+    });
+    thread.start();
+    thread.join();
+    assertEquals(10, counter.get());
+    scope.close();
+    assertEquals(11, counter.get());
+  }
+
+  private static final class HiddenResource {
+
+    private final AtomicInteger counter;
+
+    private HiddenResource(final AtomicInteger counter) {
+      this.counter = counter;
+    }
+
+    public void close() {
+      this.counter.incrementAndGet();
+    }
+  }
+
+  private static final class HiddenCloseable implements AutoCloseable {
+
+    private final AtomicInteger counter;
+
+    private HiddenCloseable(final AtomicInteger counter) {
+      this.counter = counter;
+    }
+
+    @Override
+    public void close() throws IOException {
+      this.counter.incrementAndGet();
+      throw new IOException("closed");
+    }
+  }
+
+  @Test
+  public void testDeferredClose() {
+    final AtomicInteger counter = new AtomicInteger();
+    final List<Throwable> errors = new ArrayList<Throwable>();
+    MetaErrorListeners.addErrorListener((text, error) -> errors.add(error));
+
+    assertNull(Deferrers.deferredClose(null));
+    Deferrers.deferredClose(new HiddenCloseable(counter));
+    Deferrers.deferredClose(new HiddenCloseable(counter));
+    Deferrers.deferredClose(new Object());
+    Deferrers.deferredClose(new HiddenResource(counter));
+    Deferrers.processDeferredActions();
+
+    assertEquals(2, counter.get());
+    assertEquals(4, errors.size());
+    assertTrue(errors.get(0) instanceof IOException);
+    assertTrue(errors.get(1) instanceof IOException);
+    assertTrue(errors.get(2) instanceof NoSuchMethodException);
+    assertTrue(errors.get(3) instanceof NoSuchMethodException);
+  }
+
+  @Test
+  public void testProcessDeferredActions_Parallel() throws Exception {
+    final ExecutorService service = Executors.newFixedThreadPool(4);
+    try {
+      final int independent = 4;
+      final CountDownLatch started = new CountDownLatch(independent);
+      final List<Integer> order = Collections.synchronizedList(new ArrayList<Integer>());
+      final AtomicInteger closed = new AtomicInteger();
+      final Thread caller = Thread.currentThread();
+      Deferrers.defer((Runnable) () -> order.add(1));
+      for (int i = 0; i < independent; i++) {
+        Deferrers.deferIndependent((Closeable) () -> {
+          assertNotSame(caller, Thread.currentThread());
+          started.countDown();
+          try {
+            // all independent actions must be executed in the same time
+            assertTrue(started.await(5L, TimeUnit.SECONDS));
+          } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+          }
+          closed.incrementAndGet();
+        });
+      }
+      Deferrers.defer((Runnable) () -> order.add(2));
+      Deferrers.defer((Runnable) () -> order.add(3));
+
+      final CompletableFuture<Void> future = Deferrers.processDeferredActions(service);
+      assertArrayEquals(new int[] {1, 2, 3}, toArray(order));
+      future.get(10L, TimeUnit.SECONDS);
+      assertEquals(independent, closed.get());
+      assertTrue(Deferrers.isEmpty());
+    } finally {
+      service.shutdownNow();
+    }
+  }
+
+  @Test
+  public void testProcessDeferredActions_Timeout() {
+    final ExecutorService service = Executors.newSingleThreadExecutor();
+    final CountDownLatch latch = new CountDownLatch(1);
+    try {
+      final AtomicInteger disposed = new AtomicInteger();
+      Deferrers.deferIndependent(new Disposable() {
+        @Override
+        public boolean isDisposed() {
+          return disposed.get() > 0;
+        }
+
+        @Override
+        public void dispose() {
+          try {
+            latch.await();
+          } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+          }
+          disposed.incrementAndGet();
+        }
+      });
+      assertFalse(Deferrers.processDeferredActions(service, Duration.ofMillis(50L)));
+      latch.countDown();
+      Deferrers.deferIndependent((Closeable) disposed::incrementAndGet);
+      assertTrue(Deferrers.processDeferredActions(service, Duration.ofSeconds(10L)));
+      assertEquals(2, disposed.get());
+    } finally {
+      latch.countDown();
+      service.shutdownNow();
+    }
+  }
 }
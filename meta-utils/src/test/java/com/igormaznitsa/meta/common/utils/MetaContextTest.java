@@ -0,0 +1,232 @@
+/*
+ * Copyright 2026 Igor Maznitsa.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.igormaznitsa.meta.common.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import com.igormaznitsa.meta.common.exceptions.MetaErrorListeners;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class MetaContextTest {
+
+  private static final int TASKS = 20_000;
+
+  @Before
+  public void before() {
+    MetaErrorListeners.clear();
+    TimeGuard.cancelAll();
+  }
+
+  @After
+  public void after() {
+    MetaErrorListeners.clear();
+    TimeGuard.cancelAll();
+  }
+
+  @Test
+  public void testReadOnlyCallsDontCreateContext() throws Exception {
+    final AtomicReference<Object> detected = new AtomicReference<>("not executed");
+    final Thread thread = new Thread(() -> {
+      assertTrue(TimeGuard.isEmpty());
+      assertTrue(Deferrers.isEmpty());
+      assertFalse(TimeGuard.deadline().isDefined());
+      TimeGuard.cancelAll();
+      Deferrers.cancelAllDeferredActionsGlobally();
+      detected.set(MetaContext.peekCurrent());
+    });
+    thread.start();
+    thread.join();
+    assertNull(detected.get());
+  }
+
+  @Test
+  public void testScopeMovesWithDetachedContext() throws Exception {
+    final AtomicReference<TimeGuard.TimeData> violation = new AtomicReference<>();
+    final ExecutorService service = Executors.newSingleThreadExecutor();
+    try {
+      final TimeGuard.Scope scope =
+          TimeGuard.open("moved", 1L, (delay, data) -> violation.set(data));
+      Thread.sleep(5L);
+      final MetaContext context = MetaContext.detach();
+      assertNull(MetaContext.peekCurrent());
+      assertTrue(TimeGuard.isEmpty());
+      assertFalse(context.isEmpty());
+
+      service.submit(context.bind(scope::close)).get();
+      assertEquals("moved", violation.get().getAlertMessage());
+      assertTrue(TimeGuard.isEmpty());
+      assertNull(service.submit(MetaContext::peekCurrent).get());
+
+      assertNull(context.attach());
+      assertSame(context, MetaContext.peekCurrent());
+    } finally {
+      service.shutdownNow();
+    }
+  }
+
+  @Test
+  public void testWrappedTaskGetsChildContext() throws Exception {
+    final ExecutorService service = Executors.newSingleThreadExecutor();
+    try (TimeGuard.Scope scope = TimeGuard.open("submitter", 60_000L)) {
+      final AtomicInteger deferred = new AtomicInteger();
+      Deferrers.defer((Runnable) () -> deferred.incrementAndGet());
+      final MetaContext submitter = MetaContext.peekCurrent();
+      final Deadline deadline = TimeGuard.deadline();
+
+      final MetaContext child = service.submit(MetaContext.wrap(() -> {
+        assertTrue(TimeGuard.isEmpty());
+        assertTrue(Deferrers.isEmpty());
+        assertEquals(deadline.getTimeInNanoseconds(), TimeGuard.deadline().getTimeInNanoseconds());
+        try {
+          scope.close();
+          fail("Must throw ISE");
+        } catch (IllegalStateException ex) {
+          // expected, scope belongs to context of the submitter
+        }
+        TimeGuard.open("task", 1_000L);
+        Deferrers.defer((Runnable) () -> deferred.addAndGet(100));
+        return MetaContext.peekCurrent();
+      })).get();
+
+      assertNotSame(submitter, child);
+      assertTrue(scope.isOpened());
+      assertFalse(TimeGuard.isEmpty());
+      assertNull(service.submit(MetaContext::peekCurrent).get());
+
+      Deferrers.processDeferredActions();
+      assertEquals(1, deferred.get());
+    } finally {
+      service.shutdownNow();
+    }
+    assertTrue(TimeGuard.isEmpty());
+  }
+
+  @Test
+  public void testCaptureDoesNotCreateContext() throws Exception {
+    final AtomicReference<Object> detected = new AtomicReference<>("not executed");
+    final Thread thread = new Thread(() -> {
+      assertTrue(MetaContext.capture().isEmpty());
+      detected.set(MetaContext.peekCurrent());
+    });
+    thread.start();
+    thread.join();
+    assertNull(detected.get());
+
+    try (TimeGuard.Scope scope = TimeGuard.open("parent", 60_000L)) {
+      assertTrue(scope.isOpened());
+      final MetaContext parent = MetaContext.peekCurrent();
+      final MetaContext inheriting = MetaContext.capture();
+      assertNotSame(parent, inheriting);
+      assertFalse(inheriting.isEmpty());
+      final MetaContext previous = inheriting.attach();
+      try {
+        assertTrue(TimeGuard.isEmpty());
+        assertTrue(TimeGuard.deadline().isDefined());
+      } finally {
+        MetaContext.restore(previous);
+      }
+    }
+  }
+
+  @Test
+  public void testCompletableFutureStages() throws Exception {
+    try (TimeGuard.Scope scope = TimeGuard.open("stages", 60_000L)) {
+      final Deadline deadline = TimeGuard.deadline();
+      final Integer result = CompletableFuture
+          .supplyAsync(MetaContext.wrapSupplier(() -> TimeGuard.isEmpty() ? 1 : 0))
+          .thenApplyAsync(MetaContext.wrapFunction(x -> {
+            try (TimeGuard.Scope inner = TimeGuard.open("inner", 60_000L)) {
+              assertTrue(inner.isOpened());
+              return TimeGuard.deadline().getTimeInNanoseconds() == deadline.getTimeInNanoseconds() ? x + 1 : x;
+            }
+          })).get(10L, TimeUnit.SECONDS);
+      assertEquals(2, result.intValue());
+      assertTrue(scope.isOpened());
+    }
+    assertTrue(TimeGuard.isEmpty());
+  }
+
+  @Test
+  public void testManyTasks() throws Exception {
+    final ExecutorService service = Executors.newFixedThreadPool(8);
+    try {
+      assertEquals(TASKS, runTasks(service));
+    } finally {
+      service.shutdownNow();
+    }
+  }
+
+  @Test
+  public void testManyWrappedTasksOfOneSubmitter() throws Exception {
+    final ExecutorService service = Executors.newFixedThreadPool(8);
+    try (TimeGuard.Scope scope = TimeGuard.open("submitter", 60_000L)) {
+      final AtomicInteger counter = new AtomicInteger();
+      final Runnable task = MetaContext.wrap(() -> {
+        for (int i = 0; i < 10; i++) {
+          try (TimeGuard.Scope inner = TimeGuard.open("task", 60_000L)) {
+            assertTrue(inner.isOpened());
+          }
+        }
+        if (TimeGuard.isEmpty() && TimeGuard.deadline().isDefined()) {
+          counter.incrementAndGet();
+        }
+      });
+      final CompletableFuture<?>[] futures = new CompletableFuture<?>[TASKS / 10];
+      for (int i = 0; i < futures.length; i++) {
+        futures[i] = CompletableFuture.runAsync(task, service);
+      }
+      CompletableFuture.allOf(futures).get(60L, TimeUnit.SECONDS);
+      assertEquals(futures.length, counter.get());
+      assertTrue(scope.isOpened());
+    } finally {
+      service.shutdownNow();
+    }
+  }
+
+  private static int runTasks(final ExecutorService service) throws Exception {
+    final AtomicInteger counter = new AtomicInteger();
+    final CompletableFuture<?>[] futures = new CompletableFuture<?>[TASKS];
+    for (int i = 0; i < TASKS; i++) {
+      futures[i] = CompletableFuture.runAsync(new MetaContext().bind(() -> {
+        if (!TimeGuard.isEmpty()) {
+          return;
+        }
+        try (TimeGuard.Scope scope = TimeGuard.open("task", 60_000L)) {
+          assertNotNull(scope);
+          counter.incrementAndGet();
+        }
+      }), service);
+    }
+    CompletableFuture.allOf(futures).get(60L, TimeUnit.SECONDS);
+    return counter.get();
+  }
+}
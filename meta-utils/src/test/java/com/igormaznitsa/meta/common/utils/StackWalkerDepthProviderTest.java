@@ -0,0 +1,65 @@
+/*
+ * Copyright 2026 Igor Maznitsa.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.igormaznitsa.meta.common.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class StackWalkerDepthProviderTest {
+
+  private static int depthOneLevelDeeper(final StackDepthProvider provider) {
+    return provider.stackDepth();
+  }
+
+  private static Class<?> callerClassOf(final StackWalkerDepthProvider provider) {
+    return provider.getCallerClass();
+  }
+
+  @Test
+  public void testStackDepth_Relative() {
+    final StackWalkerDepthProvider provider = new StackWalkerDepthProvider(false);
+    assertFalse(provider.isRetainCallerClass());
+    assertEquals(provider.stackDepth() + 1, depthOneLevelDeeper(provider));
+  }
+
+  @Test
+  public void testStackDepth_SameAsStackTraceForPlainCalls() {
+    final StackWalkerDepthProvider provider = new StackWalkerDepthProvider(false);
+    final int walker = depthOneLevelDeeper(provider) - provider.stackDepth();
+    final int trace = depthOneLevelDeeper(ThreadUtils.STACK_TRACE_DEPTH_PROVIDER)
+        - ThreadUtils.STACK_TRACE_DEPTH_PROVIDER.stackDepth();
+    assertEquals(trace, walker);
+  }
+
+  @Test
+  public void testGetCallerClass() {
+    final StackWalkerDepthProvider provider = new StackWalkerDepthProvider(true);
+    assertTrue(provider.isRetainCallerClass());
+    assertSame(StackWalkerDepthProviderTest.class, callerClassOf(provider));
+  }
+
+  @Test
+  public void testGetCallerClass_NotRetained() {
+    final StackWalkerDepthProvider provider = new StackWalkerDepthProvider(false);
+    assertThrows(UnsupportedOperationException.class, provider::getCallerClass);
+  }
+}
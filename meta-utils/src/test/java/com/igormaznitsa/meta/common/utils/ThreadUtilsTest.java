@@ -66,4 +66,17 @@ public class ThreadUtilsTest {
     assertEquals("testGetCurrentStackElement", element.getMethodName());
     assertEquals("com.igormaznitsa.meta.common.utils.ThreadUtilsTest", element.getClassName());
   }
+
+  @Test
+  public void testStackDepthProvider_DefaultAndReset() {
+    assertEquals(ThreadUtils.STACK_WALKER_DEPTH_PROVIDER, ThreadUtils.getStackDepthProvider());
+    try {
+      ThreadUtils.setStackDepthProvider(ThreadUtils.STACK_TRACE_DEPTH_PROVIDER);
+      assertEquals(ThreadUtils.STACK_TRACE_DEPTH_PROVIDER, ThreadUtils.getStackDepthProvider());
+      assertEquals(ThreadUtils.stackDepth() + 2, testCall1());
+    } finally {
+      ThreadUtils.setStackDepthProvider(null);
+    }
+    assertEquals(ThreadUtils.STACK_WALKER_DEPTH_PROVIDER, ThreadUtils.getStackDepthProvider());
+  }
 }
@@ -0,0 +1,129 @@
+/*
+ * Copyright 2026 Igor Maznitsa.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.igormaznitsa.meta.common.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+import java.lang.management.ManagementFactory;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class TimeGuardAllocationTest {
+
+  private static final int ITERATIONS = 100_000;
+
+  private com.sun.management.ThreadMXBean threadBean;
+
+  @Before
+  public void before() {
+    assumeTrue(ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean);
+    this.threadBean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+    assumeTrue(this.threadBean.isThreadAllocatedMemorySupported());
+    this.threadBean.setThreadAllocatedMemoryEnabled(true);
+    TimeGuard.cancelAll();
+    ThreadUtils.setStackDepthProvider(() -> 10);
+  }
+
+  @After
+  public void after() {
+    ThreadUtils.setStackDepthProvider(null);
+    TimeGuard.cancelAll();
+  }
+
+  private long allocatedBytes() {
+    return this.threadBean.getThreadAllocatedBytes(Thread.currentThread().getId());
+  }
+
+  private static void guardAndCheck() {
+    TimeGuard.addGuard("first", 60_000L);
+    TimeGuard.addGuard("second", 60_000L);
+    TimeGuard.check();
+  }
+
+  private static void openAndClose() {
+    try (TimeGuard.Scope outer = TimeGuard.open("outer", 60_000L)) {
+      try (TimeGuard.Scope inner = TimeGuard.open("inner", 60_000L)) {
+        assertEquals(1, inner.getLevel());
+      }
+    }
+  }
+
+  @Test
+  public void testGuardAndCheckDontAllocate() {
+    for (int i = 0; i < ITERATIONS; i++) {
+      guardAndCheck();
+    }
+    final long start = allocatedBytes();
+    for (int i = 0; i < ITERATIONS; i++) {
+      guardAndCheck();
+    }
+    final long allocated = allocatedBytes() - start;
+    assertTrue("Allocated " + allocated + " bytes", allocated < 4096L);
+    assertTrue(TimeGuard.isEmpty());
+  }
+
+  @Test
+  public void testScopesDontAllocate() {
+    for (int i = 0; i < ITERATIONS; i++) {
+      openAndClose();
+    }
+    final long start = allocatedBytes();
+    for (int i = 0; i < ITERATIONS; i++) {
+      openAndClose();
+    }
+    final long allocated = allocatedBytes() - start;
+    assertTrue("Allocated " + allocated + " bytes", allocated < 4096L);
+    assertTrue(TimeGuard.isEmpty());
+  }
+
+  @Test
+  public void testRegistryGrowsAndReusesSlots() {
+    final TimeGuardRegistry registry = new TimeGuardRegistry();
+    final TimeGuard.TimeAlertListener listener = TimeGuard.NULL_TIME_ALERT_LISTENER;
+    for (int i = 0; i < 40; i++) {
+      registry.add(i, "item" + i, 100L, listener, null, 0L);
+    }
+    assertEquals(40, registry.size());
+    assertEquals(64, registry.capacity());
+
+    int slot = registry.first();
+    int counter = 0;
+    while (slot != TimeGuardRegistry.NONE) {
+      final int next = registry.next(slot);
+      if (registry.depth(slot) % 2 == 0) {
+        registry.remove(slot);
+      }
+      slot = next;
+      counter++;
+    }
+    assertEquals(40, counter);
+    assertEquals(20, registry.size());
+
+    for (int i = 0; i < 20; i++) {
+      registry.add(100 + i, null, -1L, listener, null, 0L);
+    }
+    assertEquals(64, registry.capacity());
+    assertEquals(1, registry.depth(registry.first()));
+
+    registry.clear();
+    assertTrue(registry.isEmpty());
+    assertEquals(TimeGuardRegistry.NONE, registry.first());
+  }
+}
@@ -0,0 +1,90 @@
+/*
+ * Copyright 2026 Igor Maznitsa.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.igormaznitsa.meta.common.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import org.junit.Test;
+
+public class TimeGuardRegistryTest {
+
+  private static List<Integer> named(final TimeGuardRegistry registry, final String name) {
+    final List<Integer> result = new ArrayList<>();
+    for (int slot = registry.firstPointNamed(name); slot != TimeGuardRegistry.NONE;
+         slot = registry.nextPointNamed(slot)) {
+      result.add(slot);
+    }
+    return result;
+  }
+
+  private static List<Integer> points(final TimeGuardRegistry registry) {
+    final List<Integer> result = new ArrayList<>();
+    for (int slot = registry.firstPoint(); slot != TimeGuardRegistry.NONE;
+         slot = registry.nextPoint(slot)) {
+      result.add(slot);
+    }
+    return result;
+  }
+
+  @Test
+  public void testNameIndexFollowsModel() {
+    final TimeGuardRegistry registry = new TimeGuardRegistry();
+    final List<Integer> modelSlots = new ArrayList<>();
+    final List<String> modelNames = new ArrayList<>();
+    final Random random = new Random(12345L);
+
+    for (int i = 0; i < 20_000; i++) {
+      if (modelSlots.isEmpty() || random.nextInt(100) < 55) {
+        final boolean point = random.nextInt(4) != 0;
+        final String name = "name" + random.nextInt(200);
+        final int slot = registry.add(i, name, point ? -1L : 100L,
+            TimeGuard.NULL_TIME_ALERT_LISTENER, null, 0L);
+        if (point) {
+          modelSlots.add(slot);
+          modelNames.add(name);
+        }
+      } else {
+        final int index = random.nextInt(modelSlots.size());
+        registry.remove(modelSlots.remove(index));
+        modelNames.remove(index);
+      }
+
+      if (i % 500 == 0) {
+        assertEquals(modelSlots, points(registry));
+        for (int n = 0; n < 200; n++) {
+          final String name = "name" + n;
+          final List<Integer> expected = new ArrayList<>();
+          for (int k = 0; k < modelSlots.size(); k++) {
+            if (modelNames.get(k).equals(name)) {
+              expected.add(modelSlots.get(k));
+            }
+          }
+          assertEquals(name, expected, named(registry, name));
+        }
+      }
+    }
+
+    registry.clear();
+    assertEquals(TimeGuardRegistry.NONE, registry.firstPoint());
+    assertEquals(TimeGuardRegistry.NONE, registry.firstPointNamed("name1"));
+    assertTrue(registry.isEmpty());
+  }
+}
@@ -0,0 +1,180 @@
+/*
+ * Copyright 2026 Igor Maznitsa.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.igormaznitsa.meta.common.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import com.igormaznitsa.meta.common.exceptions.MetaErrorListeners;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class TimeGuardSpanExporterTest {
+
+  private static final Pattern ID = Pattern.compile("\"id\":(\\d+),\"parent\":(\\d+)");
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  @Before
+  public void before() {
+    TimeGuard.cancelAll();
+  }
+
+  @After
+  public void after() {
+    TimeGuard.setSpanExporter(null);
+    TimeGuard.cancelAll();
+    MetaErrorListeners.clear();
+  }
+
+  private static void inner() {
+    TimeGuard.addGuard("inner", 60_000L);
+    TimeGuard.addPoint("point", TimeGuard.NULL_TIME_ALERT_LISTENER);
+    TimeGuard.checkPoint("point");
+    TimeGuard.check();
+  }
+
+  private static void outer() {
+    TimeGuard.addGuard("outer", 60_000L);
+    inner();
+    TimeGuard.check();
+  }
+
+  @Test
+  public void testJsonLines() throws Exception {
+    final TimeGuardSpanExporter exporter =
+        new TimeGuardSpanExporter(this.folder.getRoot().toPath(), "spans",
+            TimeGuardSpanExporter.Format.JSON_LINES, 16, 1024L * 1024L, 2,
+            Duration.ofMillis(5L));
+    TimeGuard.setSpanExporter(exporter);
+    outer();
+    try (TimeGuard.Scope first = TimeGuard.open("scope \"1\"", 60_000L)) {
+      try (TimeGuard.Scope second = TimeGuard.open("scope2", 60_000L)) {
+        assertTrue(second.isOpened());
+      }
+    }
+    TimeGuard.addGuard("cancelled", 60_000L);
+    TimeGuard.cancel();
+    exporter.dispose();
+
+    final List<String> lines =
+        Files.readAllLines(exporter.getFile(0), StandardCharsets.UTF_8);
+    assertEquals(5, lines.size());
+    assertEquals(5L, exporter.getExportedCount());
+    assertTrue(lines.get(0).contains("\"kind\":\"point\",\"name\":\"point\""));
+    assertTrue(lines.get(1).contains("\"name\":\"inner\""));
+    assertTrue(lines.get(2).contains("\"name\":\"outer\""));
+    assertTrue(lines.get(3).contains("\"kind\":\"scope\",\"name\":\"scope2\""));
+    assertTrue(lines.get(4).contains("\"name\":\"scope \\\"1\\\"\""));
+
+    final long[][] ids = new long[lines.size()][];
+    for (int i = 0; i < lines.size(); i++) {
+      final Matcher matcher = ID.matcher(lines.get(i));
+      assertTrue(matcher.find());
+      ids[i] = new long[] {Long.parseLong(matcher.group(1)), Long.parseLong(matcher.group(2))};
+    }
+    assertEquals(0L, ids[2][1]);
+    assertEquals(ids[2][0], ids[1][1]);
+    assertEquals(ids[2][0], ids[0][1]);
+    assertEquals(ids[4][0], ids[3][1]);
+    assertEquals(0L, ids[4][1]);
+  }
+
+  @Test
+  public void testChromeTraceRolling() throws Exception {
+    final TimeGuardSpanExporter exporter =
+        new TimeGuardSpanExporter(this.folder.getRoot().toPath(), "trace",
+            TimeGuardSpanExporter.Format.CHROME_TRACE, 4, 256L, 2, Duration.ofMillis(1L));
+    TimeGuard.setSpanExporter(exporter);
+    for (int i = 0; i < 50; i++) {
+      try (TimeGuard.Scope scope = TimeGuard.open("s" + i, 60_000L)) {
+        assertTrue(scope.isOpened());
+      }
+      if (i % 3 == 0) {
+        ThreadUtils.silentSleep(2L);
+      }
+    }
+    exporter.dispose();
+    assertEquals(50L, exporter.getExportedCount() + exporter.getDroppedCount());
+    assertFalse(Files.exists(exporter.getFile(0)));
+
+    int index = 0;
+    for (int i = 0; i < 1000; i++) {
+      if (Files.exists(exporter.getFile(i))) {
+        index = i;
+      }
+    }
+    assertTrue(index > 1);
+    assertTrue(Files.exists(exporter.getFile(index - 1)));
+    assertFalse(Files.exists(exporter.getFile(index - 2)));
+    final String text =
+        new String(Files.readAllBytes(exporter.getFile(index)), StandardCharsets.UTF_8);
+    assertTrue(text.startsWith("[\n{\"name\":"));
+    assertTrue(text.endsWith("\n]\n"));
+    assertTrue(text.contains("\"ph\":\"X\""));
+  }
+
+  @Test
+  public void testErrorDoesNotTruncateWrittenFile() throws Exception {
+    final TimeGuardSpanExporter exporter =
+        new TimeGuardSpanExporter(this.folder.getRoot().toPath(), "trace",
+            TimeGuardSpanExporter.Format.CHROME_TRACE, 16, 1024L * 1024L, 4,
+            Duration.ofMillis(1L));
+    TimeGuard.setSpanExporter(exporter);
+    final CountDownLatch errorLatch = new CountDownLatch(1);
+    MetaErrorListeners.addErrorListener((text, error) -> errorLatch.countDown());
+
+    try (TimeGuard.Scope scope = TimeGuard.open("before", 60_000L)) {
+      assertTrue(scope.isOpened());
+    }
+    for (int i = 0; i < 1000 && exporter.getExportedCount() == 0L; i++) {
+      ThreadUtils.silentSleep(5L);
+    }
+    assertEquals(1L, exporter.getExportedCount());
+
+    // span of unknown kind makes error during export
+    exporter.record(-1, "lost", exporter.nextSpanId(), 0L, 0, 0L, 1L, false);
+    assertTrue(errorLatch.await(5L, TimeUnit.SECONDS));
+
+    try (TimeGuard.Scope scope = TimeGuard.open("after", 60_000L)) {
+      assertTrue(scope.isOpened());
+    }
+    exporter.dispose();
+
+    final String first =
+        new String(Files.readAllBytes(exporter.getFile(0)), StandardCharsets.UTF_8);
+    assertTrue(first.startsWith("[\n{\"name\":\"before\""));
+    assertFalse(first.contains("\"after\""));
+    final String second =
+        new String(Files.readAllBytes(exporter.getFile(1)), StandardCharsets.UTF_8);
+    assertTrue(second.startsWith("[\n{\"name\":\"after\""));
+    assertTrue(second.endsWith("\n]\n"));
+  }
+}
@@ -23,6 +23,7 @@ import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertThrows;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
+import static org.junit.Assume.assumeTrue;
 
 import com.igormaznitsa.meta.common.exceptions.MetaErrorListeners;
 import com.igormaznitsa.meta.common.exceptions.TimeViolationError;
@@ -30,9 +31,19 @@ import com.igormaznitsa.meta.common.exceptions.UnexpectedProcessingError;
 import java.io.IOException;
 import java.time.Duration;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
@@ -49,6 +60,7 @@ public class TimeGuardTest {
   public void after() {
     MetaErrorListeners.clear();
     TimeGuard.cancelAll();
+    TimeGuard.setSamplingPolicy(null);
   }
 
   @Test
@@ -416,4 +428,543 @@ public class TimeGuardTest {
     assertEquals(2000, counter.get());
   }
 
+  @Test
+  public void testScope_InTime() {
+    try (TimeGuard.Scope scope = TimeGuard.open("scope", 1000L,
+        (delay, data) -> fail("Must not be called"))) {
+      assertTrue(scope.isOpened());
+      assertEquals(0, scope.getLevel());
+      assertFalse(TimeGuard.isEmpty());
+    }
+    assertTrue(TimeGuard.isEmpty());
+  }
+
+  @Test
+  public void testScope_Nested_Detected() {
+    final List<String> detector = new ArrayList<>();
+    final TimeGuard.TimeAlertListener listener =
+        (delay, data) -> detector.add(data.getAlertMessage());
+    try (TimeGuard.Scope outer = TimeGuard.open("outer", 1000L, listener)) {
+      try (TimeGuard.Scope inner = TimeGuard.open("inner", 10L, listener)) {
+        assertEquals(1, inner.getLevel());
+        ThreadUtils.silentSleep(30L);
+      }
+      assertTrue(outer.isOpened());
+    }
+    assertArrayEquals(new String[] {"inner"}, detector.toArray());
+  }
+
+  @Test
+  public void testScope_PooledAndClosesNested() {
+    final AtomicInteger counter = new AtomicInteger();
+    final TimeGuard.Scope outer = TimeGuard.open("outer", 10L, (d, t) -> counter.incrementAndGet());
+    final TimeGuard.Scope inner = TimeGuard.open("inner", 10L, (d, t) -> counter.incrementAndGet());
+    ThreadUtils.silentSleep(30L);
+    outer.close();
+    assertFalse(inner.isOpened());
+    assertEquals(2, counter.get());
+    inner.close();
+    assertEquals(2, counter.get());
+
+    final TimeGuard.Scope reopened = TimeGuard.open("again", 1000L);
+    assertTrue(reopened == outer);
+    reopened.close();
+  }
+
+  @Test
+  public void testScope_ViolationToGlobalListeners() {
+    final AtomicInteger detector = new AtomicInteger();
+    MetaErrorListeners.addErrorListener((text, error) -> {
+      assertTrue(error instanceof TimeViolationError);
+      assertEquals("scope", error.getMessage());
+      detector.incrementAndGet();
+    });
+    try (TimeGuard.Scope scope = TimeGuard.open("scope", 10L)) {
+      ThreadUtils.silentSleep(30L);
+    }
+    assertEquals(1, detector.get());
+  }
+
+  @Test
+  public void testScope_CancelAll() {
+    final TimeGuard.Scope scope = TimeGuard.open("scope", 10L, (d, t) -> fail("Must not be called"));
+    TimeGuard.cancelAll();
+    assertFalse(scope.isOpened());
+    ThreadUtils.silentSleep(30L);
+    scope.close();
+    assertTrue(TimeGuard.isEmpty());
+  }
+
+  @Test
+  public void testScope_CloseFromAnotherThread() throws Exception {
+    final TimeGuard.Scope scope = TimeGuard.open("scope", 1000L);
+    final AtomicBoolean error = new AtomicBoolean();
+    final Thread thread = new Thread(() -> {
+      try {
+        scope.close();
+      } catch (IllegalStateException ex) {
+        error.set(true);
+      }
+    });
+    thread.start();
+    thread.join();
+    assertTrue(error.get());
+    assertTrue(scope.isOpened());
+    scope.close();
+  }
+
+  @Test
+  public void testCheckPrecisely() {
+    final AtomicBoolean flag = new AtomicBoolean();
+    assertEquals("Hello", TimeGuard.checkPrecisely(Duration.ofNanos(500_000L), () -> {
+      Thread.sleep(5);
+      return "Hello";
+    }, (t, e) -> {
+      assertNull(e);
+      assertTrue(t.toNanos() > 500_000L);
+      flag.set(true);
+    }));
+    assertTrue(flag.get());
+
+    TimeGuard.checkPrecisely(Duration.ofSeconds(1), () -> {
+    }, (t, e) -> fail("Must not be called"));
+  }
+
+  @Test
+  public void testGuard_SubMillisecondDuration() {
+    final List<Duration> detected = new ArrayList<>();
+    TimeGuard.addGuard("nano", Duration.ofNanos(100_000L), new TimeGuard.TimeAlertListener() {
+      private static final long serialVersionUID = -7410231866413125411L;
+
+      @Override
+      public void onTimeAlert(long detectedTimeDelayInMilliseconds, TimeGuard.TimeData timeData) {
+        fail("Must not be called");
+      }
+
+      @Override
+      public void onTimeAlert(Duration detectedTimeDelay, TimeGuard.TimeData timeData) {
+        assertEquals(Duration.ofNanos(100_000L), timeData.getMaxAllowedDelay());
+        assertEquals(0L, timeData.getMaxAllowedDelayInMilliseconds());
+        detected.add(detectedTimeDelay);
+      }
+    });
+    ThreadUtils.silentSleep(2L);
+    TimeGuard.check();
+    assertEquals(1, detected.size());
+    assertTrue(detected.get(0).toNanos() > 100_000L);
+  }
+
+  @Test
+  public void testGuard_DurationToMillisecondListener() {
+    final AtomicInteger detector = new AtomicInteger();
+    TimeGuard.addGuard("dur", Duration.ofMillis(10L), (delay, data) -> {
+      assertTrue(delay >= 30L);
+      detector.incrementAndGet();
+    });
+    ThreadUtils.silentSleep(30L);
+    TimeGuard.check();
+    assertEquals(1, detector.get());
+  }
+
+  @Test
+  public void testScope_Duration() {
+    final AtomicInteger detector = new AtomicInteger();
+    MetaErrorListeners.addErrorListener((text, error) -> {
+      final TimeViolationError violation = (TimeViolationError) error;
+      assertTrue(violation.getDetectedTime().compareTo(Duration.ofNanos(200_000L)) > 0);
+      assertTrue(violation.getDetectedViolation().toNanos() > 0L);
+      detector.incrementAndGet();
+    });
+    try (TimeGuard.Scope scope = TimeGuard.open("scope", Duration.ofNanos(200_000L))) {
+      assertEquals(Duration.ofNanos(200_000L), scope.getMaxAllowedDelay());
+      ThreadUtils.silentSleep(2L);
+    }
+    assertEquals(1, detector.get());
+  }
+
+  @Test
+  public void testTimeData_Nanoseconds() {
+    final long before = System.nanoTime();
+    final TimeGuard.TimeData point = new TimeGuard.TimeData(3, "point", (Duration) null, null);
+    assertTrue(point.isTimePoint());
+    assertNull(point.getMaxAllowedDelay());
+    assertTrue(point.getCreationTimeInNanoseconds() - before >= 0L);
+
+    final TimeGuard.TimeData guard = new TimeGuard.TimeData(3, "guard", 12L, null);
+    assertFalse(guard.isTimePoint());
+    assertEquals(12L, guard.getMaxAllowedDelayInMilliseconds());
+    assertEquals(12_000_000L, guard.getMaxAllowedDelayInNanoseconds());
+  }
+
+  @Test
+  public void testCheckPoint_ManyNamedPoints() {
+    final List<String> detected = new ArrayList<>();
+    final TimeGuard.TimeAlertListener listener =
+        (delay, data) -> detected.add(data.getAlertMessage());
+    for (int i = 0; i < 500; i++) {
+      TimeGuard.addPoint("point" + i, listener);
+    }
+    TimeGuard.addPoint("point7", listener);
+    TimeGuard.addGuard("guard", 60_000L);
+
+    TimeGuard.checkPoint("point7");
+    assertEquals(2, detected.size());
+    assertThrows(IllegalStateException.class, () -> TimeGuard.checkPoint("point7"));
+
+    for (int i = 499; i >= 400; i--) {
+      TimeGuard.checkPoint("point" + i);
+    }
+    assertEquals(102, detected.size());
+    assertEquals("point400", detected.get(101));
+
+    TimeGuard.checkPoints();
+    assertEquals(501, detected.size());
+    assertFalse(TimeGuard.isEmpty());
+    TimeGuard.cancel();
+    assertTrue(TimeGuard.isEmpty());
+  }
+
+  @Test
+  public void testCheckAsync() throws Exception {
+    final AtomicReference<Duration> detected = new AtomicReference<>();
+    final AtomicReference<Throwable> detectedError = new AtomicReference<>();
+
+    final CompletableFuture<String> source = new CompletableFuture<>();
+    final CompletableFuture<String> fast =
+        TimeGuard.checkAsync(Duration.ofSeconds(10L), () -> source, (delay, error) -> {
+          detected.set(delay);
+          detectedError.set(error);
+        });
+    source.complete("fast");
+    assertEquals("fast", fast.get());
+    assertNull(detected.get());
+
+    final CompletableFuture<String> slowSource = new CompletableFuture<>();
+    final CompletableFuture<String> slow =
+        TimeGuard.checkAsync(Duration.ofMillis(10L), () -> slowSource,
+            (delay, error) -> detected.set(delay));
+    Thread.sleep(30L);
+    assertNull(detected.get());
+    slowSource.complete("slow");
+    assertEquals("slow", slow.get());
+    assertTrue(detected.get().toMillis() >= 10L);
+
+    final CompletableFuture<String> failed =
+        TimeGuard.checkAsync(Duration.ofSeconds(10L),
+            () -> CompletableFuture.supplyAsync(() -> {
+              throw new IllegalStateException("failed");
+            }), (delay, error) -> {
+              detected.set(delay);
+              detectedError.set(error);
+            });
+    assertThrows(ExecutionException.class, failed::get);
+    assertNull(detected.get());
+    assertTrue(detectedError.get() instanceof IllegalStateException);
+  }
+
+  @Test
+  public void testCheckAsync_NotificatorErrorIsReported() throws Exception {
+    final CountDownLatch latch = new CountDownLatch(2);
+    final List<Throwable> reported = new ArrayList<>();
+    MetaErrorListeners.addErrorListener((text, error) -> {
+      synchronized (reported) {
+        reported.add(error);
+      }
+      latch.countDown();
+    });
+
+    final CompletableFuture<String> source = new CompletableFuture<>();
+    final CompletableFuture<String> result =
+        TimeGuard.checkAsync(Duration.ofMillis(1L), () -> source, (delay, error) -> {
+          throw new IllegalStateException("notificator");
+        });
+    Thread.sleep(10L);
+    source.complete("slow");
+    assertEquals("slow", result.get());
+
+    final CompletableFuture<String> failed =
+        TimeGuard.checkAsync(Duration.ofSeconds(10L), () -> {
+          throw new IOException("supplier");
+        }, (delay, error) -> {
+          throw new IllegalStateException("notificator");
+        });
+    assertThrows(ExecutionException.class, failed::get);
+
+    assertTrue(latch.await(5L, TimeUnit.SECONDS));
+    synchronized (reported) {
+      assertEquals(2, reported.size());
+      for (final Throwable error : reported) {
+        assertTrue(error instanceof UnexpectedProcessingError);
+        assertEquals("notificator", error.getCause().getMessage());
+      }
+    }
+  }
+
+  @Test
+  public void testCheckAsync_CancelOnTimeout() throws Exception {
+    final CountDownLatch latch = new CountDownLatch(1);
+    final AtomicReference<Throwable> detectedError = new AtomicReference<>();
+    final CompletableFuture<String> source = new CompletableFuture<>();
+    final CompletableFuture<String> result =
+        TimeGuard.checkAsync(Duration.ofMillis(20L), () -> source, (delay, error) -> {
+          detectedError.set(error);
+          latch.countDown();
+        }, true);
+    assertTrue(latch.await(5L, TimeUnit.SECONDS));
+    assertTrue(detectedError.get() instanceof TimeoutException);
+    assertTrue(source.isCancelled());
+    assertTrue(result.isCompletedExceptionally());
+  }
+
+  @Test
+  public void testBudget_CpuTime() {
+    assumeTrue(TimeGuard.Budget.isCpuTimeSupported());
+    final AtomicReference<TimeGuard.TimeData> detected = new AtomicReference<>();
+    TimeGuard.addGuard("cpu", TimeGuard.Budget.ofCpuTime(Duration.ofMillis(5L)),
+        (delay, data) -> detected.set(data));
+    final long start = System.nanoTime();
+    long counter = 0L;
+    while (System.nanoTime() - start < 50_000_000L) {
+      counter++;
+    }
+    assertTrue(counter > 0L);
+    TimeGuard.check();
+    assertTrue(TimeGuard.isEmpty());
+    assertEquals("cpu", detected.get().getAlertMessage());
+    assertEquals(Duration.ofMillis(5L), detected.get().getMaxAllowedCpuTime());
+    assertTrue(detected.get().getDetectedCpuTime().toMillis() >= 5L);
+    assertTrue(detected.get().getDetectedAllocatedBytes() < 0L);
+  }
+
+  @Test
+  public void testBudget_AllocatedBytes() {
+    assumeTrue(TimeGuard.Budget.isAllocatedBytesSupported());
+    final AtomicReference<TimeGuard.TimeData> detected = new AtomicReference<>();
+    TimeGuard.addGuard("alloc", TimeGuard.Budget.ofWallTime(Duration.ofMinutes(1L))
+        .withAllocatedBytes(1024L), (delay, data) -> detected.set(data));
+    final List<byte[]> garbage = new ArrayList<>();
+    for (int i = 0; i < 16; i++) {
+      garbage.add(new byte[1024]);
+    }
+    assertEquals(16, garbage.size());
+    TimeGuard.check();
+    assertEquals(1024L, detected.get().getMaxAllowedAllocatedBytes());
+    assertTrue(detected.get().getDetectedAllocatedBytes() >= 16 * 1024L);
+    assertNull(detected.get().getDetectedCpuTime());
+
+    detected.set(null);
+    TimeGuard.addGuard("alloc", TimeGuard.Budget.ofAllocatedBytes(1024L * 1024L),
+        (delay, data) -> detected.set(data));
+    TimeGuard.check();
+    assertNull(detected.get());
+  }
+
+  @Test
+  public void testBudget_Values() {
+    final TimeGuard.Budget budget = TimeGuard.Budget.ofCpuTime(Duration.ofMillis(3L))
+        .withWallTime(Duration.ofMillis(7L));
+    assertEquals(Duration.ofMillis(7L), budget.getWallTime());
+    assertEquals(Duration.ofMillis(3L), budget.getCpuTime());
+    assertEquals(-1L, budget.getAllocatedBytes());
+    assertNull(TimeGuard.Budget.ofAllocatedBytes(10L).getWallTime());
+  }
+
+  @Test
+  public void testDeadline_NestedScopesNarrow() {
+    assertFalse(TimeGuard.deadline().isDefined());
+    assertFalse(TimeGuard.isExpired());
+    try (TimeGuard.Scope outer = TimeGuard.open("outer", Duration.ofMillis(500L))) {
+      final Deadline outerDeadline = TimeGuard.deadline();
+      assertEquals(outer.getDeadline().getTimeInNanoseconds(),
+          outerDeadline.getTimeInNanoseconds());
+      try (TimeGuard.Scope inner = TimeGuard.open("inner", Duration.ofMinutes(1L))) {
+        assertEquals(outerDeadline.getTimeInNanoseconds(),
+            inner.getDeadline().getTimeInNanoseconds());
+        try (TimeGuard.Scope narrow = TimeGuard.open("narrow", Duration.ofMillis(100L))) {
+          assertTrue(TimeGuard.remaining().compareTo(Duration.ofMillis(100L)) <= 0);
+          assertTrue(narrow.getDeadline().remainingNanos() <= outerDeadline.remainingNanos());
+        }
+      }
+      assertEquals(outerDeadline.getTimeInNanoseconds(),
+          TimeGuard.deadline().getTimeInNanoseconds());
+      outer.cancel();
+    }
+    assertFalse(TimeGuard.deadline().isDefined());
+  }
+
+  @Test
+  public void testDeadline_Guards() {
+    TimeGuard.addGuard("guard", Duration.ofMillis(200L), (delay, data) -> {
+    });
+    assertTrue(TimeGuard.remaining().compareTo(Duration.ofMillis(200L)) <= 0);
+    TimeGuard.addGuard("expired", Duration.ZERO, (delay, data) -> {
+    });
+    assertTrue(TimeGuard.isExpired());
+    assertEquals(Duration.ZERO, TimeGuard.remaining());
+    assertEquals(1, TimeGuard.deadline().toTimeoutMillis());
+    TimeGuard.cancelAll();
+    assertEquals(0, TimeGuard.deadline().toTimeoutMillis());
+  }
+
+  @Test
+  public void testDeadline_WrapExecutor() throws Exception {
+    final ExecutorService service = Executors.newSingleThreadExecutor();
+    try {
+      final Deadline deadline;
+      final Deadline inherited;
+      try (TimeGuard.Scope scope = TimeGuard.open("handoff", Duration.ofMillis(300L))) {
+        deadline = TimeGuard.deadline();
+        inherited = service.submit(MetaContext.wrap(TimeGuard::deadline)).get();
+        final AtomicReference<Deadline> executed = new AtomicReference<>();
+        final CountDownLatch latch = new CountDownLatch(1);
+        MetaContext.wrap((Executor) service).execute(() -> {
+          executed.set(TimeGuard.deadline());
+          latch.countDown();
+        });
+        assertTrue(latch.await(5L, TimeUnit.SECONDS));
+        assertEquals(deadline.getTimeInNanoseconds(), executed.get().getTimeInNanoseconds());
+        scope.cancel();
+      }
+      assertEquals(deadline.getTimeInNanoseconds(), inherited.getTimeInNanoseconds());
+      assertFalse(service.submit(TimeGuard::deadline).get().isDefined());
+    } finally {
+      service.shutdownNow();
+    }
+  }
+
+  @Test
+  public void testDeadline_Values() {
+    final Deadline first = Deadline.after(Duration.ofSeconds(1L));
+    final Deadline second = Deadline.after(Duration.ofSeconds(10L));
+    assertEquals(first, first.min(second));
+    assertEquals(first, second.min(first));
+    assertEquals(first, Deadline.NONE.min(first));
+    assertEquals(first, first.min(Deadline.NONE));
+    assertFalse(Deadline.NONE.isExpired());
+    assertTrue(Deadline.after(Duration.ofNanos(-1L)).isExpired());
+    assertTrue(first.toTimeoutMillis() > 0 && first.toTimeoutMillis() <= 1000);
+  }
+
+  @Test
+  public void testSampling_SkippedCalls() {
+    final AtomicInteger alerts = new AtomicInteger();
+    final TimeGuardSamplingPolicy policy = TimeGuardSamplingPolicy.oneIn(Integer.MAX_VALUE);
+    TimeGuard.setSamplingPolicy(policy);
+    for (int i = 0; i < 100; i++) {
+      TimeGuard.addGuard("skipped", Duration.ZERO, (delay, data) -> alerts.incrementAndGet());
+      TimeGuard.addPoint("point", (delay, data) -> alerts.incrementAndGet());
+      try (TimeGuard.Scope scope = TimeGuard.open("scope", Duration.ZERO,
+          (delay, data) -> alerts.incrementAndGet())) {
+        if (scope.isSampled()) {
+          continue;
+        }
+        assertFalse(scope.isOpened());
+        assertEquals(-1, scope.getLevel());
+        assertFalse(scope.getDeadline().isDefined());
+      }
+      TimeGuard.checkPoint("point");
+      TimeGuard.check();
+    }
+    assertTrue(policy.getSkippedCount() >= 297L);
+    assertTrue(alerts.get() <= 3);
+    TimeGuard.cancelAll();
+    assertTrue(TimeGuard.isEmpty());
+  }
+
+  @Test
+  public void testSampling_EveryCall() {
+    final TimeGuardSamplingPolicy policy = TimeGuardSamplingPolicy.oneIn(1);
+    TimeGuard.setSamplingPolicy(policy);
+    final AtomicInteger alerts = new AtomicInteger();
+    TimeGuard.addGuard("sampled", Duration.ZERO, (delay, data) -> alerts.incrementAndGet());
+    TimeGuard.addPoint("point", (delay, data) -> alerts.incrementAndGet());
+    TimeGuard.checkPoint("point");
+    TimeGuard.check();
+    try (TimeGuard.Scope scope = TimeGuard.open("scope", Duration.ofMinutes(1L))) {
+      assertTrue(scope.isSampled());
+    }
+    assertEquals(2, alerts.get());
+    assertEquals(3L, policy.getSampledCount());
+    assertEquals(0L, policy.getSkippedCount());
+    assertEquals(1.0d, policy.getSampleRate(), 0.0d);
+  }
+
+  @Test
+  public void testSampling_Adaptive() {
+    final TimeGuardSamplingPolicy policy =
+        TimeGuardSamplingPolicy.adaptive(1.0E-6d, Duration.ofMillis(5L), 0.01d);
+    TimeGuard.setSamplingPolicy(policy);
+    final long end = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(200L);
+    while (System.nanoTime() < end) {
+      TimeGuard.addGuard("adaptive", Duration.ofMinutes(1L));
+      TimeGuard.cancel();
+    }
+    assertTrue(policy.getSampleRate() < 1.0d);
+    assertTrue(policy.getSampleRate() >= 0.01d);
+    assertTrue(policy.getSkippedCount() > 0L);
+  }
+
+  @Test
+  public void testSampling_AdaptiveCountsNotification() {
+    final TimeGuardSamplingPolicy policy =
+        TimeGuardSamplingPolicy.adaptive(0.1d, Duration.ofMillis(5L), 0.01d);
+    TimeGuard.setSamplingPolicy(policy);
+    final long end = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(200L);
+    while (System.nanoTime() < end) {
+      TimeGuard.addPoint("slow", (long delay, TimeGuard.TimeData data) -> {
+        final long busyEnd = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(1L);
+        while (System.nanoTime() < busyEnd) {
+          Thread.onSpinWait();
+        }
+      });
+      TimeGuard.checkPoints();
+    }
+    assertTrue(policy.getSampleRate() < 0.5d);
+    assertTrue(policy.getSkippedCount() > 0L);
+  }
+
+  @Test
+  public void testTimePointIsRemovedAfterNotification() {
+    final AtomicBoolean registeredDuringNotification = new AtomicBoolean();
+    TimeGuard.addPoint("point", (long delay, TimeGuard.TimeData data) ->
+        registeredDuringNotification.set(!TimeGuard.isEmpty()));
+    TimeGuard.checkPoint("point");
+    assertTrue(registeredDuringNotification.get());
+    assertTrue(TimeGuard.isEmpty());
+  }
+
+  @Test
+  public void testListenerCancelsPointsDuringCheckPoints() {
+    final AtomicInteger notified = new AtomicInteger();
+    TimeGuard.addPoint("first", (long delay, TimeGuard.TimeData data) -> {
+      notified.incrementAndGet();
+      TimeGuard.cancelAll();
+    });
+    TimeGuard.addPoint("second", (long delay, TimeGuard.TimeData data) -> notified.incrementAndGet());
+    TimeGuard.checkPoints();
+    assertEquals(1, notified.get());
+    assertTrue(TimeGuard.isEmpty());
+    TimeGuard.addPoint("third", (long delay, TimeGuard.TimeData data) -> notified.incrementAndGet());
+    TimeGuard.checkPoint("third");
+    assertEquals(2, notified.get());
+    assertTrue(TimeGuard.isEmpty());
+  }
+
+  @Test
+  public void testListenerChangesGuardsDuringCheck() {
+    final List<String> notified = new ArrayList<>();
+    TimeGuard.addPoint("first", (long delay, TimeGuard.TimeData data) -> {
+      notified.add("first");
+      TimeGuard.cancelAll();
+      TimeGuard.addPoint("added", (long d, TimeGuard.TimeData x) -> notified.add("added"));
+    });
+    TimeGuard.addPoint("second", (long delay, TimeGuard.TimeData data) -> notified.add("second"));
+    TimeGuard.check();
+    assertEquals(Arrays.asList("first", "second"), notified);
+    assertFalse(TimeGuard.isEmpty());
+    TimeGuard.check();
+    assertEquals(Arrays.asList("first", "second", "added"), notified);
+    assertTrue(TimeGuard.isEmpty());
+  }
+
 }
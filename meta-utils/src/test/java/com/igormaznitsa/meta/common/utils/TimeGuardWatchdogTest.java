@@ -0,0 +1,208 @@
+/*
+ * Copyright 2026 Igor Maznitsa.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.igormaznitsa.meta.common.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import com.igormaznitsa.meta.common.exceptions.MetaErrorListeners;
+import com.igormaznitsa.meta.common.exceptions.TimeViolationError;
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class TimeGuardWatchdogTest {
+
+  private TimeGuardWatchdog watchdog;
+
+  @Before
+  public void before() {
+    MetaErrorListeners.clear();
+    TimeGuard.cancelAll();
+    this.watchdog = new TimeGuardWatchdog(Duration.ofMillis(1L), 64);
+    TimeGuard.setWatchdog(this.watchdog);
+  }
+
+  @After
+  public void after() {
+    TimeGuard.setWatchdog(null);
+    this.watchdog.dispose();
+    MetaErrorListeners.clear();
+    TimeGuard.cancelAll();
+  }
+
+  @Test
+  public void testFiredBeforeCheck() throws Exception {
+    final CountDownLatch latch = new CountDownLatch(1);
+    final AtomicInteger counter = new AtomicInteger();
+    final Thread guarded = Thread.currentThread();
+    TimeGuard.addGuard("hang", 20L, (delay, data) -> {
+      assertFalse(Thread.currentThread() == guarded);
+      assertEquals("hang", data.getAlertMessage());
+      assertTrue(delay >= 20L);
+      counter.incrementAndGet();
+      latch.countDown();
+    });
+    assertTrue(latch.await(5L, TimeUnit.SECONDS));
+    TimeGuard.check();
+    assertEquals(1, counter.get());
+    assertEquals(1L, this.watchdog.getFiredCount());
+    assertTrue(TimeGuard.isEmpty());
+  }
+
+  @Test
+  public void testNotFiredForCheckedInTime() {
+    TimeGuard.addGuard("fast", 100L, (delay, data) -> {
+      throw new AssertionError("Must not be called");
+    });
+    TimeGuard.check();
+    ThreadUtils.silentSleep(200L);
+    assertEquals(0L, this.watchdog.getFiredCount());
+  }
+
+  @Test
+  public void testNotFiredForSaturatedDelay() {
+    TimeGuard.addGuard("saturated", Long.MAX_VALUE, (delay, data) -> {
+      throw new AssertionError("Must not be called");
+    });
+    try (TimeGuard.Scope scope = TimeGuard.open("saturated scope", Long.MAX_VALUE,
+        (delay, data) -> {
+          throw new AssertionError("Must not be called");
+        })) {
+      assertTrue(scope.isOpened());
+      ThreadUtils.silentSleep(100L);
+      assertEquals(0L, this.watchdog.getFiredCount());
+    }
+    TimeGuard.check();
+    assertEquals(0L, this.watchdog.getFiredCount());
+    assertTrue(TimeGuard.isEmpty());
+
+    final long start = System.nanoTime();
+    final TimeGuardWatchdog.Ticket ticket = this.watchdog.watch("direct", Long.MAX_VALUE,
+        TimeGuard.NULL_TIME_ALERT_LISTENER, 0, start);
+    assertTrue(ticket.deadlineInNanoseconds - start > 0L);
+    assertTrue(ticket.cancel());
+  }
+
+  @Test
+  public void testLongDeadlineOverWheelRounds() throws Exception {
+    final CountDownLatch latch = new CountDownLatch(1);
+    final long start = System.nanoTime();
+    TimeGuard.addGuard("rounds", Duration.ofMillis(150L), (delay, data) -> latch.countDown());
+    assertTrue(latch.await(5L, TimeUnit.SECONDS));
+    assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(150L));
+    TimeGuard.cancelAll();
+  }
+
+  @Test
+  public void testScope_FiredToGlobalListeners() throws Exception {
+    final CountDownLatch latch = new CountDownLatch(1);
+    final AtomicInteger counter = new AtomicInteger();
+    MetaErrorListeners.addErrorListener((text, error) -> {
+      assertTrue(error instanceof TimeViolationError);
+      counter.incrementAndGet();
+      latch.countDown();
+    });
+    try (TimeGuard.Scope scope = TimeGuard.open("scope", 10L)) {
+      assertTrue(latch.await(5L, TimeUnit.SECONDS));
+    }
+    assertEquals(1, counter.get());
+  }
+
+  @Test
+  public void testDispose() {
+    assertFalse(this.watchdog.isDisposed());
+    this.watchdog.dispose();
+    assertTrue(this.watchdog.isDisposed());
+    TimeGuard.addGuard("disposed", 1L, (delay, data) -> {
+    });
+    ThreadUtils.silentSleep(50L);
+    assertEquals(0L, this.watchdog.getFiredCount());
+  }
+
+  private static void stallInsideGuard(final CountDownLatch latch) throws InterruptedException {
+    assertTrue(latch.await(5L, TimeUnit.SECONDS));
+  }
+
+  @Test
+  public void testStallSampler() throws Exception {
+    final StallSampler sampler = new StallSampler(0.2d, Duration.ofMillis(2L), 8, 1000);
+    final TimeGuardWatchdog sampling = new TimeGuardWatchdog(Duration.ofMillis(1L), 64, sampler);
+    TimeGuard.setWatchdog(sampling);
+    try {
+      final CountDownLatch latch = new CountDownLatch(1);
+      final AtomicReference<TimeGuard.TimeData> detected = new AtomicReference<>();
+      TimeGuard.addGuard("stall", 100L, (delay, data) -> {
+        detected.set(data);
+        latch.countDown();
+      });
+      stallInsideGuard(latch);
+      TimeGuard.check();
+
+      final StackProfile profile = detected.get().getStackProfile();
+      assertNotNull(profile);
+      assertTrue(profile.getSampleCount() > 0 && profile.getSampleCount() <= 8);
+      assertTrue(profile.toFolded(), profile.toFolded().contains(
+          TimeGuardWatchdogTest.class.getName() + ".stallInsideGuard"));
+      assertTrue(sampler.getSampleCount() > 0L);
+    } finally {
+      sampling.dispose();
+    }
+  }
+
+  @Test
+  public void testStallSampler_RateLimit() {
+    final StallSampler sampler = new StallSampler(0.5d, Duration.ofMillis(1L), 10, 10);
+    final long time = System.nanoTime();
+    int allowed = 0;
+    for (int i = 0; i < 100; i++) {
+      if (sampler.tryAcquire(time)) {
+        allowed++;
+      }
+    }
+    assertEquals(10, allowed);
+    assertEquals(90L, sampler.getSkippedCount());
+    assertTrue(sampler.tryAcquire(time + TimeUnit.SECONDS.toNanos(1L)));
+  }
+
+  @Test
+  public void testStackProfile_Folding() {
+    final StackProfile.Builder builder = new StackProfile.Builder();
+    assertTrue(builder.isEmpty());
+    final StackTraceElement main = new StackTraceElement("a.Main", "main", null, 1);
+    final StackTraceElement work = new StackTraceElement("a.Worker", "work", null, 2);
+    final StackTraceElement io = new StackTraceElement("a.Worker", "read", null, 3);
+    builder.add(new StackTraceElement[] {work, main});
+    builder.add(new StackTraceElement[] {io, work, main});
+    builder.add(new StackTraceElement[] {io, work, main});
+    final StackProfile profile = builder.build();
+    assertEquals(3, profile.getSampleCount());
+    assertEquals("a.Main.main;a.Worker.work 1\na.Main.main;a.Worker.work;a.Worker.read 2\n",
+        profile.toFolded());
+    final StackProfile.Node root = profile.getRoot().getChildren().get(0);
+    assertEquals("a.Main.main", root.getFrame());
+    assertEquals(3, root.getCount());
+    assertEquals(0, root.getSelfCount());
+  }
+}
@@ -0,0 +1,124 @@
+/*
+ * Copyright 2026 Igor Maznitsa.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.igormaznitsa.meta.common.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Map;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class TimePointRecorderTest {
+
+  @Before
+  public void before() {
+    TimeGuard.cancelAll();
+  }
+
+  @After
+  public void after() {
+    TimeGuard.cancelAll();
+  }
+
+  @Test
+  public void testBuckets() {
+    for (long value = 0L; value < 100_000L; value += 7L) {
+      final int index = LatencyHistogram.bucketIndex(value);
+      assertTrue(LatencyHistogram.bucketUpperBound(index) >= value);
+      if (index > 0) {
+        assertTrue(LatencyHistogram.bucketUpperBound(index - 1) < value);
+      }
+    }
+    assertEquals(0, LatencyHistogram.bucketIndex(-10L));
+    assertEquals(LatencyHistogram.bucketIndex(Long.MAX_VALUE),
+        LatencyHistogram.bucketIndex(1L << 50));
+  }
+
+  @Test
+  public void testPercentiles() {
+    final LatencyHistogram histogram = new LatencyHistogram();
+    for (int i = 1; i <= 1000; i++) {
+      histogram.record(i * 1000L);
+    }
+    final LatencyHistogram.Snapshot snapshot = histogram.snapshot();
+    assertEquals(1000L, snapshot.getCount());
+    assertEquals(1_000_000L, snapshot.getMax());
+    final long p50 = snapshot.getP50().toNanos();
+    assertTrue(p50 >= 500_000L && p50 <= 500_000L + 500_000L / 16);
+    final long p99 = snapshot.getP99().toNanos();
+    assertTrue(p99 >= 990_000L && p99 <= 1_000_000L);
+    assertEquals(1_000_000L, snapshot.getP999().toNanos());
+    assertEquals(0L, LatencyHistogram.Snapshot.EMPTY.getValueAtPercentile(50.0d));
+  }
+
+  @Test
+  public void testMerge() {
+    final LatencyHistogram first = new LatencyHistogram();
+    final LatencyHistogram second = new LatencyHistogram();
+    first.record(10L);
+    second.record(20L);
+    second.record(30L);
+    final LatencyHistogram.Snapshot merged = first.snapshot().merge(second.snapshot());
+    assertEquals(3L, merged.getCount());
+    assertEquals(30L, merged.getMax());
+    assertEquals(1L, first.snapshot().getCount());
+  }
+
+  @Test
+  public void testRecordTimePoints() throws Exception {
+    final TimePointRecorder recorder = new TimePointRecorder();
+    for (int i = 0; i < 10; i++) {
+      TimeGuard.addPoint("first", recorder);
+      TimeGuard.addPoint("second", recorder);
+      TimeGuard.checkPoint("first");
+      TimeGuard.checkPoint("second");
+    }
+    final Thread thread = new Thread(() -> {
+      TimeGuard.addPoint("first", recorder);
+      TimeGuard.checkPoints();
+    });
+    thread.start();
+    thread.join();
+
+    final Map<String, LatencyHistogram.Snapshot> snapshots = recorder.snapshots();
+    assertEquals(2, snapshots.size());
+    assertEquals(11L, snapshots.get("first").getCount());
+    assertEquals(10L, recorder.snapshot("second").getCount());
+    assertEquals(0L, recorder.snapshot("unknown").getCount());
+
+    recorder.reset();
+    assertEquals(0L, recorder.snapshot("first").getCount());
+  }
+  @Test
+  public void testShortLivedThreads() throws Exception {
+    final TimePointRecorder recorder = new TimePointRecorder();
+    for (int i = 0; i < 500; i++) {
+      final long value = i + 1L;
+      final Thread thread = new Thread(() -> recorder.record("churn", value * 1000L));
+      thread.start();
+      thread.join();
+    }
+    final LatencyHistogram.Snapshot snapshot = recorder.snapshot("churn");
+    assertEquals(500L, snapshot.getCount());
+    assertTrue(snapshot.getMax() >= 500_000L);
+    recorder.reset();
+    assertEquals(0L, recorder.snapshot("churn").getCount());
+  }
+
+}